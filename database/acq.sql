@@ -7,8 +7,12 @@ ALTER DATABASE acquirer_db OWNER TO acquirer_user;
 -- Connect to acquirer_db and create tables
 \c acquirer_db;
 
+-- Range-partitioned by transaction_time: one partition per day, created ahead and dropped after
+-- the retention period by the server's TransactionPartitionManager. The partition key has to be
+-- part of the primary key, so transaction_events can no longer carry a foreign key to it; the
+-- manager deletes a partition's events in the same transaction as the DROP instead.
 CREATE TABLE IF NOT EXISTS transactions (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     source_number VARCHAR(20),
     target_number VARCHAR(20),
     status VARCHAR(10),
@@ -16,20 +20,35 @@ CREATE TABLE IF NOT EXISTS transactions (
     transaction_time TIMESTAMP,
     update_time TIMESTAMP,
     stan VARCHAR(6),
-    mti VARCHAR(4)
-);
+    mti VARCHAR(4),
+    rrn VARCHAR(12),
+    response_code VARCHAR(2),
+    pan_hash CHAR(64),
+    PRIMARY KEY (id, transaction_time)
+) PARTITION BY RANGE (transaction_time);
+
+-- Catches rows outside every daily partition (clock skew, replays of old journals)
+CREATE TABLE IF NOT EXISTS transactions_default PARTITION OF transactions DEFAULT;
 
 CREATE TABLE IF NOT EXISTS transaction_events (
     id BIGSERIAL PRIMARY KEY,
     transaction_id BIGINT,
     event_type VARCHAR(20),
     iso_message TEXT,
-    event_time TIMESTAMP,
-    FOREIGN KEY (transaction_id) REFERENCES transactions(id)
+    event_time TIMESTAMP
 );
 
+-- Ids are handed out in blocks of 1000 (pooled-lo) so inserts can be batched
+ALTER SEQUENCE transactions_id_seq INCREMENT BY 1000;
+ALTER SEQUENCE transaction_events_id_seq INCREMENT BY 1000;
+
 CREATE INDEX idx_transactions_stan ON transactions(stan);
-CREATE INDEX idx_transactions_time ON transactions(transaction_time);
+-- Keyset pagination order of the query API
+CREATE INDEX idx_transactions_time ON transactions(transaction_time, id);
+-- 0210 status updates look rows up by RRN
+CREATE INDEX idx_transactions_rrn ON transactions(rrn);
+CREATE INDEX idx_transactions_pan_hash ON transactions(pan_hash);
+CREATE INDEX idx_transactions_merchant ON transactions(target_number);
 CREATE INDEX idx_events_transaction_id ON transaction_events(transaction_id);
 
 GRANT ALL PRIVILEGES ON ALL TABLES IN SCHEMA public TO acquirer_user;
@@ -2,4 +2,40 @@ CREATE DATABASE issuer_db;
 
 CREATE ROLE issuer_user LOGIN PASSWORD 'iss123';
 
-ALTER DATABASE issuer_db OWNER TO issuer_user;
\ No newline at end of file
+ALTER DATABASE issuer_db OWNER TO issuer_user;
+
+-- Connect to issuer_db and create tables
+\c issuer_db;
+
+-- Loaded into the authorize service's in-memory AccountStore at startup and written back
+-- behind it. Amounts are in minor units; available_balance is already net of open holds.
+CREATE TABLE IF NOT EXISTS accounts (
+    account_id BIGINT PRIMARY KEY,
+    available_balance BIGINT NOT NULL,
+    daily_limit BIGINT NOT NULL,
+    daily_spent BIGINT NOT NULL DEFAULT 0,
+    spent_day INT NOT NULL DEFAULT 0,      -- epoch day (UTC) daily_spent belongs to
+    status SMALLINT NOT NULL DEFAULT 0,    -- 0 active, 1 blocked
+    updated_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS cards (
+    pan VARCHAR(19) PRIMARY KEY,
+    account_id BIGINT NOT NULL REFERENCES accounts(account_id)
+);
+
+-- One row per authorization decision; HELD rows are reloaded as open holds on startup
+CREATE TABLE IF NOT EXISTS authorizations (
+    rrn VARCHAR(12) PRIMARY KEY,
+    account_id BIGINT,
+    amount BIGINT,
+    response_code VARCHAR(2),
+    approval_code VARCHAR(6),
+    hold_status VARCHAR(10),               -- HELD, RELEASED, DECLINED
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_cards_account_id ON cards(account_id);
+CREATE INDEX idx_authorizations_held ON authorizations(created_at) WHERE hold_status = 'HELD';
+
+GRANT ALL PRIVILEGES ON ALL TABLES IN SCHEMA public TO issuer_user;
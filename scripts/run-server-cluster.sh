@@ -0,0 +1,26 @@
+#!/bin/bash
+
+# Run several server replicas on one machine with RRN ownership enabled.
+# Usage: ./run-server-cluster.sh [replicas]   (build first: cd source && mvn clean install)
+
+REPLICAS=${1:-3}
+JAR=$(ls source/server/target/server-*.jar | head -1)
+
+NODES=""
+for ((i = 0; i < REPLICAS; i++)); do
+  NODES="${NODES:+$NODES,}127.0.0.1:$((9590 + i))"
+done
+
+for ((i = 0; i < REPLICAS; i++)); do
+  java -Diso8583.database.write.enabled=false -jar "$JAR" server \
+    --server.port=$((8080 + i * 10)) \
+    --iso8583.server.port=$((8583 + i)) \
+    --grpc.server.port=$((9090 + i)) \
+    --iso8583.cluster.enabled=true \
+    --iso8583.cluster.nodes="$NODES" \
+    --iso8583.cluster.node-index=$i > "server-$i.log" 2>&1 &
+  echo "Started server replica $i (ISO port $((8583 + i)), gRPC port $((9090 + i)), pid $!)"
+done
+
+echo "Cluster nodes: $NODES"
+wait
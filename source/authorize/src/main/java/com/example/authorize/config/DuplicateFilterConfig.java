@@ -0,0 +1,24 @@
+package com.example.authorize.config;
+
+import com.example.common.dedup.DuplicateFilter;
+import com.example.common.model.Iso8583Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Duplicate 0200 suppression: Kafka redelivers a batch whose commit was lost, and the acquirer
+ * retries 0200s it got no answer for. Repeats within the window get the original 0210 back.
+ */
+@Configuration
+public class DuplicateFilterConfig {
+
+    @Bean
+    public DuplicateFilter<Iso8583Message> duplicateFilter(
+            @Value("${authorize.dedup.expected-per-window:1000000}") long expectedPerWindow,
+            @Value("${authorize.dedup.false-positive-rate:0.001}") double falsePositiveRate,
+            @Value("${authorize.dedup.window-minutes:10}") long windowMinutes,
+            @Value("${authorize.dedup.cache-capacity:131072}") int cacheCapacity) {
+        return new DuplicateFilter<>(expectedPerWindow, falsePositiveRate, windowMinutes * 60_000L, cacheCapacity);
+    }
+}
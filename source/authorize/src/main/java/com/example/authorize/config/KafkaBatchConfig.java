@@ -0,0 +1,55 @@
+package com.example.authorize.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.util.backoff.FixedBackOff;
+
+/**
+ * Container factory for the batch authorization listener. Offsets are committed once per poll,
+ * after the listener returns (AckMode.BATCH), so a batch whose responses were not acknowledged
+ * by the broker is thrown back and redelivered instead of committed. With a Kafka transaction
+ * manager (authorize.kafka.mode=transactional) the offsets are sent in the producer transaction
+ * instead, and a failed batch is aborted and redelivered.
+ *
+ * Records the EnvelopeDeserializer skipped on their iso8583-mti header (authorize only answers
+ * 0200, 0220, 0400 and 0420) arrive with a null value and are dropped before any listener sees them.
+ */
+@Configuration
+public class KafkaBatchConfig {
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory,
+            ObjectProvider<KafkaTransactionManager<String, String>> transactionManager,
+            @Value("${authorize.kafka.batch.consumers:1}") int consumers,
+            @Value("${authorize.kafka.batch.retries:3}") int retries) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(consumers);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setRecordFilterStrategy(skipFilteredRecords());
+        factory.setAckDiscarded(true);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(500L, retries)));
+        transactionManager.ifAvailable(manager -> {
+            factory.getContainerProperties().setKafkaAwareTransactionManager(manager);
+            factory.setAfterRollbackProcessor(new DefaultAfterRollbackProcessor<>(new FixedBackOff(500L, retries)));
+        });
+        return factory;
+    }
+
+    // Also named by the record-mode listener
+    @Bean
+    public RecordFilterStrategy<String, String> skipFilteredRecords() {
+        return record -> record.value() == null;
+    }
+}
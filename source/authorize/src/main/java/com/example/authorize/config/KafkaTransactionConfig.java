@@ -0,0 +1,45 @@
+package com.example.authorize.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+
+import java.util.Map;
+
+/**
+ * Exactly-once read-process-write for authorize.kafka.mode=transactional. The producer factory
+ * replaces Boot's with a transactional, idempotent one; the batch listener container then runs
+ * every poll in a Kafka transaction, sending the 0210s and the consumed offsets atomically.
+ * Consumers of the response topic must read with isolation.level=read_committed.
+ */
+@Configuration
+@ConditionalOnProperty(name = "authorize.kafka.mode", havingValue = "transactional")
+public class KafkaTransactionConfig {
+
+    @Bean
+    public ProducerFactory<String, String> kafkaProducerFactory(
+            KafkaProperties kafkaProperties,
+            ObjectProvider<SslBundles> sslBundles,
+            @Value("${authorize.kafka.transactional.id-prefix:authorize-tx-}") String transactionIdPrefix) {
+        Map<String, Object> config = kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable());
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        DefaultKafkaProducerFactory<String, String> factory = new DefaultKafkaProducerFactory<>(config);
+        // Must be unique per instance; the consumer group generation fences zombie instances
+        factory.setTransactionIdPrefix(transactionIdPrefix);
+        return factory;
+    }
+
+    @Bean
+    public KafkaTransactionManager<String, String> kafkaTransactionManager(ProducerFactory<String, String> producerFactory) {
+        return new KafkaTransactionManager<>(producerFactory);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.authorize.config;
+
+import com.example.common.transport.InJvmTransport;
+import com.example.common.transport.MappedFileTransport;
+import com.example.common.transport.MessageTransport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Non-Kafka hops for colocated deployments (authorize.transport): in-jvm when the client is started in
+ * the same process, mapped when it runs on the same host and shares the queue directory. With either, the
+ * Kafka listeners stay off and {@link com.example.authorize.service.AuthorizationTransportListener}
+ * serves requests. The client must use the matching iso8583.client.authorization.transport.
+ */
+@Configuration
+@ConditionalOnExpression("'${authorize.transport:kafka}' != 'kafka'")
+public class TransportConfig {
+
+    @Bean
+    public MessageTransport authorizationTransport(
+            @Value("${authorize.transport}") String transport,
+            @Value("${authorize.transport.mapped.directory:${java.io.tmpdir}/iso8583-transport}") String directory,
+            @Value("${authorize.transport.mapped.capacity-bytes:16777216}") int capacity,
+            @Value("${authorize.transport.in-jvm.capacity:65536}") int inJvmCapacity,
+            @Value("${authorize.transport.send-timeout-ms:1000}") long sendTimeoutMs) {
+        return switch (transport) {
+            case "in-jvm" -> InJvmTransport.shared(inJvmCapacity, sendTimeoutMs, "com.example.client.DemoApplication");
+            case "mapped" -> new MappedFileTransport(Path.of(directory), capacity, sendTimeoutMs);
+            default -> throw new IllegalArgumentException("Unknown authorize.transport: " + transport);
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.authorize.consumer;
+
+/**
+ * Offsets of one partition that have been dispatched but not yet committed, in dispatch order.
+ * Records complete in any order; {@link #committable()} only moves past a record once it and
+ * every record before it are done, so a commit never skips unfinished work.
+ */
+class OffsetTracker {
+
+    private long[] offsets = new long[64];
+    private boolean[] done = new boolean[64];
+    private int head;   // index of the oldest tracked record
+    private int size;
+    private long next;  // offset to commit when nothing is in flight
+
+    OffsetTracker(long startOffset) {
+        this.next = startOffset;
+    }
+
+    synchronized void dispatched(long offset) {
+        if (size == offsets.length) {
+            grow();
+        }
+        int tail = (head + size) & (offsets.length - 1);
+        offsets[tail] = offset;
+        done[tail] = false;
+        size++;
+        next = offset + 1;
+    }
+
+    synchronized void completed(long offset) {
+        int index = indexOf(offset);
+        if (index >= 0) {
+            done[index] = true;
+        }
+        while (size > 0 && done[head]) {
+            head = (head + 1) & (offsets.length - 1);
+            size--;
+        }
+    }
+
+    /**
+     * The offset to commit: the oldest record still in flight, or one past the last dispatched record.
+     */
+    synchronized long committable() {
+        return size == 0 ? next : offsets[head];
+    }
+
+    synchronized int inFlight() {
+        return size;
+    }
+
+    // Offsets increase in dispatch order, so the ring is sorted from head
+    private int indexOf(long offset) {
+        int low = 0;
+        int high = size - 1;
+        int mask = offsets.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = offsets[(head + mid) & mask];
+            if (value < offset) low = mid + 1;
+            else if (value > offset) high = mid - 1;
+            else return (head + mid) & mask;
+        }
+        return -1;
+    }
+
+    private void grow() {
+        long[] grownOffsets = new long[offsets.length * 2];
+        boolean[] grownDone = new boolean[done.length * 2];
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) & (offsets.length - 1);
+            grownOffsets[i] = offsets[index];
+            grownDone[i] = done[index];
+        }
+        offsets = grownOffsets;
+        done = grownDone;
+        head = 0;
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.authorize.consumer;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Processes the records of each partition concurrently while keeping per-key order.
+ *
+ * One thread owns the {@link Consumer}: it polls, hands each record to the single-threaded worker
+ * lane chosen by the record's key, and commits. A record counts as done when the future returned by
+ * the processor completes, and a record only starts once the previous record with the same key is
+ * done, retries included, so records with the same key are processed in offset order while unrelated
+ * keys run on other lanes no matter how many partitions there are. A failed record is retried on its
+ * lane up to {@code maxAttempts} times before anything after it with the same key. For each partition
+ * the commit only goes up to the first record that is not done yet (see {@link OffsetTracker}), so a
+ * restart redelivers unfinished work and never skips it. A record that still fails after its last
+ * attempt halts its partition: the partition is paused, and the commit stays below the record until
+ * a restart or rebalance redelivers it. When too many records are in flight the assigned partitions
+ * are paused.
+ */
+public class ParallelConsumer<K, V> implements Runnable {
+
+    @FunctionalInterface
+    public interface RecordProcessor<K, V> {
+        CompletableFuture<?> process(ConsumerRecord<K, V> record) throws Exception;
+    }
+
+    private final Consumer<K, V> consumer;
+    private final Collection<String> topics;
+    private final Function<ConsumerRecord<K, V>, Object> keyOf;
+    private final RecordProcessor<K, V> processor;
+    private final ExecutorService[] lanes;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final long commitIntervalMs;
+
+    private final Map<TopicPartition, OffsetTracker> trackers = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Long> committed = new HashMap<>(); // consumer thread only
+    // The last record dispatched per key, until it is done
+    private final Map<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Set<TopicPartition> halted = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private volatile boolean running = true;
+    private boolean paused;
+    private long lastCommit;
+
+    public ParallelConsumer(Consumer<K, V> consumer, Collection<String> topics, Function<ConsumerRecord<K, V>, Object> keyOf,
+                            RecordProcessor<K, V> processor, int workers, int maxInFlight, int maxAttempts,
+                            long commitIntervalMs) {
+        this.consumer = consumer;
+        this.topics = topics;
+        this.keyOf = keyOf;
+        this.processor = processor;
+        this.maxInFlight = maxInFlight;
+        this.maxAttempts = maxAttempts;
+        this.commitIntervalMs = commitIntervalMs;
+        this.lanes = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            String name = "parallel-consumer-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public void run() {
+        consumer.subscribe(topics, new RebalanceListener());
+        try {
+            while (running) {
+                for (ConsumerRecord<K, V> record : consumer.poll(Duration.ofMillis(100))) {
+                    dispatch(record);
+                }
+                applyBackpressure();
+                haltFailedPartitions();
+                if (System.currentTimeMillis() - lastCommit >= commitIntervalMs) {
+                    commit(false);
+                }
+            }
+        } catch (WakeupException e) {
+            if (running) throw e;
+        } finally {
+            drain(TimeUnit.SECONDS.toMillis(10));
+            try {
+                commit(true);
+            } catch (Exception e) {
+                System.err.println("❌ Final offset commit failed: " + e.getMessage());
+            }
+            consumer.close();
+            for (ExecutorService lane : lanes) {
+                lane.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Stop polling, let in-flight records finish and commit. Safe to call from any thread.
+     */
+    public void stop() {
+        running = false;
+        consumer.wakeup();
+    }
+
+    public long getProcessedCount() { return processed.get(); }
+    public int getInFlight() { return inFlight.get(); }
+    public Set<TopicPartition> getHaltedPartitions() { return Set.copyOf(halted); }
+
+    private void dispatch(ConsumerRecord<K, V> record) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        if (halted.contains(partition)) {
+            return; // Fetched before the pause; redelivered with the failed record
+        }
+        OffsetTracker tracker = trackers.computeIfAbsent(partition, p -> new OffsetTracker(record.offset()));
+        tracker.dispatched(record.offset());
+        inFlight.incrementAndGet();
+        Object key = keyOf.apply(record);
+        int lane = Math.floorMod(key == null ? record.partition() : key.hashCode(), lanes.length);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Runnable start = () -> attempt(record, partition, tracker, lane, 1, done);
+        CompletableFuture<Void> previous = key == null ? null : tails.put(key, done);
+        if (previous == null) {
+            lanes[lane].execute(start);
+        } else {
+            previous.thenRunAsync(start, lanes[lane]);
+        }
+        if (key != null) {
+            done.whenComplete((value, error) -> tails.remove(key, done));
+        }
+    }
+
+    private void attempt(ConsumerRecord<K, V> record, TopicPartition partition, OffsetTracker tracker, int lane,
+                         int attempt, CompletableFuture<Void> done) {
+        CompletableFuture<?> result;
+        try {
+            result = processor.process(record);
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, error) -> {
+            if (error == null) {
+                tracker.completed(record.offset());
+                inFlight.decrementAndGet();
+                processed.incrementAndGet();
+                done.complete(null);
+            } else if (attempt < maxAttempts && running) {
+                // Later records with this key wait on done, so the retry still goes first
+                lanes[lane].execute(() -> attempt(record, partition, tracker, lane, attempt + 1, done));
+            } else {
+                // Never marked completed, and its key stays blocked: the commit cannot pass it
+                System.err.println("🛑 Halting " + partition + " at offset " + record.offset()
+                        + " after " + attempt + " attempts: " + error.getMessage());
+                halted.add(partition);
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    // Keep partitions with a failed record paused until they are revoked
+    private void haltFailedPartitions() {
+        if (halted.isEmpty()) {
+            return;
+        }
+        Set<TopicPartition> assigned = consumer.assignment();
+        List<TopicPartition> pause = halted.stream().filter(assigned::contains).toList();
+        if (!pause.isEmpty()) {
+            consumer.pause(pause);
+        }
+    }
+
+    private void applyBackpressure() {
+        int current = inFlight.get();
+        if (!paused && current >= maxInFlight) {
+            consumer.pause(consumer.assignment());
+            paused = true;
+        } else if (paused && current <= maxInFlight / 2) {
+            consumer.resume(consumer.paused());
+            paused = false;
+        }
+    }
+
+    private void commit(boolean sync) {
+        lastCommit = System.currentTimeMillis();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        trackers.forEach((partition, tracker) -> {
+            long offset = tracker.committable();
+            Long previous = committed.get(partition);
+            if (previous == null || offset > previous) {
+                offsets.put(partition, new OffsetAndMetadata(offset));
+            }
+        });
+        if (offsets.isEmpty()) {
+            return;
+        }
+        if (sync) {
+            consumer.commitSync(offsets);
+        } else {
+            consumer.commitAsync(offsets, (result, error) -> {
+                if (error != null) System.err.println("❌ Offset commit failed: " + error.getMessage());
+            });
+        }
+        offsets.forEach((partition, offset) -> committed.put(partition, offset.offset()));
+    }
+
+    private void drain(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private class RebalanceListener implements ConsumerRebalanceListener {
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            // Hand over what is already done; records still in flight are redelivered to the new owner
+            try {
+                commit(true);
+            } catch (Exception e) {
+                System.err.println("❌ Offset commit on revoke failed: " + e.getMessage());
+            }
+            partitions.forEach(partition -> {
+                trackers.remove(partition);
+                committed.remove(partition);
+                halted.remove(partition);
+            });
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            // Trackers start at the first record dispatched from each partition
+        }
+    }
+}
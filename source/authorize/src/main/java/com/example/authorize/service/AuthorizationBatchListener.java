@@ -0,0 +1,150 @@
+package com.example.authorize.service;
+
+import com.example.common.kafka.Iso8583Headers;
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Authorizes a whole poll of requests at once. Records are spread over single-threaded lanes by
+ * PAN (RRN when there is no PAN), so requests for one card keep their order while different
+ * cards are authorized in parallel; the number of lanes is independent of the partition count.
+ * Responses are flushed as one producer batch and the listener returns - letting the container
+ * commit the offsets - only after every send has been acknowledged. In transactional mode the
+ * container commits responses and offsets together once the listener returns.
+ */
+@Component
+@ConditionalOnExpression("'${authorize.transport:kafka}' == 'kafka' and "
+        + "('${authorize.kafka.mode:batch}' == 'batch' or '${authorize.kafka.mode:batch}' == 'transactional')")
+public class AuthorizationBatchListener {
+
+    private final AuthorizationService authorizationService;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final String responseTopic;
+    private final long sendTimeoutMs;
+    private final ExecutorService[] lanes;
+
+    public AuthorizationBatchListener(AuthorizationService authorizationService,
+                                      KafkaTemplate<String, String> kafkaTemplate,
+                                      @Value("${authorize.kafka.response-topic:iso8583-responses}") String responseTopic,
+                                      @Value("${authorize.kafka.batch.lanes:8}") int lanes,
+                                      @Value("${authorize.kafka.batch.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.authorizationService = authorizationService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.responseTopic = responseTopic;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.lanes = new ExecutorService[lanes];
+        for (int i = 0; i < lanes; i++) {
+            String name = "authorize-lane-" + i;
+            this.lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @KafkaListener(topics = "${authorize.kafka.request-topic:iso8583-requests}", groupId = "authorize-service",
+            containerFactory = "batchListenerContainerFactory")
+    public void processAuthorizationBatch(List<ConsumerRecord<String, String>> records) {
+        List<List<ConsumerRecord<String, String>>> byLane = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            byLane.add(new ArrayList<>());
+        }
+        for (ConsumerRecord<String, String> record : records) {
+            byLane.get(Math.floorMod(laneKey(record).hashCode(), lanes.length)).add(record);
+        }
+
+        List<CompletableFuture<List<ProducerRecord<String, String>>>> laneResults = new ArrayList<>();
+        for (int i = 0; i < lanes.length; i++) {
+            List<ConsumerRecord<String, String>> laneRecords = byLane.get(i);
+            if (!laneRecords.isEmpty()) {
+                laneResults.add(CompletableFuture.supplyAsync(() -> authorizeLane(laneRecords), lanes[i]));
+            }
+        }
+
+        // Sent from the listener thread: a container-managed Kafka transaction is bound to it
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(records.size());
+        for (CompletableFuture<List<ProducerRecord<String, String>>> lane : laneResults) {
+            for (ProducerRecord<String, String> response : lane.join()) {
+                try {
+                    sends.add(kafkaTemplate.send(response));
+                } catch (Exception e) {
+                    sends.add(CompletableFuture.failedFuture(e));
+                }
+            }
+        }
+        if (kafkaTemplate.inTransaction()) {
+            // The commit flushes and fails if any send failed; the offsets go in the same transaction
+            if (sends.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                throw new IllegalStateException("Authorization response send failed, rolling back batch of " + records.size());
+            }
+            System.out.println("📤 Authorized batch of " + records.size() + " requests, " + sends.size() + " responses in transaction");
+            return;
+        }
+        kafkaTemplate.flush();
+        try {
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for authorization responses to be sent", e);
+        } catch (ExecutionException | TimeoutException e) {
+            // Not committed: the error handler seeks back and the batch is authorized again
+            throw new IllegalStateException("Authorization responses not acknowledged for batch of "
+                    + records.size() + ": " + e.getMessage(), e);
+        }
+        System.out.println("📤 Authorized batch of " + records.size() + " requests, sent " + sends.size() + " responses");
+    }
+
+    private List<ProducerRecord<String, String>> authorizeLane(List<ConsumerRecord<String, String>> records) {
+        List<ProducerRecord<String, String>> responses = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            if (record.value() == null) continue;
+            Iso8583Message response;
+            try {
+                response = authorizationService.authorize(Iso8583Parser.parseMessage(record.value()));
+            } catch (Exception e) {
+                // A malformed request must not hold back the rest of the batch
+                System.err.println("❌ Error processing authorization at offset " + record.offset() + ": " + e.getMessage());
+                continue;
+            }
+            if (response != null) {
+                responses.add(AuthorizationService.responseRecord(responseTopic, response, record.headers()));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * PAN (field 2) found without a full parse, falling back to the record key (RRN) and then the partition.
+     */
+    static String laneKey(ConsumerRecord<String, String> record) {
+        String pan = Iso8583Headers.field(record.value(), 2);
+        if (pan != null) return pan;
+        return record.key() != null ? record.key() : String.valueOf(record.partition());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.authorize.service;
+
+import com.example.authorize.consumer.ParallelConsumer;
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs authorization on a {@link ParallelConsumer}: records keyed by PAN (RRN when there is no PAN)
+ * are authorized on {@code workers} lanes, and a record is done once its response has been
+ * acknowledged by the broker.
+ */
+@Component
+@ConditionalOnExpression("'${authorize.transport:kafka}' == 'kafka' and '${authorize.kafka.mode:batch}' == 'parallel'")
+public class AuthorizationParallelConsumer {
+
+    private final ParallelConsumer<String, String> parallelConsumer;
+    private Thread thread;
+
+    public AuthorizationParallelConsumer(ConsumerFactory<String, String> consumerFactory,
+                                         AuthorizationService authorizationService,
+                                         KafkaTemplate<String, String> kafkaTemplate,
+                                         @Value("${authorize.kafka.request-topic:iso8583-requests}") String requestTopic,
+                                         @Value("${authorize.kafka.response-topic:iso8583-responses}") String responseTopic,
+                                         @Value("${authorize.kafka.parallel.workers:16}") int workers,
+                                         @Value("${authorize.kafka.parallel.max-in-flight:5000}") int maxInFlight,
+                                         @Value("${authorize.kafka.parallel.max-attempts:3}") int maxAttempts,
+                                         @Value("${authorize.kafka.parallel.commit-interval-ms:100}") long commitIntervalMs) {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        this.parallelConsumer = new ParallelConsumer<>(
+                consumerFactory.createConsumer("authorize-service", null, "-parallel", overrides),
+                List.of(requestTopic),
+                AuthorizationBatchListener::laneKey,
+                record -> authorize(record, authorizationService, kafkaTemplate, responseTopic),
+                workers, maxInFlight, maxAttempts, commitIntervalMs);
+    }
+
+    private static CompletableFuture<?> authorize(ConsumerRecord<String, String> record, AuthorizationService authorizationService,
+                                                  KafkaTemplate<String, String> kafkaTemplate, String responseTopic) {
+        if (record.value() == null) {
+            // Skipped by the deserializer on its iso8583-mti header
+            return CompletableFuture.completedFuture(null);
+        }
+        Iso8583Message request;
+        try {
+            request = Iso8583Parser.parseMessage(record.value());
+        } catch (Exception e) {
+            // Retrying cannot fix a malformed request
+            System.err.println("❌ Error processing authorization at offset " + record.offset() + ": " + e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+        Iso8583Message response = authorizationService.authorize(request);
+        return response == null
+                ? CompletableFuture.completedFuture(null)
+                : kafkaTemplate.send(AuthorizationService.responseRecord(responseTopic, response, record.headers()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        thread = new Thread(parallelConsumer, "authorize-parallel-consumer");
+        thread.start();
+        System.out.println("🚀 Parallel authorization consumer started");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        parallelConsumer.stop();
+        if (thread != null) thread.join(15_000);
+    }
+}
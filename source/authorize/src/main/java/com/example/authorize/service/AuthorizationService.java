@@ -1,39 +1,72 @@
 package com.example.authorize.service;
 
+import com.example.authorize.store.AccountStore;
+import com.example.authorize.store.Decision;
+import com.example.authorize.velocity.VelocityEngine;
+import com.example.common.dedup.DuplicateFilter;
+import com.example.common.kafka.Iso8583Fields;
+import com.example.common.kafka.Iso8583Headers;
 import com.example.common.model.Iso8583Message;
 import com.example.common.parser.Iso8583Parser;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class AuthorizationService {
 
+    private static final DateTimeFormatter TRANSMISSION_TIME = DateTimeFormatter.ofPattern("MMddHHmmss");
+
+    private static final String FORMAT_ERROR = "30";
+
     private final KafkaTemplate<String, String> kafkaTemplate;
-    private final Random random = new Random();
+    private final AccountStore accountStore;
+    private final DuplicateFilter<Iso8583Message> duplicateFilter;
+    private final VelocityEngine velocityEngine;
+    private final String responseTopic;
 
-    public AuthorizationService(KafkaTemplate<String, String> kafkaTemplate) {
+    public AuthorizationService(KafkaTemplate<String, String> kafkaTemplate, AccountStore accountStore,
+                                DuplicateFilter<Iso8583Message> duplicateFilter, VelocityEngine velocityEngine,
+                                @Value("${authorize.kafka.response-topic:iso8583-responses}") String responseTopic) {
         this.kafkaTemplate = kafkaTemplate;
+        this.responseTopic = responseTopic;
+        this.accountStore = accountStore;
+        this.duplicateFilter = duplicateFilter;
+        this.velocityEngine = velocityEngine;
+    }
+
+    // Single-record mode, used when authorize.kafka.mode=record
+    @KafkaListener(topics = "${authorize.kafka.request-topic:iso8583-requests}", groupId = "authorize-service",
+            autoStartup = "#{'${authorize.transport:kafka}' == 'kafka' and '${authorize.kafka.mode:batch}' == 'record'}",
+            filter = "skipFilteredRecords")
+    public void processAuthorizationRequest(ConsumerRecord<String, String> record) {
+        process(record.value(), record.headers());
     }
 
-    @KafkaListener(topics = "iso8583-requests", groupId = "authorize-service")
     public void processAuthorizationRequest(String message) {
+        process(message, null);
+    }
+
+    private void process(String message, Headers headers) {
         try {
             System.out.println("📥 Received authorization request: " + message);
             
             Iso8583Message request = Iso8583Parser.parseMessage(message);
-            String mti = request.getMti();
+            Iso8583Message response = authorize(request);
             
-            if ("0200".equals(mti)) {
-                Iso8583Message response = createAuthorizationResponse(request);
+            if (response != null) {
                 String responseMessage = response.toString();
                 
                 System.out.println("📤 Sending authorization response: " + responseMessage);
-                kafkaTemplate.send("iso8583-responses", responseMessage);
+                kafkaTemplate.send(responseRecord(responseTopic, response, headers));
             }
             
         } catch (Exception e) {
@@ -41,9 +74,100 @@ public class AuthorizationService {
         }
     }
 
-    private Iso8583Message createAuthorizationResponse(Iso8583Message request) {
+    /**
+     * The response as a record keyed by RRN with the standard {@link Iso8583Headers}, carrying on the
+     * trace context of the request it answers.
+     */
+    static ProducerRecord<String, String> responseRecord(String topic, Iso8583Message response, Headers requestHeaders) {
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic, response.getField(37), response.toString());
+        Iso8583Headers.write(record.headers(), response.getMti(), response.getField(37), response.getField(11),
+                Iso8583Headers.get(requestHeaders, Iso8583Headers.TRACEPARENT));
+        return record;
+    }
+
+    /**
+     * The 0210 for a 0200, the 0410/0430 for a reversal or the 0230 for a stand-in advice, decided against
+     * the in-memory {@link VelocityEngine} and {@link AccountStore}; null for any other MTI. A repeated 0200 gets the original 0210 back
+     * unchanged. Safe to call from several threads.
+     */
+    public Iso8583Message authorize(Iso8583Message request) {
+        String mti = request.getMti();
+        if ("0200".equals(mti)) {
+            String rrn = request.getField(37);
+            if (rrn == null) {
+                return createResponse(request, "0210", null);
+            }
+            String key = DuplicateFilter.key(rrn, request.getField(11));
+            CompletableFuture<Iso8583Message> claim = new CompletableFuture<>();
+            CompletableFuture<Iso8583Message> original = duplicateFilter.claim(key, claim);
+            if (original != claim) {
+                // An original still in flight on another lane is microseconds from done
+                Iso8583Message response = original.join();
+                if (response != null) {
+                    System.out.println("♻️ Duplicate 0200 for field37 " + rrn + ", replaying original 0210");
+                    return response;
+                }
+            }
+            try {
+                Decision decision = decide(request, rrn);
+                Iso8583Message response = createResponse(request, "0210", decision);
+                if (original == claim) claim.complete(response);
+                return response;
+            } catch (RuntimeException e) {
+                if (original == claim) {
+                    duplicateFilter.release(key, claim);
+                    claim.complete(null);
+                }
+                throw e;
+            }
+        }
+        if ("0400".equals(mti) || "0420".equals(mti)) {
+            String rrn = request.getField(37);
+            Decision decision = rrn == null ? null : accountStore.reverse(rrn, System.currentTimeMillis());
+            return createResponse(request, "0400".equals(mti) ? "0410" : "0430", decision);
+        }
+        if ("0220".equals(mti)) {
+            return adviceResponse(request);
+        }
+        return null;
+    }
+
+    // The 0230 acknowledges the advice itself; the stood-in decision is posted, not re-decided
+    private Iso8583Message adviceResponse(Iso8583Message request) {
+        Iso8583Message response = new Iso8583Message();
+        response.setMti("0230");
+        response.addField(7, LocalDateTime.now().format(TRANSMISSION_TIME));
+        for (int field : new int[] {11, 12, 13, 37}) {
+            String value = request.getField(field);
+            if (value != null) response.addField(field, value);
+        }
+        String rrn = request.getField(37);
+        String responseCode = request.getField(39);
+        if (rrn == null || responseCode == null) {
+            response.addField(39, FORMAT_ERROR);
+            return response;
+        }
+        accountStore.adviseStandIn(request.getField(2), rrn, Iso8583Fields.amount(request.getField(4)), responseCode,
+                request.getField(38), System.currentTimeMillis());
+        System.out.println("📨 Stand-in advice for field37 " + rrn + " posted (" + responseCode + ")");
+        response.addField(39, Decision.APPROVED);
+        return response;
+    }
+
+    // Velocity rules first: a transaction they decline places no hold
+    private Decision decide(Iso8583Message request, String rrn) {
+        long now = System.currentTimeMillis();
+        long amount = Iso8583Fields.amount(request.getField(4));
+        String velocityDecline = velocityEngine.check(request.getField(2), request.getField(42), amount, now);
+        if (velocityDecline != null) {
+            return new Decision(rrn, 0, amount, velocityDecline, null, 0, now);
+        }
+        return accountStore.authorize(request.getField(2), rrn, amount, now);
+    }
+
+    private Iso8583Message createResponse(Iso8583Message request, String mti, Decision decision) {
         Iso8583Message response = new Iso8583Message();
-        response.setMti("0210");
+        response.setMti(mti);
         
         // Copy key fields from request
         String field2 = request.getField(2);
@@ -62,14 +186,33 @@ public class AuthorizationService {
         if (field37 != null) response.addField(37, field37);
         
         // Add response fields
-        response.addField(7, LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMddHHmmss")));
-        response.addField(38, generateApprovalCode());
-        response.addField(39, "00"); // Approved
+        response.addField(7, LocalDateTime.now().format(TRANSMISSION_TIME));
+        if (decision == null) {
+            response.addField(39, FORMAT_ERROR);
+            return response;
+        }
+        if (decision.getApprovalCode() != null) response.addField(38, decision.getApprovalCode());
+        response.addField(39, decision.getResponseCode());
+        // Available balance, cached by the server to stand in for this card while authorization lags
+        if ("0210".equals(mti) && hasBalance(decision)) {
+            response.addField(54, availableBalance(decision.getAvailable(), request.getField(49)));
+        }
         
         return response;
     }
 
-    private String generateApprovalCode() {
-        return String.format("%06d", random.nextInt(999999));
+    // Decisions taken on the account carry its available balance; card, amount and velocity declines do not
+    private static boolean hasBalance(Decision decision) {
+        String code = decision.getResponseCode();
+        return decision.getAccountId() != 0 && (decision.isApproved()
+                || Decision.INSUFFICIENT_FUNDS.equals(code) || Decision.EXCEEDS_LIMIT.equals(code));
+    }
+
+    /**
+     * Field 54 with one amount: account type 00, amount type 02 (available balance), currency, sign, 12 digits.
+     */
+    static String availableBalance(long available, String currency) {
+        String code = currency != null && currency.length() == 3 ? currency : "000";
+        return "0002" + code + (available < 0 ? 'D' : 'C') + String.format("%012d", Math.abs(available));
     }
-}
\ No newline at end of file
+}
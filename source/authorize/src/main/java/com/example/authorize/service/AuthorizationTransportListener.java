@@ -0,0 +1,57 @@
+package com.example.authorize.service;
+
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import com.example.common.transport.MessageTransport;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves authorization requests arriving over an in-JVM or mapped-file transport instead of Kafka.
+ * Messages are authorized one at a time on the transport's thread, in arrival order, and each 0210
+ * goes back on the response topic keyed by RRN, as the record listener does.
+ */
+@Component
+@ConditionalOnExpression("'${authorize.transport:kafka}' != 'kafka'")
+public class AuthorizationTransportListener {
+
+    private final AuthorizationService authorizationService;
+    private final MessageTransport transport;
+    private final String requestTopic;
+    private final String responseTopic;
+    private AutoCloseable subscription;
+
+    public AuthorizationTransportListener(AuthorizationService authorizationService, MessageTransport transport,
+                                          @Value("${authorize.kafka.request-topic:iso8583-requests}") String requestTopic,
+                                          @Value("${authorize.kafka.response-topic:iso8583-responses}") String responseTopic) {
+        this.authorizationService = authorizationService;
+        this.transport = transport;
+        this.requestTopic = requestTopic;
+        this.responseTopic = responseTopic;
+    }
+
+    @PostConstruct
+    public void start() {
+        subscription = transport.subscribe(requestTopic, (key, message) -> processAuthorizationRequest(message));
+        System.out.println("🔌 Authorizing requests from " + requestTopic + " via " + transport.name());
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (subscription != null) subscription.close();
+    }
+
+    void processAuthorizationRequest(String message) {
+        try {
+            Iso8583Message response = authorizationService.authorize(Iso8583Parser.parseMessage(message));
+            if (response != null) {
+                transport.send(responseTopic, response.getField(37), response.toString());
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error processing authorization via " + transport.name() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.authorize.store;
+
+/**
+ * Mutable state of one issuer account. Amounts are in minor units. Every field except the id is
+ * read and written only while holding the account's stripe lock in {@link AccountStore}.
+ */
+public class Account {
+
+    public static final byte ACTIVE = 0;
+    public static final byte BLOCKED = 1;
+
+    final long accountId;
+    long available;
+    long dailyLimit;
+    long dailySpent;
+    int spentDay;   // epoch day dailySpent belongs to
+    byte status;
+    boolean dirty;  // queued for the next write-behind flush
+
+    public Account(long accountId, long available, long dailyLimit, long dailySpent, int spentDay, byte status) {
+        this.accountId = accountId;
+        this.available = available;
+        this.dailyLimit = dailyLimit;
+        this.dailySpent = dailySpent;
+        this.spentDay = spentDay;
+        this.status = status;
+    }
+
+    public long getAccountId() { return accountId; }
+}
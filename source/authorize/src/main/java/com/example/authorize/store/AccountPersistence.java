@@ -0,0 +1,250 @@
+package com.example.authorize.store;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the {@link AccountStore} from the issuer database at startup and keeps the database
+ * up to date behind it.
+ *
+ * Warm-up reads accounts, then cards, then open holds, each split over {@code warmup-threads}
+ * connections by {@code account_id % n}; it finishes before the Kafka listeners start.
+ * Afterwards a single flusher writes changed accounts (latest state only), new cards, decisions and
+ * released holds every {@code flush-ms} in one transaction per round. A failed round is retried
+ * with the same rows on the next tick.
+ */
+@Component
+@ConditionalOnProperty(name = "issuer.database.enabled", havingValue = "true")
+public class AccountPersistence {
+
+    private static final String UPSERT_ACCOUNT =
+            "INSERT INTO accounts (account_id, available_balance, daily_limit, daily_spent, spent_day, status, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (account_id) DO UPDATE SET "
+            + "available_balance = EXCLUDED.available_balance, daily_limit = EXCLUDED.daily_limit, "
+            + "daily_spent = EXCLUDED.daily_spent, spent_day = EXCLUDED.spent_day, status = EXCLUDED.status, "
+            + "updated_at = EXCLUDED.updated_at";
+    private static final String INSERT_CARD =
+            "INSERT INTO cards (pan, account_id) VALUES (?, ?) ON CONFLICT (pan) DO NOTHING";
+    private static final String INSERT_AUTHORIZATION =
+            "INSERT INTO authorizations (rrn, account_id, amount, response_code, approval_code, hold_status, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (rrn) DO NOTHING";
+    private static final String RELEASE_HOLD =
+            "UPDATE authorizations SET hold_status = 'RELEASED' WHERE rrn = ?";
+
+    private final AccountStore store;
+    private final DataSource dataSource;
+    private final int warmupThreads;
+    private final long flushMs;
+    private final int batchSize;
+    private final long holdExpiryMinutes;
+
+    private final List<Object[]> pendingAccounts = new ArrayList<>();
+    private final List<Map.Entry<String, Long>> pendingCards = new ArrayList<>();
+    private final List<Decision> pendingDecisions = new ArrayList<>();
+    private final List<Decision> pendingReleases = new ArrayList<>();
+    private ScheduledExecutorService flusher;
+
+    public AccountPersistence(AccountStore store, DataSource dataSource,
+                              @Value("${issuer.warmup.threads:4}") int warmupThreads,
+                              @Value("${issuer.persistence.flush-ms:20}") long flushMs,
+                              @Value("${issuer.persistence.batch-size:1000}") int batchSize,
+                              @Value("${issuer.holds.expiry-minutes:1440}") long holdExpiryMinutes) {
+        this.store = store;
+        this.dataSource = dataSource;
+        this.warmupThreads = warmupThreads;
+        this.flushMs = flushMs;
+        this.batchSize = batchSize;
+        this.holdExpiryMinutes = holdExpiryMinutes;
+    }
+
+    @PostConstruct
+    public void start() throws Exception {
+        long started = System.nanoTime();
+        int accounts = loadInParallel("SELECT account_id, available_balance, daily_limit, daily_spent, spent_day, status "
+                + "FROM accounts WHERE account_id % ? = ?", rs -> store.putAccount(new Account(rs.getLong(1),
+                rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getInt(5), rs.getByte(6))));
+        int cards = loadInParallel("SELECT pan, account_id FROM cards WHERE account_id % ? = ?",
+                rs -> store.putCard(rs.getString(1), rs.getLong(2)));
+        int holds = loadInParallel("SELECT rrn, account_id, amount, response_code, approval_code, created_at "
+                + "FROM authorizations WHERE hold_status = 'HELD' AND created_at > now() - interval '"
+                + holdExpiryMinutes + " minutes' AND account_id % ? = ?",
+                rs -> store.restoreHold(new Decision(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getString(4),
+                        rs.getString(5), 0, rs.getTimestamp(6).getTime())));
+        System.out.println("💳 Issuer store warmed up: " + accounts + " accounts, " + cards + " cards, " + holds
+                + " open holds in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+
+        store.setWriteBehind(true);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "issuer-write-behind"));
+        flusher.scheduleWithFixedDelay(this::flush, flushMs, flushMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        flush();
+    }
+
+    @FunctionalInterface
+    private interface RowLoader {
+        void load(ResultSet rs) throws SQLException;
+    }
+
+    private int loadInParallel(String sql, RowLoader loader) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(warmupThreads);
+        try {
+            AtomicInteger rows = new AtomicInteger();
+            List<Callable<Void>> parts = new ArrayList<>();
+            for (int part = 0; part < warmupThreads; part++) {
+                int remainder = part;
+                parts.add(() -> {
+                    try (Connection connection = dataSource.getConnection()) {
+                        connection.setAutoCommit(false); // cursor-based fetch
+                        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                            ps.setFetchSize(5000);
+                            ps.setInt(1, warmupThreads);
+                            ps.setInt(2, remainder);
+                            try (ResultSet rs = ps.executeQuery()) {
+                                while (rs.next()) {
+                                    loader.load(rs);
+                                    rows.incrementAndGet();
+                                }
+                            }
+                        }
+                        connection.commit();
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> result : pool.invokeAll(parts)) {
+                result.get();
+            }
+            return rows.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    synchronized void flush() {
+        drain();
+        if (pendingAccounts.isEmpty() && pendingCards.isEmpty() && pendingDecisions.isEmpty() && pendingReleases.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                writeAccounts(connection);
+                writeCards(connection);
+                writeDecisions(connection);
+                writeReleases(connection);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+            pendingAccounts.clear();
+            pendingCards.clear();
+            pendingDecisions.clear();
+            pendingReleases.clear();
+        } catch (Exception e) {
+            System.err.println("❌ Issuer write-behind failed, retrying: " + e.getMessage());
+        }
+    }
+
+    private void drain() {
+        long[] state = new long[5];
+        Account account;
+        while (pendingAccounts.size() < batchSize && (account = store.pollDirty(state)) != null) {
+            pendingAccounts.add(new Object[]{account.getAccountId(), state[0], state[1], state[2], (int) state[3], (short) state[4]});
+        }
+        Map.Entry<String, Long> card;
+        while (pendingCards.size() < batchSize && (card = store.pollOpenedCard()) != null) {
+            pendingCards.add(card);
+        }
+        Decision decision;
+        while (pendingDecisions.size() < batchSize && (decision = store.pollDecision()) != null) {
+            pendingDecisions.add(decision);
+        }
+        while (pendingReleases.size() < batchSize && (decision = store.pollReleased()) != null) {
+            pendingReleases.add(decision);
+        }
+    }
+
+    private void writeAccounts(Connection connection) throws SQLException {
+        if (pendingAccounts.isEmpty()) return;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (PreparedStatement ps = connection.prepareStatement(UPSERT_ACCOUNT)) {
+            for (Object[] row : pendingAccounts) {
+                for (int i = 0; i < row.length; i++) {
+                    ps.setObject(i + 1, row[i]);
+                }
+                ps.setTimestamp(7, now);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void writeCards(Connection connection) throws SQLException {
+        if (pendingCards.isEmpty()) return;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_CARD)) {
+            for (Map.Entry<String, Long> card : pendingCards) {
+                ps.setString(1, card.getKey());
+                ps.setLong(2, card.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void writeDecisions(Connection connection) throws SQLException {
+        if (pendingDecisions.isEmpty()) return;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_AUTHORIZATION)) {
+            for (Decision decision : pendingDecisions) {
+                ps.setString(1, decision.getRrn());
+                ps.setLong(2, decision.getAccountId());
+                ps.setLong(3, decision.getAmount());
+                ps.setString(4, decision.getResponseCode());
+                ps.setString(5, decision.getApprovalCode());
+                ps.setString(6, decision.isApproved() ? "HELD" : "DECLINED");
+                ps.setTimestamp(7, new Timestamp(decision.getCreatedAtMillis()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void writeReleases(Connection connection) throws SQLException {
+        if (pendingReleases.isEmpty()) return;
+        try (PreparedStatement ps = connection.prepareStatement(RELEASE_HOLD)) {
+            for (Decision decision : pendingReleases) {
+                ps.setString(1, decision.getRrn());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.authorize.store;
+
+import com.example.common.kafka.Iso8583Fields;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issuer account state held in memory so authorization decisions never wait on a database.
+ *
+ * Cards and accounts are found through {@link LongIndex} (PAN digits as an unsigned long, account id).
+ * Balance checks and holds run under one of {@code lock-stripes} monitors chosen by account id, so
+ * different accounts never contend. Approvals are kept per RRN until their hold expires: a
+ * redelivered request gets the same answer, and a reversal can find and release the hold. Declines
+ * hold nothing and are not kept; a redelivered declined request is answered from the 0210 in the
+ * duplicate cache (see AuthorizationService), or else decided again.
+ *
+ * With write-behind enabled (see {@link AccountPersistence}) changed accounts, new cards, decisions and
+ * releases are queued for the flusher; otherwise the store is purely in memory.
+ */
+@Component
+public class AccountStore {
+
+    private final LongIndex<Account> cards;
+    private final LongIndex<Account> accounts;
+    private final ConcurrentHashMap<String, Decision> holds = new ConcurrentHashMap<>();
+    private final Object[] stripes;
+
+    private final boolean autoOpen;
+    private final long defaultBalance;
+    private final long defaultDailyLimit;
+    private final long holdExpiryMillis;
+    private final AtomicLong nextAccountId = new AtomicLong(1);
+
+    private volatile boolean writeBehind;
+    private final Queue<Account> dirtyAccounts = new ConcurrentLinkedQueue<>();
+    private final Queue<Map.Entry<String, Long>> openedCards = new ConcurrentLinkedQueue<>();
+    private final Queue<Decision> newDecisions = new ConcurrentLinkedQueue<>();
+    private final Queue<Decision> releasedHolds = new ConcurrentLinkedQueue<>();
+
+    private ScheduledExecutorService expiryScheduler;
+
+    public AccountStore(@Value("${issuer.accounts.expected-cards:100000}") int expectedCards,
+                        @Value("${issuer.accounts.lock-stripes:1024}") int lockStripes,
+                        @Value("${issuer.accounts.auto-open:true}") boolean autoOpen,
+                        @Value("${issuer.accounts.default-balance:1000000}") long defaultBalance,
+                        @Value("${issuer.accounts.default-daily-limit:500000}") long defaultDailyLimit,
+                        @Value("${issuer.holds.expiry-minutes:1440}") long holdExpiryMinutes) {
+        this.cards = new LongIndex<>(expectedCards);
+        this.accounts = new LongIndex<>(expectedCards);
+        this.stripes = new Object[Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+        this.autoOpen = autoOpen;
+        this.defaultBalance = defaultBalance;
+        this.defaultDailyLimit = defaultDailyLimit;
+        this.holdExpiryMillis = TimeUnit.MINUTES.toMillis(holdExpiryMinutes);
+    }
+
+    @PostConstruct
+    public void start() {
+        expiryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "issuer-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        expiryScheduler.scheduleWithFixedDelay(() -> expireHolds(System.currentTimeMillis()), 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (expiryScheduler != null) expiryScheduler.shutdownNow();
+    }
+
+    /**
+     * Place a hold of {@code amount} minor units for the card, or decline.
+     */
+    public Decision authorize(String pan, String rrn, long amount, long nowMillis) {
+        Decision previous = holds.get(rrn);
+        if (previous != null) {
+            return previous;
+        }
+        long panKey = Iso8583Fields.panKey(pan);
+        Account account = panKey == 0 ? null : cards.get(panKey);
+        if (account == null && panKey != 0 && autoOpen) {
+            account = cards.computeIfAbsent(panKey, key -> open(pan));
+        }
+        if (account == null) {
+            return remember(new Decision(rrn, 0, amount, Decision.INVALID_CARD, null, 0, nowMillis));
+        }
+        if (amount <= 0) {
+            return remember(new Decision(rrn, account.accountId, amount, Decision.INVALID_AMOUNT, null, 0, nowMillis));
+        }
+
+        int today = (int) Math.floorDiv(nowMillis, TimeUnit.DAYS.toMillis(1));
+        Decision decision;
+        synchronized (stripe(account.accountId)) {
+            previous = holds.get(rrn);
+            if (previous != null) {
+                return previous;
+            }
+            if (account.spentDay != today) {
+                account.spentDay = today;
+                account.dailySpent = 0;
+            }
+            String responseCode;
+            if (account.status != Account.ACTIVE) {
+                responseCode = Decision.RESTRICTED_CARD;
+            } else if (amount > account.available) {
+                responseCode = Decision.INSUFFICIENT_FUNDS;
+            } else if (account.dailySpent + amount > account.dailyLimit) {
+                responseCode = Decision.EXCEEDS_LIMIT;
+            } else {
+                responseCode = Decision.APPROVED;
+                account.available -= amount;
+                account.dailySpent += amount;
+                markDirty(account);
+            }
+            String approvalCode = Decision.APPROVED.equals(responseCode) ? approvalCode() : null;
+            decision = new Decision(rrn, account.accountId, amount, responseCode, approvalCode, account.available, nowMillis);
+            if (decision.isApproved()) holds.put(rrn, decision);
+        }
+        if (writeBehind) newDecisions.add(decision);
+        return decision;
+    }
+
+    /**
+     * Apply a 0220 advice for a transaction the server stood in for while this service lagged. The
+     * advice is what the cardholder was told, so it wins over a decision made here for the same RRN:
+     * an approval is posted even past the balance or daily limit, since the cardholder already has the
+     * goods, and an RRN already approved here is left as it is, so a repeated advice is a no-op. A
+     * stand-in decline is only recorded, and releases the hold if this service had approved the 0200.
+     */
+    public Decision adviseStandIn(String pan, String rrn, long amount, String responseCode, String approvalCode, long nowMillis) {
+        Decision previous = holds.get(rrn);
+        if (previous != null) {
+            if (Decision.APPROVED.equals(responseCode)) {
+                return previous;
+            }
+            if (holds.remove(rrn, previous)) {
+                release(previous);
+                System.out.println("↩️ Hold for field37 " + rrn + " released: the server stood in and declined it");
+            }
+        }
+        long panKey = Iso8583Fields.panKey(pan);
+        Account account = panKey == 0 ? null : cards.get(panKey);
+        if (account == null && panKey != 0 && autoOpen) {
+            account = cards.computeIfAbsent(panKey, key -> open(pan));
+        }
+        if (account == null || amount <= 0 || !Decision.APPROVED.equals(responseCode)) {
+            return remember(new Decision(rrn, account == null ? 0 : account.accountId, amount, responseCode, null, 0, nowMillis));
+        }
+
+        int today = (int) Math.floorDiv(nowMillis, TimeUnit.DAYS.toMillis(1));
+        Decision decision;
+        synchronized (stripe(account.accountId)) {
+            previous = holds.get(rrn);
+            if (previous != null && previous.isApproved()) {
+                return previous;
+            }
+            if (account.spentDay != today) {
+                account.spentDay = today;
+                account.dailySpent = 0;
+            }
+            account.available -= amount;
+            account.dailySpent += amount;
+            markDirty(account);
+            decision = new Decision(rrn, account.accountId, amount, Decision.APPROVED, approvalCode, account.available, nowMillis);
+            holds.put(rrn, decision);
+        }
+        if (writeBehind) newDecisions.add(decision);
+        return decision;
+    }
+
+    /**
+     * Release the hold placed for {@code rrn}. Releasing twice is a no-op; a declined request placed no
+     * hold and is not found.
+     */
+    public Decision reverse(String rrn, long nowMillis) {
+        Decision original = holds.get(rrn);
+        if (original == null) {
+            return new Decision(rrn, 0, 0, Decision.NOT_FOUND, null, 0, nowMillis);
+        }
+        long available = release(original);
+        return new Decision(rrn, original.getAccountId(), original.getAmount(), Decision.APPROVED,
+                original.getApprovalCode(), available, nowMillis);
+    }
+
+    /**
+     * Release holds older than the expiry and forget them.
+     */
+    public int expireHolds(long nowMillis) {
+        int expired = 0;
+        for (Iterator<Decision> it = holds.values().iterator(); it.hasNext(); ) {
+            Decision decision = it.next();
+            if (nowMillis - decision.getCreatedAtMillis() >= holdExpiryMillis) {
+                release(decision);
+                it.remove();
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private long release(Decision decision) {
+        Account account = accounts.get(decision.getAccountId());
+        if (account == null) {
+            return 0;
+        }
+        synchronized (stripe(account.accountId)) {
+            if (decision.isApproved() && !decision.released) {
+                decision.released = true;
+                account.available += decision.getAmount();
+                if (account.spentDay == (int) Math.floorDiv(decision.getCreatedAtMillis(), TimeUnit.DAYS.toMillis(1))) {
+                    account.dailySpent = Math.max(0, account.dailySpent - decision.getAmount());
+                }
+                markDirty(account);
+                if (writeBehind) releasedHolds.add(decision);
+            }
+            return account.available;
+        }
+    }
+
+    // A decline: recorded for write-behind, not kept
+    private Decision remember(Decision decision) {
+        if (writeBehind) newDecisions.add(decision);
+        return decision;
+    }
+
+    private Account open(String pan) {
+        Account account = new Account(nextAccountId.getAndIncrement(), defaultBalance, defaultDailyLimit, 0, 0, Account.ACTIVE);
+        accounts.put(account.accountId, account);
+        if (writeBehind) {
+            synchronized (stripe(account.accountId)) {
+                markDirty(account);
+            }
+            openedCards.add(new AbstractMap.SimpleImmutableEntry<>(pan, account.accountId));
+        }
+        return account;
+    }
+
+    // Caller holds the account's stripe lock
+    private void markDirty(Account account) {
+        if (writeBehind && !account.dirty) {
+            account.dirty = true;
+            dirtyAccounts.add(account);
+        }
+    }
+
+    private Object stripe(long accountId) {
+        return stripes[(int) (accountId ^ (accountId >>> 32)) & (stripes.length - 1)];
+    }
+
+    // ---- warm-up and write-behind, used by AccountPersistence ----
+
+    public void putAccount(Account account) {
+        accounts.put(account.accountId, account);
+        nextAccountId.accumulateAndGet(account.accountId + 1, Math::max);
+    }
+
+    /**
+     * Link a card to an already loaded account; false when the PAN or the account is unknown.
+     */
+    public boolean putCard(String pan, long accountId) {
+        long panKey = Iso8583Fields.panKey(pan);
+        Account account = accounts.get(accountId);
+        if (panKey == 0 || account == null) {
+            return false;
+        }
+        cards.put(panKey, account);
+        return true;
+    }
+
+    /**
+     * Re-register an open hold after a restart; the account balance already reflects it.
+     */
+    public void restoreHold(Decision decision) {
+        holds.put(decision.getRrn(), decision);
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Take the next changed account and copy its state: available, daily limit, daily spent, spent day, status.
+     * Returns null when nothing is pending.
+     */
+    public Account pollDirty(long[] state) {
+        Account account = dirtyAccounts.poll();
+        if (account == null) {
+            return null;
+        }
+        synchronized (stripe(account.accountId)) {
+            account.dirty = false;
+            state[0] = account.available;
+            state[1] = account.dailyLimit;
+            state[2] = account.dailySpent;
+            state[3] = account.spentDay;
+            state[4] = account.status;
+        }
+        return account;
+    }
+
+    /**
+     * Next auto-opened card as PAN and account id, or null.
+     */
+    public Map.Entry<String, Long> pollOpenedCard() { return openedCards.poll(); }
+    public Decision pollDecision() { return newDecisions.poll(); }
+    public Decision pollReleased() { return releasedHolds.poll(); }
+
+    public int getCardCount() { return cards.size(); }
+    public int getAccountCount() { return accounts.size(); }
+    public int getHoldCount() { return holds.size(); }
+
+    private static String approvalCode() {
+        int value = ThreadLocalRandom.current().nextInt(1, 1000000);
+        char[] digits = new char[6];
+        for (int i = 5; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(digits);
+    }
+}
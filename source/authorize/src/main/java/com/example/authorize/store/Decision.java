@@ -0,0 +1,48 @@
+package com.example.authorize.store;
+
+/**
+ * Outcome of an authorization or reversal. Kept per RRN so a redelivered request gets the
+ * original answer instead of a second hold.
+ */
+public class Decision {
+
+    public static final String APPROVED = "00";
+    public static final String INVALID_AMOUNT = "13";
+    public static final String INVALID_CARD = "14";
+    public static final String NOT_FOUND = "25";
+    public static final String INSUFFICIENT_FUNDS = "51";
+    public static final String SUSPECTED_FRAUD = "59";
+    public static final String EXCEEDS_LIMIT = "61";
+    public static final String RESTRICTED_CARD = "62";
+    public static final String EXCEEDS_FREQUENCY = "65";
+
+    private final String rrn;
+    private final long accountId;
+    private final long amount;
+    private final String responseCode;
+    private final String approvalCode;
+    private final long available;
+    private final long createdAtMillis;
+    volatile boolean released;
+
+    public Decision(String rrn, long accountId, long amount, String responseCode, String approvalCode,
+                    long available, long createdAtMillis) {
+        this.rrn = rrn;
+        this.accountId = accountId;
+        this.amount = amount;
+        this.responseCode = responseCode;
+        this.approvalCode = approvalCode;
+        this.available = available;
+        this.createdAtMillis = createdAtMillis;
+    }
+
+    public boolean isApproved() { return APPROVED.equals(responseCode); }
+    public String getRrn() { return rrn; }
+    public long getAccountId() { return accountId; }
+    public long getAmount() { return amount; }
+    public String getResponseCode() { return responseCode; }
+    public String getApprovalCode() { return approvalCode; }
+    public long getAvailable() { return available; }
+    public long getCreatedAtMillis() { return createdAtMillis; }
+    public boolean isReleased() { return released; }
+}
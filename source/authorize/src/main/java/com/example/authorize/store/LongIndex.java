@@ -0,0 +1,133 @@
+package com.example.authorize.store;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing map from non-zero {@code long} keys to objects, without boxing the keys.
+ * Lookups are lock-free optimistic reads that fall back to a read lock only when they race
+ * a writer; inserts take the write lock (they happen at warm-up and when accounts are opened).
+ */
+public class LongIndex<V> {
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;
+    private int size;
+
+    public LongIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.table = new Table(capacity);
+    }
+
+    public V get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        V value = find(table, key);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(table, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * The value for {@code key}, creating it under the write lock if absent.
+     */
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        long stamp = lock.writeLock();
+        try {
+            V value = find(table, key);
+            if (value == null) {
+                value = factory.apply(key);
+                insert(key, value);
+            }
+            return value;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void put(long key, V value) {
+        long stamp = lock.writeLock();
+        try {
+            insert(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V find(Table t, long key) {
+        int slot = mix(key) & t.mask;
+        // Bounded so a torn read during a racing insert cannot loop forever; validate() rejects it
+        for (int probes = 0; probes <= t.mask; probes++) {
+            long k = t.keys[slot];
+            if (k == key) return (V) t.values[slot];
+            if (k == 0) return null;
+            slot = (slot + 1) & t.mask;
+        }
+        return null;
+    }
+
+    private void insert(long key, V value) {
+        if (key == 0) throw new IllegalArgumentException("Key 0 is reserved");
+        if ((size + 1) * 2 > table.keys.length) {
+            resize();
+        }
+        Table t = table;
+        int slot = mix(key) & t.mask;
+        while (t.keys[slot] != 0 && t.keys[slot] != key) {
+            slot = (slot + 1) & t.mask;
+        }
+        if (t.keys[slot] == 0) size++;
+        t.values[slot] = value;
+        t.keys[slot] = key;
+    }
+
+    private void resize() {
+        Table old = table;
+        Table grown = new Table(old.keys.length * 2);
+        for (int i = 0; i < old.keys.length; i++) {
+            long key = old.keys[i];
+            if (key == 0) continue;
+            int slot = mix(key) & grown.mask;
+            while (grown.keys[slot] != 0) slot = (slot + 1) & grown.mask;
+            grown.keys[slot] = key;
+            grown.values[slot] = old.values[i];
+        }
+        table = grown;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.authorize.velocity;
+
+import com.example.common.routing.KeyHash;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Per-card and per-merchant velocity checks made in memory before an approval is issued.
+ *
+ * Counts and amounts per sliding window live in two {@link VelocityTable}s keyed by a 64-bit hash
+ * of the PAN (field 2) and of the merchant id (field 42), so no PAN is kept here. A transaction that
+ * passes every rule is counted in all windows; one that breaks a rule is declined with that rule's
+ * response code and not counted. Windows have the granularity of one bucket (window / buckets).
+ *
+ * The card and merchant segments are locked in that order for the check and the update together.
+ */
+@Component
+public class VelocityEngine {
+
+    // Seconds are kept in an int relative to 2020-01-01, good until 2088
+    private static final long EPOCH_SECONDS = 1_577_836_800L;
+
+    private final int[] windowMinutes;
+    private final VelocityRule[] rules;
+    private final int[] ruleWindows;
+    private final VelocityTable cards;
+    private final VelocityTable merchants;
+
+    public VelocityEngine(@Value("${authorize.velocity.enabled:true}") boolean enabled,
+                          @Value("${authorize.velocity.windows-minutes:1,10,60}") int[] windowMinutes,
+                          @Value("${authorize.velocity.buckets-per-window:4}") int buckets,
+                          @Value("${authorize.velocity.expected-cards:1000000}") long expectedCards,
+                          @Value("${authorize.velocity.expected-merchants:100000}") long expectedMerchants,
+                          @Value("${authorize.velocity.lock-segments:1024}") int segments,
+                          @Value("${authorize.velocity.rules:}") String rules) {
+        this.windowMinutes = windowMinutes.clone();
+        this.rules = VelocityRule.parse(rules).toArray(new VelocityRule[0]);
+        this.ruleWindows = new int[this.rules.length];
+        boolean cardRules = false;
+        boolean merchantRules = false;
+        for (int i = 0; i < this.rules.length; i++) {
+            ruleWindows[i] = windowIndex(this.rules[i].getWindowMinutes());
+            cardRules |= this.rules[i].getScope() == VelocityRule.Scope.CARD;
+            merchantRules |= this.rules[i].getScope() == VelocityRule.Scope.MERCHANT;
+        }
+
+        int[] windowSeconds = new int[windowMinutes.length];
+        for (int w = 0; w < windowMinutes.length; w++) {
+            windowSeconds[w] = windowMinutes[w] * 60;
+        }
+        this.cards = enabled && cardRules ? new VelocityTable(expectedCards, segments, windowSeconds, buckets) : null;
+        this.merchants = enabled && merchantRules
+                ? new VelocityTable(expectedMerchants, Math.min(segments, 64), windowSeconds, buckets)
+                : null;
+        if (isEnabled()) {
+            System.out.println("🚦 Velocity rules " + List.of(this.rules) + " over "
+                    + (cards == null ? 0 : cards.getSlotCount()) + " card slots");
+        }
+    }
+
+    /**
+     * The response code of the first rule this transaction would break, or null when it passes and
+     * has been counted. A missing PAN or merchant id skips the rules of that scope.
+     */
+    public String check(String pan, String merchantId, long amount, long nowMillis) {
+        if (!isEnabled()) {
+            return null;
+        }
+        int now = (int) (nowMillis / 1000 - EPOCH_SECONDS);
+        long cardKey = cards != null ? key(pan) : 0;
+        long merchantKey = merchants != null ? key(merchantId) : 0;
+        if (cardKey == 0 && merchantKey == 0) {
+            return null;
+        }
+        if (cardKey == 0) {
+            synchronized (merchants.lockFor(merchantKey)) {
+                return checkAndCount(-1, merchants.slot(merchantKey, now), amount, now);
+            }
+        }
+        synchronized (cards.lockFor(cardKey)) {
+            int cardSlot = cards.slot(cardKey, now);
+            if (merchantKey == 0) {
+                return checkAndCount(cardSlot, -1, amount, now);
+            }
+            synchronized (merchants.lockFor(merchantKey)) {
+                return checkAndCount(cardSlot, merchants.slot(merchantKey, now), amount, now);
+            }
+        }
+    }
+
+    public boolean isEnabled() { return cards != null || merchants != null; }
+    public long getCardEvictions() { return cards == null ? 0 : cards.getEvictions(); }
+
+    private String checkAndCount(int cardSlot, int merchantSlot, long amount, int now) {
+        for (int i = 0; i < rules.length; i++) {
+            VelocityRule rule = rules[i];
+            VelocityTable table;
+            int slot;
+            if (rule.getScope() == VelocityRule.Scope.CARD) {
+                table = cards;
+                slot = cardSlot;
+            } else {
+                table = merchants;
+                slot = merchantSlot;
+            }
+            if (slot < 0) continue;
+            long projected = rule.getMetric() == VelocityRule.Metric.COUNT
+                    ? table.count(slot, ruleWindows[i]) + 1
+                    : table.amount(slot, ruleWindows[i]) + Math.max(0, amount);
+            if (projected > rule.getLimit()) {
+                return rule.getResponseCode();
+            }
+        }
+        if (cardSlot >= 0) cards.add(cardSlot, amount, now);
+        if (merchantSlot >= 0) merchants.add(merchantSlot, amount, now);
+        return null;
+    }
+
+    private int windowIndex(int minutes) {
+        for (int w = 0; w < windowMinutes.length; w++) {
+            if (windowMinutes[w] == minutes) return w;
+        }
+        throw new IllegalArgumentException("Velocity rule window of " + minutes + " minutes is not one of the configured windows");
+    }
+
+    /**
+     * {@link KeyHash} of the value; 0 for a missing value. Never 0 otherwise.
+     */
+    static long key(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        long h = KeyHash.hash(value);
+        return h == 0 ? 1 : h;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.authorize.velocity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A threshold on one sliding window, e.g. {@code card:10:count:20:65}: more than 20 transactions
+ * on a card within 10 minutes is declined with response code 65.
+ */
+public class VelocityRule {
+
+    public enum Scope { CARD, MERCHANT }
+
+    public enum Metric { COUNT, AMOUNT }
+
+    private final Scope scope;
+    private final int windowMinutes;
+    private final Metric metric;
+    private final long limit;
+    private final String responseCode;
+
+    public VelocityRule(Scope scope, int windowMinutes, Metric metric, long limit, String responseCode) {
+        this.scope = scope;
+        this.windowMinutes = windowMinutes;
+        this.metric = metric;
+        this.limit = limit;
+        this.responseCode = responseCode;
+    }
+
+    /**
+     * Parse a comma-separated list of {@code scope:windowMinutes:metric:limit:responseCode} rules.
+     */
+    public static List<VelocityRule> parse(String spec) {
+        List<VelocityRule> rules = new ArrayList<>();
+        if (spec == null || spec.isBlank()) {
+            return rules;
+        }
+        for (String rule : spec.split(",")) {
+            String[] parts = rule.trim().split(":");
+            if (parts.length != 5 || parts[4].length() != 2) {
+                throw new IllegalArgumentException("Velocity rule must be scope:windowMinutes:metric:limit:responseCode, got " + rule);
+            }
+            rules.add(new VelocityRule(
+                    Scope.valueOf(parts[0].toUpperCase()),
+                    Integer.parseInt(parts[1]),
+                    Metric.valueOf(parts[2].toUpperCase()),
+                    Long.parseLong(parts[3]),
+                    parts[4]));
+        }
+        return rules;
+    }
+
+    public Scope getScope() { return scope; }
+    public int getWindowMinutes() { return windowMinutes; }
+    public Metric getMetric() { return metric; }
+    public long getLimit() { return limit; }
+    public String getResponseCode() { return responseCode; }
+
+    @Override
+    public String toString() {
+        return scope.name().toLowerCase() + ":" + windowMinutes + ":" + metric.name().toLowerCase() + ":" + limit + ":" + responseCode;
+    }
+}
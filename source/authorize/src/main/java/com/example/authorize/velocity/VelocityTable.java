@@ -0,0 +1,179 @@
+package com.example.authorize.velocity;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding-window counters for a bounded number of keys (hashed PANs or merchant ids), held in
+ * primitive arrays so that ten million cards cost no objects and no per-key garbage.
+ *
+ * Each slot holds its key followed by one ring of {@code buckets} cells per window; a cell packs a
+ * transaction count (high 20 bits) and an amount in minor units (low 44 bits). Buckets are expired
+ * lazily: a slot remembers the second it was last touched, and on the next touch the buckets that
+ * rolled out of each window since then are cleared. Nothing sweeps the table.
+ *
+ * The table never grows. It is split into segments, each guarded by its own monitor; a key lives
+ * within {@link #MAX_PROBE} slots of its home slot, and when those are all taken the slot idle the
+ * longest is reused. Callers hold {@link #lockFor} around {@link #slot} and the reads and writes
+ * that follow.
+ */
+class VelocityTable {
+
+    static final int MAX_PROBE = 16;
+
+    private static final int COUNT_SHIFT = 44;
+    private static final long AMOUNT_MASK = (1L << COUNT_SHIFT) - 1;
+    private static final long MAX_COUNT = (1L << (64 - COUNT_SHIFT)) - 1;
+
+    private final int buckets;
+    private final int[] bucketSeconds;
+    private final int longestWindowSeconds;
+    private final int stride;
+
+    private final int segmentBits;
+    private final int slotsPerSegment;
+    private final Object[] locks;
+
+    private final long[] cells;
+    private final int[] touched;
+
+    private final LongAdder evictions = new LongAdder();
+
+    VelocityTable(long expectedKeys, int segments, int[] windowSeconds, int buckets) {
+        if (buckets < 1 || windowSeconds.length == 0) {
+            throw new IllegalArgumentException("At least one window and one bucket are required");
+        }
+        this.buckets = buckets;
+        this.bucketSeconds = new int[windowSeconds.length];
+        int longest = 0;
+        for (int w = 0; w < windowSeconds.length; w++) {
+            if (windowSeconds[w] % buckets != 0) {
+                throw new IllegalArgumentException("Window of " + windowSeconds[w] + "s does not split into " + buckets + " buckets");
+            }
+            bucketSeconds[w] = windowSeconds[w] / buckets;
+            longest = Math.max(longest, windowSeconds[w]);
+        }
+        this.longestWindowSeconds = longest;
+        this.stride = 1 + windowSeconds.length * buckets;
+
+        int segmentCount = Integer.highestOneBit(Math.max(1, segments - 1)) << 1;
+        this.segmentBits = Integer.numberOfTrailingZeros(segmentCount);
+        // 0.75 load at the expected key count
+        long slots = Math.max((long) segmentCount * MAX_PROBE, expectedKeys * 4 / 3);
+        this.slotsPerSegment = (int) ((slots + segmentCount - 1) / segmentCount);
+        long totalSlots = (long) slotsPerSegment * segmentCount;
+        if (totalSlots * stride > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Velocity table of " + totalSlots + " slots is too large");
+        }
+        this.cells = new long[(int) (totalSlots * stride)];
+        this.touched = new int[(int) totalSlots];
+        this.locks = new Object[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    Object lockFor(long key) {
+        return locks[segment(key)];
+    }
+
+    /**
+     * The slot of {@code key} with its expired buckets cleared, claiming one if the key is new.
+     * Must be called holding {@link #lockFor}{@code (key)}; {@code key} must not be 0.
+     */
+    int slot(long key, int nowSeconds) {
+        int segmentStart = segment(key) * slotsPerSegment;
+        int home = (int) (((key & 0xffffffffL) * slotsPerSegment) >>> 32);
+        int victim = -1;
+        int victimTouched = Integer.MAX_VALUE;
+        for (int i = 0; i < MAX_PROBE; i++) {
+            int slot = segmentStart + (home + i) % slotsPerSegment;
+            long existing = cells[slot * stride];
+            if (existing == key) {
+                expire(slot, nowSeconds);
+                return slot;
+            }
+            if (existing == 0) {
+                // Slots are never emptied again, so the key is not further along
+                return claim(slot, key, nowSeconds, false);
+            }
+            if (touched[slot] < victimTouched) {
+                victim = slot;
+                victimTouched = touched[slot];
+            }
+        }
+        return claim(victim, key, nowSeconds, nowSeconds - victimTouched < longestWindowSeconds);
+    }
+
+    long count(int slot, int window) {
+        long total = 0;
+        int base = slot * stride + 1 + window * buckets;
+        for (int b = 0; b < buckets; b++) {
+            total += cells[base + b] >>> COUNT_SHIFT;
+        }
+        return total;
+    }
+
+    long amount(int slot, int window) {
+        long total = 0;
+        int base = slot * stride + 1 + window * buckets;
+        for (int b = 0; b < buckets; b++) {
+            total += cells[base + b] & AMOUNT_MASK;
+        }
+        return total;
+    }
+
+    /**
+     * Count one transaction of {@code amount} in the current bucket of every window.
+     */
+    void add(int slot, long amount, int nowSeconds) {
+        long clamped = Math.max(0, Math.min(amount, AMOUNT_MASK));
+        for (int w = 0; w < bucketSeconds.length; w++) {
+            int cell = slot * stride + 1 + w * buckets + (int) ((nowSeconds / bucketSeconds[w]) % buckets);
+            long value = cells[cell];
+            long count = Math.min(MAX_COUNT, (value >>> COUNT_SHIFT) + 1);
+            long total = Math.min(AMOUNT_MASK, (value & AMOUNT_MASK) + clamped);
+            cells[cell] = (count << COUNT_SHIFT) | total;
+        }
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    int getSlotCount() {
+        return touched.length;
+    }
+
+    private int claim(int slot, long key, int nowSeconds, boolean evictingLiveKey) {
+        int base = slot * stride;
+        cells[base] = key;
+        for (int i = 1; i < stride; i++) {
+            cells[base + i] = 0;
+        }
+        touched[slot] = nowSeconds;
+        if (evictingLiveKey) evictions.increment();
+        return slot;
+    }
+
+    private void expire(int slot, int nowSeconds) {
+        int last = touched[slot];
+        if (nowSeconds <= last) {
+            // Same second, or the clock stepped back: keep counting into the newest buckets
+            return;
+        }
+        for (int w = 0; w < bucketSeconds.length; w++) {
+            long lastBucket = last / bucketSeconds[w];
+            long nowBucket = nowSeconds / bucketSeconds[w];
+            int base = slot * stride + 1 + w * buckets;
+            long stale = Math.min(buckets, nowBucket - lastBucket);
+            for (long b = 1; b <= stale; b++) {
+                cells[base + (int) ((lastBucket + b) % buckets)] = 0;
+            }
+        }
+        touched[slot] = nowSeconds;
+    }
+
+    private int segment(long key) {
+        return segmentBits == 0 ? 0 : (int) (key >>> (64 - segmentBits));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.authorize.consumer;
+
+import com.example.authorize.store.AccountStore;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput of the existing single-threaded listener loop against {@link ParallelConsumer},
+ * both fed by a {@link MockConsumer} and authorizing against an {@link AccountStore}.
+ * Run with: mvn test -pl authorize -Dtest=ParallelConsumerBenchmarkTest -Dbenchmark.parallel-consumer=true
+ */
+@EnabledIfSystemProperty(named = "benchmark.parallel-consumer", matches = "true")
+class ParallelConsumerBenchmarkTest {
+
+    private static final String TOPIC = "iso8583-requests";
+    private static final int PARTITIONS = 3;
+    private static final int RECORDS = 30_000;
+    private static final int CARDS = 5_000;
+
+    @Test
+    @DisplayName("Benchmark serial listener vs key-ordered parallel consumer")
+    void benchmark() throws Exception {
+        for (long latencyMicros : new long[]{0, 100, 500}) {
+            double serial = runSerial(latencyMicros);
+            double parallel = runParallel(latencyMicros, 16);
+            System.out.printf("downstream latency %4d us: serial listener %,10.0f rec/s, parallel consumer (16 workers) %,10.0f rec/s (%.1fx)%n",
+                    latencyMicros, serial, parallel, parallel / serial);
+            if (latencyMicros > 0) {
+                assertTrue(parallel > serial * 4, "Parallel consumer should scale past the partition count");
+            }
+        }
+    }
+
+    // What the @KafkaListener container does: one thread, one record after another, commit per poll
+    private double runSerial(long latencyMicros) {
+        MockConsumer<String, String> consumer = feed();
+        AccountStore store = store();
+        consumer.subscribe(List.of(TOPIC));
+        long started = System.nanoTime();
+        int processed = 0;
+        while (processed < RECORDS) {
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(100))) {
+                process(store, record, latencyMicros);
+                offsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+                processed++;
+            }
+            consumer.commitSync(offsets);
+        }
+        return RECORDS / ((System.nanoTime() - started) / 1e9);
+    }
+
+    private double runParallel(long latencyMicros, int workers) throws Exception {
+        MockConsumer<String, String> consumer = feed();
+        AccountStore store = store();
+        ParallelConsumer<String, String> parallel = new ParallelConsumer<>(consumer, List.of(TOPIC), ConsumerRecord::key,
+                record -> {
+                    process(store, record, latencyMicros);
+                    return CompletableFuture.completedFuture(null);
+                }, workers, 10_000, 1, 100);
+        long started = System.nanoTime();
+        Thread thread = new Thread(parallel);
+        thread.start();
+        while (parallel.getProcessedCount() < RECORDS) {
+            Thread.sleep(1);
+        }
+        double throughput = RECORDS / ((System.nanoTime() - started) / 1e9);
+        parallel.stop();
+        thread.join();
+        return throughput;
+    }
+
+    private static void process(AccountStore store, ConsumerRecord<String, String> record, long latencyMicros) {
+        store.authorize(record.key(), record.value(), 100, System.currentTimeMillis());
+        if (latencyMicros > 0) {
+            // Stand-in for a downstream call (HSM, fraud scoring, issuer host)
+            LockSupport.parkNanos(latencyMicros * 1000);
+        }
+    }
+
+    private static AccountStore store() {
+        return new AccountStore(CARDS, 1024, true, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2, 60);
+    }
+
+    private static MockConsumer<String, String> feed() {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (int p = 0; p < PARTITIONS; p++) {
+            partitions.add(new TopicPartition(TOPIC, p));
+        }
+        MockConsumer<String, String> consumer = ParallelConsumerTest.consumer(partitions);
+        List<ConsumerRecord<String, String>> records = new ArrayList<>(RECORDS);
+        long[] offsets = new long[PARTITIONS];
+        for (int i = 0; i < RECORDS; i++) {
+            int card = (int) (i * 7919L % CARDS);
+            int p = card % PARTITIONS;
+            records.add(new ConsumerRecord<>(TOPIC, p, offsets[p]++, String.format("4000%012d", card), String.format("%012d", i)));
+        }
+        ParallelConsumerTest.addRecords(consumer, records);
+        return consumer;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.authorize.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelConsumerTest {
+
+    private static final String TOPIC = "iso8583-requests";
+
+    @Test
+    @DisplayName("Should commit only up to the lowest record that is not complete")
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void shouldCommitContiguousOffsetsOnly() throws Exception {
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        MockConsumer<String, String> consumer = consumer(List.of(partition));
+        Map<Long, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add(new ConsumerRecord<>(TOPIC, 0, i, "card-" + i, "request-" + i));
+        }
+        addRecords(consumer, records);
+
+        ParallelConsumer<String, String> parallel = new ParallelConsumer<>(consumer, List.of(TOPIC), ConsumerRecord::key,
+                record -> pending.computeIfAbsent(record.offset(), offset -> new CompletableFuture<>()), 4, 100, 1, 0);
+        Thread thread = new Thread(parallel);
+        thread.start();
+
+        awaitCondition(() -> pending.size() == 10);
+        for (long offset = 9; offset >= 3; offset--) {
+            pending.get(offset).complete(null);
+        }
+        pending.get(1L).complete(null);
+        Thread.sleep(300);
+        Long committed = committed(consumer, partition);
+        assertTrue(committed == null || committed == 0, "Offset 0 is still in flight, got commit " + committed);
+
+        pending.get(0L).complete(null);
+        awaitCondition(() -> Long.valueOf(2).equals(committed(consumer, partition)));
+
+        pending.get(2L).complete(null);
+        awaitCondition(() -> Long.valueOf(10).equals(committed(consumer, partition)));
+        parallel.stop();
+        thread.join();
+        assertEquals(10, parallel.getProcessedCount());
+    }
+
+    @Test
+    @DisplayName("Should keep per-key order while spreading a partition over many workers")
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void shouldKeepPerKeyOrder() throws Exception {
+        List<TopicPartition> partitions = List.of(new TopicPartition(TOPIC, 0), new TopicPartition(TOPIC, 1));
+        MockConsumer<String, String> consumer = consumer(partitions);
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        long[] nextOffset = new long[2];
+        for (int i = 0; i < 4000; i++) {
+            int card = i % 40;
+            int p = card % 2;
+            records.add(new ConsumerRecord<>(TOPIC, p, nextOffset[p]++, "card-" + card, "request-" + i));
+        }
+        addRecords(consumer, records);
+
+        Map<String, List<Long>> seen = new ConcurrentHashMap<>();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        ParallelConsumer<String, String> parallel = new ParallelConsumer<>(consumer, List.of(TOPIC), ConsumerRecord::key,
+                record -> {
+                    threads.add(Thread.currentThread());
+                    LockSupport.parkNanos(ThreadLocalRandom.current().nextInt(20_000));
+                    seen.computeIfAbsent(record.key(), key -> new ArrayList<>()).add(record.offset());
+                    return CompletableFuture.completedFuture(null);
+                }, 8, 1000, 1, 10);
+        Thread thread = new Thread(parallel);
+        thread.start();
+
+        awaitCondition(() -> parallel.getProcessedCount() == 4000);
+        awaitCondition(() -> Long.valueOf(2000).equals(committed(consumer, partitions.get(0)))
+                && Long.valueOf(2000).equals(committed(consumer, partitions.get(1))));
+        parallel.stop();
+        thread.join();
+
+        assertTrue(threads.size() > 2, "Records of two partitions should run on more than two threads");
+        seen.forEach((card, offsets) -> {
+            for (int i = 1; i < offsets.size(); i++) {
+                assertTrue(offsets.get(i) > offsets.get(i - 1), "Order broken for " + card);
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Should retry a failed record before the next record with the same key")
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void shouldRetryBeforeLaterRecordsOfTheKey() throws Exception {
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        MockConsumer<String, String> consumer = consumer(List.of(partition));
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            records.add(new ConsumerRecord<>(TOPIC, 0, i, "card-" + (i % 2), "request-" + i));
+        }
+        addRecords(consumer, records);
+
+        List<Long> succeeded = new CopyOnWriteArrayList<>();
+        AtomicInteger attemptsOfFirst = new AtomicInteger();
+        ParallelConsumer<String, String> parallel = new ParallelConsumer<>(consumer, List.of(TOPIC), ConsumerRecord::key,
+                record -> {
+                    if (record.offset() == 0 && attemptsOfFirst.incrementAndGet() == 1) {
+                        // Fails later, as a broker send does, after the lane has moved on
+                        return CompletableFuture.runAsync(() -> {
+                            throw new IllegalStateException("broker unavailable");
+                        }, CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+                    }
+                    succeeded.add(record.offset());
+                    return CompletableFuture.completedFuture(null);
+                }, 1, 100, 3, 0);
+        Thread thread = new Thread(parallel);
+        thread.start();
+
+        awaitCondition(() -> Long.valueOf(6).equals(committed(consumer, partition)));
+        parallel.stop();
+        thread.join();
+
+        assertEquals(2, attemptsOfFirst.get());
+        List<Long> sameKey = succeeded.stream().filter(offset -> offset % 2 == 0).toList();
+        assertEquals(List.of(0L, 2L, 4L), sameKey, "The retry should run before later records of card-0");
+    }
+
+    @Test
+    @DisplayName("Should halt the partition instead of committing past a record that exhausted its attempts")
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void shouldHaltPartitionOnExhaustedRecord() throws Exception {
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        MockConsumer<String, String> consumer = consumer(List.of(partition));
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            records.add(new ConsumerRecord<>(TOPIC, 0, i, "card-" + i, "request-" + i));
+        }
+        addRecords(consumer, records);
+
+        AtomicInteger attempts = new AtomicInteger();
+        ParallelConsumer<String, String> parallel = new ParallelConsumer<>(consumer, List.of(TOPIC), ConsumerRecord::key,
+                record -> {
+                    if (record.offset() != 1) return CompletableFuture.completedFuture(null);
+                    attempts.incrementAndGet();
+                    return CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"));
+                }, 2, 100, 3, 0);
+        Thread thread = new Thread(parallel);
+        thread.start();
+
+        awaitCondition(() -> parallel.getHaltedPartitions().contains(partition) && parallel.getProcessedCount() == 3);
+        awaitCondition(() -> consumer.paused().contains(partition));
+        assertEquals(3, attempts.get());
+        assertEquals(1L, committed(consumer, partition), "The commit must stay below the failed record");
+        parallel.stop();
+        thread.join();
+    }
+
+    static MockConsumer<String, String> consumer(List<TopicPartition> partitions) {
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        Map<TopicPartition, Long> beginning = new HashMap<>();
+        partitions.forEach(partition -> beginning.put(partition, 0L));
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(partitions);
+            consumer.updateBeginningOffsets(beginning);
+        });
+        return consumer;
+    }
+
+    static void addRecords(MockConsumer<String, String> consumer, List<ConsumerRecord<String, String>> records) {
+        consumer.schedulePollTask(() -> records.forEach(consumer::addRecord));
+    }
+
+    static Long committed(MockConsumer<String, String> consumer, TopicPartition partition) {
+        OffsetAndMetadata offset = consumer.committed(Set.of(partition)).get(partition);
+        return offset == null ? null : offset.offset();
+    }
+
+    static void awaitCondition(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            Thread.sleep(5);
+        }
+    }
+}
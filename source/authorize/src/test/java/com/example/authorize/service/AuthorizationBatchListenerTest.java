@@ -0,0 +1,212 @@
+package com.example.authorize.service;
+
+import com.example.authorize.store.AccountStore;
+import com.example.authorize.velocity.VelocityEngine;
+import com.example.common.dedup.DuplicateFilter;
+import com.example.common.kafka.Iso8583Headers;
+import com.example.common.model.Iso8583Message;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorizationBatchListenerTest {
+
+    // KafkaTemplate closes the producer after every send unless it comes from a caching factory
+    private final MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+        @Override
+        public void close(Duration timeout) {
+        }
+    };
+    private final KafkaTemplate<String, String> kafkaTemplate = new KafkaTemplate<>(() -> producer);
+    private final DuplicateFilter<Iso8583Message> duplicateFilter = new DuplicateFilter<>(10_000, 0.001, 600_000, 1024);
+    private final AuthorizationBatchListener listener = new AuthorizationBatchListener(
+            new AuthorizationService(kafkaTemplate, new AccountStore(1000, 64, true, 1_000_000, 500_000, 1440),
+                    duplicateFilter, new VelocityEngine(false, new int[] {1}, 1, 1, 1, 1, ""), "iso8583-responses"),
+            kafkaTemplate, "iso8583-responses", 8, 5000);
+
+    @AfterEach
+    void tearDown() {
+        listener.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should answer every 0200 in the batch and keep per-PAN order across lanes")
+    void shouldAuthorizeBatchInPanOrder() {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String rrn = String.format("%012d", i);
+            records.add(new ConsumerRecord<>("iso8583-requests", i % 3, i, rrn, request(pan(i % 20), rrn)));
+        }
+        records.add(new ConsumerRecord<>("iso8583-requests", 0, 400, "000000000400", "0800|70=301"));
+
+        listener.processAuthorizationBatch(records);
+
+        List<ProducerRecord<String, String>> sent = producer.history();
+        assertEquals(400, sent.size(), "Only 0200s should be answered");
+        assertTrue(producer.flushed(), "Responses should be flushed as one batch");
+        Map<String, Integer> lastRrnPerPan = new HashMap<>();
+        for (ProducerRecord<String, String> response : sent) {
+            assertTrue(response.value().startsWith("0210|"), response.value());
+            assertTrue(response.value().contains("|37=" + response.key()), "Responses keep the request key");
+            int rrn = Integer.parseInt(response.key());
+            Integer previous = lastRrnPerPan.put(pan(rrn % 20), rrn);
+            assertTrue(previous == null || previous < rrn, "Responses for one PAN must keep request order");
+        }
+    }
+
+    @Test
+    @DisplayName("Should replay the original 0210s when a batch is redelivered")
+    void shouldReplayOriginalResponsesOnRedelivery() {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String rrn = String.format("%012d", i);
+            records.add(new ConsumerRecord<>("iso8583-requests", 0, i, rrn, request(pan(i % 5), rrn)));
+        }
+
+        listener.processAuthorizationBatch(records);
+        List<ProducerRecord<String, String>> first = new ArrayList<>(producer.history());
+        // Same records again, as after a rebalance before the offset commit
+        listener.processAuthorizationBatch(records);
+        List<ProducerRecord<String, String>> replayed = producer.history().subList(first.size(), producer.history().size());
+
+        assertEquals(first.size(), replayed.size(), "Duplicates are still answered");
+        assertEquals(50, duplicateFilter.getDuplicateCount(), "Every redelivered 0200 should be detected");
+        Map<String, String> original = new HashMap<>();
+        first.forEach(response -> original.put(response.key(), response.value()));
+        for (ProducerRecord<String, String> response : replayed) {
+            assertEquals(original.get(response.key()), response.value(), "A duplicate gets the original 0210 byte for byte");
+        }
+    }
+
+    @Test
+    @DisplayName("Should throw instead of returning when a response send fails, so offsets stay uncommitted")
+    void shouldFailBatchWhenSendFails() {
+        producer.sendException = new KafkaException("broker unavailable");
+        List<ConsumerRecord<String, String>> records = List.of(
+                new ConsumerRecord<>("iso8583-requests", 0, 0, "000000000001", request(pan(1), "000000000001")));
+
+        assertThrows(IllegalStateException.class, () -> listener.processAuthorizationBatch(records));
+    }
+
+    @Test
+    @DisplayName("Should commit responses and offsets in one transaction, or neither")
+    void shouldCommitResponsesAndOffsetsTogether() {
+        MockProducer<String, String> txProducer = new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        txProducer.initTransactions();
+        ProducerFactory<String, String> factory = new ProducerFactory<>() {
+            @Override
+            public Producer<String, String> createProducer() {
+                return txProducer;
+            }
+
+            @Override
+            public Producer<String, String> createProducer(String txIdPrefix) {
+                return txProducer;
+            }
+
+            @Override
+            public boolean transactionCapable() {
+                return true;
+            }
+        };
+        KafkaTemplate<String, String> txTemplate = new KafkaTemplate<>(factory);
+        TransactionTemplate transaction = new TransactionTemplate(new KafkaTransactionManager<>(factory));
+        AuthorizationBatchListener txListener = new AuthorizationBatchListener(
+                new AuthorizationService(txTemplate, new AccountStore(1000, 64, true, 1_000_000, 500_000, 1440),
+                        new DuplicateFilter<>(10_000, 0.001, 600_000, 1024),
+                        new VelocityEngine(false, new int[] {1}, 1, 1, 1, 1, ""), "iso8583-responses"),
+                txTemplate, "iso8583-responses", 4, 5000);
+        // What the container does around the listener: process, then add the consumed offsets
+        Map<TopicPartition, OffsetAndMetadata> offsets = Map.of(new TopicPartition("iso8583-requests", 0), new OffsetAndMetadata(20));
+        Runnable batch = () -> transaction.executeWithoutResult(status -> {
+            List<ConsumerRecord<String, String>> records = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String rrn = String.format("%012d", txProducer.history().size() + i);
+                records.add(new ConsumerRecord<>("iso8583-requests", 0, i, rrn, request(pan(i), rrn)));
+            }
+            txListener.processAuthorizationBatch(records);
+            txTemplate.sendOffsetsToTransaction(offsets, new ConsumerGroupMetadata("authorize-service"));
+        });
+
+        try {
+            batch.run();
+            assertTrue(txProducer.transactionCommitted());
+            assertEquals(20, txProducer.history().size());
+            assertEquals(1, txProducer.consumerGroupOffsetsHistory().size(), "Offsets are committed with the responses");
+
+            txProducer.sendException = new KafkaException("broker unavailable");
+            assertThrows(IllegalStateException.class, batch::run);
+            assertTrue(txProducer.transactionAborted());
+            assertEquals(20, txProducer.history().size(), "Aborted responses are never visible to read_committed consumers");
+            assertEquals(1, txProducer.consumerGroupOffsetsHistory().size(), "Offsets of the aborted batch are not committed");
+        } finally {
+            txListener.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should key responses by RRN and carry the standard headers and the request's trace")
+    void shouldWriteResponseHeaders() {
+        String traceparent = "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01";
+        ConsumerRecord<String, String> authorization =
+                new ConsumerRecord<>("iso8583-requests", 0, 0, "000000000007", request(pan(7), "000000000007"));
+        Iso8583Headers.write(authorization.headers(), authorization.value(), traceparent);
+        // Skipped by the deserializer on its header: no value, no response
+        ConsumerRecord<String, String> skipped = new ConsumerRecord<>("iso8583-requests", 0, 1, null, null);
+
+        listener.processAuthorizationBatch(List.of(authorization, skipped));
+
+        assertEquals(1, producer.history().size());
+        ProducerRecord<String, String> response = producer.history().get(0);
+        assertEquals("000000000007", response.key());
+        assertEquals("0210", Iso8583Headers.get(response.headers(), Iso8583Headers.MTI));
+        assertEquals("000000000007", Iso8583Headers.get(response.headers(), Iso8583Headers.RRN));
+        assertEquals("000007", Iso8583Headers.get(response.headers(), Iso8583Headers.STAN));
+        assertEquals(Iso8583Headers.originInstance(), Iso8583Headers.get(response.headers(), Iso8583Headers.ORIGIN_INSTANCE));
+        assertEquals(traceparent, Iso8583Headers.get(response.headers(), Iso8583Headers.TRACEPARENT));
+    }
+
+    @Test
+    @DisplayName("Should pick the lane from the PAN in either message format")
+    void shouldExtractLaneKey() {
+        assertEquals("4000123456789012", AuthorizationBatchListener.laneKey(
+                new ConsumerRecord<>("t", 0, 0, "rrn", "0200|2=4000123456789012|3=000000")));
+        assertEquals("4000123456789012", AuthorizationBatchListener.laneKey(
+                new ConsumerRecord<>("t", 0, 0, "rrn", "MTI=0200|F2=4000123456789012")));
+        assertEquals("rrn", AuthorizationBatchListener.laneKey(
+                new ConsumerRecord<>("t", 0, 0, "rrn", "0200|3=000000")));
+    }
+
+    private static String pan(int card) {
+        return String.format("4000%012d", card);
+    }
+
+    private static String request(String pan, String rrn) {
+        return "0200|2=" + pan + "|3=000000|4=000000001000|11=" + rrn.substring(6) + "|37=" + rrn;
+    }
+}
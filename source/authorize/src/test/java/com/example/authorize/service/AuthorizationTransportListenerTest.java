@@ -0,0 +1,48 @@
+package com.example.authorize.service;
+
+import com.example.authorize.store.AccountStore;
+import com.example.authorize.velocity.VelocityEngine;
+import com.example.common.dedup.DuplicateFilter;
+import com.example.common.transport.MappedFileTransport;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorizationTransportListenerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should answer a 0200 over mapped queue files without Kafka")
+    void shouldAuthorizeOverMappedTransport() throws Exception {
+        // One transport per side, as the client and authorize processes would each map the files
+        try (MappedFileTransport client = new MappedFileTransport(directory, 65536, 1000);
+             MappedFileTransport authorize = new MappedFileTransport(directory, 65536, 1000)) {
+            AuthorizationTransportListener listener = new AuthorizationTransportListener(
+                    new AuthorizationService(null, new AccountStore(1000, 64, true, 1_000_000, 500_000, 1440),
+                            new DuplicateFilter<>(10_000, 0.001, 600_000, 1024),
+                            new VelocityEngine(false, new int[] {1}, 1, 1, 1, 1, ""), "iso8583-responses"),
+                    authorize, "iso8583-requests", "iso8583-responses");
+            listener.start();
+
+            CompletableFuture<String> response = new CompletableFuture<>();
+            client.subscribe("iso8583-responses", (key, message) -> response.complete(key + "=" + message));
+            client.send("iso8583-requests", "000000000001",
+                    "0200|2=4000123456789012|3=000000|4=000000001000|11=000001|37=000000000001");
+
+            String answer = response.get(5, TimeUnit.SECONDS);
+            assertTrue(answer.startsWith("000000000001=0210|"), answer);
+            assertTrue(answer.contains("|39=00"), answer);
+            listener.stop();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.authorize.service;
+
+import com.example.authorize.store.AccountStore;
+import com.example.authorize.velocity.VelocityEngine;
+import com.example.common.dedup.DuplicateFilter;
+import com.example.common.parser.Iso8583Parser;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Response producer settings compared without a broker. First the wire size and encode time of one
+ * poll's worth of 0210s per compression codec, built the way the producer builds a record batch.
+ * Then throughput and per-poll latency (poll handed over to offsets committed) of the record, batch
+ * and transactional listener paths against a MockProducer stand-in that charges a modelled broker
+ * round trip for every blocking call: flush, offset commit, AddOffsetsToTxn + TxnOffsetCommit, EndTxn.
+ * Run with: mvn test -pl authorize -Dtest=KafkaProducerModesBenchmarkTest -Dbenchmark.kafka-producer=true [-Dbenchmark.rtt-micros=500]
+ */
+@EnabledIfSystemProperty(named = "benchmark.kafka-producer", matches = "true")
+class KafkaProducerModesBenchmarkTest {
+
+    private static final int POLL = 500;
+    private static final int WARMUP_POLLS = 5;
+    private static final int POLLS = 40;
+    private static final long RTT_NANOS = TimeUnit.MICROSECONDS.toNanos(Long.getLong("benchmark.rtt-micros", 500));
+
+    @Test
+    @DisplayName("Benchmark response batch size per compression codec")
+    void benchmarkCompression() {
+        AuthorizationService service = service(new KafkaTemplate<>(() -> standIn()));
+        List<byte[]> keys = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < POLL; i++) {
+            String rrn = String.format("%012d", i);
+            keys.add(rrn.getBytes(StandardCharsets.UTF_8));
+            values.add(service.authorize(Iso8583Parser.parseMessage(request(i, rrn))).toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        int uncompressed = 0;
+        for (CompressionType type : new CompressionType[] {CompressionType.NONE, CompressionType.GZIP,
+                CompressionType.SNAPPY, CompressionType.LZ4, CompressionType.ZSTD}) {
+            int size = 0;
+            for (int iteration = 0; iteration < 50; iteration++) {
+                size = encode(type, keys, values);
+            }
+            long start = System.nanoTime();
+            for (int iteration = 0; iteration < 200; iteration++) {
+                size = encode(type, keys, values);
+            }
+            double micros = (System.nanoTime() - start) / 200 / 1000.0;
+            if (type == CompressionType.NONE) uncompressed = size;
+            System.out.printf("%-6s %,7d bytes per %d responses (%.1f%% of none), %,.0f us to encode%n",
+                    type.name, size, POLL, 100.0 * size / uncompressed, micros);
+            assertTrue(size <= uncompressed);
+        }
+    }
+
+    @Test
+    @DisplayName("Benchmark record, batch and transactional listener paths against a broker stand-in")
+    void benchmarkModes() {
+        // Record mode: one send per record, the container commits offsets once per poll
+        StandIn recordProducer = standIn();
+        AuthorizationService recordService = service(new KafkaTemplate<>(() -> recordProducer));
+        run("record", (poll, records) -> {
+            for (ConsumerRecord<String, String> record : records) {
+                recordService.processAuthorizationRequest(record.value());
+            }
+            LockSupport.parkNanos(RTT_NANOS);
+        });
+        assertEquals((long) POLL * (WARMUP_POLLS + POLLS), recordProducer.history().size());
+
+        // Batch mode: lanes, one flush, then the container's offset commit
+        StandIn batchProducer = standIn();
+        KafkaTemplate<String, String> batchTemplate = new KafkaTemplate<>(() -> batchProducer);
+        AuthorizationBatchListener batchListener = new AuthorizationBatchListener(service(batchTemplate), batchTemplate,
+                "iso8583-responses", 8, 10_000);
+        run("batch", (poll, records) -> {
+            batchListener.processAuthorizationBatch(records);
+            LockSupport.parkNanos(RTT_NANOS);
+        });
+        batchListener.shutdown();
+        assertEquals((long) POLL * (WARMUP_POLLS + POLLS), batchProducer.history().size());
+
+        // Transactional mode: responses and offsets committed together by the transaction manager
+        StandIn txProducer = standIn();
+        txProducer.initTransactions();
+        ProducerFactory<String, String> factory = new ProducerFactory<>() {
+            @Override
+            public Producer<String, String> createProducer() {
+                return txProducer;
+            }
+
+            @Override
+            public Producer<String, String> createProducer(String txIdPrefix) {
+                return txProducer;
+            }
+
+            @Override
+            public boolean transactionCapable() {
+                return true;
+            }
+        };
+        KafkaTemplate<String, String> txTemplate = new KafkaTemplate<>(factory);
+        TransactionTemplate transaction = new TransactionTemplate(new KafkaTransactionManager<>(factory));
+        AuthorizationBatchListener txListener = new AuthorizationBatchListener(service(txTemplate), txTemplate,
+                "iso8583-responses", 8, 10_000);
+        ConsumerGroupMetadata group = new ConsumerGroupMetadata("authorize-service");
+        run("transactional", (poll, records) -> transaction.executeWithoutResult(status -> {
+            txListener.processAuthorizationBatch(records);
+            txTemplate.sendOffsetsToTransaction(Map.of(new TopicPartition("iso8583-requests", 0),
+                    new OffsetAndMetadata((long) (poll + 1) * POLL)), group);
+        }));
+        txListener.shutdown();
+        assertEquals((long) POLL * (WARMUP_POLLS + POLLS), txProducer.history().size());
+        assertEquals(WARMUP_POLLS + POLLS, txProducer.consumerGroupOffsetsHistory().size());
+    }
+
+    private interface Poll {
+        void handle(int poll, List<ConsumerRecord<String, String>> records);
+    }
+
+    private static void run(String mode, Poll handler) {
+        // Warm-up polls use their own RRNs so the measured ones are never duplicates
+        for (int poll = 0; poll < WARMUP_POLLS; poll++) {
+            handler.handle(poll, records(1_000_000 + poll));
+        }
+        long[] latencies = new long[POLLS];
+        long start = System.nanoTime();
+        for (int poll = 0; poll < POLLS; poll++) {
+            List<ConsumerRecord<String, String>> records = records(poll);
+            long polled = System.nanoTime();
+            handler.handle(poll, records);
+            latencies[poll] = System.nanoTime() - polled;
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        System.out.printf("%-13s %,8.0f records/s with a %d us round trip, per poll of %d: p50 %.2f ms, p99 %.2f ms%n", mode,
+                (double) POLL * POLLS / elapsed * 1e9,
+                TimeUnit.NANOSECONDS.toMicros(RTT_NANOS), POLL, latencies[POLLS / 2] / 1e6, latencies[POLLS * 99 / 100] / 1e6);
+    }
+
+    private static List<ConsumerRecord<String, String>> records(int poll) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>(POLL);
+        for (int i = 0; i < POLL; i++) {
+            long offset = (long) poll * POLL + i;
+            String rrn = String.format("%012d", offset);
+            records.add(new ConsumerRecord<>("iso8583-requests", 0, offset, rrn, request((int) (offset % 5_000), rrn)));
+        }
+        return records;
+    }
+
+    private static int encode(CompressionType type, List<byte[]> keys, List<byte[]> values) {
+        MemoryRecordsBuilder builder = MemoryRecords.builder(ByteBuffer.allocate(256 * 1024),
+                type, TimestampType.CREATE_TIME, 0L);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < keys.size(); i++) {
+            builder.append(now, keys.get(i), values.get(i));
+        }
+        return builder.build().sizeInBytes();
+    }
+
+    private static AuthorizationService service(KafkaTemplate<String, String> template) {
+        return new AuthorizationService(template, new AccountStore(10_000, 1024, true, 1_000_000_000, 1_000_000_000, 1440),
+                new DuplicateFilter<>(1_000_000, 0.001, 600_000, 65_536),
+                new VelocityEngine(false, new int[] {1}, 1, 1, 1, 1, ""), "iso8583-responses");
+    }
+
+    private static String request(int card, String rrn) {
+        return "0200|2=" + String.format("4000%012d", card) + "|3=000000|4=000000001000|7=1019120000|11="
+                + rrn.substring(6) + "|37=" + rrn + "|41=TERM0001|42=SIMULATOR000001|49=704";
+    }
+
+    private static StandIn standIn() {
+        return new StandIn();
+    }
+
+    /**
+     * Acknowledges sends immediately and charges a round trip for each call that waits on the broker.
+     */
+    private static final class StandIn extends MockProducer<String, String> {
+
+        StandIn() {
+            super(true, new StringSerializer(), new StringSerializer());
+        }
+
+        @Override
+        public void flush() {
+            LockSupport.parkNanos(RTT_NANOS);
+            super.flush();
+        }
+
+        @Override
+        public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets, ConsumerGroupMetadata groupMetadata) {
+            LockSupport.parkNanos(2 * RTT_NANOS);
+            super.sendOffsetsToTransaction(offsets, groupMetadata);
+        }
+
+        @Override
+        public void commitTransaction() {
+            // Flush of the transaction's sends, then EndTxn
+            LockSupport.parkNanos(2 * RTT_NANOS);
+            super.commitTransaction();
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.authorize.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountStoreTest {
+
+    private static final long NOW = TimeUnit.DAYS.toMillis(20000) + 1000;
+
+    private final AccountStore store = new AccountStore(1000, 64, false, 0, 0, 60);
+
+    @Test
+    @DisplayName("Should approve within balance and limit, and decline with the matching response code")
+    void shouldApplyBalanceAndLimits() {
+        account(1, 10_000, 6_000, "4000000000000001");
+
+        assertEquals(Decision.APPROVED, store.authorize("4000000000000001", "000000000001", 5_000, NOW).getResponseCode());
+        assertEquals(Decision.EXCEEDS_LIMIT, store.authorize("4000000000000001", "000000000002", 2_000, NOW).getResponseCode());
+        assertEquals(Decision.INSUFFICIENT_FUNDS, store.authorize("4000000000000001", "000000000003", 6_000, NOW).getResponseCode());
+        assertEquals(Decision.INVALID_CARD, store.authorize("4000000000000009", "000000000004", 100, NOW).getResponseCode());
+        assertEquals(Decision.INVALID_AMOUNT, store.authorize("4000000000000001", "000000000005", 0, NOW).getResponseCode());
+
+        // The daily limit starts over the next day; the balance does not
+        long tomorrow = NOW + TimeUnit.DAYS.toMillis(1);
+        Decision next = store.authorize("4000000000000001", "000000000006", 4_000, tomorrow);
+        assertEquals(Decision.APPROVED, next.getResponseCode());
+        assertEquals(1_000, next.getAvailable());
+    }
+
+    @Test
+    @DisplayName("Should answer a redelivered RRN with the original decision instead of a second hold")
+    void shouldBeIdempotentPerRrn() {
+        account(1, 10_000, 100_000, "4000000000000001");
+
+        Decision first = store.authorize("4000000000000001", "000000000001", 4_000, NOW);
+        Decision again = store.authorize("4000000000000001", "000000000001", 4_000, NOW);
+
+        assertSame(first, again);
+        assertEquals(5_999, store.authorize("4000000000000001", "000000000002", 1, NOW).getAvailable(),
+                "Only one hold of 4000 should have been placed");
+    }
+
+    @Test
+    @DisplayName("Should keep approved holds only, so declines cost no memory until expiry")
+    void shouldKeepOnlyApprovedHolds() {
+        account(1, 10_000, 100_000, "4000000000000001");
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Decision.INSUFFICIENT_FUNDS,
+                    store.authorize("4000000000000001", String.format("%012d", i), 20_000, NOW).getResponseCode());
+        }
+        assertEquals(Decision.INVALID_CARD, store.authorize("4000000000000009", "000000000100", 100, NOW).getResponseCode());
+        store.authorize("4000000000000001", "000000000101", 4_000, NOW);
+
+        assertEquals(1, store.getHoldCount());
+        assertEquals(Decision.NOT_FOUND, store.reverse("000000000000", NOW).getResponseCode(), "A decline placed no hold");
+    }
+
+    @Test
+    @DisplayName("Should release holds on reversal once, and on expiry")
+    void shouldReleaseHolds() {
+        account(1, 10_000, 100_000, "4000000000000001");
+        store.authorize("4000000000000001", "000000000001", 4_000, NOW);
+        store.authorize("4000000000000001", "000000000002", 3_000, NOW);
+
+        assertEquals(7_000, store.reverse("000000000001", NOW).getAvailable());
+        assertEquals(7_000, store.reverse("000000000001", NOW).getAvailable(), "A repeated reversal must not credit twice");
+        assertEquals(Decision.NOT_FOUND, store.reverse("000000000099", NOW).getResponseCode());
+
+        assertEquals(2, store.expireHolds(NOW + TimeUnit.MINUTES.toMillis(60)));
+        assertEquals(0, store.getHoldCount());
+        assertEquals(Decision.APPROVED, store.authorize("4000000000000001", "000000000003", 10_000, NOW).getResponseCode());
+    }
+
+    @Test
+    @DisplayName("Should post a stood-in approval past the balance, once, and only record a stood-in decline")
+    void shouldPostStandInAdvices() {
+        account(1, 3_000, 100_000, "4000000000000001");
+
+        Decision posted = store.adviseStandIn("4000000000000001", "000000000001", 5_000, Decision.APPROVED, "123456", NOW);
+        assertEquals(Decision.APPROVED, posted.getResponseCode());
+        assertEquals("123456", posted.getApprovalCode());
+        assertEquals(-2_000, posted.getAvailable(), "The cardholder already has the goods");
+        assertSame(posted, store.adviseStandIn("4000000000000001", "000000000001", 5_000, Decision.APPROVED, "123456", NOW),
+                "A repeated advice is a no-op");
+
+        Decision declined = store.adviseStandIn("4000000000000001", "000000000002", 1_000, "91", null, NOW);
+        assertEquals("91", declined.getResponseCode());
+        assertEquals(Decision.INSUFFICIENT_FUNDS, store.authorize("4000000000000001", "000000000003", 1, NOW).getResponseCode());
+
+        // The 0200 was declined here but the server had already stood in and approved it
+        assertEquals(Decision.INSUFFICIENT_FUNDS, store.authorize("4000000000000001", "000000000004", 500, NOW).getResponseCode());
+        assertEquals(Decision.APPROVED,
+                store.adviseStandIn("4000000000000001", "000000000004", 500, Decision.APPROVED, "654321", NOW).getResponseCode());
+        assertEquals(2_500, store.reverse("000000000001", NOW).getAvailable(), "-2000, less 500 posted, plus 5000 released");
+    }
+
+    @Test
+    @DisplayName("Should release a hold placed here when the server stood in and declined the same RRN")
+    void shouldFollowStandInDecline() {
+        account(1, 10_000, 100_000, "4000000000000001");
+        assertEquals(Decision.APPROVED, store.authorize("4000000000000001", "000000000001", 4_000, NOW).getResponseCode());
+        assertEquals(1, store.getHoldCount());
+
+        Decision declined = store.adviseStandIn("4000000000000001", "000000000001", 4_000, "91", null, NOW);
+
+        assertEquals("91", declined.getResponseCode());
+        assertEquals(0, store.getHoldCount(), "The cardholder was declined, so no funds stay held");
+        assertEquals(Decision.NOT_FOUND, store.reverse("000000000001", NOW).getResponseCode());
+        assertEquals(Decision.APPROVED, store.authorize("4000000000000001", "000000000002", 10_000, NOW).getResponseCode(),
+                "The full balance is available again");
+    }
+
+    @Test
+    @DisplayName("Should never overdraw an account under concurrent authorizations")
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void shouldNotOverdrawUnderContention() throws Exception {
+        int accounts = 8;
+        for (int i = 1; i <= accounts; i++) {
+            account(i, 1_000_000, Long.MAX_VALUE, String.format("4000%012d", i));
+        }
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> approved = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            approved.add(pool.submit(() -> {
+                long sum = 0;
+                for (int i = 0; i < perThread; i++) {
+                    String pan = String.format("4000%012d", 1 + i % accounts);
+                    Decision decision = store.authorize(pan, String.format("%02d%010d", thread, i), 7, NOW);
+                    if (decision.isApproved()) sum += 7;
+                }
+                return sum;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> result : approved) total += result.get();
+        pool.shutdown();
+
+        long remaining = 0;
+        for (int i = 1; i <= accounts; i++) {
+            long available = store.authorize(String.format("4000%012d", i), "check" + i, 1, NOW).getAvailable();
+            assertTrue(available >= 0, "Balance went negative");
+            remaining += available + 1;
+        }
+        assertEquals(accounts * 1_000_000L, remaining + total, "Every approved cent must come off exactly one balance");
+        assertTrue(total > 0);
+    }
+
+    @Test
+    @DisplayName("Should decide in microseconds")
+    void shouldDecideInMicroseconds() {
+        AccountStore demo = new AccountStore(100_000, 1024, true, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2, 60);
+        int count = 200_000;
+        String[] pans = new String[10_000];
+        for (int i = 0; i < pans.length; i++) pans[i] = String.format("4000%012d", i * 7919L);
+        String[] rrns = new String[count];
+        for (int i = 0; i < count; i++) rrns[i] = String.format("%012d", i);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            demo.authorize(pans[i % pans.length], rrns[i], 100, NOW);
+        }
+        double micros = (System.nanoTime() - started) / 1000.0 / count;
+        System.out.printf("Average authorization decision: %.2f us (%d cards)%n", micros, demo.getCardCount());
+        assertTrue(micros < 50, "Decisions should take microseconds, took " + micros + " us");
+    }
+
+    private void account(long accountId, long available, long dailyLimit, String pan) {
+        store.putAccount(new Account(accountId, available, dailyLimit, 0, 0, Account.ACTIVE));
+        assertTrue(store.putCard(pan, accountId));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.authorize.velocity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Velocity check latency with ten million distinct cards tracked, in the style of a JMH average-time
+ * benchmark: warm-up iterations, then measured iterations of random cards reported as ns/op.
+ * Needs about 1.5 GB of heap for the card table and 0.6 GB for the PANs.
+ * Run with: mvn test -pl authorize -Dtest=VelocityEngineBenchmarkTest -Dbenchmark.velocity=true -DargLine=-Xmx3g
+ */
+@EnabledIfSystemProperty(named = "benchmark.velocity", matches = "true")
+class VelocityEngineBenchmarkTest {
+
+    private static final int CARDS = 10_000_000;
+    private static final int OPERATIONS = 2_000_000;
+    private static final long START = TimeUnit.DAYS.toMillis(20000);
+
+    @Test
+    @DisplayName("Benchmark velocity checks at 10M distinct cards")
+    void benchmark() throws Exception {
+        long heapBefore = usedHeap();
+        VelocityEngine engine = new VelocityEngine(true, new int[] {1, 10, 60}, 4, CARDS, 100_000, 1024,
+                "card:1:count:5:65,card:10:count:20:65,card:60:amount:2000000:61,merchant:1:amount:1000000000000:59");
+        long heapAfter = usedHeap();
+        String[] pans = new String[CARDS];
+        for (int i = 0; i < CARDS; i++) {
+            pans[i] = String.format("4%015d", i * 7L);
+        }
+
+        // Populate: every card seen once within the hour, so the table holds 10M live keys
+        long now = START;
+        for (int i = 0; i < CARDS; i++) {
+            engine.check(pans[i], "SIMULATOR000001", 1_000, now + i / 3_000);
+        }
+        now += CARDS / 3_000;
+        System.out.printf("velocity table: %,d cards, ~%,d MB, %,d evictions while populating%n",
+                CARDS, (heapAfter - heapBefore) / (1024 * 1024), engine.getCardEvictions());
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            measure(engine, pans, now + iteration * 1000L, 1);
+        }
+        double single = 0;
+        for (int iteration = 0; iteration < 5; iteration++) {
+            single += measure(engine, pans, now + (10 + iteration) * 1000L, 1) / 5;
+        }
+        double parallel = measure(engine, pans, now + 20_000, Runtime.getRuntime().availableProcessors());
+        System.out.printf("velocity check, 10M cards: %.0f ns/op single thread, %.0f ns/op across %d threads%n",
+                single, parallel, Runtime.getRuntime().availableProcessors());
+        assertTrue(single < 5_000, "A velocity check should stay in the microsecond range");
+    }
+
+    private static double measure(VelocityEngine engine, String[] pans, long nowMillis, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int perThread = OPERATIONS / threads;
+            long started = System.nanoTime();
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int declined = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        if (engine.check(pans[random.nextInt(CARDS)], "SIMULATOR000001", 1_000, nowMillis) != null) declined++;
+                    }
+                    return declined;
+                }));
+            }
+            for (Future<Integer> result : results) result.get();
+            return (double) (System.nanoTime() - started) * threads / (perThread * (long) threads);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.authorize.velocity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VelocityEngineTest {
+
+    private static final long NOW = TimeUnit.DAYS.toMillis(20000);
+    private static final String PAN = "4000123456789012";
+    private static final String MERCHANT = "SIMULATOR000001";
+
+    @Test
+    @DisplayName("Should parse rules and reject windows that are not configured")
+    void shouldParseRules() {
+        List<VelocityRule> rules = VelocityRule.parse("card:1:count:5:65, merchant:60:amount:100000:59");
+        assertEquals(2, rules.size());
+        assertEquals(VelocityRule.Scope.MERCHANT, rules.get(1).getScope());
+        assertEquals(VelocityRule.Metric.AMOUNT, rules.get(1).getMetric());
+        assertEquals(100000, rules.get(1).getLimit());
+        assertEquals("card:1:count:5:65", rules.get(0).toString());
+
+        assertThrows(IllegalArgumentException.class, () -> VelocityRule.parse("card:1:count:5"));
+        assertThrows(IllegalArgumentException.class, () -> engine("card:5:count:5:65"));
+    }
+
+    @Test
+    @DisplayName("Should decline the transaction that would exceed a count limit and not count it")
+    void shouldDeclineOverCountLimit() {
+        VelocityEngine engine = engine("card:1:count:3:65");
+        for (int i = 0; i < 3; i++) {
+            assertNull(engine.check(PAN, MERCHANT, 100, NOW + i * 1000));
+        }
+        assertEquals("65", engine.check(PAN, MERCHANT, 100, NOW + 3000));
+        assertEquals("65", engine.check(PAN, MERCHANT, 100, NOW + 4000), "Declined attempts are not counted, the limit still holds");
+        assertNull(engine.check("4000123456789013", MERCHANT, 100, NOW + 4000), "Other cards are independent");
+    }
+
+    @Test
+    @DisplayName("Should let buckets roll out of the window lazily")
+    void shouldSlideWindow() {
+        // 1-minute window in four 15 s buckets
+        VelocityEngine engine = engine("card:1:count:2:65");
+        assertNull(engine.check(PAN, null, 100, NOW));
+        assertNull(engine.check(PAN, null, 100, NOW + 20_000));
+        assertEquals("65", engine.check(PAN, null, 100, NOW + 40_000));
+
+        // The first bucket has left the window, the second has not
+        assertNull(engine.check(PAN, null, 100, NOW + 61_000));
+        assertEquals("65", engine.check(PAN, null, 100, NOW + 62_000));
+
+        // Untouched for longer than the window: everything has expired
+        assertNull(engine.check(PAN, null, 100, NOW + 600_000));
+        assertNull(engine.check(PAN, null, 100, NOW + 601_000));
+    }
+
+    @Test
+    @DisplayName("Should apply amount limits per window and per merchant")
+    void shouldApplyAmountAndMerchantLimits() {
+        VelocityEngine engine = engine("card:60:amount:10000:61,merchant:1:count:4:59");
+        assertNull(engine.check(PAN, MERCHANT, 6_000, NOW));
+        assertEquals("61", engine.check(PAN, MERCHANT, 5_000, NOW + 1000));
+        assertNull(engine.check(PAN, MERCHANT, 4_000, NOW + 2000));
+
+        assertNull(engine.check("4000000000000001", MERCHANT, 1, NOW + 3000));
+        assertNull(engine.check("4000000000000002", MERCHANT, 1, NOW + 3000));
+        assertEquals("59", engine.check("4000000000000003", MERCHANT, 1, NOW + 3000), "Fifth transaction at the merchant");
+        assertNull(engine.check("4000000000000003", "OTHER0000000001", 1, NOW + 3000));
+        assertNull(engine.check("4000000000000004", null, 1, NOW + 3000), "No merchant id: merchant rules are skipped");
+    }
+
+    @Test
+    @DisplayName("Should stay within its fixed size by reusing the longest idle slots")
+    void shouldBoundMemory() {
+        VelocityEngine engine = new VelocityEngine(true, new int[] {1, 10, 60}, 4, 1_000, 0, 4, "card:60:count:1:65");
+        for (int i = 0; i < 100_000; i++) {
+            assertNull(engine.check(String.format("4%015d", i), null, 100, NOW + i));
+        }
+        assertTrue(engine.getCardEvictions() > 90_000, "Live cards beyond the capacity are evicted, got " + engine.getCardEvictions());
+        // The most recent cards are still tracked
+        assertEquals("65", engine.check(String.format("4%015d", 99_999), null, 100, NOW + 100_000));
+    }
+
+    @Test
+    @DisplayName("Should pass everything when disabled or without rules")
+    void shouldPassWhenDisabled() {
+        VelocityEngine disabled = new VelocityEngine(false, new int[] {1}, 4, 100, 100, 4, "card:1:count:0:65");
+        VelocityEngine noRules = new VelocityEngine(true, new int[] {1}, 4, 100, 100, 4, "");
+        assertFalse(disabled.isEnabled());
+        assertFalse(noRules.isEnabled());
+        assertNull(disabled.check(PAN, MERCHANT, 100, NOW));
+        assertNull(noRules.check(PAN, MERCHANT, 100, NOW));
+    }
+
+    private static VelocityEngine engine(String rules) {
+        return new VelocityEngine(true, new int[] {1, 10, 60}, 4, 10_000, 1_000, 16, rules);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.client.config;
+
+import com.example.client.transport.KafkaTransport;
+import com.example.common.transport.InJvmTransport;
+import com.example.common.transport.MappedFileTransport;
+import com.example.common.transport.MessageTransport;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.file.Path;
+
+/**
+ * The hop to the authorize service (iso8583.client.authorization.transport):
+ *   kafka  - through the broker (default)
+ *   in-jvm - shared in-memory queues, when authorize is started in the same process
+ *   mapped - memory-mapped queue files in a shared directory, when authorize runs on the same host
+ * The authorize service must be started with the matching authorize.transport.
+ */
+@Configuration
+@ConditionalOnProperty(name = "iso8583.client.authorization.enabled", havingValue = "true")
+public class TransportConfig {
+
+    @Bean
+    public MessageTransport authorizationTransport(
+            @Value("${iso8583.client.authorization.transport:kafka}") String transport,
+            ObjectProvider<KafkaTemplate<String, byte[]>> envelopeKafkaTemplate,
+            ObjectProvider<ConsumerFactory<String, String>> consumerFactory,
+            @Value("${iso8583.client.authorization.mapped.directory:${java.io.tmpdir}/iso8583-transport}") String directory,
+            @Value("${iso8583.client.authorization.mapped.capacity-bytes:16777216}") int capacity,
+            @Value("${iso8583.client.authorization.in-jvm.capacity:65536}") int inJvmCapacity,
+            @Value("${iso8583.client.authorization.send-timeout-ms:1000}") long sendTimeoutMs) {
+        System.out.println("🔌 Authorization transport: " + transport);
+        return switch (transport) {
+            case "kafka" -> new KafkaTransport(envelopeKafkaTemplate.getObject(), consumerFactory.getObject(), "client-response-consumer");
+            case "in-jvm" -> InJvmTransport.shared(inJvmCapacity, sendTimeoutMs, "com.example.authorize.AuthorizeApplication");
+            case "mapped" -> new MappedFileTransport(Path.of(directory), capacity, sendTimeoutMs);
+            default -> throw new IllegalArgumentException("Unknown iso8583.client.authorization.transport: " + transport);
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.client.controller;
 
 import com.example.client.model.ApiResponse;
+import com.example.client.model.ChannelStatus;
 import com.example.client.model.ConnectionInfo;
 import com.example.client.service.ConnectionService;
 import io.opentelemetry.api.trace.Tracer;
@@ -8,10 +9,19 @@ import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.context.Scope;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/api/iso8583")
@@ -24,6 +34,14 @@ public class Iso8583Controller {
     @Autowired
     private Tracer tracer;
 
+    // Writes SSE events, so a slow HTTP client never holds up a Netty event loop
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor eventWriter;
+
+    @Value("${iso8583.client.stream.max-in-flight:64}")
+    private int streamMaxInFlight;
+
     @GetMapping("/connections")
     public List<ConnectionInfo> getConnections() {
         return connectionService.getAllConnections();
@@ -49,6 +67,11 @@ public class Iso8583Controller {
         }
     }
 
+    @GetMapping("/connections/{connectionId}/channels")
+    public List<ChannelStatus> getChannels(@PathVariable String connectionId) {
+        return connectionService.getChannels(connectionId);
+    }
+
     @PostMapping("/connections/{connectionId}/disconnect")
     public ApiResponse disconnect(@PathVariable String connectionId) {
         try {
@@ -100,4 +123,96 @@ public class Iso8583Controller {
             span.end();
         }
     }
-}
\ No newline at end of file
+
+    // Non-blocking variants: the servlet thread goes back to the pool at once and the HTTP response is
+    // written when the Netty handler completes the exchange
+
+    @PostMapping("/connections/{connectionId}/echo/async")
+    public CompletableFuture<ApiResponse> sendEchoAsync(@PathVariable String connectionId) {
+        return connectionService.sendEchoAsync(connectionId)
+                .thenApply(result -> new ApiResponse(true, "Echo sent successfully", result[0], result[1]))
+                .exceptionally(e -> new ApiResponse(false, cause(e).getMessage()));
+    }
+
+    @PostMapping("/connections/{connectionId}/send/async")
+    public CompletableFuture<ApiResponse> sendMessageAsync(@PathVariable String connectionId, @RequestBody Map<String, String> payload) {
+        return connectionService.sendMessageAsync(connectionId, payload.get("message"))
+                .thenApply(result -> new ApiResponse(true, "Message sent successfully", result[0], result[1]))
+                .exceptionally(e -> new ApiResponse(false, cause(e).getMessage()));
+    }
+
+    /**
+     * Sends the messages of {"messages": [...]}, at most {@code stream.max-in-flight} at a time, and streams
+     * a "response" event per message as its response arrives (event id = index in the list, so out-of-order
+     * answers can be matched), then a "done" event with the count answered. Responses are matched by STAN:
+     * a message whose STAN is already in flight on the channel fails its own event.
+     */
+    @PostMapping(path = "/connections/{connectionId}/send/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter sendMessagesStream(@PathVariable String connectionId, @RequestBody Map<String, List<String>> payload) {
+        List<String> messages = payload.getOrDefault("messages", List.of());
+        int inFlight = Math.max(1, streamMaxInFlight);
+        // Each window of exchanges ends within one response timeout
+        long windows = Math.max(1, (messages.size() + inFlight - 1) / inFlight);
+        SseEmitter emitter = new SseEmitter(connectionService.getResponseTimeoutMillis() * windows + 5_000);
+        MessageStream stream = new MessageStream(connectionId, messages, emitter);
+        if (messages.isEmpty()) {
+            eventWriter.execute(stream::done);
+        }
+        for (int i = 0; i < Math.min(inFlight, messages.size()); i++) {
+            stream.startNext();
+        }
+        return emitter;
+    }
+
+    // One sendMessagesStream request: a finished exchange starts the next message, the last one sends "done"
+    private final class MessageStream {
+        private final String connectionId;
+        private final List<String> messages;
+        private final SseEmitter emitter;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger answered = new AtomicInteger();
+        private final AtomicInteger remaining;
+
+        MessageStream(String connectionId, List<String> messages, SseEmitter emitter) {
+            this.connectionId = connectionId;
+            this.messages = messages;
+            this.emitter = emitter;
+            this.remaining = new AtomicInteger(messages.size());
+        }
+
+        void startNext() {
+            int index = next.getAndIncrement();
+            if (index >= messages.size()) return;
+            String id = String.valueOf(index);
+            connectionService.sendMessageAsync(connectionId, messages.get(index))
+                    .thenApply(result -> {
+                        answered.incrementAndGet();
+                        return new ApiResponse(true, "Message sent successfully", result[0], result[1]);
+                    })
+                    .exceptionally(e -> new ApiResponse(false, cause(e).getMessage()))
+                    .thenAcceptAsync(response -> {
+                        startNext();
+                        send(emitter, SseEmitter.event().name("response").id(id).data(response, MediaType.APPLICATION_JSON));
+                        if (remaining.decrementAndGet() == 0) done();
+                    }, eventWriter);
+        }
+
+        void done() {
+            send(emitter, SseEmitter.event().name("done").data(new ApiResponse(true,
+                    answered.get() + " of " + messages.size() + " messages answered"), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        }
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the stream timed out; the remaining responses are dropped
+        }
+    }
+
+    private static Throwable cause(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.client.model;
+
+public class ChannelStatus {
+    private int index;
+    private boolean active;
+    private int inFlight;
+    private long echoRttMicros;
+    private int missedEchoes;
+    private int reconnects;
+
+    public ChannelStatus() {}
+
+    public ChannelStatus(int index, boolean active, int inFlight, long echoRttMicros, int missedEchoes, int reconnects) {
+        this.index = index;
+        this.active = active;
+        this.inFlight = inFlight;
+        this.echoRttMicros = echoRttMicros;
+        this.missedEchoes = missedEchoes;
+        this.reconnects = reconnects;
+    }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public boolean isActive() { return active; }
+    public void setActive(boolean active) { this.active = active; }
+
+    public int getInFlight() { return inFlight; }
+    public void setInFlight(int inFlight) { this.inFlight = inFlight; }
+
+    public long getEchoRttMicros() { return echoRttMicros; }
+    public void setEchoRttMicros(long echoRttMicros) { this.echoRttMicros = echoRttMicros; }
+
+    public int getMissedEchoes() { return missedEchoes; }
+    public void setMissedEchoes(int missedEchoes) { this.missedEchoes = missedEchoes; }
+
+    public int getReconnects() { return reconnects; }
+    public void setReconnects(int reconnects) { this.reconnects = reconnects; }
+}
@@ -5,6 +5,9 @@ public class ConnectionInfo {
     private String host;
     private int port;
     private boolean connected;
+    // Channels to open to this endpoint; 0 uses iso8583.client.pool.channels-per-endpoint
+    private int channels;
+    private int activeChannels;
 
     public ConnectionInfo() {}
 
@@ -26,4 +29,10 @@ public class ConnectionInfo {
 
     public boolean isConnected() { return connected; }
     public void setConnected(boolean connected) { this.connected = connected; }
+
+    public int getChannels() { return channels; }
+    public void setChannels(int channels) { this.channels = channels; }
+
+    public int getActiveChannels() { return activeChannels; }
+    public void setActiveChannels(int activeChannels) { this.activeChannels = activeChannels; }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.example.client.service;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one event loop group behind every client connection. Each new channel is registered on the
+ * group's next loop, so connections spread round-robin over {@code threads} threads however many
+ * hosts are configured. Uses epoll when the native transport loads, NIO otherwise.
+ */
+@Component
+public class ClientEventLoop {
+
+    private final MultithreadEventLoopGroup group;
+    private final Class<? extends SocketChannel> channelClass;
+    private final int connectTimeoutMillis;
+
+    public ClientEventLoop(@Value("${iso8583.client.event-loop.threads:0}") int threads,
+                           @Value("${iso8583.client.event-loop.native:true}") boolean nativeTransport,
+                           @Value("${iso8583.client.connection-timeout:5000}") int connectTimeoutMillis) {
+        // 0 keeps Netty's default of twice the available processors
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory("iso8583-client", true);
+        if (nativeTransport && Epoll.isAvailable()) {
+            this.group = new EpollEventLoopGroup(threads, threadFactory);
+            this.channelClass = EpollSocketChannel.class;
+        } else {
+            this.group = new NioEventLoopGroup(threads, threadFactory);
+            this.channelClass = NioSocketChannel.class;
+        }
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        System.out.println("🔁 Client event loop: " + transport() + ", " + threads() + " threads");
+    }
+
+    /**
+     * A bootstrap on the shared group; the caller adds options and the handler.
+     */
+    public Bootstrap bootstrap() {
+        return new Bootstrap()
+                .group(group)
+                .channel(channelClass)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis);
+    }
+
+    public String transport() {
+        return channelClass == EpollSocketChannel.class ? "epoll" : "nio";
+    }
+
+    public int threads() {
+        return group.executorCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        group.shutdownGracefully(0, 2, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+}
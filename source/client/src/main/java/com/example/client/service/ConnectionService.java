@@ -1,18 +1,13 @@
 package com.example.client.service;
 
+import com.example.client.model.ChannelStatus;
 import com.example.client.model.ConnectionInfo;
 import com.example.common.model.Iso8583Message;
 import com.example.common.model.ValidationResult;
 import com.example.common.parser.Iso8583Parser;
-import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.ByteBuf;
-import io.netty.channel.*;
-import io.netty.util.AttributeKey;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.codec.LengthFieldPrepender;
+import com.example.common.transport.MessageTransport;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.StatusCode;
@@ -22,34 +17,62 @@ import io.opentelemetry.context.Scope;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
-import java.nio.charset.StandardCharsets;
+import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class ConnectionService {
 
     private final Map<String, ConnectionInfo> connections = new ConcurrentHashMap<>();
-    private final Map<String, Channel> activeChannels = new ConcurrentHashMap<>();
-    private final Map<String, EventLoopGroup> eventLoopGroups = new ConcurrentHashMap<>();
+    private final Map<String, EndpointPool> pools = new ConcurrentHashMap<>();
     private final AtomicInteger stanCounter = new AtomicInteger(1);
     
+    // One group for every connection (see ClientEventLoop); connecting never starts threads of its own
+    @Autowired
+    private ClientEventLoop eventLoop;
+    
     @Autowired
     private Tracer tracer;
     
     @Autowired
     private Meter meter;
     
+    // Each endpoint is a pool of channels (see EndpointPool); defaults here so a hand-built service works too
+    @Value("${iso8583.client.pool.channels-per-endpoint:2}")
+    private int channelsPerEndpoint = 2;
+    
+    @Value("${iso8583.client.pool.reconnect-initial-ms:200}")
+    private long reconnectInitialMillis = 200;
+    
+    @Value("${iso8583.client.pool.reconnect-max-ms:30000}")
+    private long reconnectMaxMillis = 30_000;
+    
+    @Value("${iso8583.client.pool.echo-interval-ms:5000}")
+    private long echoIntervalMillis = 5_000;
+    
+    @Value("${iso8583.client.pool.max-missed-echoes:3}")
+    private int maxMissedEchoes = 3;
+    
+    @Value("${iso8583.client.read-timeout:10000}")
+    private long responseTimeoutMillis = 10_000;
+    
+    // JSON list of endpoints to add and connect at startup, e.g. [{"connectionId":"server-1","host":"127.0.0.1","port":8583,"channels":4}]
+    @Value("${iso8583.client.endpoints-file:}")
+    private String endpointsFile;
+    
     private LongCounter connectionCounter;
     private LongCounter messageCounter;
     
@@ -61,6 +84,35 @@ public class ConnectionService {
         messageCounter = meter.counterBuilder("iso8583_messages_total")
                 .setDescription("Total number of ISO 8583 messages sent")
                 .build();
+        if (endpointsFile != null && !endpointsFile.isBlank()) {
+            loadEndpoints(new File(endpointsFile));
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(EndpointPool::close);
+        pools.clear();
+    }
+    
+    /**
+     * Add every endpoint in the file and start connecting it; endpoints that are down keep retrying.
+     */
+    void loadEndpoints(File file) {
+        List<ConnectionInfo> endpoints;
+        try {
+            endpoints = new ObjectMapper().readValue(file, new TypeReference<List<ConnectionInfo>>() {});
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read endpoints file " + file + ": " + e.getMessage(), e);
+        }
+        for (ConnectionInfo endpoint : endpoints) {
+            endpoint.setConnected(false);
+            addConnection(endpoint);
+            EndpointPool pool = newPool(endpoint);
+            pools.put(endpoint.getConnectionId(), pool);
+            pool.start();
+        }
+        System.out.println("📋 Loaded " + endpoints.size() + " endpoints from " + file);
     }
 
     public List<ConnectionInfo> getAllConnections() {
@@ -83,35 +135,22 @@ public class ConnectionService {
                 throw new RuntimeException("Connection not found: " + connectionId);
             }
 
-            if (conn.isConnected()) {
-                span.setStatus(StatusCode.ERROR, "Already connected");
-                throw new RuntimeException("Already connected: " + connectionId);
-            }
-            
             span.setAttribute("connection.host", conn.getHost())
                 .setAttribute("connection.port", conn.getPort());
 
-            EventLoopGroup group = new NioEventLoopGroup();
-            eventLoopGroups.put(connectionId, group);
-
-            Bootstrap bootstrap = new Bootstrap();
-            bootstrap.group(group)
-                    .channel(NioSocketChannel.class)
-                    .option(ChannelOption.SO_KEEPALIVE, true)
-                    .handler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        protected void initChannel(SocketChannel ch) {
-                            ChannelPipeline pipeline = ch.pipeline();
-                            pipeline.addLast(new LengthFieldBasedFrameDecoder(65535, 0, 2, 0, 2));
-                            pipeline.addLast(new LengthFieldPrepender(2));
-                            pipeline.addLast(new ClientHandler(connectionId));
-                        }
-                    });
-
-            ChannelFuture future = bootstrap.connect(conn.getHost(), conn.getPort()).sync();
-            Channel channel = future.channel();
-            activeChannels.put(connectionId, channel);
-            conn.setConnected(true);
+            // A pool stays registered while it reconnects, so connected=false alone does not mean it is free
+            EndpointPool pool = newPool(conn);
+            if (pools.putIfAbsent(connectionId, pool) != null) {
+                span.setStatus(StatusCode.ERROR, "Already connected");
+                throw new RuntimeException("Already connected: " + connectionId);
+            }
+            try {
+                pool.connect();
+            } catch (Exception e) {
+                pools.remove(connectionId, pool);
+                throw e;
+            }
+            span.setAttribute("connection.channels", pool.status().size());
             
             connectionCounter.add(1, io.opentelemetry.api.common.Attributes.of(
                 io.opentelemetry.api.common.AttributeKey.stringKey("connection.id"), connectionId,
@@ -133,19 +172,36 @@ public class ConnectionService {
             throw new RuntimeException("Connection not found: " + connectionId);
         }
 
-        Channel channel = activeChannels.remove(connectionId);
-        if (channel != null && channel.isActive()) {
-            channel.close().sync();
-        }
-
-        EventLoopGroup group = eventLoopGroups.remove(connectionId);
-        if (group != null) {
-            group.shutdownGracefully();
+        EndpointPool pool = pools.remove(connectionId);
+        if (pool != null) {
+            pool.close();
         }
 
         conn.setConnected(false);
     }
 
+    public List<ChannelStatus> getChannels(String connectionId) {
+        EndpointPool pool = pools.get(connectionId);
+        return pool == null ? List.of() : pool.status();
+    }
+
+    private EndpointPool newPool(ConnectionInfo conn) {
+        int channels = conn.getChannels() > 0 ? conn.getChannels() : channelsPerEndpoint;
+        EndpointPool.Settings settings = new EndpointPool.Settings(
+                reconnectInitialMillis, reconnectMaxMillis, echoIntervalMillis, maxMissedEchoes);
+        return new EndpointPool(conn, channels, eventLoop, settings, this::newEcho,
+                message -> onUnsolicited(conn.getConnectionId(), message));
+    }
+
+    private Iso8583Message newEcho() {
+        Iso8583Message echoMsg = new Iso8583Message();
+        echoMsg.setMti("0800");
+        echoMsg.addField(7, LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMddHHmmss")));
+        echoMsg.addField(11, String.format("%06d", Math.floorMod(stanCounter.getAndIncrement(), 1_000_000)));
+        echoMsg.addField(70, "001");
+        return echoMsg;
+    }
+
     public void removeConnection(String connectionId) throws Exception {
         if (connections.containsKey(connectionId)) {
             disconnect(connectionId);
@@ -154,43 +210,43 @@ public class ConnectionService {
     }
 
     public String[] sendEcho(String connectionId) throws Exception {
+        return await(sendEchoAsync(connectionId));
+    }
+
+    /**
+     * {@link #sendEcho} without blocking the caller: the future is completed by the Netty handler when
+     * the 0810 arrives, with the same [request, response] pair.
+     */
+    public CompletableFuture<String[]> sendEchoAsync(String connectionId) {
         Span span = tracer.spanBuilder("iso8583.message.echo")
                 .setAttribute("connection.id", connectionId)
                 .setAttribute("message.type", "0800")
                 .startSpan();
         
         try (Scope scope = span.makeCurrent()) {
-            Channel channel = getActiveChannel(connectionId);
+            EndpointPool pool = getActivePool(connectionId);
             
-            Iso8583Message echoMsg = new Iso8583Message();
-            echoMsg.setMti("0800");
-            echoMsg.addField(7, LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMddHHmmss")));
-            String stan = String.format("%06d", stanCounter.getAndIncrement());
-            echoMsg.addField(11, stan);
-            echoMsg.addField(70, "001");
+            Iso8583Message echoMsg = newEcho();
+            String stan = echoMsg.getField(11);
             
             span.setAttribute("message.stan", stan);
             
             String request = echoMsg.toString();
-            String response = sendAndWaitForResponse(channel, request);
-            
-            messageCounter.add(1, io.opentelemetry.api.common.Attributes.of(
-                io.opentelemetry.api.common.AttributeKey.stringKey("connection.id"), connectionId,
-                io.opentelemetry.api.common.AttributeKey.stringKey("message.type"), "echo"
-            ));
-            
-            span.setStatus(StatusCode.OK);
-            return new String[]{request, response};
-        } catch (Exception e) {
-            span.setStatus(StatusCode.ERROR, e.getMessage());
-            throw e;
-        } finally {
-            span.end();
+            return endWhenDone(span, pool.sendAsync(request, stan, responseTimeoutMillis).thenApply(response -> {
+                messageCounter.add(1, io.opentelemetry.api.common.Attributes.of(
+                    io.opentelemetry.api.common.AttributeKey.stringKey("connection.id"), connectionId,
+                    io.opentelemetry.api.common.AttributeKey.stringKey("message.type"), "echo"
+                ));
+                return new String[]{request, response};
+            }));
+        } catch (RuntimeException e) {
+            return endWhenDone(span, CompletableFuture.failedFuture(e));
         }
     }
 
+    // Kafka, in-JVM or mapped-file hop to the authorize service (see TransportConfig)
     @Autowired(required = false)
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private MessageTransport authorizationTransport;
     
     @Value("${iso8583.client.authorization.enabled:false}")
     private boolean authorizationEnabled;
@@ -199,6 +255,15 @@ public class ConnectionService {
     private String requestTopic;
 
     public String[] sendMessage(String connectionId, String message) throws Exception {
+        return await(sendMessageAsync(connectionId, message));
+    }
+
+    /**
+     * {@link #sendMessage} without blocking the caller. A direct send completes on the Netty event loop
+     * with the server's response; a send for authorization completes as soon as it is handed to the
+     * transport.
+     */
+    public CompletableFuture<String[]> sendMessageAsync(String connectionId, String message) {
         Span span = tracer.spanBuilder("iso8583.message.send")
                 .setAttribute("connection.id", connectionId)
                 .startSpan();
@@ -212,115 +277,85 @@ public class ConnectionService {
                 .setAttribute("message.stan", parsedMsg.getField(11) != null ? parsedMsg.getField(11) : "unknown");
             
             if (!validation.isValid()) {
-                span.setStatus(StatusCode.ERROR, "Invalid message");
                 throw new RuntimeException("Invalid message: " + String.join(", ", validation.getErrors()));
             }
             
-            if (authorizationEnabled && kafkaTemplate != null) {
-                // Send to Kafka for authorization with field 37 as partition key for load balancing
+            if (authorizationEnabled && authorizationTransport != null) {
+                // Send for authorization keyed by field 37; RrnPartitioner spreads records without one
                 String partitionKey = parsedMsg.getField(37);
-                if (partitionKey == null) partitionKey = connectionId;
-                span.setAttribute("kafka.partition.key", partitionKey)
-                    .setAttribute("kafka.topic", requestTopic);
-                System.out.println("📤 Sending to Kafka for authorization with key: " + partitionKey);
-                kafkaTemplate.send(requestTopic, partitionKey, message);
+                span.setAttribute("kafka.partition.key", partitionKey != null ? partitionKey : "none")
+                    .setAttribute("kafka.topic", requestTopic)
+                    .setAttribute("authorization.transport", authorizationTransport.name());
+                System.out.println("📤 Sending via " + authorizationTransport.name() + " for authorization with key: " + partitionKey);
+                authorizationTransport.send(requestTopic, partitionKey, message);
                 
                 messageCounter.add(1, io.opentelemetry.api.common.Attributes.of(
                     io.opentelemetry.api.common.AttributeKey.stringKey("connection.id"), connectionId,
-                    io.opentelemetry.api.common.AttributeKey.stringKey("message.type"), "kafka"
+                    io.opentelemetry.api.common.AttributeKey.stringKey("message.type"), authorizationTransport.name()
                 ));
                 
-                span.setStatus(StatusCode.OK);
-                return new String[]{message, "Sent to authorization service"};
+                return endWhenDone(span, CompletableFuture.completedFuture(new String[]{message, "Sent to authorization service"}));
             } else {
                 // Direct send to server
-                Channel channel = getActiveChannel(connectionId);
-                String response = sendAndWaitForResponse(channel, message);
-                
-                messageCounter.add(1, io.opentelemetry.api.common.Attributes.of(
-                    io.opentelemetry.api.common.AttributeKey.stringKey("connection.id"), connectionId,
-                    io.opentelemetry.api.common.AttributeKey.stringKey("message.type"), "direct"
-                ));
-                
-                span.setStatus(StatusCode.OK);
-                return new String[]{message, response};
+                EndpointPool pool = getActivePool(connectionId);
+                return endWhenDone(span, pool.sendAsync(message, parsedMsg.getField(11), responseTimeoutMillis).thenApply(response -> {
+                    messageCounter.add(1, io.opentelemetry.api.common.Attributes.of(
+                        io.opentelemetry.api.common.AttributeKey.stringKey("connection.id"), connectionId,
+                        io.opentelemetry.api.common.AttributeKey.stringKey("message.type"), "direct"
+                    ));
+                    return new String[]{message, response};
+                }));
             }
-        } catch (Exception e) {
-            span.setStatus(StatusCode.ERROR, e.getMessage());
-            throw e;
-        } finally {
-            span.end();
-        }
-    }
-
-    private Channel getActiveChannel(String connectionId) throws Exception {
-        Channel channel = activeChannels.get(connectionId);
-        if (channel == null || !channel.isActive()) {
-            throw new RuntimeException("Connection not active: " + connectionId);
+        } catch (RuntimeException e) {
+            return endWhenDone(span, CompletableFuture.failedFuture(e));
         }
-        return channel;
     }
 
-    private String sendAndWaitForResponse(Channel channel, String message) throws Exception {
-        CompletableFuture<String> responseFuture = new CompletableFuture<>();
-        
-        // Store the future in channel attributes for the handler to complete
-        channel.attr(AttributeKey.valueOf("responseFuture")).set(responseFuture);
-        
-        ByteBuf buf = channel.alloc().buffer();
-        buf.writeBytes(message.getBytes(StandardCharsets.UTF_8));
-        channel.writeAndFlush(buf);
-        
-        return responseFuture.get(10, TimeUnit.SECONDS);
+    public long getResponseTimeoutMillis() {
+        return responseTimeoutMillis;
     }
 
-    private class ClientHandler extends SimpleChannelInboundHandler<ByteBuf> {
-        private final String connectionId;
-
-        public ClientHandler(String connectionId) {
-            this.connectionId = connectionId;
-        }
-
-        @Override
-        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
-            String message = msg.toString(StandardCharsets.UTF_8);
-            System.out.println("📨 Received from server: " + message);
-            
-            // Check if this is a response to a pending request
-            CompletableFuture<String> future = ctx.channel().attr(AttributeKey.<CompletableFuture<String>>valueOf("responseFuture")).get();
-            if (future != null) {
-                // This is a response to our request
-                future.complete(message);
-                ctx.channel().attr(AttributeKey.valueOf("responseFuture")).set(null);
-            } else if (authorizationEnabled && kafkaTemplate != null) {
-                // This is an unsolicited message from server - send to Kafka for authorization
-                Iso8583Message parsedMsg = Iso8583Parser.parseMessage(message);
-                String partitionKey = parsedMsg.getField(37);
-                if (partitionKey == null) partitionKey = connectionId;
-                System.out.println("📤 Sending unsolicited message to Kafka with key: " + partitionKey);
-                kafkaTemplate.send(requestTopic, partitionKey, message);
+    // The span covers the whole exchange, ended on whichever thread completes it
+    private static <T> CompletableFuture<T> endWhenDone(Span span, CompletableFuture<T> exchange) {
+        return exchange.whenComplete((result, error) -> {
+            if (error == null) {
+                span.setStatus(StatusCode.OK);
             } else {
-                // No authorization - just log the message
-                System.out.println("📝 Unsolicited message (no authorization): " + message);
+                span.setStatus(StatusCode.ERROR, (error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error).getMessage());
             }
+            span.end();
+        });
+    }
+
+    private static String[] await(CompletableFuture<String[]> exchange) throws Exception {
+        try {
+            return exchange.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
         }
+    }
 
-        @Override
-        public void channelInactive(ChannelHandlerContext ctx) {
-            ConnectionInfo conn = connections.get(connectionId);
-            if (conn != null) {
-                conn.setConnected(false);
-            }
-            activeChannels.remove(connectionId);
+    private EndpointPool getActivePool(String connectionId) {
+        EndpointPool pool = pools.get(connectionId);
+        if (pool == null || pool.activeCount() == 0) {
+            throw new RuntimeException("Connection not active: " + connectionId);
         }
+        return pool;
+    }
 
-        @Override
-        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-            ConnectionInfo conn = connections.get(connectionId);
-            if (conn != null) {
-                conn.setConnected(false);
-            }
-            ctx.close();
+    // A request the server sent on its own; the pool passes on one copy however many channels it has
+    private void onUnsolicited(String connectionId, String message) {
+        if (authorizationEnabled && authorizationTransport != null) {
+            // This is an unsolicited message from server - send for authorization
+            Iso8583Message parsedMsg = Iso8583Parser.parseMessage(message);
+            String partitionKey = parsedMsg.getField(37);
+            System.out.println("📤 Sending unsolicited message via " + authorizationTransport.name() + " with key: " + partitionKey);
+            authorizationTransport.send(requestTopic, partitionKey, message);
+        } else {
+            // No authorization - just log the message
+            System.out.println("📝 Unsolicited message (no authorization): " + message);
         }
     }
-}
\ No newline at end of file
+}
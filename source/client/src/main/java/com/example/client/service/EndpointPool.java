@@ -0,0 +1,410 @@
+package com.example.client.service;
+
+import com.example.client.model.ChannelStatus;
+import com.example.client.model.ConnectionInfo;
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The channels of one ISO 8583 endpoint. {@code channels} connections are opened to the same host and
+ * port; each request goes to the live channel with the lowest {@code (in-flight + 1) x echo RTT}, so
+ * load spreads by outstanding requests and drains away from a link whose echoes come back slowly.
+ *
+ * Every channel sends a network echo (0800) each {@code echo-interval-ms} and keeps a moving average of
+ * the round trip; an echo still unanswered at the next tick counts as a full interval and after
+ * {@code max-missed-echoes} in a row the channel is closed. A channel that closes while the pool is open
+ * reconnects by itself with jittered exponential backoff.
+ *
+ * Responses are matched to requests by STAN (field 11) per channel, so a channel carries many requests
+ * at once. The server sends its own requests to every connection; only the first live channel hands
+ * them on, so a pool of N channels does not authorize each one N times.
+ */
+class EndpointPool {
+
+    /**
+     * Pool tuning shared by every endpoint of a client.
+     */
+    record Settings(long reconnectInitialMillis, long reconnectMaxMillis, long echoIntervalMillis,
+                    int maxMissedEchoes) {
+    }
+
+    private static final long EWMA_WEIGHT = 4;
+
+    private final ConnectionInfo info;
+    private final ClientEventLoop eventLoop;
+    private final Settings settings;
+    private final Supplier<Iso8583Message> echoes;
+    private final Consumer<String> unsolicited;
+    private final Slot[] slots;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean open;
+
+    EndpointPool(ConnectionInfo info, int channels, ClientEventLoop eventLoop, Settings settings,
+                 Supplier<Iso8583Message> echoes, Consumer<String> unsolicited) {
+        this.info = info;
+        this.eventLoop = eventLoop;
+        this.settings = settings;
+        this.echoes = echoes;
+        this.unsolicited = unsolicited;
+        this.slots = new Slot[Math.max(1, channels)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(i);
+        }
+    }
+
+    /**
+     * Open every channel and wait for the attempts; fails only when none connected; the rest keep
+     * retrying in the background.
+     */
+    void connect() throws Exception {
+        List<ChannelFuture> attempts = start();
+        Throwable failure = null;
+        for (ChannelFuture attempt : attempts) {
+            attempt.await();
+            if (attempt.isSuccess()) {
+                return;
+            }
+            failure = attempt.cause();
+        }
+        close();
+        if (failure instanceof Exception e) throw e;
+        throw new RuntimeException("Connection failed: " + info.getConnectionId(), failure);
+    }
+
+    /**
+     * Open every channel without waiting; channels that cannot connect keep retrying.
+     */
+    List<ChannelFuture> start() {
+        open = true;
+        List<ChannelFuture> attempts = new ArrayList<>(slots.length);
+        for (Slot slot : slots) {
+            attempts.add(slot.connect());
+        }
+        return attempts;
+    }
+
+    void close() {
+        open = false;
+        for (Slot slot : slots) {
+            Channel channel = slot.channel;
+            if (channel != null) {
+                channel.close().syncUninterruptibly();
+            }
+        }
+        updateInfo();
+    }
+
+    /**
+     * Send one message on the best channel and wait for the response carrying the same STAN.
+     */
+    String send(String message, String stan, long timeoutMillis) throws Exception {
+        try {
+            return sendAsync(message, stan, timeoutMillis).get();
+        } catch (ExecutionException e) {
+            // Channel dropped with the request in flight, or no response in time
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Send one message on the best channel without waiting. The future is completed on the channel's
+     * event loop by the response carrying the same STAN, and fails when the channel drops or no
+     * response came within {@code timeoutMillis}.
+     */
+    CompletableFuture<String> sendAsync(String message, String stan, long timeoutMillis) {
+        Slot slot = pick();
+        if (slot == null) {
+            return CompletableFuture.failedFuture(new RuntimeException("Connection not active: " + info.getConnectionId()));
+        }
+        return slot.send(message, stan == null ? "" : stan, timeoutMillis);
+    }
+
+    List<ChannelStatus> status() {
+        List<ChannelStatus> status = new ArrayList<>(slots.length);
+        for (Slot slot : slots) {
+            Channel channel = slot.channel;
+            status.add(new ChannelStatus(slot.index, channel != null && channel.isActive(), slot.pending.size(),
+                    slot.rttNanos / 1_000, slot.missedEchoes, slot.reconnects));
+        }
+        return status;
+    }
+
+    int activeCount() {
+        int active = 0;
+        for (Slot slot : slots) {
+            Channel channel = slot.channel;
+            if (channel != null && channel.isActive()) active++;
+        }
+        return active;
+    }
+
+    private Slot pick() {
+        Slot best = null;
+        long bestCost = Long.MAX_VALUE;
+        int start = next.getAndIncrement();
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[Math.floorMod(start + i, slots.length)];
+            Channel channel = slot.channel;
+            if (channel == null || !channel.isActive()) continue;
+            // A channel without an echo sample yet competes on in-flight alone
+            long cost = (slot.pending.size() + 1L) * Math.max(1, slot.rttNanos / 1_000);
+            if (cost < bestCost) {
+                best = slot;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    // The first live channel passes on requests the server broadcasts to every connection
+    private boolean isLead(Slot slot) {
+        for (Slot candidate : slots) {
+            Channel channel = candidate.channel;
+            if (channel != null && channel.isActive()) return candidate == slot;
+        }
+        return false;
+    }
+
+    private void updateInfo() {
+        int active = activeCount();
+        info.setActiveChannels(active);
+        info.setConnected(active > 0);
+    }
+
+    // Request function digit odd: 0110, 0210, 0430, 0810...
+    static boolean isResponse(String mti) {
+        return mti != null && mti.length() == 4 && (mti.charAt(2) - '0') % 2 == 1;
+    }
+
+    private static final class Pending extends CompletableFuture<String> {
+        private final long startNanos = System.nanoTime();
+        private final boolean echo;
+
+        Pending(boolean echo) {
+            this.echo = echo;
+        }
+    }
+
+    private final class Slot {
+        private final int index;
+        private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+        private volatile Channel channel;
+        private volatile long backoffMillis = settings.reconnectInitialMillis();
+        private volatile long rttNanos;
+        private volatile int missedEchoes;
+        private volatile int reconnects;
+        // Echo state, only touched on the channel's event loop
+        private String echoStan;
+        private ScheduledFuture<?> echoTask;
+
+        Slot(int index) {
+            this.index = index;
+        }
+
+        ChannelFuture connect() {
+            ChannelFuture connect = eventLoop.bootstrap()
+                    .option(ChannelOption.SO_KEEPALIVE, true)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(65535, 0, 2, 0, 2));
+                            ch.pipeline().addLast(new LengthFieldPrepender(2));
+                            ch.pipeline().addLast(new ClientHandler(Slot.this));
+                        }
+                    })
+                    .connect(info.getHost(), info.getPort());
+            // Completed after onConnected, so a caller that waits on it finds the channel in the slot
+            ChannelPromise ready = connect.channel().newPromise();
+            connect.addListener(f -> {
+                if (f.isSuccess()) {
+                    onConnected(connect.channel());
+                    ready.setSuccess();
+                } else {
+                    ready.setFailure(f.cause());
+                    if (open) reconnectLater(connect.channel().eventLoop(), f.cause().getMessage());
+                }
+            });
+            return ready;
+        }
+
+        // On the channel's event loop
+        private void onConnected(Channel connected) {
+            if (!open) {
+                connected.close();
+                return;
+            }
+            channel = connected;
+            backoffMillis = settings.reconnectInitialMillis();
+            missedEchoes = 0;
+            echoStan = null;
+            updateInfo();
+            long interval = settings.echoIntervalMillis();
+            if (interval > 0) {
+                echoTask = connected.eventLoop().scheduleAtFixedRate(() -> echo(connected), interval, interval,
+                        TimeUnit.MILLISECONDS);
+            }
+            System.out.println("🔗 " + info.getConnectionId() + " channel " + index + " connected to "
+                    + info.getHost() + ":" + info.getPort());
+        }
+
+        // On the channel's event loop
+        private void onInactive(Channel closed) {
+            if (channel != closed) return;
+            channel = null;
+            if (echoTask != null) {
+                echoTask.cancel(false);
+                echoTask = null;
+            }
+            RuntimeException lost = new RuntimeException("Connection lost: " + info.getConnectionId());
+            pending.values().forEach(request -> request.completeExceptionally(lost));
+            pending.clear();
+            updateInfo();
+            if (open) {
+                reconnectLater(closed.eventLoop(), "connection closed");
+            }
+        }
+
+        private void reconnectLater(EventLoop loop, String reason) {
+            // Equal jitter: half the backoff fixed, half random, so a restarted server is not hit by every channel at once
+            long backoff = backoffMillis;
+            long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            backoffMillis = Math.min(backoff * 2, settings.reconnectMaxMillis());
+            System.err.println("🔌 " + info.getConnectionId() + " channel " + index + ": " + reason
+                    + ", reconnecting in " + delay + " ms");
+            loop.schedule(() -> {
+                if (open && channel == null) {
+                    reconnects++;
+                    connect();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        CompletableFuture<String> send(String message, String stan, long timeoutMillis) {
+            Channel target = channel;
+            if (target == null) {
+                return CompletableFuture.failedFuture(new RuntimeException("Connection not active: " + info.getConnectionId()));
+            }
+            Pending request = new Pending(false);
+            if (pending.putIfAbsent(stan, request) != null) {
+                return CompletableFuture.failedFuture(
+                        new RuntimeException("STAN " + stan + " already in flight on " + info.getConnectionId()));
+            }
+            // The timeout runs on the event loop too: no thread waits for the response
+            ScheduledFuture<?> timeout = target.eventLoop().schedule(() -> request.completeExceptionally(new TimeoutException(
+                    "No response for STAN " + stan + " from " + info.getConnectionId() + " within " + timeoutMillis + " ms")),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            request.whenComplete((response, error) -> {
+                timeout.cancel(false);
+                pending.remove(stan, request);
+            });
+            ByteBuf buf = target.alloc().buffer();
+            buf.writeBytes(message.getBytes(StandardCharsets.UTF_8));
+            target.writeAndFlush(buf).addListener(write -> {
+                if (!write.isSuccess()) request.completeExceptionally(write.cause());
+            });
+            return request;
+        }
+
+        // On the channel's event loop
+        private void echo(Channel target) {
+            if (echoStan != null && pending.remove(echoStan) != null) {
+                recordRtt(TimeUnit.MILLISECONDS.toNanos(settings.echoIntervalMillis()));
+                if (++missedEchoes >= settings.maxMissedEchoes()) {
+                    System.err.println("❌ " + info.getConnectionId() + " channel " + index + " missed "
+                            + missedEchoes + " echoes, closing");
+                    target.close();
+                    return;
+                }
+            }
+            Iso8583Message echo = echoes.get();
+            String stan = echo.getField(11);
+            if (pending.putIfAbsent(stan, new Pending(true)) != null) {
+                echoStan = null;
+                return;
+            }
+            echoStan = stan;
+            ByteBuf buf = target.alloc().buffer();
+            buf.writeBytes(echo.toString().getBytes(StandardCharsets.UTF_8));
+            target.writeAndFlush(buf);
+        }
+
+        private void recordRtt(long sampleNanos) {
+            long current = rttNanos;
+            rttNanos = current == 0 ? sampleNanos : current + (sampleNanos - current) / EWMA_WEIGHT;
+        }
+    }
+
+    private final class ClientHandler extends SimpleChannelInboundHandler<ByteBuf> {
+        private final Slot slot;
+
+        ClientHandler(Slot slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+            String message = msg.toString(StandardCharsets.UTF_8);
+            Iso8583Message parsed = Iso8583Parser.parseMessage(message);
+            if (isResponse(parsed.getMti())) {
+                String stan = parsed.getField(11);
+                Pending request = slot.pending.remove(stan == null ? "" : stan);
+                if (request != null) {
+                    if (request.echo) {
+                        slot.missedEchoes = 0;
+                        slot.echoStan = null;
+                    }
+                    if ("0810".equals(parsed.getMti())) {
+                        slot.recordRtt(System.nanoTime() - request.startNanos);
+                    }
+                    if (!request.echo) {
+                        System.out.println("📨 Received from server: " + message);
+                    }
+                    request.complete(message);
+                    return;
+                }
+            }
+            if (isLead(slot)) {
+                System.out.println("📨 Received from server: " + message);
+                unsolicited.accept(message);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            slot.onInactive(ctx.channel());
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            System.err.println("❌ " + info.getConnectionId() + " channel " + slot.index + " error: " + cause.getMessage());
+            ctx.close();
+        }
+    }
+}
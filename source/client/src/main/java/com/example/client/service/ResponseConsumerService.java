@@ -1,59 +1,52 @@
 package com.example.client.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.common.transport.MessageTransport;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
-import java.io.DataOutputStream;
-import java.net.Socket;
-import java.nio.charset.StandardCharsets;
-
 @Service
 @ConditionalOnProperty(name = "iso8583.client.authorization.enabled", havingValue = "true")
 public class ResponseConsumerService {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private static final String SERVER_HOST = "127.0.0.1";
-    private static final int SERVER_PORT = 8583;
+    @Autowired
+    private MessageTransport authorizationTransport;
+
+    // Persistent pooled connections back to the server
+    @Autowired
+    private ResponseLink responseLink;
+
+    @Value("${kafka.topic.iso8583.response:iso8583-responses}")
+    private String responseTopic;
+
+    private AutoCloseable subscription;
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = authorizationTransport.subscribe(responseTopic, (key, message) -> consumeResponse(message));
+    }
+
+    @PreDestroy
+    public void unsubscribe() throws Exception {
+        if (subscription != null) subscription.close();
+    }
 
-    @KafkaListener(topics = "iso8583-responses", groupId = "client-response-consumer")
     public void consumeResponse(String message) {
         try {
-            System.out.println("📥 Received response from Kafka: " + message);
+            System.out.println("📥 Received response via " + authorizationTransport.name() + ": " + message);
             
-            // Check if message is JSON or raw ISO message
-            String rawMessage;
-            if (message.startsWith("{")) {
-                // JSON format
-                JsonNode jsonMessage = objectMapper.readTree(message);
-                rawMessage = jsonMessage.get("rawMessage").asText();
-            } else {
-                // Raw ISO message format
-                rawMessage = message;
-            }
+            // Raw ISO text: on Kafka, EnvelopeDeserializer has already turned an Iso8583Envelope into it
+            String rawMessage = message;
             
-            sendToSocketServer(rawMessage);
+            if (responseLink.send(rawMessage)) {
+                System.out.println("📤 Sent response to server: " + rawMessage);
+            }
             
         } catch (Exception e) {
             System.err.println("❌ Error processing response: " + e.getMessage());
         }
     }
-
-    private void sendToSocketServer(String message) {
-        try (Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-             DataOutputStream output = new DataOutputStream(socket.getOutputStream())) {
-            
-            byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
-            output.writeShort(messageBytes.length);
-            output.write(messageBytes);
-            output.flush();
-            
-            System.out.println("📤 Sent response to server: " + message);
-            
-        } catch (Exception e) {
-            System.err.println("❌ Failed to send to server: " + e.getMessage());
-        }
-    }
 }
\ No newline at end of file
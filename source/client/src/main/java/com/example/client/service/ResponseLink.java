@@ -0,0 +1,280 @@
+package com.example.client.service;
+
+import com.example.common.model.NetworkManagement;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.handler.codec.string.StringEncoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent connections from the client to the ISO 8583 server(s) that carry authorize's responses
+ * back, {@code connections-per-server} to each of {@code servers}, on the shared {@link ClientEventLoop}.
+ * Each link signs on first (0800, field 70 {@link NetworkManagement#RESPONSE_LINK_SIGN_ON}) so the server
+ * does not broadcast 0200s and advices to it.
+ *
+ * Sends go round-robin to a connected, writable link. Writes are not flushed one by one: the first write
+ * of a burst queues one flush behind it on the link's event loop, so everything a transport poll hands
+ * over goes out in as few syscalls as the loop can manage. A link that drops or fails to connect retries
+ * with exponential backoff from {@code reconnect-initial-ms} up to {@code reconnect-max-ms}; while no link
+ * is up, up to {@code pending-capacity} responses wait and are written by the first link to connect.
+ */
+@Component
+@ConditionalOnProperty(name = "iso8583.client.authorization.enabled", havingValue = "true")
+public class ResponseLink {
+
+    private static final String SIGN_ON = NetworkManagement.responseLinkSignOn().toString();
+
+    private final ClientEventLoop eventLoop;
+    private final List<InetSocketAddress> servers;
+    private final int connectionsPerServer;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Queue<String> pending;
+    private final List<Link> links = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean running;
+
+    public ResponseLink(ClientEventLoop eventLoop,
+                        @Value("${iso8583.client.response.servers:127.0.0.1:8583}") String servers,
+                        @Value("${iso8583.client.response.connections-per-server:2}") int connectionsPerServer,
+                        @Value("${iso8583.client.response.reconnect-initial-ms:100}") long initialBackoffMillis,
+                        @Value("${iso8583.client.response.reconnect-max-ms:5000}") long maxBackoffMillis,
+                        @Value("${iso8583.client.response.pending-capacity:10000}") int pendingCapacity) {
+        this.eventLoop = eventLoop;
+        this.servers = parseServers(servers);
+        this.connectionsPerServer = connectionsPerServer;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.pending = new ArrayBlockingQueue<>(pendingCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (InetSocketAddress server : servers) {
+            for (int i = 0; i < connectionsPerServer; i++) {
+                Link link = new Link(server);
+                links.add(link);
+                link.connect();
+            }
+        }
+        System.out.println("🔗 Response links: " + connectionsPerServer + " per server to " + servers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Link link : links) {
+            Channel channel = link.channel;
+            if (channel != null) channel.close().syncUninterruptibly();
+        }
+    }
+
+    /**
+     * Queue one response for the server; false when no link is up and the pending queue is full.
+     */
+    public boolean send(String message) {
+        int size = links.size();
+        int start = next.getAndIncrement();
+        Link fallback = null;
+        for (int i = 0; i < size; i++) {
+            Link link = links.get(Math.floorMod(start + i, size));
+            Channel channel = link.channel;
+            if (channel == null || !channel.isActive()) continue;
+            if (channel.isWritable()) {
+                link.write(channel, message);
+                return true;
+            }
+            if (fallback == null) fallback = link;
+        }
+        if (fallback != null) {
+            // Every link is backed up: Netty buffers it, the high-water mark is advisory
+            Channel channel = fallback.channel;
+            if (channel != null) {
+                fallback.write(channel, message);
+                return true;
+            }
+        }
+        if (pending.offer(message)) {
+            // A link may have come up and drained the queue since the scan above
+            for (Link link : links) {
+                Channel channel = link.channel;
+                if (channel != null && channel.isActive()) {
+                    channel.eventLoop().execute(() -> link.drain(channel));
+                    break;
+                }
+            }
+            return true;
+        }
+        System.err.println("❌ No response link up and " + pending.size() + " responses pending, dropping response");
+        return false;
+    }
+
+    public int getConnectedCount() {
+        int connected = 0;
+        for (Link link : links) {
+            Channel channel = link.channel;
+            if (channel != null && channel.isActive()) connected++;
+        }
+        return connected;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    static List<InetSocketAddress> parseServers(String servers) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String server : servers.split(",")) {
+            String trimmed = server.trim();
+            if (trimmed.isEmpty()) continue;
+            int colon = trimmed.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Response server must be host:port, got " + trimmed);
+            }
+            addresses.add(InetSocketAddress.createUnresolved(trimmed.substring(0, colon),
+                    Integer.parseInt(trimmed.substring(colon + 1))));
+        }
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("No response servers configured");
+        }
+        return addresses;
+    }
+
+    private final class Link {
+        private final InetSocketAddress server;
+        // Only touched on the event loop of the channel being written
+        private boolean flushScheduled;
+        private volatile Channel channel;
+        private volatile long backoffMillis;
+
+        Link(InetSocketAddress server) {
+            this.server = server;
+            this.backoffMillis = initialBackoffMillis;
+        }
+
+        void connect() {
+            if (!running) return;
+            ChannelFuture connect = eventLoop.bootstrap()
+                    .option(ChannelOption.SO_KEEPALIVE, true)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .handler(new ChannelInitializer<>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(65535, 0, 2, 0, 2));
+                            ch.pipeline().addLast(new LengthFieldPrepender(2));
+                            ch.pipeline().addLast(new StringEncoder(StandardCharsets.UTF_8));
+                            ch.pipeline().addLast(new LinkHandler(Link.this));
+                        }
+                    })
+                    .connect(server.getHostString(), server.getPort());
+            connect.addListener(f -> {
+                if (f.isSuccess()) {
+                    onConnected(connect.channel());
+                } else {
+                    System.err.println("❌ Response link to " + server + " failed: " + f.cause().getMessage()
+                            + ", retrying in " + backoffMillis + " ms");
+                    reconnectLater(connect.channel());
+                }
+            });
+        }
+
+        // On the channel's event loop
+        private void onConnected(Channel connected) {
+            backoffMillis = initialBackoffMillis;
+            channel = connected;
+            System.out.println("🔗 Response link connected to " + server);
+            // Ahead of any response, so the server stops broadcasting to this connection
+            connected.writeAndFlush(SIGN_ON);
+            drain(connected);
+        }
+
+        // On the channel's event loop
+        void drain(Channel connected) {
+            int drained = 0;
+            String message;
+            while ((message = pending.poll()) != null) {
+                connected.write(message);
+                drained++;
+            }
+            if (drained > 0) {
+                connected.flush();
+                System.out.println("📤 Sent " + drained + " responses held while no response link was up");
+            }
+        }
+
+        private void reconnectLater(Channel failed) {
+            channel = null;
+            if (!running) return;
+            long delay = backoffMillis;
+            backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+            failed.eventLoop().schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        }
+
+        void write(Channel target, String message) {
+            // Write and flush scheduling both run on the loop, so a flush always follows the last write
+            target.eventLoop().execute(() -> {
+                target.write(message).addListener(f -> {
+                    if (!f.isSuccess()) {
+                        System.err.println("❌ Failed to send response to " + server + ": " + f.cause().getMessage());
+                    }
+                });
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    target.eventLoop().execute(() -> {
+                        flushScheduled = false;
+                        target.flush();
+                    });
+                }
+            });
+        }
+    }
+
+    private final class LinkHandler extends SimpleChannelInboundHandler<ByteBuf> {
+        private final Link link;
+
+        LinkHandler(Link link) {
+            this.link = link;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+            // The server leaves signed-on response links out of its broadcasts; anything sent before the
+            // sign-on arrived also went to the main connections, which handle it
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (link.channel == ctx.channel()) {
+                System.err.println("🔌 Response link to " + link.server + " lost, reconnecting in " + link.backoffMillis + " ms");
+                link.reconnectLater(ctx.channel());
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            System.err.println("❌ Response link to " + link.server + " error: " + cause.getMessage());
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.client.transport;
+
+import com.example.common.envelope.Envelopes;
+import com.example.common.envelope.Iso8583Envelope;
+import com.example.common.kafka.Iso8583Headers;
+import com.example.common.parser.Iso8583Parser;
+import com.example.common.transport.MessageHandler;
+import com.example.common.transport.MessageTransport;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.KafkaMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The broker hop: requests are produced with the KafkaTemplate as binary {@link Iso8583Envelope}s,
+ * and each subscription is a listener container in the client's consumer group. Requests carry the
+ * standard {@link Iso8583Headers} and the current trace context.
+ */
+public class KafkaTransport implements MessageTransport {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final String groupId;
+    private final List<KafkaMessageListenerContainer<String, String>> containers = new CopyOnWriteArrayList<>();
+
+    public KafkaTransport(KafkaTemplate<String, byte[]> kafkaTemplate, ConsumerFactory<String, String> consumerFactory, String groupId) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.consumerFactory = consumerFactory;
+        this.groupId = groupId;
+    }
+
+    @Override
+    public void send(String topic, String key, String message) {
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, key, encode(message));
+        Iso8583Headers.write(record.headers(), message, traceparent());
+        kafkaTemplate.send(record);
+    }
+
+    /**
+     * The envelope for a pipe-delimited message; text that does not parse goes out as UTF-8, which
+     * EnvelopeDeserializer still reads.
+     */
+    static byte[] encode(String message) {
+        try {
+            return Envelopes.encode(Iso8583Parser.parseMessage(message), System.currentTimeMillis(), true);
+        } catch (RuntimeException e) {
+            return message.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The W3C traceparent of the current span, or null outside a trace.
+     */
+    public static String traceparent() {
+        Map<String, String> carrier = new HashMap<>(4);
+        W3CTraceContextPropagator.getInstance().inject(Context.current(), carrier, Map::put);
+        return carrier.get(Iso8583Headers.TRACEPARENT);
+    }
+
+    @Override
+    public AutoCloseable subscribe(String topic, MessageHandler handler) {
+        ContainerProperties properties = new ContainerProperties(topic);
+        properties.setGroupId(groupId);
+        properties.setMessageListener((MessageListener<String, String>) (ConsumerRecord<String, String> record) -> {
+            // Null when the deserializer skipped the record on its iso8583-mti header
+            if (record.value() != null) handler.onMessage(record.key(), record.value());
+        });
+        KafkaMessageListenerContainer<String, String> container = new KafkaMessageListenerContainer<>(consumerFactory, properties);
+        container.start();
+        containers.add(container);
+        return () -> {
+            containers.remove(container);
+            container.stop();
+        };
+    }
+
+    @Override
+    public String name() {
+        return "kafka";
+    }
+
+    @Override
+    public void close() {
+        containers.forEach(KafkaMessageListenerContainer::stop);
+        containers.clear();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.client.controller;
+
+import com.example.client.service.ConnectionService;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class Iso8583ControllerTest {
+
+    private static final String ECHO = "0800|7=1019120000|11=000001|70=001";
+    private static final String REQUEST = "0200|2=4000123456789012|3=000000|4=000000001000|11=000001|37=000000000001";
+
+    private final ConnectionService connectionService = mock(ConnectionService.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        Iso8583Controller controller = new Iso8583Controller();
+        ReflectionTestUtils.setField(controller, "connectionService", connectionService);
+        ReflectionTestUtils.setField(controller, "tracer", OpenTelemetry.noop().getTracer("test"));
+        ReflectionTestUtils.setField(controller, "eventWriter", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(controller, "streamMaxInFlight", 2);
+        when(connectionService.getResponseTimeoutMillis()).thenReturn(1_000L);
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    @DisplayName("Should answer an async echo with the request and response once the exchange completes")
+    void shouldSendEchoAsync() throws Exception {
+        CompletableFuture<String[]> exchange = new CompletableFuture<>();
+        when(connectionService.sendEchoAsync("server-1")).thenReturn(exchange);
+
+        MvcResult result = mvc.perform(post("/api/iso8583/connections/server-1/echo/async"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        exchange.complete(new String[] {ECHO, ECHO.replace("0800", "0810")});
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("Echo sent successfully"))
+                .andExpect(jsonPath("$.request").value(ECHO))
+                .andExpect(jsonPath("$.response").value(ECHO.replace("0800", "0810")));
+    }
+
+    @Test
+    @DisplayName("Should report the cause of a failed async send, not the CompletionException around it")
+    void shouldMapAsyncFailures() throws Exception {
+        when(connectionService.sendMessageAsync("server-1", REQUEST))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Connection not active: server-1")));
+        when(connectionService.sendEchoAsync("server-2"))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Connection not active: server-2")));
+
+        MvcResult send = mvc.perform(post("/api/iso8583/connections/server-1/send/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"message\":\"" + REQUEST + "\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(send))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value("Connection not active: server-1"));
+
+        MvcResult echo = mvc.perform(post("/api/iso8583/connections/server-2/echo/async"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(echo))
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value("Connection not active: server-2"));
+    }
+
+    @Test
+    @DisplayName("Should stream a response event per message as answered, at most max-in-flight at once, then done")
+    void shouldStreamResponses() throws Exception {
+        CompletableFuture<String[]> first = new CompletableFuture<>();
+        CompletableFuture<String[]> second = new CompletableFuture<>();
+        CompletableFuture<String[]> third = new CompletableFuture<>();
+        when(connectionService.sendMessageAsync(eq("server-1"), anyString()))
+                .thenReturn(first).thenReturn(second).thenReturn(third);
+
+        MvcResult result = mvc.perform(post("/api/iso8583/connections/server-1/send/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"messages\":[\"m0\",\"m1\",\"m2\"]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        verify(connectionService, times(2)).sendMessageAsync(eq("server-1"), anyString());
+
+        // Answered out of order; the first answer lets the third message start
+        second.complete(new String[] {"m1", "r1"});
+        verify(connectionService).sendMessageAsync("server-1", "m2");
+        third.completeExceptionally(new RuntimeException("STAN 000001 already in flight on server-1"));
+        first.complete(new String[] {"m0", "r0"});
+
+        mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        String body = result.getResponse().getContentAsString();
+        assertEquals(MediaType.TEXT_EVENT_STREAM_VALUE, result.getResponse().getContentType());
+        int r1 = body.indexOf("id:1\n");
+        int r2 = body.indexOf("id:2\n");
+        int r0 = body.indexOf("id:0\n");
+        int done = body.indexOf("event:done");
+        assertTrue(r1 >= 0 && r1 < r2 && r2 < r0 && r0 < done, body);
+        assertTrue(body.contains("\"request\":\"m1\",\"response\":\"r1\""), body);
+        assertTrue(body.contains("\"success\":false,\"message\":\"STAN 000001 already in flight on server-1\""), body);
+        assertTrue(body.contains("2 of 3 messages answered"), body);
+        assertEquals(3, body.split("event:response").length - 1, body);
+    }
+
+    @Test
+    @DisplayName("Should send done at once for an empty list")
+    void shouldFinishEmptyStream() throws Exception {
+        MvcResult result = mvc.perform(post("/api/iso8583/connections/server-1/send/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"messages\":[]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        assertTrue(result.getResponse().getContentAsString().contains("0 of 0 messages answered"));
+        verify(connectionService, never()).sendMessageAsync(anyString(), anyString());
+    }
+}
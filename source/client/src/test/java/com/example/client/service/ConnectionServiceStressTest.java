@@ -0,0 +1,222 @@
+package com.example.client.service;
+
+import com.example.client.model.ConnectionInfo;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many connections from one client against a local echo server framed like the ISO 8583 server
+ * (network echoes come back as 0810s, everything else unchanged).
+ * The benchmark compares an event loop group per connection (how {@code connect} used to work) with
+ * the shared {@link ClientEventLoop}: live threads, heap after GC and echo throughput over all
+ * connections at once.
+ * Run with: mvn test -pl client -Dtest=ConnectionServiceStressTest -Dbenchmark.client-connections=true [-Dbenchmark.connections=500]
+ */
+class ConnectionServiceStressTest {
+
+    private static final String ECHO = "0800|7=1019120000|11=000001|70=001";
+
+    private EventLoopGroup serverGroup;
+    private Channel serverChannel;
+    private int port;
+
+    @BeforeEach
+    void startEchoServer() throws Exception {
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(65535, 0, 2, 0, 2));
+                        ch.pipeline().addLast(new LengthFieldPrepender(2));
+                        ch.pipeline().addLast(new SimpleChannelInboundHandler<ByteBuf>() {
+                            @Override
+                            protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+                                // Answer a network echo like the server (0800 -> 0810), send anything else back
+                                if (frame.toString(0, 4, StandardCharsets.UTF_8).equals("0800")) {
+                                    frame.setByte(2, '1');
+                                }
+                                ctx.writeAndFlush(frame.retain());
+                            }
+                        });
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+        port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    @AfterEach
+    void stopEchoServer() {
+        serverChannel.close().syncUninterruptibly();
+        serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("Should run every connection on the shared event loop and keep it across disconnects")
+    void shouldShareEventLoop() throws Exception {
+        ClientEventLoop eventLoop = new ClientEventLoop(2, true, 5_000);
+        ConnectionService service = new ConnectionService();
+        ReflectionTestUtils.setField(service, "eventLoop", eventLoop);
+        ReflectionTestUtils.setField(service, "tracer", OpenTelemetry.noop().getTracer("test"));
+        ReflectionTestUtils.setField(service, "meter", OpenTelemetry.noop().getMeter("test"));
+        service.init();
+        try {
+            int connections = 50;
+            for (int i = 0; i < connections; i++) {
+                service.addConnection(new ConnectionInfo("host-" + i, "127.0.0.1", port, false));
+                service.connect("host-" + i);
+            }
+            assertEquals(2, clientThreads(), "50 connections on two loops");
+            for (int i = 0; i < connections; i++) {
+                String[] echo = service.sendEcho("host-" + i);
+                assertEquals(echo[0].replaceFirst("^0800", "0810"), echo[1]);
+            }
+
+            for (int i = 0; i < connections; i++) {
+                service.disconnect("host-" + i);
+            }
+            service.connect("host-0");
+            String[] echo = service.sendEcho("host-0");
+            assertEquals(echo[0].replaceFirst("^0800", "0810"), echo[1], "Disconnecting must not shut the shared group down");
+        } finally {
+            eventLoop.shutdown();
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.client-connections", matches = "true")
+    @DisplayName("Benchmark threads, memory and echo throughput for a group per connection vs one shared group")
+    void benchmarkConnections() throws Exception {
+        int connections = Integer.getInteger("benchmark.connections", 500);
+        int roundTrips = Integer.getInteger("benchmark.round-trips", 200);
+
+        // Before: what connect() did, a default NioEventLoopGroup per connection
+        List<EventLoopGroup> groups = new ArrayList<>();
+        Result perConnection = run("group per connection", connections, roundTrips, () -> {
+            NioEventLoopGroup group = new NioEventLoopGroup();
+            groups.add(group);
+            return new Bootstrap().group(group).channel(NioSocketChannel.class);
+        });
+        groups.forEach(group -> group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly());
+
+        ClientEventLoop eventLoop = new ClientEventLoop(0, true, 5_000);
+        Result shared = run("shared " + eventLoop.transport() + " x" + eventLoop.threads(), connections, roundTrips,
+                eventLoop::bootstrap);
+        eventLoop.shutdown();
+
+        assertTrue(shared.threads <= eventLoop.threads(), "Shared group threads: " + shared.threads);
+        assertTrue(perConnection.threads > connections / 2, "About one loop thread per connection: " + perConnection.threads);
+    }
+
+    private Result run(String mode, int connections, int roundTrips, Supplier<Bootstrap> bootstraps) throws Exception {
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapBefore = usedHeap();
+
+        CountDownLatch done = new CountDownLatch(connections);
+        List<Channel> channels = new ArrayList<>(connections);
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            channels.add(bootstraps.get()
+                    .handler(new ChannelInitializer<>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(65535, 0, 2, 0, 2));
+                            ch.pipeline().addLast(new LengthFieldPrepender(2));
+                            ch.pipeline().addLast(new PingPong(roundTrips, done));
+                        }
+                    })
+                    .connect("127.0.0.1", port).sync().channel());
+        }
+        long connectNanos = System.nanoTime() - connectStart;
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+        long heap = usedHeap() - heapBefore;
+
+        // Every connection runs its own request/response loop, all at once
+        long start = System.nanoTime();
+        for (Channel channel : channels) {
+            channel.writeAndFlush(Unpooled.copiedBuffer(ECHO, StandardCharsets.UTF_8));
+        }
+        assertTrue(done.await(120, TimeUnit.SECONDS), mode + " did not finish");
+        long elapsed = System.nanoTime() - start;
+        for (Channel channel : channels) {
+            channel.close().syncUninterruptibly();
+        }
+
+        System.out.printf("%-28s %d connections: +%d threads, +%,d KB heap, connect %.0f ms, %,.0f round trips/s%n",
+                mode, connections, threads, heap / 1024, connectNanos / 1e6,
+                (double) connections * roundTrips / elapsed * 1e9);
+        return new Result(threads);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long clientThreads() {
+        return Arrays.stream(ManagementFactory.getThreadMXBean().dumpAllThreads(false, false))
+                .filter(thread -> thread.getThreadName().startsWith("iso8583-client"))
+                .count();
+    }
+
+    private record Result(int threads) {
+    }
+
+    private static final class PingPong extends SimpleChannelInboundHandler<ByteBuf> {
+        private final int roundTrips;
+        private final CountDownLatch done;
+        private int completed;
+
+        PingPong(int roundTrips, CountDownLatch done) {
+            this.roundTrips = roundTrips;
+            this.done = done;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+            if (++completed == roundTrips) {
+                done.countDown();
+            } else {
+                ctx.writeAndFlush(frame.retain());
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.client.service;
+
+import com.example.client.model.ChannelStatus;
+import com.example.client.model.ConnectionInfo;
+import com.example.common.model.Iso8583Message;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointPoolTest {
+
+    private final EventLoopGroup serverGroup = new NioEventLoopGroup(1);
+    private final ClientEventLoop eventLoop = new ClientEventLoop(2, true, 1_000);
+    private final AtomicInteger stans = new AtomicInteger(1);
+    private final Queue<String> unsolicited = new ConcurrentLinkedQueue<>();
+    // Accepted server-side channels in accept order, with the 0200s each one answered
+    private final List<Channel> children = new ArrayList<>();
+    private final Map<Channel, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final Map<Channel, Long> delays = new ConcurrentHashMap<>();
+    private volatile long delayMillis;
+    private Channel server;
+    private int port;
+    private EndpointPool pool;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        synchronized (children) {
+                            children.add(ch);
+                        }
+                        requests.put(ch, new AtomicInteger());
+                        ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(65535, 0, 2, 0, 2));
+                        ch.pipeline().addLast(new LengthFieldPrepender(2));
+                        ch.pipeline().addLast(new SimpleChannelInboundHandler<ByteBuf>() {
+                            @Override
+                            protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+                                // Answer like the server: 0200 -> 0210, 0800 -> 0810, same STAN
+                                String request = frame.toString(StandardCharsets.UTF_8);
+                                if (request.startsWith("0200")) requests.get(ctx.channel()).incrementAndGet();
+                                String response = request.substring(0, 2) + "1" + request.substring(3);
+                                long delay = delays.getOrDefault(ctx.channel(), delayMillis);
+                                ctx.executor().schedule(() -> ctx.writeAndFlush(
+                                        Unpooled.copiedBuffer(response, StandardCharsets.UTF_8)), delay, TimeUnit.MILLISECONDS);
+                            }
+                        });
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+        port = ((InetSocketAddress) server.localAddress()).getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) pool.close();
+        server.close().syncUninterruptibly();
+        eventLoop.shutdown();
+        serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    @DisplayName("Should spread concurrent requests over the channels by in-flight count")
+    void shouldBalanceOnInFlight() throws Exception {
+        delayMillis = 20;
+        pool = newPool(new ConnectionInfo("server-1", "127.0.0.1", port, false), 2, 0);
+        pool.connect();
+        await(() -> pool.activeCount() == 2);
+
+        ExecutorService senders = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                String stan = String.format("%06d", i);
+                responses.add(senders.submit(() -> pool.send(authorization(stan), stan, 5_000)));
+            }
+            for (int i = 0; i < responses.size(); i++) {
+                assertTrue(responses.get(i).get().contains("11=" + String.format("%06d", i)), "Matched by STAN");
+            }
+        } finally {
+            senders.shutdownNow();
+        }
+        assertEquals(2, children.size());
+        for (Channel child : children) {
+            assertTrue(requests.get(child).get() >= 10, "Both channels carry load: " + requests);
+        }
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    @DisplayName("Should drain traffic away from a channel whose echoes are slow")
+    void shouldPreferHealthyChannel() throws Exception {
+        pool = newPool(new ConnectionInfo("server-1", "127.0.0.1", port, false), 2, 20);
+        pool.connect();
+        await(() -> pool.activeCount() == 2 && children.size() == 2);
+        delays.put(children.get(0), 10L);
+        await(() -> pool.status().stream().allMatch(channel -> channel.getEchoRttMicros() > 0)
+                && requests.size() == 2 && slowest().getEchoRttMicros() > 5_000);
+
+        for (int i = 0; i < 100; i++) {
+            String stan = String.format("%06d", 100_000 + i);
+            pool.send(authorization(stan), stan, 5_000);
+        }
+        assertTrue(requests.get(children.get(0)).get() <= 10,
+                "Slow channel got " + requests.get(children.get(0)) + " of 100 requests");
+        assertEquals(0, slowest().getMissedEchoes());
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    @DisplayName("Should fail in-flight requests on a dropped channel and reconnect it with backoff")
+    void shouldReconnectDroppedChannels() throws Exception {
+        ConnectionInfo info = new ConnectionInfo("server-1", "127.0.0.1", port, false);
+        pool = newPool(info, 2, 0);
+        pool.connect();
+        await(() -> pool.activeCount() == 2);
+        assertTrue(info.isConnected());
+
+        delayMillis = 60_000;
+        ExecutorService sender = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stuck = sender.submit(() -> pool.send(authorization("000001"), "000001", 10_000));
+            await(() -> pool.status().stream().anyMatch(channel -> channel.getInFlight() == 1));
+            for (Channel child : List.copyOf(children)) {
+                child.close().sync();
+            }
+            ExecutionException lost = assertThrows(ExecutionException.class, stuck::get);
+            assertTrue(lost.getCause().getMessage().startsWith("Connection lost"), lost.getCause().getMessage());
+        } finally {
+            sender.shutdownNow();
+        }
+
+        await(() -> pool.activeCount() == 2 && children.size() == 4);
+        assertEquals(2, info.getActiveChannels());
+        assertTrue(pool.status().stream().allMatch(channel -> channel.getReconnects() >= 1));
+        delayMillis = 0;
+        assertTrue(pool.send(authorization("000002"), "000002", 5_000).startsWith("0210"));
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    @DisplayName("Should keep many requests in flight from one thread and time them out on the event loop")
+    void shouldSendWithoutBlocking() throws Exception {
+        delayMillis = 500;
+        pool = newPool(new ConnectionInfo("server-1", "127.0.0.1", port, false), 2, 0);
+        pool.connect();
+        await(() -> pool.activeCount() == 2);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String stan = String.format("%06d", 200_000 + i);
+            responses.add(pool.sendAsync(authorization(stan), stan, 5_000));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < delayMillis, "Sending must not wait for responses");
+        assertTrue(responses.stream().noneMatch(CompletableFuture::isDone));
+        for (int i = 0; i < responses.size(); i++) {
+            assertTrue(responses.get(i).get().contains("11=" + String.format("%06d", 200_000 + i)), "Matched by STAN");
+        }
+
+        delayMillis = 60_000;
+        CompletableFuture<String> late = pool.sendAsync(authorization("000001"), "000001", 100);
+        ExecutionException timedOut = assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, timedOut.getCause());
+        assertTrue(pool.status().stream().allMatch(channel -> channel.getInFlight() == 0), "Timed-out requests are released");
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    @DisplayName("Should hand on a request the server sends to every channel only once")
+    void shouldForwardBroadcastOnce() throws Exception {
+        pool = newPool(new ConnectionInfo("server-1", "127.0.0.1", port, false), 3, 0);
+        pool.connect();
+        await(() -> pool.activeCount() == 3 && children.size() == 3);
+
+        String broadcast = "0200|2=4111111111111111|4=000000001000|11=777777|37=000000000042";
+        for (Channel child : children) {
+            child.writeAndFlush(Unpooled.copiedBuffer(broadcast, StandardCharsets.UTF_8));
+        }
+        await(() -> !unsolicited.isEmpty());
+        Thread.sleep(200);
+        assertEquals(List.of(broadcast), List.copyOf(unsolicited));
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    @DisplayName("Should add and connect the endpoints of the endpoints file, retrying those that are down")
+    void shouldLoadEndpointsFile(@TempDir Path dir) throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        Path file = dir.resolve("endpoints.json");
+        Files.writeString(file, "[{\"connectionId\":\"up\",\"host\":\"127.0.0.1\",\"port\":" + port + ",\"channels\":3},"
+                + "{\"connectionId\":\"down\",\"host\":\"127.0.0.1\",\"port\":" + closedPort + "}]");
+
+        ConnectionService service = new ConnectionService();
+        ReflectionTestUtils.setField(service, "eventLoop", eventLoop);
+        ReflectionTestUtils.setField(service, "tracer", OpenTelemetry.noop().getTracer("test"));
+        ReflectionTestUtils.setField(service, "meter", OpenTelemetry.noop().getMeter("test"));
+        ReflectionTestUtils.setField(service, "reconnectInitialMillis", 20L);
+        ReflectionTestUtils.setField(service, "endpointsFile", file.toString());
+        service.init();
+        try {
+            await(() -> service.getChannels("up").stream().filter(ChannelStatus::isActive).count() == 3);
+            await(() -> service.getChannels("down").stream().allMatch(channel -> channel.getReconnects() >= 2));
+            assertEquals(Set.of("up", "down"),
+                    service.getAllConnections().stream().map(ConnectionInfo::getConnectionId).collect(Collectors.toSet()));
+            assertFalse(service.getAllConnections().stream()
+                    .filter(c -> c.getConnectionId().equals("down")).findFirst().orElseThrow().isConnected());
+            String[] echo = service.sendEcho("up");
+            assertEquals(echo[0].replaceFirst("^0800", "0810"), echo[1]);
+            assertThrows(RuntimeException.class, () -> service.connect("up"), "Already connected");
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private EndpointPool newPool(ConnectionInfo info, int channels, long echoIntervalMillis) {
+        return new EndpointPool(info, channels, eventLoop, new EndpointPool.Settings(20, 200, echoIntervalMillis, 3),
+                this::echo, unsolicited::add);
+    }
+
+    private Iso8583Message echo() {
+        Iso8583Message echo = new Iso8583Message();
+        echo.setMti("0800");
+        echo.addField(11, String.format("%06d", 900_000 + stans.getAndIncrement()));
+        echo.addField(70, "001");
+        return echo;
+    }
+
+    private ChannelStatus slowest() {
+        return pool.status().stream().max((a, b) -> Long.compare(a.getEchoRttMicros(), b.getEchoRttMicros())).orElseThrow();
+    }
+
+    private static String authorization(String stan) {
+        return "0200|2=4111111111111111|3=000000|4=000000001000|11=" + stan + "|37=" + stan + "000000";
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            Thread.sleep(10);
+        }
+    }
+}
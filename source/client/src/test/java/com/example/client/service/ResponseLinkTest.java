@@ -0,0 +1,163 @@
+package com.example.client.service;
+
+import com.example.common.model.NetworkManagement;
+import com.example.common.parser.Iso8583Parser;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseLinkTest {
+
+    private final EventLoopGroup serverGroup = new NioEventLoopGroup(1);
+    private final ClientEventLoop eventLoop = new ClientEventLoop(2, true, 1_000);
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger reads = new AtomicInteger();
+    private final Queue<String> received = new ConcurrentLinkedQueue<>();
+    private final Queue<String> firstMessages = new ConcurrentLinkedQueue<>();
+    private final Queue<Channel> children = new ConcurrentLinkedQueue<>();
+    private ResponseLink link;
+
+    @AfterEach
+    void tearDown() {
+        if (link != null) link.stop();
+        eventLoop.shutdown();
+        serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    @DisplayName("Should send every response over the pooled connections, flushing per burst instead of per message")
+    void shouldPoolConnections() throws Exception {
+        Channel server = startServer(0);
+        int port = ((InetSocketAddress) server.localAddress()).getPort();
+        link = new ResponseLink(eventLoop, "127.0.0.1:" + port, 2, 50, 500, 100);
+        link.start();
+        await(() -> link.getConnectedCount() == 2);
+
+        int messages = 5_000;
+        for (int i = 0; i < messages; i++) {
+            assertTrue(link.send("0210|37=" + String.format("%012d", i) + "|39=00"));
+        }
+        await(() -> received.size() == messages);
+
+        assertEquals(2, accepted.get(), "No connection per response");
+        assertEquals(messages, new HashSet<>(received).size());
+        assertTrue(reads.get() < messages, "Writes should be coalesced, got " + reads.get() + " reads");
+        server.close().sync();
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    @DisplayName("Should sign on as a response link before sending anything, on every connection and reconnection")
+    void shouldSignOnFirst() throws Exception {
+        Channel server = startServer(0);
+        int port = ((InetSocketAddress) server.localAddress()).getPort();
+        // Held before any link is up, so they race the sign-on
+        link = new ResponseLink(eventLoop, "127.0.0.1:" + port, 2, 20, 200, 100);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(link.send("0210|37=" + String.format("%012d", i) + "|39=00"));
+        }
+        link.start();
+        await(() -> received.size() == 10 && firstMessages.size() == 2);
+
+        for (Channel child : children) child.close().sync();
+        await(() -> firstMessages.size() == 4);
+
+        String signOn = NetworkManagement.responseLinkSignOn().toString();
+        assertEquals(List.of(signOn, signOn, signOn, signOn), List.copyOf(firstMessages));
+        assertEquals("0800|70=" + NetworkManagement.RESPONSE_LINK_SIGN_ON, signOn);
+        server.close().sync();
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    @DisplayName("Should hold responses while the server is down and deliver them after reconnecting")
+    void shouldReconnectWithBackoff() throws Exception {
+        Channel server = startServer(0);
+        int port = ((InetSocketAddress) server.localAddress()).getPort();
+        link = new ResponseLink(eventLoop, "127.0.0.1:" + port, 1, 20, 200, 100);
+        link.start();
+        await(() -> link.getConnectedCount() == 1);
+
+        // Server restart: the link notices and retries with backoff
+        server.close().sync();
+        for (Channel child : children) child.close().sync();
+        await(() -> link.getConnectedCount() == 0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(link.send("0210|37=" + String.format("%012d", i) + "|39=00"));
+        }
+        assertEquals(10, link.getPendingCount());
+
+        server = startServer(port);
+        await(() -> received.size() == 10);
+        assertEquals(0, link.getPendingCount());
+        assertEquals(List.of("0210|37=000000000000|39=00", "0210|37=000000000001|39=00"),
+                received.stream().limit(2).toList(), "Held responses go out in order");
+        server.close().sync();
+    }
+
+    private Channel startServer(int port) throws InterruptedException {
+        return new ServerBootstrap()
+                .group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        accepted.incrementAndGet();
+                        children.add(ch);
+                        ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                reads.incrementAndGet();
+                                ctx.fireChannelRead(msg);
+                            }
+                        });
+                        ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(65535, 0, 2, 0, 2));
+                        ch.pipeline().addLast(new SimpleChannelInboundHandler<ByteBuf>() {
+                            private boolean first = true;
+
+                            @Override
+                            protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+                                String message = frame.toString(StandardCharsets.UTF_8);
+                                if (first) firstMessages.add(message);
+                                first = false;
+                                if (!NetworkManagement.isResponseLinkSignOn(Iso8583Parser.parseMessage(message))) {
+                                    received.add(message);
+                                }
+                            }
+                        });
+                    }
+                })
+                .bind("127.0.0.1", port).sync().channel();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.client.transport;
+
+import com.example.common.envelope.EnvelopeDeserializer;
+import com.example.common.envelope.Envelopes;
+import com.example.common.kafka.Iso8583Headers;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaTransportTest {
+
+    private static final String REQUEST = "0200|2=4000123456789012|3=000000|4=000000001000|11=000123|37=000000004242";
+
+    // KafkaTemplate closes the producer after every send unless it comes from a caching factory
+    private final MockProducer<String, byte[]> producer = new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer()) {
+        @Override
+        public void close(Duration timeout) {
+        }
+    };
+    private final KafkaTransport transport = new KafkaTransport(new KafkaTemplate<>(() -> producer), null, "client-response-consumer");
+
+    @Test
+    @DisplayName("Should send requests as envelopes that authorize's deserializer reads back as the same text")
+    void shouldSendEnvelopes() {
+        transport.send("iso8583-requests", "000000004242", REQUEST);
+
+        assertEquals(1, producer.history().size());
+        ProducerRecord<String, byte[]> record = producer.history().get(0);
+        assertEquals("000000004242", record.key());
+        assertTrue(Envelopes.isEnvelope(record.value()), "Not an envelope");
+        assertEquals(REQUEST, new EnvelopeDeserializer().deserialize("iso8583-requests", record.headers(), record.value()));
+        assertEquals("0200", Iso8583Headers.get(record.headers(), Iso8583Headers.MTI));
+        assertEquals("000000004242", Iso8583Headers.get(record.headers(), Iso8583Headers.RRN));
+    }
+
+    @Test
+    @DisplayName("Should fall back to UTF-8 text for a message without an MTI")
+    void shouldSendUnparsableTextAsIs() {
+        transport.send("iso8583-requests", null, "");
+
+        assertEquals("", new EnvelopeDeserializer().deserialize("iso8583-requests", producer.history().get(0).value()));
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.common.dedup;
+
+import com.example.common.routing.KeyHash;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects repeated requests (simulator retries, client reconnects, Kafka redelivery) by RRN and STAN.
+ *
+ * Two layers: a time-rotated Bloom filter remembers every key of the last one to two windows in
+ * two to four bytes per key, and a bounded cache keeps the result of the most recent keys. A Bloom
+ * negative is the common case and proves the request is new; only a Bloom positive is treated as a
+ * duplicate, and only when the cache still holds the original. A positive the cache no longer
+ * holds (a replay older than the cache, or a false positive) is counted and let through.
+ *
+ * Thread-safe and lock-free apart from the once-per-window rotation.
+ */
+public final class DuplicateFilter<R> {
+
+    private final long windowMillis;
+    private final int words;
+    private final long bitMask;
+    private final int probes;
+
+    private volatile AtomicLongArray current;
+    private volatile AtomicLongArray previous;
+    // Zero until the first claim, which starts the first window at the caller's clock
+    private volatile long rotateAt;
+
+    private final ConcurrentHashMap<String, CompletableFuture<R>> recent;
+    private final AtomicReferenceArray<String> evictionRing;
+    private final AtomicLong inserted = new AtomicLong();
+    private final int ringMask;
+
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * @param expectedPerWindow keys expected within one window, used to size the Bloom filter
+     * @param falsePositiveRate target Bloom false positive rate at that load
+     * @param windowMillis      keys are remembered for at least this long and at most twice as long
+     * @param cacheCapacity     originals kept for replay, rounded up to a power of two
+     */
+    public DuplicateFilter(long expectedPerWindow, double falsePositiveRate, long windowMillis, int cacheCapacity) {
+        if (expectedPerWindow <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1 || windowMillis <= 0 || cacheCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid duplicate filter sizing");
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedPerWindow * Math.log(falsePositiveRate) / (ln2 * ln2));
+        long roundedBits = Math.max(64, Long.highestOneBit(bits - 1) << 1);
+        if (roundedBits > (1L << 36)) {
+            throw new IllegalArgumentException("Duplicate filter larger than 8 GB: " + roundedBits + " bits");
+        }
+        this.windowMillis = windowMillis;
+        this.words = (int) (roundedBits >>> 6);
+        this.bitMask = roundedBits - 1;
+        this.probes = Math.max(1, (int) Math.round((double) bits / expectedPerWindow * ln2));
+        this.current = new AtomicLongArray(words);
+        this.previous = new AtomicLongArray(words);
+
+        int ringSize = Integer.highestOneBit(Math.max(2, cacheCapacity) - 1) << 1;
+        this.recent = new ConcurrentHashMap<>(ringSize * 4 / 3 + 1);
+        this.evictionRing = new AtomicReferenceArray<>(ringSize);
+        this.ringMask = ringSize - 1;
+    }
+
+    /**
+     * Claim {@code key} for a request about to be processed. Returns {@code fresh} when the request
+     * is new: the caller processes it and completes {@code fresh} with the result, or calls
+     * {@link #release} if the result must not be replayed. Otherwise returns the original's future,
+     * which may still be pending while the original is in flight.
+     */
+    public CompletableFuture<R> claim(String key, CompletableFuture<R> fresh, long nowMillis) {
+        long hash = KeyHash.hash(key);
+        if (nowMillis >= rotateAt) {
+            rotate(nowMillis);
+        }
+        if (!mightContain(hash)) {
+            add(hash);
+            CompletableFuture<R> existing = recent.putIfAbsent(key, fresh);
+            if (existing == null) {
+                remember(key);
+                return fresh;
+            }
+            // Still cached but older than the Bloom window: a new request reusing the RRN/STAN.
+            // An original still in flight is younger than any window and is a concurrent duplicate.
+            if (existing.isDone() && recent.replace(key, existing, fresh)) {
+                remember(key);
+                return fresh;
+            }
+            duplicates.increment();
+            return existing;
+        }
+
+        CompletableFuture<R> existing = recent.putIfAbsent(key, fresh);
+        if (existing == null) {
+            expired.increment();
+            remember(key);
+            return fresh;
+        }
+        duplicates.increment();
+        return existing;
+    }
+
+    public CompletableFuture<R> claim(String key, CompletableFuture<R> fresh) {
+        return claim(key, fresh, System.currentTimeMillis());
+    }
+
+    /**
+     * Forget a claim whose result must not be replayed (processing failed or timed out), so a retry is
+     * processed again. The Bloom filter still reports the key, so the retry is counted as expired.
+     */
+    public void release(String key, CompletableFuture<R> claimed) {
+        recent.remove(key, claimed);
+    }
+
+    /**
+     * The cache key of a request: RRN (field 37) and STAN (field 11). Null without an RRN.
+     */
+    public static String key(String rrn, String stan) {
+        if (rrn == null) return null;
+        return stan == null ? rrn : rrn + ':' + stan;
+    }
+
+    public long getDuplicateCount() { return duplicates.sum(); }
+    public long getExpiredCount() { return expired.sum(); }
+    public int getCachedCount() { return recent.size(); }
+    public int getProbeCount() { return probes; }
+    public long getBitCount() { return bitMask + 1; }
+
+    private void remember(String key) {
+        // Bounded FIFO: the key inserted one ring length ago leaves the cache
+        int slot = (int) (inserted.getAndIncrement() & ringMask);
+        String evicted = evictionRing.getAndSet(slot, key);
+        if (evicted != null && !evicted.equals(key)) {
+            recent.remove(evicted);
+        }
+    }
+
+    private synchronized void rotate(long nowMillis) {
+        if (nowMillis < rotateAt) return;
+        if (rotateAt == 0) {
+            rotateAt = nowMillis + windowMillis;
+            return;
+        }
+        // Readers may briefly see the old generation twice, which only delays forgetting
+        previous = current;
+        current = new AtomicLongArray(words);
+        rotateAt = nowMillis + windowMillis;
+    }
+
+    private boolean mightContain(long hash) {
+        return contains(current, hash) || contains(previous, hash);
+    }
+
+    private boolean contains(AtomicLongArray bits, long hash) {
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < probes; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(long hash) {
+        AtomicLongArray bits = current;
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < probes; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long value = bits.get(word);
+            while ((value & mask) == 0 && !bits.weakCompareAndSetVolatile(word, value, value | mask)) {
+                value = bits.get(word);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.common.envelope;
+
+import com.example.common.kafka.Iso8583Headers;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kafka value deserializer for the ISO 8583 topics: an {@link Iso8583Envelope} is read in place and
+ * handed on as pipe-delimited text, anything else is decoded as UTF-8. Consumers keep working on
+ * strings whichever format the producer chose.
+ *
+ * With {@value #ACCEPT_MTIS_CONFIG} set (a comma-separated list of MTIs) a record whose
+ * {@link Iso8583Headers#MTI} header is not in the list is not decoded at all: its value comes out
+ * null, for the listener's record filter to drop.
+ */
+public class EnvelopeDeserializer implements Deserializer<String> {
+
+    public static final String ACCEPT_MTIS_CONFIG = "iso8583.accept-mtis";
+
+    private Set<String> acceptMtis = Set.of();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object accept = configs.get(ACCEPT_MTIS_CONFIG);
+        if (accept instanceof Collection<?> mtis) {
+            acceptMtis = Set.copyOf(mtis.stream().map(String::valueOf).map(String::trim).toList());
+        } else if (accept != null && !accept.toString().isBlank()) {
+            acceptMtis = Set.of(accept.toString().trim().split("\\s*,\\s*"));
+        }
+    }
+
+    @Override
+    public String deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (Envelopes.isEnvelope(data)) {
+            return EnvelopeView.wrap(data).toRawMessage();
+        }
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String deserialize(String topic, Headers headers, byte[] data) {
+        return Iso8583Headers.accepts(headers, acceptMtis) ? deserialize(topic, data) : null;
+    }
+
+    // The consumer's entry point: the header check comes before the value is even copied out of the fetch
+    @Override
+    public String deserialize(String topic, Headers headers, ByteBuffer data) {
+        return Iso8583Headers.accepts(headers, acceptMtis) ? Deserializer.super.deserialize(topic, headers, data) : null;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.common.envelope;
+
+import com.example.common.model.Iso8583Message;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Read access to an encoded {@link Iso8583Envelope} in place. {@link #wrap} walks the protobuf wire
+ * format once and records where each value sits in the caller's array; nothing is copied until a
+ * value is asked for, and {@link #fieldBuffer} not even then. Use {@link Envelopes#encode} to write.
+ *
+ * The view holds on to the array: it must not change while the view is in use.
+ */
+public final class EnvelopeView {
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private final byte[] data;
+    private final int limit;
+    private int pos;
+
+    private int mtiOffset;
+    private int mtiLength;
+    private long primaryBitmap;
+    private long secondaryBitmap;
+    private long receivedAtMillis;
+    private boolean connected;
+    private int[] valueOffsets = new int[16];
+    private int[] valueLengths = new int[16];
+    private int valueCount;
+
+    private EnvelopeView(byte[] data, int offset, int length) {
+        this.data = data;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    public static EnvelopeView wrap(byte[] data) {
+        return wrap(data, 0, data.length);
+    }
+
+    /**
+     * A view of the envelope in {@code data[offset, offset + length)}; IllegalArgumentException when it
+     * is not a well-formed envelope.
+     */
+    public static EnvelopeView wrap(byte[] data, int offset, int length) {
+        EnvelopeView view = new EnvelopeView(data, offset, length);
+        view.parse();
+        return view;
+    }
+
+    public String mti() {
+        return new String(data, mtiOffset, mtiLength, StandardCharsets.US_ASCII);
+    }
+
+    public boolean hasField(int fieldNumber) {
+        return index(fieldNumber) >= 0;
+    }
+
+    /**
+     * The value of {@code fieldNumber}, or null when the field is absent.
+     */
+    public String field(int fieldNumber) {
+        int index = index(fieldNumber);
+        return index < 0 ? null : new String(data, valueOffsets[index], valueLengths[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The bytes of {@code fieldNumber} as a read-only buffer over the envelope's own array, or null
+     * when the field is absent.
+     */
+    public ByteBuffer fieldBuffer(int fieldNumber) {
+        int index = index(fieldNumber);
+        return index < 0 ? null : ByteBuffer.wrap(data, valueOffsets[index], valueLengths[index]).slice().asReadOnlyBuffer();
+    }
+
+    public int fieldCount() {
+        return valueCount;
+    }
+
+    public long receivedAtMillis() {
+        return receivedAtMillis;
+    }
+
+    public boolean connected() {
+        return connected;
+    }
+
+    /**
+     * The message as pipe-delimited text ("0200|2=...|3=..."), fields in ascending order, built in one
+     * pass over the values.
+     */
+    public String toRawMessage() {
+        int size = mtiLength;
+        for (int i = 0; i < valueCount; i++) {
+            size += valueLengths[i] + 5;
+        }
+        StringBuilder sb = new StringBuilder(size);
+        appendAscii(sb, mtiOffset, mtiLength);
+        int index = 0;
+        for (int field = nextField(0); field > 0; field = nextField(field)) {
+            sb.append('|').append(field).append('=');
+            appendAscii(sb, valueOffsets[index], valueLengths[index]);
+            index++;
+        }
+        return sb.toString();
+    }
+
+    public Iso8583Message toMessage() {
+        Iso8583Message message = new Iso8583Message();
+        message.setMti(mti());
+        int index = 0;
+        for (int field = nextField(0); field > 0; field = nextField(field)) {
+            message.addField(field, new String(data, valueOffsets[index], valueLengths[index], StandardCharsets.UTF_8));
+            index++;
+        }
+        return message;
+    }
+
+    // Position of the field's value among the present values, -1 when absent
+    private int index(int fieldNumber) {
+        if (fieldNumber >= 1 && fieldNumber <= 64) {
+            long bit = 1L << (fieldNumber - 1);
+            return (primaryBitmap & bit) == 0 ? -1 : Long.bitCount(primaryBitmap & (bit - 1));
+        }
+        if (fieldNumber >= 65 && fieldNumber <= 128) {
+            long bit = 1L << (fieldNumber - 65);
+            return (secondaryBitmap & bit) == 0 ? -1
+                    : Long.bitCount(primaryBitmap) + Long.bitCount(secondaryBitmap & (bit - 1));
+        }
+        return -1;
+    }
+
+    // The first present field above after, 0 when there is none
+    private int nextField(int after) {
+        if (after < 64) {
+            long rest = after == 0 ? primaryBitmap : primaryBitmap & (-1L << after);
+            if (rest != 0) return Long.numberOfTrailingZeros(rest) + 1;
+            after = 64;
+        }
+        if (after < 128) {
+            long rest = after == 64 ? secondaryBitmap : secondaryBitmap & (-1L << (after - 64));
+            if (rest != 0) return Long.numberOfTrailingZeros(rest) + 65;
+        }
+        return 0;
+    }
+
+    private void appendAscii(StringBuilder sb, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = data[i];
+            if (b < 0) {
+                // Not plain ASCII: decode the whole value instead
+                sb.setLength(sb.length() - (i - offset));
+                sb.append(new String(data, offset, length, StandardCharsets.UTF_8));
+                return;
+            }
+            sb.append((char) b);
+        }
+    }
+
+    private void parse() {
+        boolean hasMti = false;
+        while (pos < limit) {
+            long key = readVarint();
+            int field = (int) (key >>> 3);
+            int wireType = (int) (key & 7);
+            if (field == 1 && wireType == WIRE_LENGTH_DELIMITED) {
+                mtiLength = readLength();
+                mtiOffset = pos;
+                pos += mtiLength;
+                hasMti = true;
+            } else if (field == 2 && wireType == WIRE_FIXED64) {
+                primaryBitmap = readFixed64();
+            } else if (field == 3 && wireType == WIRE_FIXED64) {
+                secondaryBitmap = readFixed64();
+            } else if (field == 4 && wireType == WIRE_LENGTH_DELIMITED) {
+                int length = readLength();
+                addValue(pos, length);
+                pos += length;
+            } else if (field == 5 && wireType == WIRE_VARINT) {
+                receivedAtMillis = readVarint();
+            } else if (field == 6 && wireType == WIRE_VARINT) {
+                connected = readVarint() != 0;
+            } else {
+                skip(wireType);
+            }
+        }
+        if (!hasMti || pos != limit || valueCount != Long.bitCount(primaryBitmap) + Long.bitCount(secondaryBitmap)) {
+            throw malformed();
+        }
+    }
+
+    private void addValue(int offset, int length) {
+        if (valueCount == valueOffsets.length) {
+            valueOffsets = Arrays.copyOf(valueOffsets, valueCount * 2);
+            valueLengths = Arrays.copyOf(valueLengths, valueCount * 2);
+        }
+        valueOffsets[valueCount] = offset;
+        valueLengths[valueCount] = length;
+        valueCount++;
+    }
+
+    private void skip(int wireType) {
+        switch (wireType) {
+            case WIRE_VARINT -> readVarint();
+            case WIRE_FIXED64 -> pos += 8;
+            case WIRE_LENGTH_DELIMITED -> pos += readLength();
+            case WIRE_FIXED32 -> pos += 4;
+            default -> throw malformed();
+        }
+        if (pos > limit) throw malformed();
+    }
+
+    private int readLength() {
+        long length = readVarint();
+        if (length < 0 || length > limit - pos) throw malformed();
+        return (int) length;
+    }
+
+    private long readVarint() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos >= limit) throw malformed();
+            byte b = data[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return result;
+        }
+        throw malformed();
+    }
+
+    private long readFixed64() {
+        if (limit - pos < 8) throw malformed();
+        long result = 0;
+        for (int i = 7; i >= 0; i--) {
+            result = (result << 8) | (data[pos + i] & 0xFFL);
+        }
+        pos += 8;
+        return result;
+    }
+
+    private static IllegalArgumentException malformed() {
+        return new IllegalArgumentException("Malformed ISO 8583 envelope");
+    }
+}
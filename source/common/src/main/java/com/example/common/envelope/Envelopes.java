@@ -0,0 +1,60 @@
+package com.example.common.envelope;
+
+import com.example.common.model.Iso8583Message;
+import com.google.protobuf.ByteString;
+
+import java.util.Map;
+
+/**
+ * Writes {@link Iso8583Envelope}s. Reading goes through {@link EnvelopeView}, which works on the
+ * encoded bytes directly.
+ */
+public final class Envelopes {
+
+    // Tag of field 1 (mti, length-delimited); the MTI is always set, so every envelope starts with it
+    private static final byte MTI_TAG = 0x0A;
+
+    private Envelopes() {
+    }
+
+    public static byte[] encode(Iso8583Message message, long receivedAtMillis, boolean connected) {
+        String mti = message.getMti();
+        if (mti == null || mti.isEmpty()) {
+            throw new IllegalArgumentException("Envelope needs an MTI");
+        }
+        long primary = 0;
+        long secondary = 0;
+        for (Map.Entry<Integer, String> field : message.getFields().entrySet()) {
+            int number = field.getKey();
+            if (field.getValue() == null) continue;
+            if (number >= 1 && number <= 64) {
+                primary |= 1L << (number - 1);
+            } else if (number >= 65 && number <= 128) {
+                secondary |= 1L << (number - 65);
+            } else {
+                throw new IllegalArgumentException("Field number out of range: " + number);
+            }
+        }
+        Iso8583Envelope.Builder envelope = Iso8583Envelope.newBuilder()
+                .setMti(mti)
+                .setPrimaryBitmap(primary)
+                .setSecondaryBitmap(secondary)
+                .setReceivedAtMillis(receivedAtMillis)
+                .setConnected(connected);
+        for (long bits = primary; bits != 0; bits &= bits - 1) {
+            envelope.addValues(ByteString.copyFromUtf8(message.getField(Long.numberOfTrailingZeros(bits) + 1)));
+        }
+        for (long bits = secondary; bits != 0; bits &= bits - 1) {
+            envelope.addValues(ByteString.copyFromUtf8(message.getField(Long.numberOfTrailingZeros(bits) + 65)));
+        }
+        return envelope.build().toByteArray();
+    }
+
+    /**
+     * Whether a record value is an envelope rather than pipe-delimited text (which starts with a digit)
+     * or the old JSON enrichment (which starts with '{').
+     */
+    public static boolean isEnvelope(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MTI_TAG;
+    }
+}
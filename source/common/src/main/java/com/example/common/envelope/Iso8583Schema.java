@@ -0,0 +1,59 @@
+package com.example.common.envelope;
+
+import java.util.Map;
+
+/**
+ * Names of ISO 8583 fields and message types. Envelopes carry values only; anything that wants the
+ * descriptions looks them up here.
+ */
+public final class Iso8583Schema {
+
+    private static final String[] FIELD_NAMES = new String[129];
+    private static final Map<String, String> MESSAGE_TYPES = Map.of(
+            "0100", "Authorization Request",
+            "0110", "Authorization Response",
+            "0200", "Financial Transaction Request",
+            "0210", "Financial Transaction Response",
+            "0400", "Reversal Request",
+            "0410", "Reversal Response",
+            "0420", "Reversal Advice Response",
+            "0430", "Reversal Advice Repeat",
+            "0800", "Network Management Request (Echo)",
+            "0810", "Network Management Response (Echo)");
+
+    static {
+        FIELD_NAMES[2] = "Primary Account Number (PAN)";
+        FIELD_NAMES[3] = "Processing Code";
+        FIELD_NAMES[4] = "Transaction Amount";
+        FIELD_NAMES[7] = "Transmission Date & Time";
+        FIELD_NAMES[11] = "System Trace Audit Number (STAN)";
+        FIELD_NAMES[12] = "Local Transaction Time";
+        FIELD_NAMES[13] = "Local Transaction Date";
+        FIELD_NAMES[18] = "Merchant Category Code";
+        FIELD_NAMES[22] = "POS Entry Mode";
+        FIELD_NAMES[25] = "POS Condition Code";
+        FIELD_NAMES[37] = "Retrieval Reference Number";
+        FIELD_NAMES[38] = "Approval Code";
+        FIELD_NAMES[39] = "Response Code";
+        FIELD_NAMES[41] = "Terminal ID";
+        FIELD_NAMES[42] = "Merchant ID";
+        FIELD_NAMES[49] = "Currency Code";
+        FIELD_NAMES[54] = "Additional Amounts";
+        FIELD_NAMES[70] = "Network Management Info Code";
+    }
+
+    private Iso8583Schema() {
+    }
+
+    public static String fieldName(int fieldNumber) {
+        if (fieldNumber > 0 && fieldNumber < FIELD_NAMES.length && FIELD_NAMES[fieldNumber] != null) {
+            return FIELD_NAMES[fieldNumber];
+        }
+        return "Field " + fieldNumber;
+    }
+
+    public static String messageTypeDescription(String mti) {
+        if (mti == null || mti.length() != 4) return "Unknown";
+        return MESSAGE_TYPES.getOrDefault(mti, "Unknown Message Type");
+    }
+}
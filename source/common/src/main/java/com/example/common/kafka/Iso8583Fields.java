@@ -0,0 +1,41 @@
+package com.example.common.kafka;
+
+/**
+ * Field values both ends of the authorization hop read the same way: the server standing in for
+ * authorize and authorize itself must agree on the amount of a 0200 and on the card it is for.
+ */
+public final class Iso8583Fields {
+
+    private Iso8583Fields() {
+    }
+
+    /**
+     * Field 4 in minor units, or -1 when missing or not numeric.
+     */
+    public static long amount(String field4) {
+        if (field4 == null || field4.isEmpty() || field4.length() > 18) return -1;
+        long amount = 0;
+        for (int i = 0; i < field4.length(); i++) {
+            char c = field4.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            amount = amount * 10 + (c - '0');
+        }
+        return amount;
+    }
+
+    /**
+     * PAN digits as an unsigned long (up to 19 digits fit), or 0 when the PAN is not 12-19 digits.
+     */
+    public static long panKey(String pan) {
+        if (pan == null || pan.length() < 12 || pan.length() > 19) {
+            return 0;
+        }
+        long key = 0;
+        for (int i = 0; i < pan.length(); i++) {
+            char c = pan.charAt(i);
+            if (c < '0' || c > '9') return 0;
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+}
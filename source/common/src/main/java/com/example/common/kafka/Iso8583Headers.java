@@ -0,0 +1,112 @@
+package com.example.common.kafka;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The record headers every producer of the ISO 8583 topics writes, so consumers can route, filter
+ * and correlate without touching the payload. Records are keyed by RRN (field 37) and partitioned
+ * with {@link RrnPartitioner}.
+ */
+public final class Iso8583Headers {
+
+    public static final String MTI = "iso8583-mti";
+    public static final String RRN = "iso8583-rrn";
+    public static final String STAN = "iso8583-stan";
+    public static final String ORIGIN_INSTANCE = "origin-instance";
+    // W3C trace context, the name OpenTelemetry propagators read and write
+    public static final String TRACEPARENT = "traceparent";
+
+    private static final String INSTANCE = instanceId();
+
+    private Iso8583Headers() {
+    }
+
+    /**
+     * This process as named in {@link #ORIGIN_INSTANCE}: iso8583.instance-id, else HOSTNAME (the pod
+     * name on Kubernetes), else a random id fixed for the life of the JVM.
+     */
+    public static String originInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set the standard headers for a message in pipe-delimited text; MTI, RRN and STAN are found by
+     * scanning, without a full parse.
+     */
+    public static void write(Headers headers, String message, String traceparent) {
+        write(headers, mti(message), field(message, 37), field(message, 11), traceparent);
+    }
+
+    /**
+     * Set the standard headers, replacing any already there; null values are left out.
+     */
+    public static void write(Headers headers, String mti, String rrn, String stan, String traceparent) {
+        put(headers, MTI, mti);
+        put(headers, RRN, rrn);
+        put(headers, STAN, stan);
+        put(headers, ORIGIN_INSTANCE, INSTANCE);
+        put(headers, TRACEPARENT, traceparent);
+    }
+
+    /**
+     * The last value of {@code name} as text, or null.
+     */
+    public static String get(Headers headers, String name) {
+        if (headers == null) return null;
+        Header header = headers.lastHeader(name);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * False only when the record carries an MTI header outside {@code mtis}; records without one, or an
+     * empty set, are accepted and left for the payload to decide.
+     */
+    public static boolean accepts(Headers headers, Set<String> mtis) {
+        if (mtis.isEmpty() || headers == null) return true;
+        Header header = headers.lastHeader(MTI);
+        return header == null || header.value() == null
+                || mtis.contains(new String(header.value(), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * The MTI of "0200|2=..." or "MTI=0200|F2=..." text, or null.
+     */
+    public static String mti(String message) {
+        if (message == null) return null;
+        int start = message.startsWith("MTI=") ? 4 : 0;
+        if (message.length() < start + 4) return null;
+        return message.substring(start, start + 4);
+    }
+
+    /**
+     * The value of {@code field} in "0200|37=..." or "MTI=0200|F37=..." text found by scanning, or null.
+     */
+    public static String field(String message, int field) {
+        if (message == null) return null;
+        String tag = (message.startsWith("MTI=") ? "|F" : "|") + field + "=";
+        int start = message.indexOf(tag);
+        if (start < 0) return null;
+        start += tag.length();
+        int end = message.indexOf('|', start);
+        return end < 0 ? message.substring(start) : message.substring(start, end);
+    }
+
+    private static void put(Headers headers, String name, String value) {
+        headers.remove(name);
+        if (value != null) {
+            headers.add(name, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String instanceId() {
+        String configured = System.getProperty("iso8583.instance-id");
+        if (configured == null || configured.isBlank()) configured = System.getenv("HOSTNAME");
+        if (configured == null || configured.isBlank()) configured = "jvm-" + UUID.randomUUID().toString().substring(0, 8);
+        return configured;
+    }
+}
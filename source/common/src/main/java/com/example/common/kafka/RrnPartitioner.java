@@ -0,0 +1,56 @@
+package com.example.common.kafka;
+
+import com.example.common.envelope.EnvelopeView;
+import com.example.common.envelope.Envelopes;
+import com.example.common.routing.RrnHash;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.PartitionInfo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Partitions the ISO 8583 topics by RRN with {@link RrnHash}, the hash the server replicas route on,
+ * instead of murmur2 over whatever the key happens to be. The key is the RRN; a record without one
+ * has field 37 looked up in the value (text or envelope), and only a message with no RRN at all is
+ * spread round robin. Set with partitioner.class on every producer.
+ */
+public class RrnPartitioner implements Partitioner {
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int partitions = cluster.partitionCountForTopic(topic);
+        String rrn = rrn(key, value);
+        if (rrn != null) {
+            return RrnHash.bucket(rrn, partitions);
+        }
+        int n = next.getAndIncrement() & Integer.MAX_VALUE;
+        List<PartitionInfo> available = cluster.availablePartitionsForTopic(topic);
+        return available.isEmpty() ? n % partitions : available.get(n % available.size()).partition();
+    }
+
+    static String rrn(Object key, Object value) {
+        if (key instanceof String rrn && !rrn.isEmpty()) return rrn;
+        if (value instanceof String message) return Iso8583Headers.field(message, 37);
+        if (value instanceof byte[] bytes && Envelopes.isEnvelope(bytes)) {
+            try {
+                return EnvelopeView.wrap(bytes).field(37);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
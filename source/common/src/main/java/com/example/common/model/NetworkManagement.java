@@ -0,0 +1,25 @@
+package com.example.common.model;
+
+/**
+ * Network management codes (field 70) of the 0800s exchanged between the client and the server.
+ */
+public final class NetworkManagement {
+
+    // What the client's echo has always carried
+    public static final String ECHO = "001";
+    // First message on a response link: the connection only carries 0210s back and gets no broadcasts
+    public static final String RESPONSE_LINK_SIGN_ON = "071";
+
+    private NetworkManagement() {}
+
+    public static Iso8583Message responseLinkSignOn() {
+        Iso8583Message signOn = new Iso8583Message();
+        signOn.setMti("0800");
+        signOn.addField(70, RESPONSE_LINK_SIGN_ON);
+        return signOn;
+    }
+
+    public static boolean isResponseLinkSignOn(Iso8583Message message) {
+        return "0800".equals(message.getMti()) && RESPONSE_LINK_SIGN_ON.equals(message.getField(70));
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.common.routing;
+
+/**
+ * Stable 64-bit hash of a string key, the wide counterpart of {@link RrnHash} for tables that
+ * need more bits than a routing bucket: the duplicate filter's Bloom probes and the velocity
+ * counters' slots.
+ */
+public final class KeyHash {
+
+    private KeyHash() {}
+
+    public static long hash(String key) {
+        // FNV-1a over the characters, then the murmur3 finalizer; no allocation on the hot path
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
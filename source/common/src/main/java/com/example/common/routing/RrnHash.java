@@ -0,0 +1,34 @@
+package com.example.common.routing;
+
+/**
+ * Stable 32-bit hash of a Retrieval Reference Number (field 37).
+ *
+ * Every module that routes by RRN (server replicas, Kafka partitioning) must agree
+ * on the same value, so this must never depend on String.hashCode or the JVM.
+ */
+public final class RrnHash {
+
+    private RrnHash() {}
+
+    public static int hash(String rrn) {
+        // FNV-1a over the characters, then the murmur3 finalizer to spread short numeric keys
+        int h = 0x811c9dc5;
+        for (int i = 0; i < rrn.length(); i++) {
+            h ^= rrn.charAt(i);
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Map the RRN onto one of {@code buckets} contiguous hash ranges.
+     */
+    public static int bucket(String rrn, int buckets) {
+        return (int) (((hash(rrn) & 0xffffffffL) * buckets) >>> 32);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.common.transport;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Topics as bounded in-memory queues, for the client and the authorize service running in one JVM
+ * (both modules on one classpath, both application classes started from one launcher).
+ * {@link #shared} is the instance both application contexts must use; it fails at startup when the
+ * other side's classes are not in this process or the two sides disagree on its settings. Messages
+ * sent before the subscriber starts wait in the queue; a full queue blocks the sender for up to the
+ * send timeout.
+ */
+public final class InJvmTransport implements MessageTransport {
+
+    private static InJvmTransport shared;
+
+    private final int capacity;
+    private final long sendTimeoutMillis;
+    private final boolean processWide;
+    private final Map<String, BlockingQueue<String[]>> queues = new ConcurrentHashMap<>();
+    private final Map<String, Dispatcher> dispatchers = new ConcurrentHashMap<>();
+
+    public InJvmTransport(int capacity, long sendTimeoutMillis) {
+        this(capacity, sendTimeoutMillis, false);
+    }
+
+    private InJvmTransport(int capacity, long sendTimeoutMillis, boolean processWide) {
+        this.capacity = capacity;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.processWide = processWide;
+    }
+
+    /**
+     * The process-wide instance, created by whichever side starts first with its configured capacity
+     * (messages per topic) and send timeout. {@code peerApplication} is the other side's application
+     * class: without it on the classpath the peer cannot be in this process, and every message would
+     * sit in a queue nobody reads.
+     */
+    public static synchronized InJvmTransport shared(int capacity, long sendTimeoutMillis, String peerApplication) {
+        try {
+            Class.forName(peerApplication, false, InJvmTransport.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The in-jvm transport needs the client and authorize in one process, but "
+                    + peerApplication + " is not on the classpath; use mapped for separate processes on one host");
+        }
+        if (shared == null) {
+            shared = new InJvmTransport(capacity, sendTimeoutMillis, true);
+        } else if (shared.capacity != capacity || shared.sendTimeoutMillis != sendTimeoutMillis) {
+            throw new IllegalStateException("In-JVM transport already created with capacity " + shared.capacity
+                    + " and send timeout " + shared.sendTimeoutMillis + " ms by the other side; configure both alike");
+        }
+        return shared;
+    }
+
+    @Override
+    public void send(String topic, String key, String message) {
+        try {
+            if (!queue(topic).offer(new String[] {key, message}, sendTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("In-JVM topic " + topic + " full, message not sent");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted sending to in-JVM topic " + topic, e);
+        }
+    }
+
+    @Override
+    public AutoCloseable subscribe(String topic, MessageHandler handler) {
+        Dispatcher dispatcher = new Dispatcher(topic, queue(topic), handler);
+        if (dispatchers.putIfAbsent(topic, dispatcher) != null) {
+            throw new IllegalStateException("In-JVM topic " + topic + " already has a subscriber");
+        }
+        dispatcher.start();
+        return () -> {
+            dispatchers.remove(topic, dispatcher);
+            dispatcher.interrupt();
+        };
+    }
+
+    @Override
+    public String name() {
+        return "in-jvm";
+    }
+
+    /**
+     * Stops every subscription. The shared instance outlives any one application context, so closing
+     * it is a no-op; its subscriptions end when their handles are closed.
+     */
+    @Override
+    public void close() {
+        if (processWide) return;
+        dispatchers.values().forEach(Thread::interrupt);
+        dispatchers.clear();
+    }
+
+    private BlockingQueue<String[]> queue(String topic) {
+        return queues.computeIfAbsent(topic, t -> new ArrayBlockingQueue<>(capacity));
+    }
+
+    private static final class Dispatcher extends Thread {
+        private final BlockingQueue<String[]> queue;
+        private final MessageHandler handler;
+
+        Dispatcher(String topic, BlockingQueue<String[]> queue, MessageHandler handler) {
+            super("transport-jvm-" + topic);
+            setDaemon(true);
+            this.queue = queue;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                String[] entry;
+                try {
+                    entry = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    handler.onMessage(entry[0], entry[1]);
+                } catch (Exception e) {
+                    System.err.println("❌ Error handling message on " + getName() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.common.transport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Topics as memory-mapped ring files in a shared directory ({@code <topic>.queue}), for the client
+ * and the authorize service running as separate processes on one host. A hop is a copy into the page
+ * cache and a release store, picked up by the subscriber's poller within microseconds while traffic
+ * flows; an idle poller backs off to short parks.
+ *
+ * Each topic file must have exactly one sending process and one subscribing process: the client
+ * writes requests and reads responses, the authorize service the other way round. Undelivered
+ * messages stay in the file across restarts.
+ */
+public final class MappedFileTransport implements MessageTransport {
+
+    private static final int SPINS_BEFORE_PARK = 200;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+    private static final int POLL_BATCH = 256;
+
+    private final Path directory;
+    private final int capacity;
+    private final long sendTimeoutNanos;
+    private final Map<String, MappedQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, Poller> pollers = new ConcurrentHashMap<>();
+
+    public MappedFileTransport(Path directory, int capacity, long sendTimeoutMillis) {
+        this.directory = directory;
+        this.capacity = capacity;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create transport directory " + directory, e);
+        }
+    }
+
+    @Override
+    public void send(String topic, String key, String message) {
+        MappedQueue queue = queue(topic);
+        if (queue.offer(key, message)) {
+            return;
+        }
+        // Full: the subscriber is behind or not running; wait for room up to the timeout
+        long deadline = System.nanoTime() + sendTimeoutNanos;
+        while (!queue.offer(key, message)) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Mapped topic " + topic + " full for "
+                        + TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos) + " ms, message not sent");
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    @Override
+    public AutoCloseable subscribe(String topic, MessageHandler handler) {
+        Poller poller = new Poller(topic, queue(topic), handler);
+        if (pollers.putIfAbsent(topic, poller) != null) {
+            throw new IllegalStateException("Mapped topic " + topic + " already has a subscriber");
+        }
+        poller.start();
+        return () -> {
+            pollers.remove(topic, poller);
+            poller.running = false;
+            LockSupport.unpark(poller);
+        };
+    }
+
+    @Override
+    public String name() {
+        return "mapped";
+    }
+
+    @Override
+    public void close() {
+        pollers.values().forEach(poller -> poller.running = false);
+        for (Poller poller : pollers.values()) {
+            LockSupport.unpark(poller);
+            try {
+                poller.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        pollers.clear();
+        for (MappedQueue queue : queues.values()) {
+            try {
+                queue.close();
+            } catch (IOException e) {
+                System.err.println("❌ Failed to close mapped queue: " + e.getMessage());
+            }
+        }
+        queues.clear();
+    }
+
+    private MappedQueue queue(String topic) {
+        return queues.computeIfAbsent(topic, t -> {
+            try {
+                return new MappedQueue(directory.resolve(t + ".queue"), capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map queue for topic " + t, e);
+            }
+        });
+    }
+
+    private static final class Poller extends Thread {
+        private final MappedQueue queue;
+        private final MessageHandler handler;
+        private volatile boolean running = true;
+
+        Poller(String topic, MappedQueue queue, MessageHandler handler) {
+            super("transport-mapped-" + topic);
+            setDaemon(true);
+            this.queue = queue;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                if (queue.poll(handler, POLL_BATCH) > 0) {
+                    idle = 0;
+                } else if (++idle < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+    }
+}
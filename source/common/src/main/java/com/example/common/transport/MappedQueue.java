@@ -0,0 +1,137 @@
+package com.example.common.transport;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A single-writer, single-reader ring of messages in a memory-mapped file, shared between processes.
+ *
+ * Header: the write sequence (bytes ever written) at 0, the capacity at 8 and the read sequence at 64,
+ * on separate cache lines. Each record is a length, a key length, the key and the message, padded to
+ * 8 bytes; a length of -1 marks the unused tail before the ring wraps. The writer publishes a record by
+ * a release store of the write sequence after writing it, the reader frees space the same way with the
+ * read sequence, so neither side takes a lock. Both sequences live in the file and survive restarts.
+ */
+final class MappedQueue implements AutoCloseable {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int WRITE_SEQUENCE = 0;
+    private static final int CAPACITY = 8;
+    private static final int READ_SEQUENCE = 64;
+    private static final int DATA = 128;
+    private static final int RECORD_HEADER = 8;
+    private static final int WRAP = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    // Each side's own sequence, cached: only one writer and one reader touch a queue
+    private long writeSequence;
+    private long readSequence;
+
+    MappedQueue(Path file, int requestedCapacity) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(4096, requestedCapacity) - 1) << 1;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA + (long) capacity);
+        buffer.order(ByteOrder.nativeOrder());
+        long existing = (long) LONGS.getVolatile(buffer, CAPACITY);
+        if (existing == 0) {
+            LONGS.setVolatile(buffer, CAPACITY, (long) capacity);
+        } else if (existing != capacity) {
+            channel.close();
+            throw new IllegalStateException("Queue " + file + " was created with capacity " + existing + ", not " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.writeSequence = (long) LONGS.getVolatile(buffer, WRITE_SEQUENCE);
+        this.readSequence = (long) LONGS.getVolatile(buffer, READ_SEQUENCE);
+    }
+
+    /**
+     * Append one message; false when the ring has no room for it until the reader catches up.
+     */
+    synchronized boolean offer(String key, String message) {
+        byte[] keyBytes = key == null ? new byte[0] : key.getBytes(StandardCharsets.UTF_8);
+        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+        int length = keyBytes.length + messageBytes.length;
+        int size = align(RECORD_HEADER + length);
+        if (size > capacity / 2) {
+            throw new IllegalArgumentException("Message of " + length + " bytes too large for a " + capacity + " byte queue");
+        }
+        int offset = (int) (writeSequence & mask);
+        int tail = capacity - offset;
+        long needed = size <= tail ? size : tail + (long) size;
+        long read = (long) LONGS.getAcquire(buffer, READ_SEQUENCE);
+        if (writeSequence + needed - read > capacity) {
+            return false;
+        }
+        long write = writeSequence;
+        if (size > tail) {
+            buffer.putInt(DATA + offset, WRAP);
+            write += tail;
+            offset = 0;
+        }
+        buffer.putInt(DATA + offset, length);
+        buffer.putInt(DATA + offset + 4, keyBytes.length);
+        buffer.put(DATA + offset + RECORD_HEADER, keyBytes);
+        buffer.put(DATA + offset + RECORD_HEADER + keyBytes.length, messageBytes);
+        writeSequence = write + size;
+        LONGS.setRelease(buffer, WRITE_SEQUENCE, writeSequence);
+        return true;
+    }
+
+    /**
+     * Hand up to {@code max} messages to {@code handler}; returns how many there were. A handler
+     * exception is logged and the message is dropped, as the Kafka listeners do.
+     */
+    int poll(MessageHandler handler, int max) {
+        long write = (long) LONGS.getAcquire(buffer, WRITE_SEQUENCE);
+        long read = readSequence;
+        int delivered = 0;
+        while (read < write && delivered < max) {
+            int offset = (int) (read & mask);
+            int length = buffer.getInt(DATA + offset);
+            if (length == WRAP) {
+                read += capacity - offset;
+                continue;
+            }
+            int keyLength = buffer.getInt(DATA + offset + 4);
+            byte[] bytes = new byte[length];
+            buffer.get(DATA + offset + RECORD_HEADER, bytes);
+            read += align(RECORD_HEADER + length);
+            delivered++;
+            try {
+                handler.onMessage(new String(bytes, 0, keyLength, StandardCharsets.UTF_8),
+                        new String(bytes, keyLength, length - keyLength, StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                System.err.println("❌ Error handling mapped queue message: " + e.getMessage());
+            }
+        }
+        if (read != readSequence) {
+            readSequence = read;
+            LONGS.setRelease(buffer, READ_SEQUENCE, read);
+        }
+        return delivered;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.common.transport;
+
+/**
+ * Receives one message from a {@link MessageTransport} subscription.
+ */
+@FunctionalInterface
+public interface MessageHandler {
+
+    void onMessage(String key, String message);
+}
@@ -0,0 +1,27 @@
+package com.example.common.transport;
+
+/**
+ * The hop between the client and the authorize service: requests go out on one topic, responses
+ * come back on another. Kafka is the default; colocated deployments can use {@link InJvmTransport}
+ * (client and authorize in one process) or {@link MappedFileTransport} (separate processes on one host).
+ *
+ * Every topic is point to point: one subscriber receives each message once, in send order per sender.
+ */
+public interface MessageTransport extends AutoCloseable {
+
+    /**
+     * Hand {@code message} over for delivery; fails with IllegalStateException when it cannot be queued.
+     */
+    void send(String topic, String key, String message);
+
+    /**
+     * Deliver every message sent to {@code topic} to {@code handler} on a transport thread, until the
+     * returned handle is closed.
+     */
+    AutoCloseable subscribe(String topic, MessageHandler handler);
+
+    String name();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,36 @@
+package com.example.common.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 of a PAN as 64 lowercase hex characters, used to store and look up cards
+ * without keeping the PAN in query parameters or indexes.
+ */
+public final class PanHash {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private PanHash() {}
+
+    public static String of(String pan) {
+        if (pan == null) {
+            return null;
+        }
+        byte[] digest = DIGEST.get().digest(pan.getBytes(StandardCharsets.US_ASCII));
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
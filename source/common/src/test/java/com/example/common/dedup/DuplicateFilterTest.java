@@ -0,0 +1,154 @@
+package com.example.common.dedup;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateFilterTest {
+
+    private static final long NOW = System.currentTimeMillis();
+    private static final long WINDOW = TimeUnit.MINUTES.toMillis(10);
+
+    @Test
+    @DisplayName("Should hand back the original result for a repeated RRN and STAN")
+    void shouldReturnOriginalForDuplicate() {
+        DuplicateFilter<String> filter = new DuplicateFilter<>(1000, 0.001, WINDOW, 64);
+        String key = DuplicateFilter.key("000000000001", "000001");
+
+        CompletableFuture<String> first = new CompletableFuture<>();
+        assertSame(first, filter.claim(key, first, NOW), "First sighting is new");
+        first.complete("0210|39=00");
+
+        CompletableFuture<String> again = filter.claim(key, new CompletableFuture<>(), NOW + 1000);
+        assertSame(first, again);
+        assertEquals("0210|39=00", again.getNow(null));
+        assertEquals(1, filter.getDuplicateCount());
+
+        CompletableFuture<String> otherStan = new CompletableFuture<>();
+        assertSame(otherStan, filter.claim(DuplicateFilter.key("000000000001", "000002"), otherStan, NOW),
+                "Same RRN with another STAN is a different request");
+    }
+
+    @Test
+    @DisplayName("Should let a released claim be processed again")
+    void shouldReprocessReleasedClaim() {
+        DuplicateFilter<String> filter = new DuplicateFilter<>(1000, 0.001, WINDOW, 64);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        filter.claim("a", first, NOW);
+        filter.release("a", first);
+
+        CompletableFuture<String> retry = new CompletableFuture<>();
+        assertSame(retry, filter.claim("a", retry, NOW));
+        assertEquals(1, filter.getExpiredCount(), "The Bloom filter still remembers the released key");
+        assertEquals(0, filter.getDuplicateCount());
+    }
+
+    @Test
+    @DisplayName("Should forget keys after two windows and accept a reused RRN/STAN as new")
+    void shouldForgetAfterRotation() {
+        DuplicateFilter<String> filter = new DuplicateFilter<>(1000, 0.001, WINDOW, 64);
+        CompletableFuture<String> first = CompletableFuture.completedFuture("original");
+        filter.claim("a", first, NOW);
+
+        assertSame(first, filter.claim("a", new CompletableFuture<>(), NOW + WINDOW + 1), "Remembered across one rotation");
+
+        CompletableFuture<String> reused = new CompletableFuture<>();
+        assertSame(reused, filter.claim("a", reused, NOW + 3 * WINDOW), "Forgotten after the second rotation");
+        assertSame(reused, filter.claim("a", new CompletableFuture<>(), NOW + 3 * WINDOW), "The reuse is remembered in turn");
+    }
+
+    @Test
+    @DisplayName("Should keep the cache bounded and count evicted repeats as expired")
+    void shouldBoundCache() {
+        DuplicateFilter<String> filter = new DuplicateFilter<>(100_000, 0.001, WINDOW, 1024);
+        for (int i = 0; i < 10_000; i++) {
+            filter.claim(DuplicateFilter.key(String.format("%012d", i), "000001"), CompletableFuture.completedFuture("r"), NOW);
+        }
+        assertEquals(1024, filter.getCachedCount());
+
+        CompletableFuture<String> old = new CompletableFuture<>();
+        assertSame(old, filter.claim(DuplicateFilter.key(String.format("%012d", 0), "000001"), old, NOW));
+        assertEquals(1, filter.getExpiredCount());
+        assertSame(CompletableFuture.class, filter.claim(DuplicateFilter.key(String.format("%012d", 9_999), "000001"),
+                new CompletableFuture<>(), NOW).getClass());
+        assertEquals(1, filter.getDuplicateCount(), "Recent keys are still replayed");
+    }
+
+    @Test
+    @DisplayName("Should stay near the configured false positive rate at the expected load")
+    void shouldKeepFalsePositiveRate() {
+        DuplicateFilter<String> filter = new DuplicateFilter<>(200_000, 0.001, WINDOW, 16);
+        for (int i = 0; i < 200_000; i++) {
+            filter.claim(DuplicateFilter.key(String.format("%012d", i), String.format("%06d", i % 1_000_000)),
+                    new CompletableFuture<>(), NOW);
+        }
+        long before = filter.getExpiredCount();
+        // Every probe is also inserted, so keep them few relative to the expected load
+        int probes = 20_000;
+        for (int i = 0; i < probes; i++) {
+            filter.claim(DuplicateFilter.key(String.format("%012d", 5_000_000 + i), "000001"), new CompletableFuture<>(), NOW);
+        }
+        double rate = (double) (filter.getExpiredCount() - before) / probes;
+        System.out.printf("Bloom false positive rate: %.5f (%d bits, %d probes)%n", rate, filter.getBitCount(), filter.getProbeCount());
+        assertTrue(rate < 0.001, "False positive rate too high: " + rate);
+    }
+
+    @Test
+    @DisplayName("Should detect exactly one original per key under concurrent claims")
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void shouldElectOneOriginalConcurrently() throws Exception {
+        DuplicateFilter<Integer> filter = new DuplicateFilter<>(100_000, 0.001, WINDOW, 65_536);
+        int threads = 8;
+        int keys = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> originals = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                originals.add(pool.submit(() -> {
+                    int won = 0;
+                    for (int i = 0; i < keys; i++) {
+                        CompletableFuture<Integer> fresh = new CompletableFuture<>();
+                        if (filter.claim(DuplicateFilter.key(String.format("%012d", i), "000001"), fresh, NOW) == fresh) won++;
+                    }
+                    return won;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> won : originals) total += won.get();
+            assertEquals(keys, total, "Each key must be processed exactly once");
+            assertEquals((long) keys * (threads - 1), filter.getDuplicateCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should add well under a microsecond to a new request")
+    void shouldBeCheapOnTheNewPath() {
+        DuplicateFilter<String> filter = new DuplicateFilter<>(1_000_000, 0.001, WINDOW, 131_072);
+        int count = 500_000;
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) keys[i] = DuplicateFilter.key(String.format("%012d", i), String.format("%06d", i % 1_000_000));
+
+        // Warm-up pass on a separate filter so the measured one starts empty
+        DuplicateFilter<String> warm = new DuplicateFilter<>(1_000_000, 0.001, WINDOW, 131_072);
+        for (String key : keys) warm.claim(key, new CompletableFuture<>(), NOW);
+
+        long started = System.nanoTime();
+        for (String key : keys) filter.claim(key, new CompletableFuture<>(), NOW);
+        double nanos = (double) (System.nanoTime() - started) / count;
+        System.out.printf("Duplicate check on the new-request path: %.0f ns%n", nanos);
+        assertTrue(nanos < 5_000, "New-request path too slow: " + nanos + " ns");
+        assertEquals(0, filter.getDuplicateCount());
+    }
+}
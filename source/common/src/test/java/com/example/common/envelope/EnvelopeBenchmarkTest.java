@@ -0,0 +1,102 @@
+package com.example.common.envelope;
+
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bytes per Kafka record and serialize/read cost of the client processor's indented JSON enrichment
+ * (nested maps with a description per field, as it was built before) against the binary envelope.
+ * Reading means getting the raw ISO text back out, which is all ResponseConsumerService needs.
+ * Run with: mvn test -pl common -Dtest=EnvelopeBenchmarkTest -Dbenchmark.envelope=true
+ */
+@EnabledIfSystemProperty(named = "benchmark.envelope", matches = "true")
+class EnvelopeBenchmarkTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 200_000;
+    private static final String REQUEST = "0200|2=4000123456789012|3=000000|4=000000001000|7=1019120000|11=000001"
+            + "|12=120000|13=1019|18=5411|22=051|25=00|37=000000000001|41=TERM0001|42=MERCHANT0000001|49=840";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Test
+    @DisplayName("Benchmark record size and cost of JSON enrichment vs binary envelope")
+    void benchmark() throws Exception {
+        Iso8583Message message = Iso8583Parser.parseMessage(REQUEST);
+        byte[] json = objectMapper.writeValueAsBytes(enrich(message));
+        byte[] envelope = Envelopes.encode(message, System.currentTimeMillis(), true);
+        assertEquals(REQUEST.length(), EnvelopeView.wrap(envelope).toRawMessage().length());
+        assertEquals(REQUEST.length(), objectMapper.readTree(json).get("rawMessage").asText().length());
+
+        long jsonWrite = measure(() -> objectMapper.writeValueAsBytes(enrich(message)).length);
+        long envelopeWrite = measure(() -> Envelopes.encode(message, 1L, true).length);
+        long jsonRead = measure(() -> objectMapper.readTree(json).get("rawMessage").asText().length());
+        long envelopeRead = measure(() -> EnvelopeView.wrap(envelope).toRawMessage().length());
+
+        System.out.printf("raw ISO text   %,6d bytes%n", REQUEST.getBytes(StandardCharsets.UTF_8).length);
+        System.out.printf("JSON enriched  %,6d bytes, write %,6d ns, read %,6d ns%n", json.length, jsonWrite, jsonRead);
+        System.out.printf("envelope       %,6d bytes, write %,6d ns, read %,6d ns%n", envelope.length, envelopeWrite, envelopeRead);
+        assertTrue(envelope.length * 5 < json.length, "Envelope " + envelope.length + " vs JSON " + json.length);
+    }
+
+    private interface Operation {
+        int run() throws Exception;
+    }
+
+    // Nanoseconds per operation after warm-up
+    private static long measure(Operation operation) throws Exception {
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(sink > 0);
+        return elapsed / ITERATIONS;
+    }
+
+    // The client processor's enrichment as it was: metadata, raw text, every field with its description
+    private static Map<String, Object> enrich(Iso8583Message message) {
+        Map<String, Object> enriched = new HashMap<>();
+        enriched.put("messageType", message.getMti());
+        enriched.put("messageTypeDescription", Iso8583Schema.messageTypeDescription(message.getMti()));
+        enriched.put("receivedAt", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        enriched.put("connectionStatus", "CONNECTED");
+        enriched.put("rawMessage", message.toString());
+        Map<String, Object> fields = new HashMap<>();
+        message.getFields().forEach((number, value) -> {
+            Map<String, Object> field = new HashMap<>();
+            field.put("value", value);
+            field.put("description", Iso8583Schema.fieldName(number));
+            fields.put(String.valueOf(number), field);
+        });
+        enriched.put("fields", fields);
+        Map<String, String> business = new HashMap<>();
+        business.put("pan", message.getField(2).substring(0, 6) + "******" + message.getField(2).substring(12));
+        business.put("processingCode", message.getField(3));
+        business.put("transactionAmount", message.getField(4));
+        business.put("stan", message.getField(11));
+        business.put("retrievalReferenceNumber", message.getField(37));
+        business.put("terminalId", message.getField(41));
+        business.put("merchantId", message.getField(42));
+        business.put("currencyCode", message.getField(49));
+        enriched.put("businessData", business);
+        return enriched;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.common.envelope;
+
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnvelopeTest {
+
+    private static final String REQUEST =
+            "0200|2=4000123456789012|3=000000|4=000000001000|11=000001|37=000000000001|41=TERM0001|70=301";
+
+    @Test
+    @DisplayName("Should read every field and the metadata back from an envelope")
+    void shouldRoundTrip() {
+        byte[] envelope = Envelopes.encode(Iso8583Parser.parseMessage(REQUEST), 1_760_000_000_000L, true);
+
+        EnvelopeView view = EnvelopeView.wrap(envelope);
+        assertEquals("0200", view.mti());
+        assertEquals(7, view.fieldCount());
+        assertEquals("4000123456789012", view.field(2));
+        assertEquals("000000000001", view.field(37));
+        assertEquals("301", view.field(70));
+        assertNull(view.field(39));
+        assertFalse(view.hasField(1));
+        assertFalse(view.hasField(129));
+        assertEquals(1_760_000_000_000L, view.receivedAtMillis());
+        assertTrue(view.connected());
+        assertEquals(REQUEST, view.toRawMessage());
+        assertEquals(Iso8583Parser.parseMessage(REQUEST).getFields(), view.toMessage().getFields());
+    }
+
+    @Test
+    @DisplayName("Should hand out field bytes without copying the envelope")
+    void shouldReadInPlace() {
+        byte[] envelope = Envelopes.encode(Iso8583Parser.parseMessage(REQUEST), 0, false);
+        // A record value sitting inside a bigger buffer
+        byte[] batch = new byte[envelope.length + 10];
+        System.arraycopy(envelope, 0, batch, 5, envelope.length);
+
+        EnvelopeView view = EnvelopeView.wrap(batch, 5, envelope.length);
+        ByteBuffer pan = view.fieldBuffer(2);
+        assertTrue(pan.isReadOnly());
+        assertEquals("4000123456789012", StandardCharsets.US_ASCII.decode(pan.duplicate()).toString());
+
+        batch[indexOf(batch, "4000123456789012".getBytes(StandardCharsets.US_ASCII))] = '5';
+        assertEquals('5', pan.get(0), "The buffer is a window on the record, not a copy");
+    }
+
+    @Test
+    @DisplayName("Should pass text through the Kafka deserializer and turn envelopes into text")
+    void shouldDeserializeBothFormats() {
+        EnvelopeDeserializer deserializer = new EnvelopeDeserializer();
+        byte[] envelope = Envelopes.encode(Iso8583Parser.parseMessage(REQUEST), 0, true);
+
+        assertTrue(Envelopes.isEnvelope(envelope));
+        assertEquals(REQUEST, deserializer.deserialize("iso8583-requests", envelope));
+        assertEquals(REQUEST, deserializer.deserialize("iso8583-requests", REQUEST.getBytes(StandardCharsets.UTF_8)));
+        assertNull(deserializer.deserialize("iso8583-requests", null));
+    }
+
+    @Test
+    @DisplayName("Should reject truncated envelopes and fields outside 1-128")
+    void shouldRejectMalformed() {
+        byte[] envelope = Envelopes.encode(Iso8583Parser.parseMessage(REQUEST), 0, true);
+        assertThrows(IllegalArgumentException.class, () -> EnvelopeView.wrap(Arrays.copyOf(envelope, envelope.length - 3)));
+
+        Iso8583Message message = new Iso8583Message();
+        message.setMti("0200");
+        message.addField(129, "x");
+        assertThrows(IllegalArgumentException.class, () -> Envelopes.encode(message, 0, true));
+    }
+
+    @Test
+    @DisplayName("Should keep field descriptions in the schema, not the record")
+    void shouldKeepDescriptionsOutOfRecords() {
+        byte[] envelope = Envelopes.encode(Iso8583Parser.parseMessage(REQUEST), 0, true);
+        String asText = new String(envelope, StandardCharsets.ISO_8859_1);
+
+        assertEquals("Primary Account Number (PAN)", Iso8583Schema.fieldName(2));
+        assertEquals("Field 99", Iso8583Schema.fieldName(99));
+        assertEquals("Financial Transaction Request", Iso8583Schema.messageTypeDescription("0200"));
+        assertFalse(asText.contains("Primary Account Number"));
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
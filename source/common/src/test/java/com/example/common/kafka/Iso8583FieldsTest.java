@@ -0,0 +1,30 @@
+package com.example.common.kafka;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Iso8583FieldsTest {
+
+    @Test
+    @DisplayName("Should read field 4 in minor units and -1 when missing, too long or not numeric")
+    void shouldParseAmount() {
+        assertEquals(1000, Iso8583Fields.amount("000000001000"));
+        assertEquals(0, Iso8583Fields.amount("000000000000"));
+        assertEquals(-1, Iso8583Fields.amount(null));
+        assertEquals(-1, Iso8583Fields.amount(""));
+        assertEquals(-1, Iso8583Fields.amount("00000000100A"));
+        assertEquals(-1, Iso8583Fields.amount("1".repeat(19)));
+    }
+
+    @Test
+    @DisplayName("Should key a 12-19 digit PAN by its digits and anything else by 0")
+    void shouldKeyPan() {
+        assertEquals(4000123456789012L, Iso8583Fields.panKey("4000123456789012"));
+        assertEquals(Long.parseUnsignedLong("9999999999999999999"), Iso8583Fields.panKey("9999999999999999999"));
+        assertEquals(0, Iso8583Fields.panKey("40001234567"));
+        assertEquals(0, Iso8583Fields.panKey("4000-1234-5678-9012"));
+        assertEquals(0, Iso8583Fields.panKey(null));
+    }
+}
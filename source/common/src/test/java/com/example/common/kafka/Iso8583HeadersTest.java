@@ -0,0 +1,60 @@
+package com.example.common.kafka;
+
+import com.example.common.envelope.EnvelopeDeserializer;
+import com.example.common.envelope.Envelopes;
+import com.example.common.parser.Iso8583Parser;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Iso8583HeadersTest {
+
+    private static final String REQUEST = "0200|2=4000123456789012|4=000000001000|11=000123|37=000000004242";
+    private static final String TRACEPARENT = "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01";
+
+    @Test
+    @DisplayName("Should write MTI, RRN, STAN, origin and trace context found in either text form")
+    void shouldWriteStandardHeaders() {
+        Headers headers = new RecordHeaders();
+        Iso8583Headers.write(headers, REQUEST, TRACEPARENT);
+
+        assertEquals("0200", Iso8583Headers.get(headers, Iso8583Headers.MTI));
+        assertEquals("000000004242", Iso8583Headers.get(headers, Iso8583Headers.RRN));
+        assertEquals("000123", Iso8583Headers.get(headers, Iso8583Headers.STAN));
+        assertEquals(Iso8583Headers.originInstance(), Iso8583Headers.get(headers, Iso8583Headers.ORIGIN_INSTANCE));
+        assertEquals(TRACEPARENT, Iso8583Headers.get(headers, Iso8583Headers.TRACEPARENT));
+
+        // Written again for the response: replaced, not repeated, and absent values left out
+        Iso8583Headers.write(headers, "MTI=0810|F11=000124|F70=001", null);
+        assertEquals("0810", Iso8583Headers.get(headers, Iso8583Headers.MTI));
+        assertEquals("000124", Iso8583Headers.get(headers, Iso8583Headers.STAN));
+        assertNull(Iso8583Headers.get(headers, Iso8583Headers.RRN));
+        assertEquals(3, headers.toArray().length, "Only MTI, STAN and origin");
+    }
+
+    @Test
+    @DisplayName("Should skip records by their MTI header without decoding them")
+    void shouldSkipBeforeDeserialization() {
+        EnvelopeDeserializer deserializer = new EnvelopeDeserializer();
+        deserializer.configure(Map.of(EnvelopeDeserializer.ACCEPT_MTIS_CONFIG, "0200, 0400"), false);
+        Headers echo = new RecordHeaders();
+        Iso8583Headers.write(echo, "0800", null, "000001", null);
+        Headers authorization = new RecordHeaders();
+        Iso8583Headers.write(authorization, REQUEST, null);
+
+        // Not a valid envelope: decoding it would throw
+        byte[] garbage = {0x0A, 0x7F, 0x01};
+        assertNull(deserializer.deserialize("iso8583-requests", echo, garbage));
+        assertNull(deserializer.deserialize("iso8583-requests", echo, ByteBuffer.wrap(garbage)));
+        byte[] envelope = Envelopes.encode(Iso8583Parser.parseMessage(REQUEST), 0, true);
+        assertEquals(REQUEST, deserializer.deserialize("iso8583-requests", authorization, ByteBuffer.wrap(envelope)));
+        // Records from producers that write no headers are still decoded
+        assertEquals(REQUEST, deserializer.deserialize("iso8583-requests", new RecordHeaders(), envelope));
+    }
+}
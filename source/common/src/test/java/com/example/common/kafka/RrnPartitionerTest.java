@@ -0,0 +1,125 @@
+package com.example.common.kafka;
+
+import com.example.common.envelope.Envelopes;
+import com.example.common.parser.Iso8583Parser;
+import com.example.common.routing.RrnHash;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RrnPartitionerTest {
+
+    private static final String REQUEST = "0200|2=4000123456789012|4=000000001000|11=000123|37=000000004242";
+
+    @Test
+    @DisplayName("Should partition by RRN with RrnHash, from the key or else from the value")
+    void shouldPartitionByRrn() {
+        Cluster cluster = cluster(12);
+        RrnPartitioner partitioner = new RrnPartitioner();
+        int expected = RrnHash.bucket("000000004242", 12);
+
+        assertEquals(expected, partitioner.partition("iso8583-requests", "000000004242", null, "ignored", null, cluster));
+        assertEquals(expected, partitioner.partition("iso8583-requests", null, null, REQUEST, null, cluster));
+        byte[] envelope = Envelopes.encode(Iso8583Parser.parseMessage(REQUEST), 0, true);
+        assertEquals(expected, partitioner.partition("iso8583-requests", null, null, envelope, null, cluster));
+
+        // No RRN anywhere: round robin
+        Set<Integer> spread = new HashSet<>();
+        for (int i = 0; i < 12; i++) {
+            spread.add(partitioner.partition("iso8583-requests", null, null, "0800|11=000001|70=001", null, cluster));
+        }
+        assertEquals(12, spread.size());
+    }
+
+    @Test
+    @DisplayName("Should read the RRN from the value when the key is missing or empty, in every value form")
+    void shouldFallBackToTheValue() {
+        assertEquals("000000004242", RrnPartitioner.rrn(null, REQUEST));
+        assertEquals("000000004242", RrnPartitioner.rrn("", REQUEST), "An empty key is no RRN");
+        assertEquals("000000004242", RrnPartitioner.rrn(null, "MTI=0200|F11=000123|F37=000000004242|F41=SIM001"));
+        assertEquals("000000004242", RrnPartitioner.rrn(null,
+                Envelopes.encode(Iso8583Parser.parseMessage(REQUEST), 0, true)));
+        // The key wins over a different RRN in the value
+        assertEquals("000000000001", RrnPartitioner.rrn("000000000001", REQUEST));
+
+        assertNull(RrnPartitioner.rrn(null, "0200|2=4000123456789012|11=000123"), "No field 37");
+        assertNull(RrnPartitioner.rrn(null, REQUEST.getBytes(StandardCharsets.UTF_8)), "Bytes that are not an envelope");
+        assertNull(RrnPartitioner.rrn(null, new byte[] {0x0A, 0x7F, 0x01}), "Truncated envelope");
+        assertNull(RrnPartitioner.rrn(42L, null));
+    }
+
+    @Test
+    @DisplayName("Should spread records without an RRN over the available partitions only")
+    void shouldRoundRobinOverAvailablePartitions() {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> infos = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            // Odd partitions have no leader
+            infos.add(new PartitionInfo("iso8583-requests", i, i % 2 == 0 ? node : null, new Node[] {node}, new Node[] {node}));
+        }
+        Cluster cluster = new Cluster("test", List.of(node), infos, Set.of(), Set.of());
+        RrnPartitioner partitioner = new RrnPartitioner();
+
+        Set<Integer> spread = new HashSet<>();
+        for (int i = 0; i < 12; i++) {
+            spread.add(partitioner.partition("iso8583-requests", null, null, "0800|11=000001|70=001", null, cluster));
+        }
+        assertEquals(Set.of(0, 2, 4), spread);
+        // An RRN still maps to its bucket whether or not that partition is available
+        assertEquals(RrnHash.bucket("000000004242", 6),
+                partitioner.partition("iso8583-requests", "000000004242", null, REQUEST, null, cluster));
+    }
+
+    @Test
+    @DisplayName("Should send text and envelope records for one RRN to the same partition")
+    void shouldAgreeAcrossProducers() {
+        Cluster cluster = cluster(8);
+        MockProducer<String, String> text = new MockProducer<>(cluster, true, new RrnPartitioner(),
+                new StringSerializer(), new StringSerializer());
+        MockProducer<String, byte[]> envelopes = new MockProducer<>(cluster, true, new RrnPartitioner(),
+                new StringSerializer(), new ByteArraySerializer());
+
+        for (int i = 0; i < 50; i++) {
+            String message = "0200|2=4000123456789012|11=" + String.format("%06d", i) + "|37=" + String.format("%012d", i * 7919);
+            String rrn = Iso8583Headers.field(message, 37);
+            int viaText = partition(text.send(new ProducerRecord<>("iso8583-requests", rrn, message)));
+            int viaEnvelope = partition(envelopes.send(new ProducerRecord<>("iso8583-requests", rrn,
+                    Envelopes.encode(Iso8583Parser.parseMessage(message), 0, true))));
+            assertEquals(viaText, viaEnvelope);
+            assertEquals(RrnHash.bucket(rrn, 8), viaText);
+        }
+    }
+
+    private static int partition(Future<RecordMetadata> sent) {
+        try {
+            return sent.get().partition();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static Cluster cluster(int partitions) {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> infos = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            infos.add(new PartitionInfo("iso8583-requests", i, node, new Node[] {node}, new Node[] {node}));
+        }
+        return new Cluster("test", List.of(node), infos, Set.of(), Set.of());
+    }
+}
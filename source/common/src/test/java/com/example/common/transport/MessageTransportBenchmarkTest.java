@@ -0,0 +1,67 @@
+package com.example.common.transport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trip of a 0200 out on the request topic and a 0210 back on the response topic, as the client
+ * sees it, over the in-JVM and mapped-file transports. The echo side answers on its transport thread.
+ * Run with: mvn test -pl common -Dtest=MessageTransportBenchmarkTest -Dbenchmark.transport=true
+ */
+@EnabledIfSystemProperty(named = "benchmark.transport", matches = "true")
+class MessageTransportBenchmarkTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ROUND_TRIPS = 50_000;
+    private static final String REQUEST = "0200|2=4000123456789012|3=000000|4=000000001000|11=000001|37=000000000001|41=TERM0001";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Benchmark in-JVM and mapped-file round trips")
+    void benchmark() throws Exception {
+        InJvmTransport inJvm = new InJvmTransport(1024, 1000);
+        measure("in-jvm", inJvm, inJvm);
+        // Separate mappings of the same files, as two processes would have
+        measure("mapped", new MappedFileTransport(directory, 1 << 20, 1000), new MappedFileTransport(directory, 1 << 20, 1000));
+    }
+
+    private static void measure(String name, MessageTransport client, MessageTransport authorize) throws Exception {
+        authorize.subscribe("requests", (key, message) -> authorize.send("responses", key, message.replace("0200|", "0210|")));
+        SynchronousQueue<String> responses = new SynchronousQueue<>();
+        client.subscribe("responses", (key, message) -> {
+            try {
+                responses.put(message);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i < WARMUP; i++) {
+            client.send("requests", "000000000001", REQUEST);
+            assertNotNull(responses.poll(1, TimeUnit.SECONDS));
+        }
+        long[] latencies = new long[ROUND_TRIPS];
+        for (int i = 0; i < ROUND_TRIPS; i++) {
+            long start = System.nanoTime();
+            client.send("requests", "000000000001", REQUEST);
+            assertNotNull(responses.poll(1, TimeUnit.SECONDS));
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-7s round trip: p50 %.1f us, p99 %.1f us, p99.9 %.1f us%n", name,
+                latencies[ROUND_TRIPS / 2] / 1e3, latencies[ROUND_TRIPS * 99 / 100] / 1e3, latencies[ROUND_TRIPS * 999 / 1000] / 1e3);
+        client.close();
+        authorize.close();
+    }
+}
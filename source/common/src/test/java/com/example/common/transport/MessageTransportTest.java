@@ -0,0 +1,120 @@
+package com.example.common.transport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageTransportTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should deliver across two mappings of the same file in order, wrapping the ring many times")
+    void shouldDeliverAcrossMappingsInOrder() throws Exception {
+        int messages = 20_000;
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(messages);
+        // Two transports on one directory stand in for the client and authorize processes
+        try (MappedFileTransport sender = new MappedFileTransport(directory, 4096, 5_000);
+             MappedFileTransport receiver = new MappedFileTransport(directory, 4096, 5_000)) {
+            AutoCloseable subscription = receiver.subscribe("iso8583-requests", (key, message) -> {
+                received.add(key + "=" + message);
+                done.countDown();
+            });
+            for (int i = 0; i < messages; i++) {
+                sender.send("iso8583-requests", String.format("%012d", i), "0200|2=4000123456789012|11=" + i + "|é");
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS), "All messages should arrive");
+            subscription.close();
+        }
+        for (int i = 0; i < messages; i++) {
+            assertEquals(String.format("%012d", i) + "=0200|2=4000123456789012|11=" + i + "|é", received.get(i));
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should keep undelivered messages in the file across a restart")
+    void shouldKeepMessagesAcrossRestart() throws Exception {
+        try (MappedFileTransport sender = new MappedFileTransport(directory, 4096, 100)) {
+            sender.send("iso8583-responses", "000000000001", "0210|39=00");
+            sender.send("iso8583-responses", null, "0210|39=51");
+        }
+
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        try (MappedFileTransport receiver = new MappedFileTransport(directory, 4096, 100)) {
+            receiver.subscribe("iso8583-responses", (key, message) -> {
+                received.add(key + "=" + message);
+                done.countDown();
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of("000000000001=0210|39=00", "=0210|39=51"), received);
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should fail a send once the ring stays full past the timeout")
+    void shouldFailWhenFull() {
+        try (MappedFileTransport sender = new MappedFileTransport(directory, 4096, 50)) {
+            String message = "0200|" + "x".repeat(500);
+            IllegalStateException full = assertThrows(IllegalStateException.class, () -> {
+                for (int i = 0; i < 100; i++) {
+                    sender.send("nobody-reads", "k", message);
+                }
+            });
+            assertTrue(full.getMessage().contains("full"), full.getMessage());
+            assertThrows(IllegalArgumentException.class, () -> sender.send("nobody-reads", "k", "x".repeat(4096)),
+                    "A message larger than half the ring can never fit");
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should buffer in-JVM messages sent before the subscriber starts, and allow one subscriber per topic")
+    void shouldBufferInJvmMessages() throws Exception {
+        InJvmTransport transport = new InJvmTransport(16, 50);
+        transport.send("iso8583-requests", "000000000001", "0200|11=000001");
+
+        CountDownLatch done = new CountDownLatch(2);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        AutoCloseable subscription = transport.subscribe("iso8583-requests", (key, message) -> {
+            received.add(message);
+            done.countDown();
+        });
+        transport.send("iso8583-requests", "000000000002", "0200|11=000002");
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("0200|11=000001", "0200|11=000002"), received);
+        assertThrows(IllegalStateException.class, () -> transport.subscribe("iso8583-requests", (key, message) -> {}));
+
+        subscription.close();
+        transport.close();
+    }
+
+    @Test
+    @DisplayName("Should share one configured in-JVM instance only with a peer in the same process")
+    void shouldRequireInJvmPeer() {
+        IllegalStateException separate = assertThrows(IllegalStateException.class,
+                () -> InJvmTransport.shared(16, 50, "com.example.authorize.AuthorizeApplication"));
+        assertTrue(separate.getMessage().contains("one process"), separate.getMessage());
+
+        // Any class present on this classpath stands in for the peer application
+        InJvmTransport shared = InJvmTransport.shared(16, 50, MessageTransportTest.class.getName());
+        assertSame(shared, InJvmTransport.shared(16, 50, MessageTransportTest.class.getName()));
+        assertThrows(IllegalStateException.class, () -> InJvmTransport.shared(65_536, 50, MessageTransportTest.class.getName()),
+                "Both sides must configure the same capacity and send timeout");
+    }
+}
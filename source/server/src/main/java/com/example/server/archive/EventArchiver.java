@@ -0,0 +1,158 @@
+package com.example.server.archive;
+
+import com.example.server.entity.TransactionEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Moves transaction events older than {@code older-than-days} out of PostgreSQL into compressed
+ * segment files ({@code events-<firstId>-<lastId>.arc}, see {@link EventSegmentWriter}). Each run
+ * trains a dictionary on a sample of the events it is about to archive and embeds it in every
+ * segment, so segments stay readable on their own with {@link EventSegmentReader}.
+ * Rows are deleted only after their segment has been fsynced and moved into place.
+ */
+@Component
+@ConditionalOnProperty(name = {"iso8583.database.write.enabled", "iso8583.archive.enabled"}, havingValue = "true")
+public class EventArchiver {
+
+    private static final String SELECT_EVENTS =
+            "SELECT id, transaction_id, event_type, iso_message, event_time FROM transaction_events "
+            + "WHERE event_time < ? AND id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_SAMPLES =
+            "SELECT iso_message FROM transaction_events WHERE event_time < ? ORDER BY id LIMIT ?";
+    private static final String DELETE_EVENTS = "DELETE FROM transaction_events WHERE id = ANY(?)";
+    private static final int DELETE_CHUNK = 10_000;
+
+    private final DataSource dataSource;
+    private final Path directory;
+    private final int olderThanDays;
+    private final int segmentEvents;
+    private final int dictionarySize;
+    private final int dictionarySamples;
+
+    public EventArchiver(DataSource dataSource,
+                         @Value("${iso8583.archive.directory:archive}") String directory,
+                         @Value("${iso8583.archive.older-than-days:30}") int olderThanDays,
+                         @Value("${iso8583.archive.segment-events:100000}") int segmentEvents,
+                         @Value("${iso8583.archive.dictionary-size:16384}") int dictionarySize,
+                         @Value("${iso8583.archive.dictionary-samples:2000}") int dictionarySamples) {
+        this.dataSource = dataSource;
+        this.directory = Paths.get(directory);
+        this.olderThanDays = olderThanDays;
+        this.segmentEvents = segmentEvents;
+        this.dictionarySize = dictionarySize;
+        this.dictionarySamples = dictionarySamples;
+    }
+
+    @Scheduled(cron = "${iso8583.archive.cron:0 30 1 * * *}")
+    public void archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(olderThanDays);
+        try (Connection connection = dataSource.getConnection()) {
+            Files.createDirectories(directory);
+            byte[] dictionary = MessageDictionary.train(samples(connection, cutoff), dictionarySize);
+            long afterId = 0;
+            long archived = 0;
+            while (true) {
+                long[] ids = archiveSegment(connection, dictionary, cutoff, afterId);
+                if (ids.length == 0) break;
+                delete(connection, ids);
+                archived += ids.length;
+                afterId = ids[ids.length - 1];
+                if (ids.length < segmentEvents) break;
+            }
+            if (archived > 0) {
+                System.out.println("📦 Archived " + archived + " transaction events older than " + cutoff);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Event archival failed: " + e.getMessage());
+        }
+    }
+
+    private List<String> samples(Connection connection, LocalDateTime cutoff) throws SQLException {
+        List<String> samples = new ArrayList<>(dictionarySamples);
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_SAMPLES)) {
+            ps.setTimestamp(1, Timestamp.valueOf(cutoff));
+            ps.setInt(2, dictionarySamples);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getString(1) != null) samples.add(rs.getString(1));
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Writes the next segment and returns the ids it holds, in ascending order.
+     */
+    private long[] archiveSegment(Connection connection, byte[] dictionary, LocalDateTime cutoff, long afterId)
+            throws SQLException, IOException {
+        long[] ids = new long[segmentEvents];
+        int count = 0;
+        Path temporary = directory.resolve("events.arc.tmp");
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false); // lets the driver fetch through a cursor
+        try (EventSegmentWriter writer = new EventSegmentWriter(temporary, dictionary);
+             PreparedStatement ps = connection.prepareStatement(SELECT_EVENTS)) {
+            ps.setFetchSize(1000);
+            ps.setTimestamp(1, Timestamp.valueOf(cutoff));
+            ps.setLong(2, afterId);
+            ps.setInt(3, segmentEvents);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    TransactionEvent event = new TransactionEvent();
+                    event.setId(rs.getLong(1));
+                    long transactionId = rs.getLong(2);
+                    event.setTransactionId(rs.wasNull() ? null : transactionId);
+                    event.setEventType(rs.getString(3));
+                    event.setIsoMessage(rs.getString(4));
+                    event.setEventTime(rs.getTimestamp(5).toLocalDateTime());
+                    writer.append(event);
+                    ids[count++] = event.getId();
+                }
+            }
+            connection.commit();
+            if (count == 0) {
+                return new long[0];
+            }
+            Path segment = directory.resolve("events-" + ids[0] + "-" + ids[count - 1] + ".arc");
+            writer.commit(segment);
+            System.out.println("📦 Archive segment " + segment.getFileName() + ": " + count + " events, "
+                    + writer.getRawBytes() + " message bytes -> " + Files.size(segment) + " bytes");
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private void delete(Connection connection, long[] ids) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(DELETE_EVENTS)) {
+            for (int from = 0; from < ids.length; from += DELETE_CHUNK) {
+                long[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + DELETE_CHUNK));
+                Long[] boxed = Arrays.stream(chunk).boxed().toArray(Long[]::new);
+                Array array = connection.createArrayOf("bigint", boxed);
+                ps.setArray(1, array);
+                ps.executeUpdate();
+                array.free();
+            }
+        }
+    }
+}
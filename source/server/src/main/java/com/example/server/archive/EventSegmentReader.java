@@ -0,0 +1,154 @@
+package com.example.server.archive;
+
+import com.example.server.entity.TransactionEvent;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streams the events of a segment written by {@link EventSegmentWriter}, one record at a time.
+ */
+public class EventSegmentReader implements Iterator<TransactionEvent>, Closeable {
+
+    private final DataInputStream in;
+    private final byte[] dictionary;
+    private final Inflater inflater = new Inflater(true);
+    private byte[] compressed = new byte[1024];
+    private byte[] raw = new byte[1024];
+
+    private final List<String> eventTypes = new ArrayList<>();
+    private long previousId;
+    private long previousTransactionId;
+    private long previousMicros;
+    private String previousMessage;
+    private TransactionEvent next;
+    private long count;
+    private boolean ended;
+
+    public EventSegmentReader(Path segment) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 64 * 1024));
+        if (in.readInt() != EventSegmentWriter.MAGIC || in.readShort() != EventSegmentWriter.VERSION) {
+            in.close();
+            throw new IOException("Not an event archive segment: " + segment);
+        }
+        this.dictionary = in.readNBytes(in.readInt());
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readRecord();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public TransactionEvent next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        TransactionEvent event = next;
+        next = null;
+        return event;
+    }
+
+    private TransactionEvent readRecord() throws IOException {
+        if (ended) {
+            return null;
+        }
+        try {
+            int kind = in.readUnsignedByte();
+            if (kind == EventSegmentWriter.END) {
+                if (readVarLong() != count) throw new IOException("Record count mismatch in event archive segment");
+                ended = true;
+                return null;
+            }
+            TransactionEvent event = new TransactionEvent();
+            previousId += readVarLong();
+            previousTransactionId += unzigzag(readVarLong());
+            int typeIndex = (int) readVarLong();
+            if (typeIndex == eventTypes.size()) {
+                eventTypes.add(in.readUTF());
+            } else if (typeIndex > eventTypes.size()) {
+                throw new IOException("Unknown event type index " + typeIndex);
+            }
+            previousMicros += unzigzag(readVarLong());
+
+            event.setId(previousId);
+            event.setTransactionId(previousTransactionId < 0 ? null : previousTransactionId);
+            event.setEventType(eventTypes.get(typeIndex));
+            event.setEventTime(LocalDateTime.ofEpochSecond(Math.floorDiv(previousMicros, 1_000_000L),
+                    (int) Math.floorMod(previousMicros, 1_000_000L) * 1000, ZoneOffset.UTC));
+            if (kind == EventSegmentWriter.DEFLATED) {
+                int rawLength = (int) readVarLong();
+                previousMessage = inflate(rawLength, (int) readVarLong());
+            } else if (kind != EventSegmentWriter.REPEATED) {
+                throw new IOException("Unknown record kind " + kind);
+            }
+            event.setIsoMessage(previousMessage);
+            count++;
+            return event;
+        } catch (EOFException e) {
+            throw new IOException("Truncated event archive segment", e);
+        }
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint in event archive segment");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String inflate(int rawLength, int compressedLength) throws IOException {
+        if (compressed.length < compressedLength) compressed = new byte[compressedLength];
+        if (raw.length < rawLength) raw = new byte[rawLength];
+        in.readFully(compressed, 0, compressedLength);
+        inflater.reset();
+        inflater.setDictionary(dictionary);
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, rawLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated record in event archive segment");
+                }
+                length += n;
+            }
+            return new String(raw, 0, length, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt record in event archive segment", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.server.archive;
+
+import com.example.server.entity.TransactionEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes archived transaction events to a segment file.
+ *
+ * Layout: int magic, short version, int dictionary length, dictionary bytes, then one record per event:
+ * byte kind, then varints for the id delta, the zigzag transaction id delta, the event type index
+ * (an index equal to the number of types seen so far is followed by the new type as UTF) and the
+ * zigzag delta of the event time in epoch microseconds (UTC). {@link #DEFLATED} records continue
+ * with varint raw length, varint compressed length and the raw-Deflate bytes compressed against the
+ * dictionary; {@link #REPEATED} records reuse the previous record's message, which covers the
+ * RECEIVED/BROADCAST pair that carries the same 0200 twice. Deltas start from zero.
+ * A {@link #END} byte and the varint record count close the segment.
+ *
+ * The file is written under a temporary name and moved to its final name by {@link #commit}
+ * after an fsync, so a segment that exists under its final name is complete.
+ */
+public class EventSegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x49534F41; // "ISOA"
+    static final short VERSION = 1;
+    static final byte DEFLATED = 0;
+    static final byte REPEATED = 1;
+    static final byte END = 0x7F;
+
+    private final Path temporary;
+    private final FileOutputStream file;
+    private final DataOutputStream out;
+    private final byte[] dictionary;
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+    private byte[] buffer = new byte[1024];
+
+    private final List<String> eventTypes = new ArrayList<>();
+    private long previousId;
+    private long previousTransactionId;
+    private long previousMicros;
+    private String previousMessage;
+    private long count;
+    private long rawBytes;
+    private boolean committed;
+
+    public EventSegmentWriter(Path temporary, byte[] dictionary) throws IOException {
+        this.temporary = temporary;
+        this.dictionary = dictionary;
+        this.file = new FileOutputStream(temporary.toFile());
+        this.out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(dictionary.length);
+        out.write(dictionary);
+    }
+
+    public void append(TransactionEvent event) throws IOException {
+        String message = event.getIsoMessage() == null ? "" : event.getIsoMessage();
+        long transactionId = event.getTransactionId() == null ? -1 : event.getTransactionId();
+        boolean repeated = count > 0 && transactionId == previousTransactionId && message.equals(previousMessage);
+        String eventType = event.getEventType() == null ? "" : event.getEventType();
+        int typeIndex = eventTypes.indexOf(eventType);
+        long micros = toMicros(event.getEventTime());
+
+        out.writeByte(repeated ? REPEATED : DEFLATED);
+        writeVarLong(out, event.getId() - previousId);
+        writeVarLong(out, zigzag(transactionId - previousTransactionId));
+        if (typeIndex < 0) {
+            writeVarLong(out, eventTypes.size());
+            out.writeUTF(eventType);
+            eventTypes.add(eventType);
+        } else {
+            writeVarLong(out, typeIndex);
+        }
+        writeVarLong(out, zigzag(micros - previousMicros));
+        if (!repeated) {
+            byte[] raw = message.getBytes(StandardCharsets.UTF_8);
+            int length = deflate(raw);
+            writeVarLong(out, raw.length);
+            writeVarLong(out, length);
+            out.write(buffer, 0, length);
+            rawBytes += raw.length;
+        }
+
+        previousId = event.getId();
+        previousTransactionId = transactionId;
+        previousMicros = micros;
+        previousMessage = message;
+        count++;
+    }
+
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1000;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private int deflate(byte[] raw) {
+        deflater.reset();
+        deflater.setDictionary(dictionary);
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return length;
+    }
+
+    /**
+     * Flush, fsync and move the segment into place. Events may be removed from the database afterwards.
+     */
+    public void commit(Path target) throws IOException {
+        out.writeByte(END);
+        writeVarLong(out, count);
+        out.flush();
+        file.getFD().sync();
+        out.close();
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    public long getCount() { return count; }
+    public long getRawBytes() { return rawBytes; }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        if (!committed) {
+            out.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.server.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a Deflate preset dictionary from sample ISO messages. Messages are split into their
+ * {@code field=value|} pieces; pieces that recur across samples (MTIs, constant fields such as
+ * {@code 3=000000|}, currency, terminal and merchant ids) are kept, weighted by count times length.
+ * The most valuable pieces go last, where Deflate back-references are shortest.
+ */
+public final class MessageDictionary {
+
+    private MessageDictionary() {}
+
+    public static byte[] train(Iterable<String> samples, int maxSize) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String sample : samples) {
+            int start = 0;
+            while (start < sample.length()) {
+                int end = sample.indexOf('|', start);
+                String piece = end < 0 ? sample.substring(start) : sample.substring(start, end + 1);
+                counts.merge(piece, 1, Integer::sum);
+                start = end < 0 ? sample.length() : end + 1;
+            }
+        }
+
+        List<Map.Entry<String, Integer>> pieces = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1) pieces.add(entry);
+        }
+        pieces.sort((a, b) -> Long.compare(score(b), score(a)));
+
+        List<byte[]> selected = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> piece : pieces) {
+            byte[] bytes = piece.getKey().getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length > maxSize) continue;
+            selected.add(bytes);
+            size += bytes.length;
+        }
+
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            dictionary.writeBytes(selected.get(i));
+        }
+        return dictionary.toByteArray();
+    }
+
+    private static long score(Map.Entry<String, Integer> piece) {
+        return (long) piece.getValue() * piece.getKey().length();
+    }
+}
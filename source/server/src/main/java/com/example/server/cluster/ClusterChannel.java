@@ -0,0 +1,146 @@
+package com.example.server.cluster;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.handler.codec.string.StringDecoder;
+import io.netty.handler.codec.string.StringEncoder;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Internal replica-to-replica link. Frames use the same 2-byte length prefix as the ISO port;
+ * the first character of each frame is the operation code, the rest is the payload.
+ */
+public class ClusterChannel {
+
+    public static final char START_TIMER = 'T';
+    public static final char RESPONSE = 'R';
+    public static final char DELIVER = 'D';
+    public static final char ADVICE_ORIGIN = 'V';
+    public static final char ADVICE_RESPONSE = 'K';
+    public static final char ADVICE_ACK = 'A';
+
+    private final List<InetSocketAddress> nodes;
+    private final int nodeIndex;
+    private final BiConsumer<Character, String> inboundHandler;
+    private final Map<Integer, ChannelFuture> peers = new ConcurrentHashMap<>();
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel serverChannel;
+
+    public ClusterChannel(List<InetSocketAddress> nodes, int nodeIndex, BiConsumer<Character, String> inboundHandler) {
+        this.nodes = nodes;
+        this.nodeIndex = nodeIndex;
+        this.inboundHandler = inboundHandler;
+    }
+
+    public void start() throws InterruptedException {
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup(2);
+
+        ServerBootstrap b = new ServerBootstrap();
+        b.group(bossGroup, workerGroup)
+         .channel(NioServerSocketChannel.class)
+         .childHandler(new ChannelInitializer<SocketChannel>() {
+             @Override
+             protected void initChannel(SocketChannel ch) {
+                 addCodec(ch.pipeline());
+                 ch.pipeline().addLast(new InboundHandler());
+             }
+         })
+         .childOption(ChannelOption.TCP_NODELAY, true);
+
+        int port = nodes.get(nodeIndex).getPort();
+        serverChannel = b.bind(port).sync().channel();
+        System.out.println("🔗 Cluster channel for node " + nodeIndex + " listening on port " + port);
+    }
+
+    public void stop() {
+        if (serverChannel != null) serverChannel.close();
+        peers.values().forEach(f -> f.channel().close());
+        peers.clear();
+        if (bossGroup != null) bossGroup.shutdownGracefully();
+        if (workerGroup != null) workerGroup.shutdownGracefully();
+    }
+
+    /**
+     * Send a frame to another replica without blocking the caller (usually a Netty I/O thread).
+     * {@code onFailure} runs when the peer cannot be reached so the caller can degrade to local handling.
+     */
+    public void send(int targetNode, char op, String payload, Runnable onFailure) {
+        String frame = op + payload;
+        peerChannel(targetNode).addListener((ChannelFutureListener) cf -> {
+            if (!cf.isSuccess()) {
+                peers.remove(targetNode, cf);
+                System.err.println("❌ Cluster node " + targetNode + " unreachable: " + cf.cause().getMessage());
+                onFailure.run();
+                return;
+            }
+            cf.channel().writeAndFlush(frame).addListener(wf -> {
+                if (!wf.isSuccess()) {
+                    System.err.println("❌ Cluster forward to node " + targetNode + " failed: " + wf.cause().getMessage());
+                    onFailure.run();
+                }
+            });
+        });
+    }
+
+    private ChannelFuture peerChannel(int targetNode) {
+        return peers.compute(targetNode, (index, existing) -> {
+            if (existing != null && (!existing.isDone() || existing.channel().isActive())) {
+                return existing;
+            }
+            InetSocketAddress address = nodes.get(index);
+            Bootstrap bootstrap = new Bootstrap();
+            bootstrap.group(workerGroup)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 2000)
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            addCodec(ch.pipeline());
+                        }
+                    });
+            return bootstrap.connect(address.getHostString(), address.getPort());
+        });
+    }
+
+    private static void addCodec(ChannelPipeline p) {
+        p.addLast(new LengthFieldBasedFrameDecoder(65535, 0, 2, 0, 2));
+        p.addLast(new StringDecoder(StandardCharsets.UTF_8));
+        p.addLast(new LengthFieldPrepender(2));
+        p.addLast(new StringEncoder(StandardCharsets.UTF_8));
+    }
+
+    private class InboundHandler extends SimpleChannelInboundHandler<String> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, String frame) {
+            if (frame.isEmpty()) return;
+            try {
+                inboundHandler.accept(frame.charAt(0), frame.substring(1));
+            } catch (Exception e) {
+                System.err.println("❌ Cluster frame handling failed: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            System.err.println("🔌 Cluster peer error: " + cause.getMessage());
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.server.cluster;
+
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import com.example.server.service.TransactionTimer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Routes 0200 timer starts and 0210 completions to the replica that owns the RRN,
+ * so a response arriving on another pod is not counted as a timeout.
+ *
+ * 0230s take the same route: the owner learns which replica holds a stand-in advice each time its
+ * 0220 is sent, and relays the acknowledgement there, wherever the 0230 arrived.
+ */
+@Service
+public class ResponseCorrelator {
+
+    private static final int MAX_ADVICE_ORIGINS = 100_000;
+
+    private final TransactionTimer transactionTimer;
+    private final RrnOwnership ownership;
+    // Callers on this replica waiting for a 0210 whose timer lives on another replica
+    private final Map<String, CompletableFuture<Iso8583Message>> remoteWaiters = new ConcurrentHashMap<>();
+    // Replica holding the advice for an RRN owned here, oldest dropped first; refreshed on every resend
+    private final Map<String, Integer> adviceOrigins = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > MAX_ADVICE_ORIGINS;
+        }
+    });
+    private Consumer<String> adviceListener = rrn -> { };
+    private ClusterChannel clusterChannel;
+
+    public ResponseCorrelator(TransactionTimer transactionTimer, RrnOwnership ownership) {
+        this.transactionTimer = transactionTimer;
+        this.ownership = ownership;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws InterruptedException {
+        if (!ownership.isClustered() || clusterChannel != null) {
+            return;
+        }
+        clusterChannel = new ClusterChannel(ownership.getNodes(), ownership.getNodeIndex(), this::onClusterFrame);
+        clusterChannel.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (clusterChannel != null) {
+            clusterChannel.stop();
+            clusterChannel = null;
+        }
+    }
+
+    public void startTimer(String rrn) {
+        if (clusterChannel == null || ownership.isLocal(rrn)) {
+            transactionTimer.startTimer(rrn);
+            return;
+        }
+        int owner = ownership.ownerOf(rrn);
+        System.out.println("🔀 Forwarding timer for field37 " + rrn + " to node " + owner);
+        clusterChannel.send(owner, ClusterChannel.START_TIMER, rrn, () -> transactionTimer.startTimer(rrn));
+    }
+
+    /**
+     * Restart a timer recovered after a restart. Forwarded timers get the owner's full timeout.
+     */
+    public void restoreTimer(String rrn, long remainingMillis) {
+        if (clusterChannel == null || ownership.isLocal(rrn)) {
+            transactionTimer.startTimer(rrn, null, remainingMillis);
+        } else {
+            startTimer(rrn);
+        }
+    }
+
+    /**
+     * Start the timer for {@code rrn} and return a future completed with the matching 0210,
+     * or with null once the transaction timeout expires. No thread waits on it.
+     */
+    public CompletableFuture<Iso8583Message> awaitResponse(String rrn) {
+        CompletableFuture<Iso8583Message> future = new CompletableFuture<>();
+        Consumer<Iso8583Message> complete = future::complete;
+        if (clusterChannel == null || ownership.isLocal(rrn)) {
+            transactionTimer.startTimer(rrn, complete);
+            return future;
+        }
+
+        // The owner relays the 0210 back to us; the timeout is enforced here so a lost relay cannot leak the waiter
+        remoteWaiters.put(rrn, future);
+        future.completeOnTimeout(null, transactionTimer.getTimeoutSeconds(), TimeUnit.SECONDS)
+                .whenComplete((response, error) -> remoteWaiters.remove(rrn, future));
+
+        int owner = ownership.ownerOf(rrn);
+        System.out.println("🔀 Forwarding timer for field37 " + rrn + " to node " + owner);
+        clusterChannel.send(owner, ClusterChannel.START_TIMER, rrn + "|" + ownership.getNodeIndex(), () -> {
+            remoteWaiters.remove(rrn, future);
+            transactionTimer.startTimer(rrn, complete);
+        });
+        return future;
+    }
+
+    public void onResponse(Iso8583Message response, String responseMessage) {
+        String rrn = response.getField(37);
+        if (rrn == null) {
+            return;
+        }
+        if (clusterChannel == null || ownership.isLocal(rrn)) {
+            transactionTimer.checkResponse(rrn, response);
+            return;
+        }
+        int owner = ownership.ownerOf(rrn);
+        System.out.println("🔀 Forwarding 0210 for field37 " + rrn + " to node " + owner);
+        clusterChannel.send(owner, ClusterChannel.RESPONSE, responseMessage,
+                () -> transactionTimer.checkResponse(rrn, response));
+    }
+
+    /**
+     * Where acknowledged advices are dropped on this replica (AdviceQueue).
+     */
+    public void setAdviceListener(Consumer<String> adviceListener) {
+        this.adviceListener = adviceListener;
+    }
+
+    /**
+     * The 0220 for {@code rrn} is being sent from this replica: let the owner know where its 0230 belongs.
+     */
+    public void adviceSent(String rrn) {
+        if (clusterChannel == null || ownership.isLocal(rrn)) {
+            return;
+        }
+        clusterChannel.send(ownership.ownerOf(rrn), ClusterChannel.ADVICE_ORIGIN, rrn + "|" + ownership.getNodeIndex(), () -> { });
+    }
+
+    /**
+     * A 0230 arrived on this replica: acknowledge the advice on the replica holding it, found through the owner.
+     */
+    public void onAdviceResponse(String rrn) {
+        if (rrn == null) {
+            return;
+        }
+        if (clusterChannel == null || ownership.isLocal(rrn)) {
+            acknowledgeAdvice(rrn);
+            return;
+        }
+        int owner = ownership.ownerOf(rrn);
+        System.out.println("🔀 Forwarding 0230 for field37 " + rrn + " to node " + owner);
+        clusterChannel.send(owner, ClusterChannel.ADVICE_RESPONSE, rrn, () -> adviceListener.accept(rrn));
+    }
+
+    Integer adviceOriginOf(String rrn) {
+        return adviceOrigins.get(rrn);
+    }
+
+    private void acknowledgeAdvice(String rrn) {
+        Integer origin = adviceOrigins.remove(rrn);
+        if (origin == null || clusterChannel == null || origin == ownership.getNodeIndex()) {
+            adviceListener.accept(rrn);
+            return;
+        }
+        clusterChannel.send(origin, ClusterChannel.ADVICE_ACK, rrn, () -> adviceListener.accept(rrn));
+    }
+
+    private void onClusterFrame(char op, String payload) {
+        switch (op) {
+            case ClusterChannel.START_TIMER -> onRemoteStart(payload);
+            case ClusterChannel.RESPONSE -> {
+                Iso8583Message response = Iso8583Parser.parseMessage(payload);
+                String rrn = response.getField(37);
+                if (rrn != null) transactionTimer.checkResponse(rrn, response);
+            }
+            case ClusterChannel.DELIVER -> {
+                Iso8583Message response = Iso8583Parser.parseMessage(payload);
+                CompletableFuture<Iso8583Message> waiter = remoteWaiters.remove(response.getField(37));
+                if (waiter != null) waiter.complete(response);
+            }
+            case ClusterChannel.ADVICE_ORIGIN -> {
+                int separator = payload.indexOf('|');
+                adviceOrigins.put(payload.substring(0, separator), Integer.parseInt(payload.substring(separator + 1)));
+            }
+            case ClusterChannel.ADVICE_RESPONSE -> acknowledgeAdvice(payload);
+            case ClusterChannel.ADVICE_ACK -> adviceListener.accept(payload);
+            default -> System.err.println("⚠️ Unknown cluster operation: " + op);
+        }
+    }
+
+    private void onRemoteStart(String payload) {
+        int separator = payload.indexOf('|');
+        if (separator < 0) {
+            transactionTimer.startTimer(payload);
+            return;
+        }
+        String rrn = payload.substring(0, separator);
+        int origin = Integer.parseInt(payload.substring(separator + 1));
+        transactionTimer.startTimer(rrn, response -> {
+            // Timeouts are not relayed: the origin expires its own waiter
+            if (response != null) {
+                clusterChannel.send(origin, ClusterChannel.DELIVER, response.toString(), () -> { });
+            }
+        });
+    }
+}
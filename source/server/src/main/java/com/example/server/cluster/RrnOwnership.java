@@ -0,0 +1,86 @@
+package com.example.server.cluster;
+
+import com.example.common.routing.RrnHash;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the 32-bit RRN hash space into one contiguous range per server replica.
+ * The replica owning an RRN keeps its TransactionTimer entry, wherever the 0200 or 0210 arrived.
+ */
+@Component
+public class RrnOwnership {
+
+    private static final Pattern ORDINAL = Pattern.compile("-(\\d+)$");
+
+    private final List<InetSocketAddress> nodes;
+    private final int nodeIndex;
+
+    @Autowired
+    public RrnOwnership(@Value("${iso8583.cluster.enabled:false}") boolean enabled,
+                        @Value("${iso8583.cluster.nodes:}") String nodes,
+                        @Value("${iso8583.cluster.node-index:-1}") int nodeIndex) {
+        this(enabled ? parseNodes(nodes) : List.of(), enabled ? resolveNodeIndex(nodeIndex) : 0);
+    }
+
+    public RrnOwnership(List<InetSocketAddress> nodes, int nodeIndex) {
+        this.nodes = List.copyOf(nodes);
+        this.nodeIndex = nodeIndex;
+        if (this.nodes.size() > 1 && (nodeIndex < 0 || nodeIndex >= this.nodes.size())) {
+            throw new IllegalArgumentException("Cluster node index " + nodeIndex + " outside of " + this.nodes.size() + " nodes");
+        }
+    }
+
+    public boolean isClustered() {
+        return nodes.size() > 1;
+    }
+
+    public int getNodeIndex() {
+        return nodeIndex;
+    }
+
+    public List<InetSocketAddress> getNodes() {
+        return nodes;
+    }
+
+    public int ownerOf(String rrn) {
+        return isClustered() ? RrnHash.bucket(rrn, nodes.size()) : nodeIndex;
+    }
+
+    public boolean isLocal(String rrn) {
+        return ownerOf(rrn) == nodeIndex;
+    }
+
+    static List<InetSocketAddress> parseNodes(String nodes) {
+        List<InetSocketAddress> result = new ArrayList<>();
+        for (String node : nodes.split(",")) {
+            String trimmed = node.trim();
+            if (trimmed.isEmpty()) continue;
+            int colon = trimmed.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Cluster node must be host:port - " + trimmed);
+            }
+            result.add(InetSocketAddress.createUnresolved(trimmed.substring(0, colon),
+                    Integer.parseInt(trimmed.substring(colon + 1))));
+        }
+        return result;
+    }
+
+    // Falls back to the StatefulSet pod ordinal (iso8583-server-2 -> 2) when no index is configured
+    private static int resolveNodeIndex(int configured) {
+        if (configured >= 0) return configured;
+        String hostname = System.getenv("HOSTNAME");
+        if (hostname != null) {
+            Matcher m = ORDINAL.matcher(hostname);
+            if (m.find()) return Integer.parseInt(m.group(1));
+        }
+        return 0;
+    }
+}
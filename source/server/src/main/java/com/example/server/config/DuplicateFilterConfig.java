@@ -0,0 +1,35 @@
+package com.example.server.config;
+
+import com.example.common.dedup.DuplicateFilter;
+import com.example.common.model.Iso8583Message;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Suppresses repeated 0200s from gRPC callers (simulator retries, client reconnects) so they are
+ * not broadcast, journaled and persisted twice. Values are the 0210s of the originals.
+ */
+@Configuration
+public class DuplicateFilterConfig {
+
+    @Bean
+    public DuplicateFilter<Iso8583Message> duplicateFilter(
+            MeterRegistry meterRegistry,
+            @Value("${iso8583.dedup.expected-per-window:1000000}") long expectedPerWindow,
+            @Value("${iso8583.dedup.false-positive-rate:0.001}") double falsePositiveRate,
+            @Value("${iso8583.dedup.window-minutes:10}") long windowMinutes,
+            @Value("${iso8583.dedup.cache-capacity:131072}") int cacheCapacity) {
+        DuplicateFilter<Iso8583Message> filter =
+                new DuplicateFilter<>(expectedPerWindow, falsePositiveRate, windowMinutes * 60_000L, cacheCapacity);
+        FunctionCounter.builder("iso8583.transactions.duplicate", filter, DuplicateFilter::getDuplicateCount)
+                .description("Repeated 0200s answered from the original instead of being sent again")
+                .register(meterRegistry);
+        FunctionCounter.builder("iso8583.transactions.duplicate.expired", filter, DuplicateFilter::getExpiredCount)
+                .description("0200s seen before whose original was no longer cached, processed again")
+                .register(meterRegistry);
+        return filter;
+    }
+}
@@ -2,41 +2,86 @@ package com.example.server.config;
 
 import com.example.server.grpc.Iso8583ServiceImpl;
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class GrpcConfig {
     
     private Server server;
+    private ExecutorService executor;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
     
     @Autowired
     private Iso8583ServiceImpl iso8583Service;
     
+    @Autowired
+    private GrpcServerProperties properties;
+    
     @EventListener(ApplicationReadyEvent.class)
     public void startGrpcServer() {
         try {
-            server = ServerBuilder.forPort(9090)
+            executor = createExecutor();
+            bossGroup = new NioEventLoopGroup(properties.getBossThreads(), new DefaultThreadFactory("grpc-boss", true));
+            workerGroup = new NioEventLoopGroup(properties.getWorkerThreads(), new DefaultThreadFactory("grpc-worker", true));
+            
+            server = NettyServerBuilder.forAddress(new InetSocketAddress(properties.getAddress(), properties.getPort()))
+                    .bossEventLoopGroup(bossGroup)
+                    .workerEventLoopGroup(workerGroup)
+                    .channelType(NioServerSocketChannel.class)
+                    .executor(executor)
+                    .maxConcurrentCallsPerConnection(properties.getMaxConcurrentCallsPerConnection())
+                    .keepAliveTime(properties.getKeepAliveTimeSeconds(), TimeUnit.SECONDS)
+                    .keepAliveTimeout(properties.getKeepAliveTimeoutSeconds(), TimeUnit.SECONDS)
+                    .permitKeepAliveTime(properties.getPermitKeepAliveTimeSeconds(), TimeUnit.SECONDS)
+                    .permitKeepAliveWithoutCalls(true)
+                    .flowControlWindow(properties.getFlowControlWindow())
                     .addService(iso8583Service)
                     .build()
                     .start();
             
-            System.out.println("✅ gRPC Server started on port 9090");
+            System.out.println("✅ gRPC Server started on port " + properties.getPort()
+                    + " (" + properties.getExecutor() + " executor, "
+                    + properties.getMaxConcurrentCallsPerConnection() + " calls/connection)");
             
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 System.out.println("🛑 Shutting down gRPC server");
                 if (server != null) {
                     server.shutdown();
                 }
+                bossGroup.shutdownGracefully();
+                workerGroup.shutdownGracefully();
+                executor.shutdown();
             }));
             
         } catch (IOException e) {
             System.err.println("❌ Failed to start gRPC server: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+    
+    private ExecutorService createExecutor() {
+        if (properties.getExecutor() == GrpcServerProperties.Executor.VIRTUAL) {
+            try {
+                // Looked up reflectively so the server still builds and runs on Java 17
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("⚠️ Virtual threads not available on this JVM, using fixed pool");
+            }
+        }
+        return Executors.newFixedThreadPool(properties.getExecutorThreads(), new DefaultThreadFactory("grpc-executor", true));
+    }
+}
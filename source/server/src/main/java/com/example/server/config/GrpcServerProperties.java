@@ -0,0 +1,49 @@
+package com.example.server.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "grpc.server")
+public class GrpcServerProperties {
+
+    private int port = 9090;
+    private String address = "0.0.0.0";
+    private Executor executor = Executor.FIXED;
+    private int executorThreads = 16;
+    private int maxConcurrentCallsPerConnection = 1000;
+    private long keepAliveTimeSeconds = 30;
+    private long keepAliveTimeoutSeconds = 5;
+    private long permitKeepAliveTimeSeconds = 10;
+    private int flowControlWindow = 1024 * 1024;
+    private int bossThreads = 1;
+    private int workerThreads = 0;
+
+    public enum Executor {
+        FIXED,        // Fixed pool of executor-threads platform threads
+        VIRTUAL       // One virtual thread per call (Java 21+, falls back to FIXED)
+    }
+
+    public int getPort() { return port; }
+    public void setPort(int port) { this.port = port; }
+    public String getAddress() { return address; }
+    public void setAddress(String address) { this.address = address; }
+    public Executor getExecutor() { return executor; }
+    public void setExecutor(Executor executor) { this.executor = executor; }
+    public int getExecutorThreads() { return executorThreads; }
+    public void setExecutorThreads(int executorThreads) { this.executorThreads = executorThreads; }
+    public int getMaxConcurrentCallsPerConnection() { return maxConcurrentCallsPerConnection; }
+    public void setMaxConcurrentCallsPerConnection(int maxConcurrentCallsPerConnection) { this.maxConcurrentCallsPerConnection = maxConcurrentCallsPerConnection; }
+    public long getKeepAliveTimeSeconds() { return keepAliveTimeSeconds; }
+    public void setKeepAliveTimeSeconds(long keepAliveTimeSeconds) { this.keepAliveTimeSeconds = keepAliveTimeSeconds; }
+    public long getKeepAliveTimeoutSeconds() { return keepAliveTimeoutSeconds; }
+    public void setKeepAliveTimeoutSeconds(long keepAliveTimeoutSeconds) { this.keepAliveTimeoutSeconds = keepAliveTimeoutSeconds; }
+    public long getPermitKeepAliveTimeSeconds() { return permitKeepAliveTimeSeconds; }
+    public void setPermitKeepAliveTimeSeconds(long permitKeepAliveTimeSeconds) { this.permitKeepAliveTimeSeconds = permitKeepAliveTimeSeconds; }
+    public int getFlowControlWindow() { return flowControlWindow; }
+    public void setFlowControlWindow(int flowControlWindow) { this.flowControlWindow = flowControlWindow; }
+    public int getBossThreads() { return bossThreads; }
+    public void setBossThreads(int bossThreads) { this.bossThreads = bossThreads; }
+    public int getWorkerThreads() { return workerThreads; }
+    public void setWorkerThreads(int workerThreads) { this.workerThreads = workerThreads; }
+}
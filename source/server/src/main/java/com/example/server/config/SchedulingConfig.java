@@ -0,0 +1,13 @@
+package com.example.server.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the {@code @Scheduled} maintenance jobs (partition upkeep, event archival). Enabled here once
+ * rather than on those components, which are only created when the database write path is on.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
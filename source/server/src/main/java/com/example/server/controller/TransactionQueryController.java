@@ -0,0 +1,119 @@
+package com.example.server.controller;
+
+import com.example.server.repository.TransactionQuery;
+import com.example.server.repository.TransactionQueryRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Transaction search. Writes one JSON object per line as rows come off the database cursor;
+ * pass the last line's {@code cursor} as {@code after} to fetch the next page.
+ */
+@RestController
+@ConditionalOnProperty(name = "iso8583.database.write.enabled", havingValue = "true")
+public class TransactionQueryController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final TransactionQueryRepository repository;
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final Duration maxWindow;
+
+    public TransactionQueryController(TransactionQueryRepository repository,
+                                      @Value("${iso8583.query.default-limit:1000}") int defaultLimit,
+                                      @Value("${iso8583.query.max-limit:10000}") int maxLimit,
+                                      @Value("${iso8583.query.max-window-days:31}") int maxWindowDays) {
+        this.repository = repository;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.maxWindow = Duration.ofDays(maxWindowDays);
+    }
+
+    @GetMapping("/api/transactions")
+    public ResponseEntity<StreamingResponseBody> query(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String stan,
+            @RequestParam(required = false) String rrn,
+            @RequestParam(required = false) String panHash,
+            @RequestParam(required = false) String merchant,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        if (!to.isAfter(from) || Duration.between(from, to).compareTo(maxWindow) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "'to' must be after 'from' and at most " + maxWindow.toDays() + " days later");
+        }
+        int pageSize = limit == null ? defaultLimit : limit;
+        if (pageSize < 1 || pageSize > maxLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxLimit);
+        }
+        TransactionQuery query;
+        try {
+            query = new TransactionQuery(from, to, stan, rrn, panHash, merchant, after, pageSize);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = JSON.createGenerator(out)) {
+                json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+                repository.stream(query, row -> writeRow(json, row));
+                json.writeRaw('\n');
+            } catch (SQLException e) {
+                System.err.println("❌ Transaction query failed: " + e.getMessage());
+                throw new IOException("Transaction query failed", e);
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    private static void writeRow(JsonGenerator json, ResultSet row) throws SQLException, IOException {
+        long id = row.getLong("id");
+        LocalDateTime transactionTime = row.getTimestamp("transaction_time").toLocalDateTime();
+        Timestamp updateTime = row.getTimestamp("update_time");
+
+        json.writeStartObject();
+        json.writeNumberField("id", id);
+        json.writeStringField("transactionTime", transactionTime.toString());
+        json.writeStringField("updateTime", updateTime == null ? null : updateTime.toLocalDateTime().toString());
+        json.writeStringField("status", row.getString("status"));
+        json.writeStringField("responseCode", row.getString("response_code"));
+        json.writeNumberField("amount", row.getBigDecimal("amount"));
+        json.writeStringField("stan", row.getString("stan"));
+        json.writeStringField("rrn", row.getString("rrn"));
+        json.writeStringField("mti", row.getString("mti"));
+        json.writeStringField("merchant", row.getString("target_number"));
+        json.writeStringField("pan", maskPan(row.getString("source_number")));
+        json.writeStringField("panHash", row.getString("pan_hash"));
+        json.writeStringField("cursor", TransactionQuery.cursor(transactionTime, id));
+        json.writeEndObject();
+    }
+
+    static String maskPan(String pan) {
+        if (pan == null || pan.length() < 13) {
+            return pan;
+        }
+        return pan.substring(0, 6) + "*".repeat(pan.length() - 10) + pan.substring(pan.length() - 4);
+    }
+}
@@ -9,7 +9,9 @@ import java.time.LocalDateTime;
 public class Transaction {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence (INCREMENT BY 1000 in acq.sql) so inserts can be batched; shared with TransactionBatchWriter
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_id_seq", allocationSize = 1000)
     private Long id;
     
     @Column(name = "source_number", length = 20)
@@ -35,6 +37,15 @@ public class Transaction {
     
     @Column(name = "mti", length = 4)
     private String mti;
+    
+    @Column(name = "rrn", length = 12)
+    private String rrn;
+    
+    @Column(name = "response_code", length = 2)
+    private String responseCode;
+    
+    @Column(name = "pan_hash", length = 64)
+    private String panHash;
 
     public Transaction() {}
 
@@ -80,4 +91,13 @@ public class Transaction {
     
     public String getMti() { return mti; }
     public void setMti(String mti) { this.mti = mti; }
+    
+    public String getRrn() { return rrn; }
+    public void setRrn(String rrn) { this.rrn = rrn; }
+    
+    public String getResponseCode() { return responseCode; }
+    public void setResponseCode(String responseCode) { this.responseCode = responseCode; }
+    
+    public String getPanHash() { return panHash; }
+    public void setPanHash(String panHash) { this.panHash = panHash; }
 }
\ No newline at end of file
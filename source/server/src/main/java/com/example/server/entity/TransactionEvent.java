@@ -8,7 +8,9 @@ import java.time.LocalDateTime;
 public class TransactionEvent {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence (INCREMENT BY 1000 in acq.sql) so inserts can be batched; shared with TransactionBatchWriter
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_events_seq")
+    @SequenceGenerator(name = "transaction_events_seq", sequenceName = "transaction_events_id_seq", allocationSize = 1000)
     private Long id;
     
     @Column(name = "transaction_id")
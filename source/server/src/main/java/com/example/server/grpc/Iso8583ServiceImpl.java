@@ -3,30 +3,38 @@ package com.example.server.grpc;
 import com.example.simulator.grpc.Iso8583Proto;
 import com.example.simulator.grpc.Iso8583ServiceGrpc;
 import com.example.server.server.Iso8583Server;
+import com.example.common.dedup.DuplicateFilter;
 import com.example.common.model.Iso8583Message;
 import com.example.common.model.ValidationResult;
 import com.example.common.parser.Iso8583Parser;
-import com.example.server.entity.Transaction;
-import com.example.server.entity.TransactionEvent;
-import com.example.server.repository.TransactionRepository;
-import com.example.server.repository.TransactionEventRepository;
+import com.example.server.journal.TransactionJournal;
+import com.example.server.service.Iso8583Processor;
+import com.example.server.service.TransactionPersistenceService;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class Iso8583ServiceImpl extends Iso8583ServiceGrpc.Iso8583ServiceImplBase {
     
-    @Autowired(required = false)
-    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionPersistenceService persistenceService;
     
-    @Autowired(required = false)
-    private TransactionEventRepository eventRepository;
+    @Autowired
+    private TransactionJournal journal;
     
-    @Value("${iso8583.database.write.enabled:true}")
-    private boolean databaseWriteEnabled;
+    @Autowired
+    private DuplicateFilter<Iso8583Message> duplicateFilter;
+    
+    @Autowired
+    private Iso8583Processor processor;
+    
+    @Value("${grpc.server.stream.prefetch:64}")
+    private int streamPrefetch;
     
     public Iso8583ServiceImpl() {
         System.out.println("✅ Iso8583ServiceImpl created");
@@ -35,87 +43,271 @@ public class Iso8583ServiceImpl extends Iso8583ServiceGrpc.Iso8583ServiceImplBas
     @Override
     public void sendTransaction(Iso8583Proto.TransactionRequest request, 
                                StreamObserver<Iso8583Proto.TransactionResponse> responseObserver) {
+        Accepted accepted = processTransaction(request);
+        journal.awaitDurable(accepted.sequence());
+        responseObserver.onNext(accepted.response());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void sendTransactionBatch(Iso8583Proto.TransactionBatchRequest request,
+                                     StreamObserver<Iso8583Proto.TransactionBatchResponse> responseObserver) {
+        System.out.println("📦 gRPC batch of " + request.getTransactionsCount() + " transactions");
+        Iso8583Proto.TransactionBatchResponse.Builder batch = Iso8583Proto.TransactionBatchResponse.newBuilder();
+        int accepted = 0;
+        long last = -1;
+        for (Iso8583Proto.TransactionRequest transaction : request.getTransactionsList()) {
+            Accepted result = processTransaction(transaction);
+            if (result.response().getSuccess()) accepted++;
+            last = Math.max(last, result.sequence());
+            batch.addResults(result.response());
+        }
+        // One fsync wait for the whole batch: the last BROADCAST being durable covers every earlier one
+        journal.awaitDurable(last);
+        responseObserver.onNext(batch
+                .setAccepted(accepted)
+                .setRejected(request.getTransactionsCount() - accepted)
+                .build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<Iso8583Proto.TransactionRequest> streamTransactions(
+            StreamObserver<Iso8583Proto.TransactionAck> responseObserver) {
+        ServerCallStreamObserver<Iso8583Proto.TransactionAck> serverObserver =
+                (ServerCallStreamObserver<Iso8583Proto.TransactionAck>) responseObserver;
+
+        // Manual flow control: only pull more requests while the ack side can be written,
+        // so a fast producer is throttled by the HTTP/2 window instead of buffering in memory.
+        // Requested-but-not-received messages and messages awaiting their fsync are counted and
+        // topped up to stream-prefetch, never beyond.
+        serverObserver.disableAutoRequest();
+        AtomicInteger outstanding = new AtomicInteger();
+        AtomicInteger unacknowledged = new AtomicInteger();
+        Runnable topUp = () -> {
+            synchronized (serverObserver) {
+                int missing = streamPrefetch - outstanding.get() - unacknowledged.get();
+                if (missing > 0 && serverObserver.isReady()) {
+                    outstanding.addAndGet(missing);
+                    serverObserver.request(missing);
+                }
+            }
+        };
+        serverObserver.setOnReadyHandler(topUp);
+
+        return new StreamObserver<>() {
+            // Acks are chained so they go out one at a time and in request order, each once its
+            // BROADCAST is durable; the gRPC thread never waits for the fsync
+            private CompletableFuture<Void> lastAck = CompletableFuture.completedFuture(null);
+
+            @Override
+            public void onNext(Iso8583Proto.TransactionRequest request) {
+                outstanding.decrementAndGet();
+                unacknowledged.incrementAndGet();
+                Accepted accepted = processTransaction(request);
+                Iso8583Proto.TransactionAck ack = Iso8583Proto.TransactionAck.newBuilder()
+                        .setSequence(request.getSequence())
+                        .setSuccess(accepted.response().getSuccess())
+                        .setMessage(accepted.response().getMessage())
+                        .build();
+                lastAck = lastAck.thenCombine(journal.whenDurable(accepted.sequence()), (previous, durable) -> {
+                    serverObserver.onNext(ack);
+                    unacknowledged.decrementAndGet();
+                    topUp.run();
+                    return null;
+                });
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                System.err.println("❌ gRPC stream error: " + t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                System.out.println("📭 gRPC transaction stream completed");
+                lastAck.thenRun(serverObserver::onCompleted);
+            }
+        };
+    }
+
+    @Override
+    public void authorizeTransaction(Iso8583Proto.TransactionRequest request,
+                                     StreamObserver<Iso8583Proto.AuthorizationResult> responseObserver) {
+        long startNanos = System.nanoTime();
+        ServerCallStreamObserver<Iso8583Proto.AuthorizationResult> serverObserver =
+                (ServerCallStreamObserver<Iso8583Proto.AuthorizationResult>) responseObserver;
+        String message;
+        Iso8583Message parsedMsg;
         try {
-            String message = request.getMessage();
-            String clientId = request.getClientId();
-            
-            System.out.println("📥 gRPC received from " + clientId + ": " + message);
-            
-            // Parse and validate message
-            Iso8583Message parsedMsg = Iso8583Parser.parseMessage(message);
-            ValidationResult validation = Iso8583Parser.validateMessage(parsedMsg);
+            message = wireMessage(request);
+            parsedMsg = validatedMessage(request, message);
+            if (!"0200".equals(parsedMsg.getMti()) || parsedMsg.getField(37) == null) {
+                throw new RuntimeException("Authorization requires a 0200 with field 37");
+            }
+        } catch (Exception e) {
+            answerError(serverObserver, e, startNanos);
+            return;
+        }
+
+        // The call stays open without holding a thread; the 0210 handler or the timer completes it.
+        // A repeat of a 0200 already sent waits on the original's 0210 instead of sending it again.
+        String rrn = parsedMsg.getField(37);
+        String key = DuplicateFilter.key(rrn, parsedMsg.getField(11));
+        CompletableFuture<Iso8583Message> claim = new CompletableFuture<>();
+        CompletableFuture<Iso8583Message> response = duplicateFilter.claim(key, claim);
+        CompletableFuture<Void> durable = CompletableFuture.completedFuture(null);
+        if (response != claim) {
+            System.out.println("♻️ Duplicate 0200 for field37 " + rrn + ", awaiting the original's 0210");
+        } else {
+            try {
+                journal.append(TransactionJournal.RecordType.RECEIVED, message);
+                response = trackOriginal(key, claim, processor.authorize(parsedMsg, message));
+            } catch (RuntimeException e) {
+                abandon(key, claim);
+                answerError(serverObserver, e, startNanos);
+                return;
+            }
+            durable = journal.whenDurable(journal.append(TransactionJournal.RecordType.BROADCAST, rrn));
+            persistenceService.recordAccepted(parsedMsg, message);
+        }
+        // Same promise as the other entry points: nothing is answered before its BROADCAST is durable
+        response.thenCombine(durable, (authorization, ignored) -> authorization).whenComplete((authorization, error) -> {
+            if (serverObserver.isCancelled()) {
+                return;
+            }
+            serverObserver.onNext(authorizationResult(rrn, authorization, startNanos));
+            serverObserver.onCompleted();
+        });
+    }
+
+    private static void answerError(StreamObserver<Iso8583Proto.AuthorizationResult> responseObserver,
+                                    Exception e, long startNanos) {
+        System.err.println("❌ gRPC authorization error: " + e.getMessage());
+        responseObserver.onNext(Iso8583Proto.AuthorizationResult.newBuilder()
+                .setMessage("Error: " + e.getMessage())
+                .setLatencyMicros((System.nanoTime() - startNanos) / 1000)
+                .build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Hand the 0210 of a claimed 0200 to its duplicates. A timed-out original is released,
+     * so the acquirer's retry is sent again instead of being answered with the timeout.
+     */
+    private CompletableFuture<Iso8583Message> trackOriginal(String key, CompletableFuture<Iso8583Message> claim,
+                                                            CompletableFuture<Iso8583Message> response) {
+        response.whenComplete((authorization, error) -> {
+            if (authorization == null) duplicateFilter.release(key, claim);
+            claim.complete(authorization);
+        });
+        return response;
+    }
+
+    // Never sent: forget the claim and let duplicates already waiting on it see a timeout
+    private void abandon(String key, CompletableFuture<Iso8583Message> claim) {
+        duplicateFilter.release(key, claim);
+        claim.complete(null);
+    }
+
+    private static Iso8583Proto.AuthorizationResult authorizationResult(String rrn, Iso8583Message response, long startNanos) {
+        Iso8583Proto.AuthorizationResult.Builder result = Iso8583Proto.AuthorizationResult.newBuilder()
+                .setRrn(rrn)
+                .setLatencyMicros((System.nanoTime() - startNanos) / 1000);
+        if (response == null) {
+            return result.setTimedOut(true)
+                    .setMessage("No 0210 received within the transaction timeout")
+                    .build();
+        }
+        return result.setSuccess(true)
+                .setResponseCode(valueOrEmpty(response.getField(39)))
+                .setApprovalCode(valueOrEmpty(response.getField(38)))
+                .setMessage(response.toString())
+                .build();
+    }
+
+    private static String valueOrEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    // A processed request's answer and the journal sequence that must be durable before it is sent
+    private record Accepted(Iso8583Proto.TransactionResponse response, long sequence) {
+        static Accepted of(Iso8583Proto.TransactionResponse response) {
+            return new Accepted(response, -1);
+        }
+    }
+
+    /**
+     * Validate, journal and send one request. The caller answers once the returned sequence is
+     * durable (see {@link TransactionJournal#whenDurable}), so several can share one fsync.
+     */
+    private Accepted processTransaction(Iso8583Proto.TransactionRequest request) {
+        String key = null;
+        CompletableFuture<Iso8583Message> claim = null;
+        boolean sent = false;
+        try {
+            String message = wireMessage(request);
+            Iso8583Message parsedMsg = validatedMessage(request, message);
+            String rrn = parsedMsg.getField(37);
             
-            if (!validation.isValid()) {
-                throw new RuntimeException("Invalid message: " + String.join(", ", validation.getErrors()));
+            // A retried 0200 is acknowledged again but not broadcast, journaled or persisted twice
+            key = "0200".equals(parsedMsg.getMti()) ? DuplicateFilter.key(rrn, parsedMsg.getField(11)) : null;
+            claim = key != null ? new CompletableFuture<>() : null;
+            if (claim != null && duplicateFilter.claim(key, claim) != claim) {
+                System.out.println("♻️ Duplicate 0200 for field37 " + rrn + ", not sent again");
+                return Accepted.of(Iso8583Proto.TransactionResponse.newBuilder()
+                        .setSuccess(true)
+                        .setMessage("Duplicate of a transaction already sent to clients")
+                        .build());
             }
+            journal.append(TransactionJournal.RecordType.RECEIVED, message);
             
-            // Save transaction to database if enabled
-            Long transactionId = null;
-            if (databaseWriteEnabled && transactionRepository != null && eventRepository != null) {
-                Transaction transaction = saveTransaction(parsedMsg);
-                transactionId = transaction.getId();
-                saveTransactionEvent(transactionId, "RECEIVED", message);
+            // Send message to all connected socket clients (non-blocking Netty writes)
+            if (claim != null) {
+                trackOriginal(key, claim, processor.authorize(parsedMsg, message));
+            } else {
+                Iso8583Server.broadcastToClients(parsedMsg, message);
             }
+            sent = true;
             
-            // Send message to all connected socket clients
-            Iso8583Server.broadcastToClients(message);
+            // Acknowledged only once the journal holds it (and, with fsync groups, once it is on disk)
+            long broadcast = journal.append(TransactionJournal.RecordType.BROADCAST, rrn != null ? rrn : "");
             
-            // Log broadcast event if database enabled
-            if (databaseWriteEnabled && transactionId != null && eventRepository != null) {
-                saveTransactionEvent(transactionId, "BROADCAST", message);
-            }
+            // Persistence and event logging happen on the bounded async stage
+            persistenceService.recordAccepted(parsedMsg, message);
             
-            Iso8583Proto.TransactionResponse response = Iso8583Proto.TransactionResponse.newBuilder()
+            return new Accepted(Iso8583Proto.TransactionResponse.newBuilder()
                     .setSuccess(true)
                     .setMessage("Transaction sent to clients")
-                    .build();
-            
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
+                    .build(), broadcast);
             
         } catch (Exception e) {
             System.err.println("❌ gRPC error: " + e.getMessage());
+            if (claim != null && !sent) abandon(key, claim);
             
-            Iso8583Proto.TransactionResponse response = Iso8583Proto.TransactionResponse.newBuilder()
+            return Accepted.of(Iso8583Proto.TransactionResponse.newBuilder()
                     .setSuccess(false)
                     .setMessage("Error: " + e.getMessage())
-                    .build();
-            
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
+                    .build());
         }
     }
-    
-    private Transaction saveTransaction(Iso8583Message msg) {
-        String sourceNumber = msg.getField(2); // PAN
-        String targetNumber = msg.getField(42); // Card acceptor ID
-        String amountStr = msg.getField(4); // Transaction amount
-        String stan = msg.getField(11); // STAN
-        String mti = msg.getMti();
+
+    private static String wireMessage(Iso8583Proto.TransactionRequest request) {
+        // Legacy pipe-delimited text unless the typed message is set
+        return request.hasIso() ? IsoMessageMapper.toWire(request.getIso()) : request.getMessage();
+    }
+
+    private static Iso8583Message validatedMessage(Iso8583Proto.TransactionRequest request, String message) {
+        // Typed message: map fields directly, no text parsing
+        Iso8583Message parsedMsg = request.hasIso()
+                ? IsoMessageMapper.toModel(request.getIso())
+                : Iso8583Parser.parseMessage(message);
+        System.out.println("📥 gRPC received from " + request.getClientId() + ": " + message);
         
-        BigDecimal amount = BigDecimal.ZERO;
-        if (amountStr != null && !amountStr.isEmpty()) {
-            try {
-                amount = new BigDecimal(amountStr).divide(new BigDecimal(100)); // Convert from cents
-            } catch (NumberFormatException e) {
-                System.err.println("Invalid amount format: " + amountStr);
-            }
+        ValidationResult validation = Iso8583Parser.validateMessage(parsedMsg);
+        if (!validation.isValid()) {
+            throw new RuntimeException("Invalid message: " + String.join(", ", validation.getErrors()));
         }
-        
-        Transaction transaction = new Transaction(
-            sourceNumber != null ? sourceNumber : "UNKNOWN",
-            targetNumber != null ? targetNumber : "UNKNOWN",
-            "RECEIVED",
-            amount,
-            stan,
-            mti
-        );
-        
-        return transactionRepository.save(transaction);
-    }
-    
-    private void saveTransactionEvent(Long transactionId, String eventType, String isoMessage) {
-        TransactionEvent event = new TransactionEvent(transactionId, eventType, isoMessage);
-        eventRepository.save(event);
+        return parsedMsg;
     }
-}
\ No newline at end of file
+}
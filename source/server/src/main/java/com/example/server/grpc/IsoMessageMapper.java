@@ -0,0 +1,62 @@
+package com.example.server.grpc;
+
+import com.example.common.model.Iso8583Message;
+import com.example.simulator.grpc.Iso8583Proto;
+import com.google.protobuf.ByteString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Converts the typed protobuf IsoMessage straight into the model and the socket wire text,
+ * without building and re-parsing the pipe-delimited string.
+ */
+public final class IsoMessageMapper {
+
+    private IsoMessageMapper() {}
+
+    public static String mti(Iso8583Proto.IsoMessage iso) {
+        int mti = iso.getMti();
+        char[] digits = {'0', '0', '0', '0'};
+        for (int i = 3; i >= 0 && mti > 0; i--, mti /= 10) {
+            digits[i] = (char) ('0' + mti % 10);
+        }
+        return new String(digits);
+    }
+
+    public static Iso8583Message toModel(Iso8583Proto.IsoMessage iso) {
+        Iso8583Message msg = new Iso8583Message();
+        msg.setMti(mti(iso));
+        for (Map.Entry<Integer, ByteString> field : iso.getFieldsMap().entrySet()) {
+            msg.addField(field.getKey(), field.getValue().toString(StandardCharsets.ISO_8859_1));
+        }
+        return msg;
+    }
+
+    /**
+     * Encode as the socket text format ("0200|2=...|3=...") in ascending field order.
+     */
+    public static String toWire(Iso8583Proto.IsoMessage iso) {
+        Map<Integer, ByteString> fields = iso.getFieldsMap();
+        int[] numbers = new int[fields.size()];
+        int size = 4;
+        int i = 0;
+        for (Map.Entry<Integer, ByteString> field : fields.entrySet()) {
+            numbers[i++] = field.getKey();
+            size += field.getValue().size() + 5;
+        }
+        Arrays.sort(numbers);
+
+        StringBuilder sb = new StringBuilder(size);
+        sb.append(mti(iso));
+        for (int number : numbers) {
+            sb.append('|').append(number).append('=');
+            ByteString value = fields.get(number);
+            for (int b = 0; b < value.size(); b++) {
+                sb.append((char) (value.byteAt(b) & 0xff));
+            }
+        }
+        return sb.toString();
+    }
+}
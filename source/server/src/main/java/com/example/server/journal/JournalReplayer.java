@@ -0,0 +1,185 @@
+package com.example.server.journal;
+
+import com.example.common.parser.Iso8583Parser;
+import com.example.server.cluster.ResponseCorrelator;
+import com.example.server.repository.TransactionRecord;
+import com.example.server.service.TransactionPersistenceService;
+import com.example.server.service.TransactionTimer;
+import com.example.server.stip.AdviceQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds state from the previous run's journal before traffic is accepted: transactions that were
+ * broadcast but never committed are queued for persistence again, and those still inside their timeout
+ * get their timer back, and stand-in advices authorize has not acknowledged are queued again. Anything still
+ * open is re-appended to the new segment before the old ones are deleted.
+ */
+@Component
+public class JournalReplayer {
+
+    private final TransactionJournal journal;
+    private final ResponseCorrelator responseCorrelator;
+    private final TransactionPersistenceService persistenceService;
+    private final long timeoutMillis;
+    private AdviceQueue adviceQueue;
+
+    public JournalReplayer(TransactionJournal journal, ResponseCorrelator responseCorrelator,
+                           TransactionPersistenceService persistenceService, TransactionTimer transactionTimer) {
+        this.journal = journal;
+        this.responseCorrelator = responseCorrelator;
+        this.persistenceService = persistenceService;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(transactionTimer.getTimeoutSeconds());
+        if (journal.isEnabled()) {
+            persistenceService.setPersistedListener(this::journalPersisted);
+            // Segments are kept until what a replay would carry forward has settled, by the same rules
+            journal.setSettlement(persistenceService::isRunning, timeoutMillis);
+        }
+    }
+
+    @Autowired(required = false)
+    public void setAdviceQueue(AdviceQueue adviceQueue) {
+        this.adviceQueue = adviceQueue;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void replay() throws IOException {
+        List<Path> segments = journal.getRecoveredSegments();
+        if (segments.isEmpty()) {
+            return;
+        }
+        // Restored timers may belong to another replica
+        try {
+            responseCorrelator.start();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<String, OpenTransaction> transactions = new LinkedHashMap<>();
+        Map<String, TransactionJournal.Entry> advices = new LinkedHashMap<>();
+        for (Path segment : segments) {
+            for (TransactionJournal.Entry entry : TransactionJournal.read(segment)) {
+                apply(transactions, advices, entry);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        int backfilled = 0;
+        int timers = 0;
+        for (Map.Entry<String, OpenTransaction> open : transactions.entrySet()) {
+            String rrn = open.getKey();
+            OpenTransaction transaction = open.getValue();
+            if (!transaction.broadcast) {
+                continue; // Never acknowledged to the gRPC caller
+            }
+            boolean backfill = !transaction.persisted && persistenceService.isRunning();
+            long remaining = transaction.receivedAt + timeoutMillis - now;
+            boolean pending = transaction.response == null && remaining > 0;
+            if (!backfill && !pending) {
+                continue;
+            }
+
+            // Carry it forward so a second crash before it settles does not lose it
+            journal.append(TransactionJournal.RecordType.RECEIVED, transaction.message, transaction.receivedAt);
+            journal.append(TransactionJournal.RecordType.BROADCAST, rrn, transaction.receivedAt);
+            if (transaction.response != null) {
+                journal.append(TransactionJournal.RecordType.RESPONDED, transaction.response, transaction.respondedAt);
+            }
+            if (backfill) {
+                persistenceService.recordAccepted(Iso8583Parser.parseMessage(transaction.message), transaction.message,
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(transaction.receivedAt), ZoneId.systemDefault()));
+                backfilled++;
+            }
+            if (pending) {
+                responseCorrelator.restoreTimer(rrn, remaining);
+                timers++;
+            }
+        }
+        int requeued = 0;
+        if (adviceQueue != null) {
+            for (TransactionJournal.Entry advice : advices.values()) {
+                journal.append(TransactionJournal.RecordType.ADVICE, advice.getPayload(), advice.getTimestamp());
+                adviceQueue.restore(advice.getPayload());
+                requeued++;
+            }
+        }
+        journal.force();
+        journal.deleteRecoveredSegments();
+        System.out.println("📒 Journal replay: " + transactions.size() + " transactions in " + segments.size()
+                + " segments, " + timers + " timers restored, " + backfilled + " queued for persistence, "
+                + requeued + " stand-in advices queued");
+    }
+
+    private static void apply(Map<String, OpenTransaction> transactions, Map<String, TransactionJournal.Entry> advices,
+                              TransactionJournal.Entry entry) {
+        switch (entry.getType()) {
+            case RECEIVED -> {
+                String rrn = Iso8583Parser.parseMessage(entry.getPayload()).getField(37);
+                if (rrn != null) transactions.put(rrn, new OpenTransaction(entry.getPayload(), entry.getTimestamp()));
+            }
+            case BROADCAST -> {
+                OpenTransaction transaction = transactions.get(entry.getPayload());
+                if (transaction != null) transaction.broadcast = true;
+            }
+            case RESPONDED -> {
+                String rrn = Iso8583Parser.parseMessage(entry.getPayload()).getField(37);
+                OpenTransaction transaction = rrn == null ? null : transactions.get(rrn);
+                if (transaction != null) {
+                    transaction.response = entry.getPayload();
+                    transaction.respondedAt = entry.getTimestamp();
+                }
+            }
+            case PERSISTED -> {
+                for (String rrn : entry.getPayload().split(",")) {
+                    OpenTransaction transaction = transactions.get(rrn);
+                    if (transaction != null) transaction.persisted = true;
+                }
+            }
+            case ADVICE -> {
+                String rrn = Iso8583Parser.parseMessage(entry.getPayload()).getField(37);
+                if (rrn != null) advices.put(rrn, entry);
+            }
+            case ADVISED -> advices.remove(entry.getPayload());
+        }
+    }
+
+    private void journalPersisted(List<TransactionRecord> batch) {
+        StringJoiner rrns = new StringJoiner(",");
+        for (TransactionRecord record : batch) {
+            if (record.getRrn() != null) rrns.add(record.getRrn());
+        }
+        if (rrns.length() > 0) {
+            journal.append(TransactionJournal.RecordType.PERSISTED, rrns.toString());
+        }
+    }
+
+    private static class OpenTransaction {
+        private final String message;
+        private final long receivedAt;
+        private boolean broadcast;
+        private boolean persisted;
+        private String response;
+        private long respondedAt;
+
+        OpenTransaction(String message, long receivedAt) {
+            this.message = message;
+            this.receivedAt = receivedAt;
+        }
+    }
+}
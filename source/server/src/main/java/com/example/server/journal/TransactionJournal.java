@@ -0,0 +1,566 @@
+package com.example.server.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead journal of accepted transactions, kept in fixed-size segment files
+ * written through a {@link MappedByteBuffer}.
+ *
+ * Record layout: int payload length, int CRC32C of the rest, byte type, long epoch millis, payload (UTF-8).
+ * A zero length (the pre-zeroed tail of a segment) or a CRC mismatch (a torn write) ends a segment.
+ *
+ * Appends land in the page cache, so they survive a JVM crash as soon as {@link #append} returns.
+ * With {@code fsync-group-size > 0}, {@link #awaitDurable} also waits until the record has been
+ * forced to disk, and {@link #whenDurable} completes once it has without holding the caller's thread;
+ * one force covers every record appended since the previous one (group commit), and a group reaching
+ * {@code fsync-group-size} records starts a force early.
+ *
+ * Segments beyond {@code retained-segments} are deleted oldest first, but only once nothing in them is
+ * still needed by a replay: every transaction received there PERSISTED (or settled, see
+ * {@link #setSettlement}) and every advice ADVISED. When the oldest segment is still pinned the journal
+ * keeps rolling for settlement records but refuses new RECEIVED records until it can be released.
+ */
+@Component
+public class TransactionJournal {
+
+    public enum RecordType {
+        RECEIVED,   // payload: the accepted 0200
+        BROADCAST,  // payload: field 37 of a 0200 written to the socket clients
+        RESPONDED,  // payload: the 0210
+        PERSISTED,  // payload: comma-separated field 37 values committed to the database
+        ADVICE,     // payload: a 0220 queued for a transaction decided in stand-in
+        ADVISED;    // payload: field 37 of an advice acknowledged by authorize
+
+        static RecordType of(byte code) {
+            return code >= 0 && code < values().length ? values()[code] : null;
+        }
+    }
+
+    public static class Entry {
+        private final RecordType type;
+        private final long timestamp;
+        private final String payload;
+
+        Entry(RecordType type, long timestamp, String payload) {
+            this.type = type;
+            this.timestamp = timestamp;
+            this.payload = payload;
+        }
+
+        public RecordType getType() { return type; }
+        public long getTimestamp() { return timestamp; }
+        public String getPayload() { return payload; }
+    }
+
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int fsyncGroupSize;
+    private final long fsyncIntervalMs;
+    private final int retainedSegments;
+
+    private final Object appendLock = new Object();
+    private final Object forceLock = new Object();
+    private final Object durableSignal = new Object();
+    private final AtomicLong durableSequence = new AtomicLong();
+    private final AtomicInteger waiters = new AtomicInteger();
+    // whenDurable callers by sequence, completed by the flusher once durableSequence passes them
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Void>> durableCallbacks = new ConcurrentSkipListMap<>();
+    private final Deque<Path> segments = new ArrayDeque<>();
+    private final List<Path> recoveredSegments = new ArrayList<>();
+    private final CRC32C crc = new CRC32C();
+
+    // Guarded by appendLock
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long segmentIndex;
+    private volatile long sequence;
+    private int forcedPosition;
+    // What each segment still holds for a replay, by field 37; open transactions in receive order
+    private final Map<String, OpenTransaction> openTransactions = new LinkedHashMap<>();
+    private final Map<String, Long> openAdvices = new HashMap<>();
+    private final Map<Long, Integer> pinned = new HashMap<>();
+    private BooleanSupplier persistenceRunning = () -> true;
+    private long settleAfterMillis = Long.MAX_VALUE;
+    private long releasedAt;
+
+    private volatile boolean full;
+    private volatile boolean open;
+    private Thread flusher;
+
+    public TransactionJournal(@Value("${iso8583.journal.enabled:false}") boolean enabled,
+                              @Value("${iso8583.journal.directory:journal}") String directory,
+                              @Value("${iso8583.journal.segment-size-mb:64}") int segmentSizeMb,
+                              @Value("${iso8583.journal.fsync-group-size:0}") int fsyncGroupSize,
+                              @Value("${iso8583.journal.fsync-interval-ms:5}") long fsyncIntervalMs,
+                              @Value("${iso8583.journal.retained-segments:16}") int retainedSegments) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.fsyncGroupSize = fsyncGroupSize;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.retainedSegments = retainedSegments;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled || open) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                 .sorted()
+                 .forEach(recoveredSegments::add);
+        }
+        if (!recoveredSegments.isEmpty()) {
+            segmentIndex = indexOf(recoveredSegments.get(recoveredSegments.size() - 1));
+        }
+        synchronized (appendLock) {
+            roll();
+        }
+        open = true;
+
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        System.out.println("📒 Journal open in " + directory.toAbsolutePath() + " ("
+                + recoveredSegments.size() + " segments to recover, fsync group " + fsyncGroupSize + ")");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * How a replay decides a transaction is settled without a PERSISTED record: while
+     * {@code persistenceRunning} is false, once it has its 0210 or is older than {@code timeoutMillis}.
+     * Without this, only PERSISTED settles a transaction.
+     */
+    public void setSettlement(BooleanSupplier persistenceRunning, long timeoutMillis) {
+        synchronized (appendLock) {
+            this.persistenceRunning = persistenceRunning;
+            this.settleAfterMillis = timeoutMillis;
+        }
+    }
+
+    /**
+     * True while the oldest segment beyond {@code retained-segments} still holds open transactions or
+     * advices, and new transactions are refused.
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    public int getSegmentCount() {
+        synchronized (appendLock) {
+            return segments.size();
+        }
+    }
+
+    /**
+     * Append one record and return its sequence number, or -1 when the journal is disabled.
+     */
+    public long append(RecordType type, String payload) {
+        return append(type, payload, System.currentTimeMillis());
+    }
+
+    public long append(RecordType type, String payload, long timestamp) {
+        if (!open) {
+            return -1;
+        }
+        if (full && type == RecordType.RECEIVED) {
+            throw new IllegalStateException("Journal full: " + retainedSegments
+                    + " segments hold transactions or advices not yet settled");
+        }
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        int recordSize = HEADER_SIZE + bytes.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + recordSize + " bytes exceeds the segment size");
+        }
+        synchronized (appendLock) {
+            if (buffer == null) {
+                return -1;
+            }
+            if (buffer.remaining() < recordSize) {
+                try {
+                    roll();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to roll journal segment", e);
+                }
+            }
+            crc.reset();
+            crc.update(type.ordinal());
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                crc.update((int) (timestamp >>> shift));
+            }
+            crc.update(bytes);
+            buffer.putInt(bytes.length)
+                  .putInt((int) crc.getValue())
+                  .put((byte) type.ordinal())
+                  .putLong(timestamp)
+                  .put(bytes);
+            track(type, payload, timestamp);
+            long appended = ++sequence;
+            if (fsyncGroupSize > 0 && appended - durableSequence.get() >= fsyncGroupSize) {
+                // A full group: wake the flusher instead of forcing under the append lock
+                synchronized (durableSignal) {
+                    durableSignal.notifyAll();
+                }
+            }
+            return appended;
+        }
+    }
+
+    /**
+     * Block until the record with {@code sequence} is on disk. No-op unless fsync groups are enabled.
+     */
+    public void awaitDurable(long sequence) {
+        if (fsyncGroupSize <= 0 || sequence <= 0) {
+            return;
+        }
+        if (durableSequence.get() >= sequence) {
+            return;
+        }
+        waiters.incrementAndGet();
+        try {
+            synchronized (durableSignal) {
+                durableSignal.notifyAll(); // wake the flusher
+                while (open && durableSequence.get() < sequence) {
+                    durableSignal.wait(fsyncIntervalMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Completes once the record with {@code sequence} is on disk, on the flusher thread unless it
+     * already is. Completed at once unless fsync groups are enabled.
+     */
+    public CompletableFuture<Void> whenDurable(long sequence) {
+        if (fsyncGroupSize <= 0 || sequence <= 0 || durableSequence.get() >= sequence) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> durable = durableCallbacks.computeIfAbsent(sequence, s -> new CompletableFuture<>());
+        if (!open || durableSequence.get() >= sequence) {
+            // Forced (or closed) between the check and the registration
+            completeDurable();
+        } else {
+            synchronized (durableSignal) {
+                durableSignal.notifyAll(); // wake the flusher
+            }
+        }
+        return durable;
+    }
+
+    /**
+     * Force every record appended so far to disk.
+     */
+    public void force() {
+        synchronized (forceLock) {
+            MappedByteBuffer target;
+            int from;
+            int to;
+            long upTo;
+            synchronized (appendLock) {
+                if (buffer == null) return;
+                target = buffer;
+                from = forcedPosition;
+                to = buffer.position();
+                upTo = sequence;
+                forcedPosition = to;
+            }
+            if (to > from) {
+                target.force(from, to - from);
+            }
+            durableSequence.accumulateAndGet(upTo, Math::max);
+        }
+        synchronized (durableSignal) {
+            durableSignal.notifyAll();
+        }
+        completeDurable();
+    }
+
+    // Complete whenDurable callers now covered by durableSequence, or all of them once closed
+    private void completeDurable() {
+        Map.Entry<Long, CompletableFuture<Void>> head;
+        while ((head = durableCallbacks.firstEntry()) != null && (!open || head.getKey() <= durableSequence.get())) {
+            if (durableCallbacks.remove(head.getKey(), head.getValue())) {
+                head.getValue().complete(null);
+            }
+        }
+    }
+
+    /**
+     * Segments left by the previous run, oldest first. Read them with {@link #read(Path)}.
+     */
+    public List<Path> getRecoveredSegments() {
+        return List.copyOf(recoveredSegments);
+    }
+
+    /**
+     * Drop the previous run's segments once their open transactions have been re-appended.
+     */
+    public void deleteRecoveredSegments() throws IOException {
+        for (Path segment : recoveredSegments) {
+            Files.deleteIfExists(segment);
+        }
+        recoveredSegments.clear();
+    }
+
+    public static List<Entry> read(Path segment) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer in = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            CRC32C check = new CRC32C();
+            while (in.remaining() >= HEADER_SIZE) {
+                int length = in.getInt();
+                if (length <= 0 || length > in.remaining() - (HEADER_SIZE - 4)) {
+                    break;
+                }
+                int expected = in.getInt();
+                byte code = in.get();
+                long timestamp = in.getLong();
+                byte[] payload = new byte[length];
+                in.get(payload);
+
+                check.reset();
+                check.update(code);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    check.update((int) (timestamp >>> shift));
+                }
+                check.update(payload);
+                RecordType type = RecordType.of(code);
+                if ((int) check.getValue() != expected || type == null) {
+                    System.err.println("⚠️ Torn journal record in " + segment.getFileName() + ", ignoring the rest");
+                    break;
+                }
+                entries.add(new Entry(type, timestamp, new String(payload, StandardCharsets.UTF_8)));
+            }
+        }
+        return entries;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        force();
+        open = false;
+        flusher.interrupt();
+        synchronized (appendLock) {
+            channel.close();
+            channel = null;
+            buffer = null;
+        }
+        synchronized (durableSignal) {
+            durableSignal.notifyAll();
+        }
+        completeDurable();
+    }
+
+    /**
+     * Group commit: while callers are waiting, force back to back so every record appended
+     * during one force is covered by the next; otherwise force every {@code fsync-interval-ms}.
+     */
+    private void flushLoop() {
+        while (open) {
+            // Covers callers registered after a roll advanced durableSequence without a force
+            completeDurable();
+            if ((waiters.get() == 0 && durableCallbacks.isEmpty()) || sequence == durableSequence.get()) {
+                try {
+                    synchronized (durableSignal) {
+                        durableSignal.wait(fsyncIntervalMs);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            if (open && sequence > durableSequence.get()) {
+                force();
+            }
+            if (full && System.currentTimeMillis() - releasedAt >= 1000) {
+                synchronized (appendLock) {
+                    try {
+                        if (buffer != null) release();
+                    } catch (IOException e) {
+                        System.err.println("❌ Journal segment release failed: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    // Caller holds appendLock
+    private void roll() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            durableSequence.accumulateAndGet(sequence, Math::max);
+            channel.close();
+        }
+        Path segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, ++segmentIndex, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        forcedPosition = 0;
+        segments.addLast(segment);
+        release();
+    }
+
+    // Caller holds appendLock. Delete the oldest segments beyond the retention that nothing pins
+    private void release() throws IOException {
+        releasedAt = System.currentTimeMillis();
+        if (segments.size() > retainedSegments) {
+            settle(releasedAt);
+        }
+        while (segments.size() > retainedSegments && !pinned.containsKey(indexOf(segments.peekFirst()))) {
+            Files.deleteIfExists(segments.removeFirst());
+        }
+        boolean wasFull = full;
+        full = segments.size() > retainedSegments;
+        if (full && !wasFull) {
+            System.err.println("🚨 Journal full: " + segments.getFirst().getFileName() + " still holds "
+                    + pinned.getOrDefault(indexOf(segments.getFirst()), 0)
+                    + " open transactions or advices; refusing new transactions until they settle");
+        } else if (wasFull && !full) {
+            System.out.println("📒 Journal segments released, accepting transactions again");
+        }
+    }
+
+    // Caller holds appendLock. Keep per-segment counts of what a replay would still carry forward
+    private void track(RecordType type, String payload, long timestamp) {
+        switch (type) {
+            case RECEIVED -> {
+                String rrn = field(payload, 37);
+                if (rrn != null) {
+                    // Remove first so a re-received transaction moves to the end of the receive order
+                    unpin(openTransactions.remove(rrn));
+                    openTransactions.put(rrn, new OpenTransaction(segmentIndex, timestamp));
+                    pin(segmentIndex);
+                }
+            }
+            case BROADCAST -> {
+                OpenTransaction transaction = openTransactions.get(payload);
+                if (transaction != null) transaction.broadcast = true;
+            }
+            case RESPONDED -> {
+                // Answered: a replay only needs it to backfill the database
+                String rrn = field(payload, 37);
+                if (rrn != null && !persistenceRunning.getAsBoolean()) {
+                    unpin(openTransactions.remove(rrn));
+                }
+            }
+            case PERSISTED -> {
+                for (String rrn : payload.split(",")) {
+                    unpin(openTransactions.remove(rrn));
+                }
+            }
+            case ADVICE -> {
+                String rrn = field(payload, 37);
+                if (rrn != null) {
+                    Long previous = openAdvices.put(rrn, segmentIndex);
+                    if (previous != null) unpin(previous);
+                    pin(segmentIndex);
+                }
+            }
+            case ADVISED -> {
+                Long segment = openAdvices.remove(payload);
+                if (segment != null) unpin(segment);
+            }
+        }
+    }
+
+    // Caller holds appendLock. Drop transactions a replay would skip, as JournalReplayer decides it.
+    // Only those received before the settle horizon can go (answered ones are dropped on RESPONDED
+    // while persistence is down), so the walk stops at the first younger one instead of visiting
+    // every open transaction under the lock
+    private void settle(long now) {
+        boolean persisting = persistenceRunning.getAsBoolean();
+        Iterator<OpenTransaction> it = openTransactions.values().iterator();
+        while (it.hasNext()) {
+            OpenTransaction transaction = it.next();
+            if (now - transaction.receivedAt < settleAfterMillis) {
+                break;
+            }
+            // Past the horizon a broadcast transaction is only needed to backfill the database
+            if (!transaction.broadcast || !persisting) {
+                it.remove();
+                unpin(transaction.segment);
+            }
+        }
+    }
+
+    private void pin(long segment) {
+        pinned.merge(segment, 1, Integer::sum);
+    }
+
+    private void unpin(OpenTransaction transaction) {
+        if (transaction != null) unpin(transaction.segment);
+    }
+
+    private void unpin(long segment) {
+        pinned.computeIfPresent(segment, (index, count) -> count == 1 ? null : count - 1);
+    }
+
+    // Field value from pipe-delimited text without a full parse
+    private static String field(String message, int field) {
+        String tag = "|" + field + "=";
+        int start = message.indexOf(tag);
+        if (start < 0) return null;
+        start += tag.length();
+        int end = message.indexOf('|', start);
+        return end < 0 ? message.substring(start) : message.substring(start, end);
+    }
+
+    private static long indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static class OpenTransaction {
+        private final long segment;
+        private final long receivedAt;
+        private boolean broadcast;
+
+        OpenTransaction(long segment, long receivedAt) {
+            this.segment = segment;
+            this.receivedAt = receivedAt;
+        }
+    }
+}
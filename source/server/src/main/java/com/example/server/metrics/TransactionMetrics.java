@@ -9,6 +9,7 @@ public class TransactionMetrics {
     
     private final Counter successfulTransactions;
     private final Counter failedTransactions;
+    private final Counter stoodInTransactions;
     
     public TransactionMetrics(MeterRegistry meterRegistry) {
         this.successfulTransactions = Counter.builder("iso8583.transactions.successful")
@@ -18,6 +19,10 @@ public class TransactionMetrics {
         this.failedTransactions = Counter.builder("iso8583.transactions.failed")
                 .description("Number of failed transactions")
                 .register(meterRegistry);
+
+        this.stoodInTransactions = Counter.builder("iso8583.transactions.stood_in")
+                .description("Number of 0200s decided by stand-in processing instead of authorize")
+                .register(meterRegistry);
     }
     
     public void incrementSuccessful() {
@@ -27,4 +32,8 @@ public class TransactionMetrics {
     public void incrementFailed() {
         failedTransactions.increment();
     }
+
+    public void incrementStoodIn() {
+        stoodInTransactions.increment();
+    }
 }
\ No newline at end of file
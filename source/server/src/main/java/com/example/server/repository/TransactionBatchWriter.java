@@ -0,0 +1,163 @@
+package com.example.server.repository;
+
+import com.example.server.entity.TransactionEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts a batch of transactions and their RECEIVED/BROADCAST events in one database
+ * transaction using JDBC batches (rewritten to multi-row INSERTs by the PostgreSQL driver
+ * with reWriteBatchedInserts=true). Ids come from the same pooled sequences as the JPA entities,
+ * so one nextval covers {@code allocationSize} rows.
+ */
+@Repository
+@ConditionalOnProperty(name = "iso8583.database.write.enabled", havingValue = "true")
+public class TransactionBatchWriter {
+
+    public enum Durability {
+        SYNC,   // Commit waits for the WAL flush (default)
+        ASYNC   // synchronous_commit=off: a crash may lose the last few hundred ms of commits, never corrupts
+    }
+
+    public enum EventIngest {
+        INSERT, // Batched INSERT like the transactions rows
+        COPY    // Binary COPY FROM STDIN, for peak event volume (PostgreSQL only)
+    }
+
+    private static final String INSERT_TRANSACTION =
+            "INSERT INTO transactions (id, source_number, target_number, status, amount, transaction_time, update_time, stan, mti, rrn, pan_hash) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_EVENT =
+            "INSERT INTO transaction_events (id, transaction_id, event_type, iso_message, event_time) VALUES (?, ?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+    private final Durability durability;
+    private final EventIngest eventIngest;
+    private final IdBlock transactionIds;
+    private final IdBlock eventIds;
+
+    public TransactionBatchWriter(DataSource dataSource,
+                                  @Value("${iso8583.persistence.durability:SYNC}") Durability durability,
+                                  @Value("${iso8583.persistence.event-ingest:INSERT}") EventIngest eventIngest,
+                                  @Value("${iso8583.persistence.id-allocation-size:1000}") int allocationSize) {
+        this.dataSource = dataSource;
+        this.durability = durability;
+        this.eventIngest = eventIngest;
+        this.transactionIds = new IdBlock("transactions_id_seq", allocationSize);
+        this.eventIds = new IdBlock("transaction_events_id_seq", allocationSize);
+    }
+
+    public void write(List<TransactionRecord> batch) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                if (durability == Durability.ASYNC) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("SET LOCAL synchronous_commit TO OFF");
+                    }
+                }
+                insert(connection, batch);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void insert(Connection connection, List<TransactionRecord> batch) throws SQLException {
+        long[] ids = new long[batch.size()];
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_TRANSACTION)) {
+            for (int i = 0; i < batch.size(); i++) {
+                TransactionRecord record = batch.get(i);
+                Timestamp receivedAt = Timestamp.valueOf(record.getReceivedAt());
+                ids[i] = transactionIds.next(connection);
+                ps.setLong(1, ids[i]);
+                ps.setString(2, record.getSourceNumber());
+                ps.setString(3, record.getTargetNumber());
+                ps.setString(4, "RECEIVED");
+                ps.setBigDecimal(5, record.getAmount());
+                ps.setTimestamp(6, receivedAt);
+                ps.setTimestamp(7, receivedAt);
+                ps.setString(8, record.getStan());
+                ps.setString(9, record.getMti());
+                ps.setString(10, record.getRrn());
+                ps.setString(11, record.getPanHash());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        List<TransactionEvent> events = new ArrayList<>(batch.size() * 2);
+        for (int i = 0; i < batch.size(); i++) {
+            TransactionRecord record = batch.get(i);
+            for (String eventType : new String[] {"RECEIVED", "BROADCAST"}) {
+                TransactionEvent event = new TransactionEvent(ids[i], eventType, record.getIsoMessage());
+                event.setId(eventIds.next(connection));
+                event.setEventTime(record.getReceivedAt());
+                events.add(event);
+            }
+        }
+        if (eventIngest == EventIngest.COPY) {
+            TransactionEventCopy.copyIn(connection, "transaction_events", events);
+        } else {
+            insertEvents(connection, events);
+        }
+    }
+
+    private static void insertEvents(Connection connection, List<TransactionEvent> events) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_EVENT)) {
+            for (TransactionEvent event : events) {
+                ps.setLong(1, event.getId());
+                ps.setLong(2, event.getTransactionId());
+                ps.setString(3, event.getEventType());
+                ps.setString(4, event.getIsoMessage());
+                ps.setTimestamp(5, Timestamp.valueOf(event.getEventTime()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Pooled-lo id range: nextval returns the first id of a block of {@code size} ids,
+     * matching the entities' sequence generators (sequence INCREMENT BY = allocationSize).
+     */
+    private static class IdBlock {
+        private final String sequence;
+        private final int size;
+        private long next;
+        private long limit;
+
+        IdBlock(String sequence, int size) {
+            this.sequence = sequence;
+            this.size = size;
+        }
+
+        synchronized long next(Connection connection) throws SQLException {
+            if (next == limit) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("SELECT nextval('" + sequence + "')")) {
+                    rs.next();
+                    next = rs.getLong(1);
+                    limit = next + size;
+                }
+            }
+            return next++;
+        }
+    }
+}
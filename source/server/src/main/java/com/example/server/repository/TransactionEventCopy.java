@@ -0,0 +1,122 @@
+package com.example.server.repository;
+
+import com.example.server.entity.TransactionEvent;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Streams transaction_events rows to PostgreSQL with binary COPY. Rows are encoded
+ * straight into a reusable buffer and pushed through {@link CopyIn} in chunks,
+ * so no per-row statement, bind or parse happens on either side.
+ */
+public final class TransactionEventCopy {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+    private static final short COLUMNS = 5;
+    // PostgreSQL timestamps count microseconds from 2000-01-01T00:00
+    private static final long PG_EPOCH_SECONDS = 946_684_800L;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private TransactionEventCopy() {}
+
+    public static long copyIn(Connection connection, String table, List<TransactionEvent> events) throws SQLException {
+        return copyIn(connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                "COPY " + table + " (id, transaction_id, event_type, iso_message, event_time) FROM STDIN (FORMAT BINARY)"), events);
+    }
+
+    /**
+     * Write {@code events} to an open COPY and end it; returns the row count the server reports.
+     */
+    static long copyIn(CopyIn copy, List<TransactionEvent> events) throws SQLException {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            buffer.put(SIGNATURE).putInt(0).putInt(0); // flags, header extension length
+            for (TransactionEvent event : events) {
+                buffer = encode(copy, buffer, event);
+            }
+            buffer = ensure(copy, buffer, 2);
+            buffer.putShort((short) -1);
+            copy.writeToCopy(buffer.array(), 0, buffer.position());
+            return copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    /**
+     * Encode one row in PGCOPY binary tuple format; visible for the format test.
+     */
+    static ByteBuffer encode(CopyIn copy, ByteBuffer buffer, TransactionEvent event) throws SQLException {
+        byte[] eventType = bytes(event.getEventType());
+        byte[] isoMessage = bytes(event.getIsoMessage());
+        int rowSize = 2 + (4 + 8) * 3 + 4 + length(eventType) + 4 + length(isoMessage);
+        buffer = ensure(copy, buffer, rowSize);
+
+        buffer.putShort(COLUMNS);
+        putLong(buffer, event.getId());
+        putLong(buffer, event.getTransactionId());
+        putBytes(buffer, eventType);
+        putBytes(buffer, isoMessage);
+        if (event.getEventTime() == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(8).putLong(microsSincePgEpoch(event.getEventTime()));
+        }
+        return buffer;
+    }
+
+    static long microsSincePgEpoch(LocalDateTime time) {
+        return (time.toEpochSecond(ZoneOffset.UTC) - PG_EPOCH_SECONDS) * 1_000_000L + time.getNano() / 1000;
+    }
+
+    private static ByteBuffer ensure(CopyIn copy, ByteBuffer buffer, int needed) throws SQLException {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        if (copy != null && buffer.position() > 0) {
+            copy.writeToCopy(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        // A single row larger than the chunk: grow instead of splitting it
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        return larger.put(buffer);
+    }
+
+    private static void putLong(ByteBuffer buffer, Long value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(8).putLong(value);
+        }
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+}
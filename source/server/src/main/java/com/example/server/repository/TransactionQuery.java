@@ -0,0 +1,85 @@
+package com.example.server.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filter and keyset position for one page of transactions. Rows are ordered by
+ * (transaction_time, id); the next page starts after the last row returned.
+ */
+public class TransactionQuery {
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final String stan;
+    private final String rrn;
+    private final String panHash;
+    private final String merchant;
+    private final LocalDateTime afterTime;
+    private final Long afterId;
+    private final int limit;
+
+    public TransactionQuery(LocalDateTime from, LocalDateTime to, String stan, String rrn, String panHash,
+                            String merchant, String after, int limit) {
+        this.from = from;
+        this.to = to;
+        this.stan = stan;
+        this.rrn = rrn;
+        this.panHash = panHash;
+        this.merchant = merchant;
+        this.limit = limit;
+        if (after == null || after.isEmpty()) {
+            this.afterTime = null;
+            this.afterId = null;
+        } else {
+            // Cursor: "<transactionTime>,<id>" of the last row of the previous page
+            int comma = after.lastIndexOf(',');
+            try {
+                this.afterTime = LocalDateTime.parse(after.substring(0, comma));
+                this.afterId = Long.parseLong(after.substring(comma + 1));
+            } catch (StringIndexOutOfBoundsException | DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + after);
+            }
+        }
+    }
+
+    public String toSql() {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, transaction_time, update_time, status, response_code, amount, stan, rrn, mti, "
+                + "target_number, source_number, pan_hash FROM transactions "
+                + "WHERE transaction_time >= ? AND transaction_time < ?");
+        if (stan != null) sql.append(" AND stan = ?");
+        if (rrn != null) sql.append(" AND rrn = ?");
+        if (panHash != null) sql.append(" AND pan_hash = ?");
+        if (merchant != null) sql.append(" AND target_number = ?");
+        if (afterTime != null) sql.append(" AND (transaction_time, id) > (?, ?)");
+        return sql.append(" ORDER BY transaction_time, id LIMIT ?").toString();
+    }
+
+    public void bind(PreparedStatement ps) throws SQLException {
+        List<Object> values = new ArrayList<>();
+        values.add(Timestamp.valueOf(from));
+        values.add(Timestamp.valueOf(to));
+        if (stan != null) values.add(stan);
+        if (rrn != null) values.add(rrn);
+        if (panHash != null) values.add(panHash);
+        if (merchant != null) values.add(merchant);
+        if (afterTime != null) {
+            values.add(Timestamp.valueOf(afterTime));
+            values.add(afterId);
+        }
+        values.add(limit);
+        for (int i = 0; i < values.size(); i++) {
+            ps.setObject(i + 1, values.get(i));
+        }
+    }
+
+    public static String cursor(LocalDateTime transactionTime, long id) {
+        return transactionTime + "," + id;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.server.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Runs a {@link TransactionQuery} with a server-side cursor (autocommit off + fetch size),
+ * handing rows to the caller one at a time so a page is never held in memory.
+ */
+@Repository
+@ConditionalOnProperty(name = "iso8583.database.write.enabled", havingValue = "true")
+public class TransactionQueryRepository {
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void onRow(ResultSet row) throws SQLException, IOException;
+    }
+
+    private final DataSource dataSource;
+    private final int fetchSize;
+
+    public TransactionQueryRepository(DataSource dataSource,
+                                      @Value("${iso8583.query.fetch-size:500}") int fetchSize) {
+        this.dataSource = dataSource;
+        this.fetchSize = fetchSize;
+    }
+
+    public void stream(TransactionQuery query, RowHandler handler) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement ps = connection.prepareStatement(query.toSql())) {
+                ps.setFetchSize(fetchSize);
+                query.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        handler.onRow(rs);
+                    }
+                }
+                connection.commit();
+            } finally {
+                connection.setReadOnly(false);
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.server.repository;
+
+import com.example.common.model.Iso8583Message;
+import com.example.common.util.PanHash;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One accepted 0200 waiting in the write-behind queue: the transactions row plus
+ * the wire message logged as its RECEIVED and BROADCAST events.
+ */
+public class TransactionRecord {
+
+    private final String sourceNumber;
+    private final String targetNumber;
+    private final BigDecimal amount;
+    private final String stan;
+    private final String rrn;
+    private final String mti;
+    private final String isoMessage;
+    private final LocalDateTime receivedAt;
+
+    public TransactionRecord(String sourceNumber, String targetNumber, BigDecimal amount,
+                             String stan, String rrn, String mti, String isoMessage, LocalDateTime receivedAt) {
+        this.sourceNumber = sourceNumber;
+        this.targetNumber = targetNumber;
+        this.amount = amount;
+        this.stan = stan;
+        this.rrn = rrn;
+        this.mti = mti;
+        this.isoMessage = isoMessage;
+        this.receivedAt = receivedAt;
+    }
+
+    public static TransactionRecord from(Iso8583Message msg, String isoMessage) {
+        return from(msg, isoMessage, LocalDateTime.now());
+    }
+
+    public static TransactionRecord from(Iso8583Message msg, String isoMessage, LocalDateTime receivedAt) {
+        String sourceNumber = msg.getField(2); // PAN
+        String targetNumber = msg.getField(42); // Card acceptor ID
+        String amountStr = msg.getField(4); // Transaction amount
+
+        BigDecimal amount = BigDecimal.ZERO;
+        if (amountStr != null && !amountStr.isEmpty()) {
+            try {
+                amount = new BigDecimal(amountStr).divide(new BigDecimal(100)); // Convert from cents
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid amount format: " + amountStr);
+            }
+        }
+
+        return new TransactionRecord(
+            sourceNumber != null ? sourceNumber : "UNKNOWN",
+            targetNumber != null ? targetNumber : "UNKNOWN",
+            amount,
+            msg.getField(11), // STAN
+            msg.getField(37), // RRN
+            msg.getMti(),
+            isoMessage,
+            receivedAt
+        );
+    }
+
+    public String getSourceNumber() { return sourceNumber; }
+    public String getPanHash() { return "UNKNOWN".equals(sourceNumber) ? null : PanHash.of(sourceNumber); }
+    public String getTargetNumber() { return targetNumber; }
+    public BigDecimal getAmount() { return amount; }
+    public String getStan() { return stan; }
+    public String getRrn() { return rrn; }
+    public String getMti() { return mti; }
+    public String getIsoMessage() { return isoMessage; }
+    public LocalDateTime getReceivedAt() { return receivedAt; }
+}
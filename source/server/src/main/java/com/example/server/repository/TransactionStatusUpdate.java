@@ -0,0 +1,32 @@
+package com.example.server.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Final outcome of a transaction, applied to its transactions row by RRN (and STAN when known).
+ */
+public class TransactionStatusUpdate {
+
+    private final String rrn;
+    private final String stan;
+    private final String status;
+    private final String responseCode;
+    private final LocalDateTime updateTime;
+    private int attempts;
+
+    public TransactionStatusUpdate(String rrn, String stan, String status, String responseCode, LocalDateTime updateTime) {
+        this.rrn = rrn;
+        this.stan = stan;
+        this.status = status;
+        this.responseCode = responseCode;
+        this.updateTime = updateTime;
+    }
+
+    public String getRrn() { return rrn; }
+    public String getStan() { return stan; }
+    public String getStatus() { return status; }
+    public String getResponseCode() { return responseCode; }
+    public LocalDateTime getUpdateTime() { return updateTime; }
+    public int getAttempts() { return attempts; }
+    public int nextAttempt() { return ++attempts; }
+}
@@ -0,0 +1,97 @@
+package com.example.server.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies a batch of status updates with {@code UPDATE ... FROM (VALUES ...)} statements of up to
+ * {@link #MAX_ROWS_PER_STATEMENT} rows and returns the updates that matched no row yet (their insert
+ * may still be in the write-behind queue).
+ */
+@Repository
+@ConditionalOnProperty(name = "iso8583.database.write.enabled", havingValue = "true")
+public class TransactionStatusWriter {
+
+    // Outcomes arrive within the transaction timeout; the margin covers clock skew and journal replays
+    private static final Duration SEARCH_WINDOW = Duration.ofHours(1);
+    // The PostgreSQL protocol caps a statement at 65535 bind parameters: 5 per row plus the window bound
+    static final int MAX_ROWS_PER_STATEMENT = (65_535 - 1) / 5;
+
+    private final DataSource dataSource;
+
+    public TransactionStatusWriter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public List<TransactionStatusUpdate> write(List<TransactionStatusUpdate> updates) throws SQLException {
+        Set<String> matched = new HashSet<>();
+        LocalDateTime since = updates.get(0).getUpdateTime();
+        for (TransactionStatusUpdate update : updates) {
+            if (update.getUpdateTime().isBefore(since)) since = update.getUpdateTime();
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            for (int from = 0; from < updates.size(); from += MAX_ROWS_PER_STATEMENT) {
+                List<TransactionStatusUpdate> chunk = updates.subList(from, Math.min(updates.size(), from + MAX_ROWS_PER_STATEMENT));
+                write(connection, chunk, since, matched);
+            }
+        }
+
+        List<TransactionStatusUpdate> unmatched = new ArrayList<>();
+        for (TransactionStatusUpdate update : updates) {
+            if (!matched.contains(update.getRrn())) unmatched.add(update);
+        }
+        return unmatched;
+    }
+
+    private static void write(Connection connection, List<TransactionStatusUpdate> updates, LocalDateTime since,
+                              Set<String> matched) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(updateSql(updates.size()))) {
+            int index = 1;
+            for (TransactionStatusUpdate update : updates) {
+                ps.setString(index++, update.getRrn());
+                ps.setString(index++, update.getStan());
+                ps.setString(index++, update.getStatus());
+                ps.setString(index++, update.getResponseCode());
+                ps.setTimestamp(index++, Timestamp.valueOf(update.getUpdateTime()));
+            }
+            // Bounds the search to the newest partitions
+            ps.setTimestamp(index, Timestamp.valueOf(since.minus(SEARCH_WINDOW)));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    matched.add(rs.getString(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Only rows still RECEIVED are touched, so replays and RRNs reused on old rows are harmless.
+     */
+    static String updateSql(int rows) {
+        StringBuilder sql = new StringBuilder(
+                "UPDATE transactions t SET status = v.status, response_code = v.response_code, update_time = v.update_time "
+                + "FROM (VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(?, ?, ?, ?, ?::timestamp)");
+        }
+        return sql.append(") AS v(rrn, stan, status, response_code, update_time) ")
+                .append("WHERE t.rrn = v.rrn AND (v.stan IS NULL OR t.stan = v.stan) AND t.status = 'RECEIVED' ")
+                .append("AND t.transaction_time >= ? ")
+                .append("RETURNING t.rrn")
+                .toString();
+    }
+}
@@ -1,10 +1,14 @@
 package com.example.server.server;
 
 import com.example.common.model.Iso8583Message;
+import com.example.common.model.NetworkManagement;
 import com.example.common.parser.Iso8583Parser;
+import com.example.server.cluster.ResponseCorrelator;
+import com.example.server.journal.TransactionJournal;
 import com.example.server.service.Iso8583Processor;
-import com.example.server.service.TransactionTimer;
+import com.example.server.stip.AdviceQueue;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 
 import io.netty.bootstrap.ServerBootstrap;
@@ -22,17 +26,21 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 @Order(1)
 public class Iso8583Server {
-    private static final int PORT = 8583;
+    @Value("${iso8583.server.port:8583}")
+    private int port;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private static final java.util.concurrent.ConcurrentHashMap<String, ChannelHandlerContext> connectedClients = new java.util.concurrent.ConcurrentHashMap<>();
     private static Iso8583Processor processor;
-    private static TransactionTimer transactionTimer;
+    private static ResponseCorrelator responseCorrelator;
+    private static TransactionJournal journal;
+    private static AdviceQueue adviceQueue;
 
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
@@ -43,20 +51,49 @@ public class Iso8583Server {
     }
     
     @Autowired
-    public void setTransactionTimer(TransactionTimer timer) {
-        Iso8583Server.transactionTimer = timer;
+    public void setResponseCorrelator(ResponseCorrelator correlator) {
+        Iso8583Server.responseCorrelator = correlator;
+    }
+    
+    @Autowired
+    public void setJournal(TransactionJournal journal) {
+        Iso8583Server.journal = journal;
+    }
+    
+    @Autowired
+    public void setAdviceQueue(AdviceQueue adviceQueue) {
+        Iso8583Server.adviceQueue = adviceQueue;
     }
     
     public static void broadcastToClients(String message) {
         // Parse message to get field 37 for tracking
-        Iso8583Message parsedMsg = Iso8583Parser.parseMessage(message);
+        broadcastToClients(Iso8583Parser.parseMessage(message), message);
+    }
+
+    public static void broadcastToClients(Iso8583Message parsedMsg, String message) {
         String field37 = parsedMsg.getField(37);
         
-        if ("0200".equals(parsedMsg.getMti()) && field37 != null && transactionTimer != null) {
-            transactionTimer.startTimer(field37);
+        if ("0200".equals(parsedMsg.getMti()) && field37 != null && responseCorrelator != null) {
+            responseCorrelator.startTimer(field37);
             System.out.println("⏱️ Started timer for request with field37: " + field37);
         }
         
+        writeToClients(message);
+    }
+
+    /**
+     * Broadcast a 0200 and return a future completed with its 0210, or null on timeout.
+     * The waiter is registered before the write so a fast response cannot be missed.
+     */
+    public static CompletableFuture<Iso8583Message> broadcastAndAwait(Iso8583Message parsedMsg, String message) {
+        CompletableFuture<Iso8583Message> response = responseCorrelator.awaitResponse(parsedMsg.getField(37));
+        System.out.println("⏱️ Awaiting authorization for field37: " + parsedMsg.getField(37));
+        writeToClients(message);
+        return response;
+    }
+
+    // Response links have signed off broadcasts and are no longer in connectedClients
+    private static void writeToClients(String message) {
         connectedClients.values().forEach(ctx -> {
             if (ctx.channel().isActive()) {
                 String clientAddress = ctx.channel().remoteAddress().toString();
@@ -75,7 +112,7 @@ public class Iso8583Server {
         String mode = System.getProperty("app.mode", "both");
         if (!"client".equals(mode)) {
             new Thread(this::runServer, "netty-iso8583-server-thread").start();
-            System.out.println("🚀 Netty ISO 8583 Server starting on port " + PORT);
+            System.out.println("🚀 Netty ISO 8583 Server starting on port " + port);
         }
     }
 
@@ -112,7 +149,7 @@ public class Iso8583Server {
              .option(ChannelOption.SO_BACKLOG, 128)
              .childOption(ChannelOption.SO_KEEPALIVE, true);
 
-            ChannelFuture f = b.bind(PORT).sync();
+            ChannelFuture f = b.bind(port).sync();
             System.out.println("✅ Server ready and listening...");
             f.channel().closeFuture().sync();
         } catch (InterruptedException ie) {
@@ -137,7 +174,11 @@ public class Iso8583Server {
         }
     }
 
-    private static class Iso8583ServerHandler extends SimpleChannelInboundHandler<String> {
+    static int getBroadcastClientCount() {
+        return connectedClients.size();
+    }
+
+    static class Iso8583ServerHandler extends SimpleChannelInboundHandler<String> {
         private ChannelHandlerContext ctx;
         private String clientAddress;
 
@@ -157,20 +198,42 @@ public class Iso8583Server {
             System.out.println("📨 [" + clientAddress + "] Received: " + msg);
             try {
                 Iso8583Message request = Iso8583Parser.parseMessage(msg);
+                
+                // A client's response link only carries 0210s back: take it out of the broadcasts, no reply.
+                // Anything broadcast before this arrived also went to the client's main connections.
+                if (NetworkManagement.isResponseLinkSignOn(request)) {
+                    connectedClients.remove(clientAddress, ctx);
+                    System.out.println("🔗 [" + clientAddress + "] Signed on as a response link, left out of broadcasts");
+                    return;
+                }
+                
                 Iso8583Message response = processor.processMessage(request);
                 String responseMessage = response.toString();
                 
                 // Check if this is a 0210 response with matching field 37
-                if ("0210".equals(request.getMti()) && transactionTimer != null) {
+                if ("0210".equals(request.getMti()) && responseCorrelator != null) {
                     String responseField37 = request.getField(37);
                     if (responseField37 != null) {
-                        transactionTimer.checkResponse(responseField37);
+                        if (journal != null) journal.append(TransactionJournal.RecordType.RESPONDED, msg);
+                        responseCorrelator.onResponse(request, msg);
                     }
                     // Don't send response for 0210 messages - transaction is complete
                     System.out.println("✅ Transaction completed for field37: " + responseField37);
                     return;
                 }
                 
+                // A 0230 acknowledges a stand-in advice; like a 0210 it gets no reply, and goes to the replica holding it
+                if ("0230".equals(request.getMti())) {
+                    String adviceField37 = request.getField(37);
+                    if (responseCorrelator != null) {
+                        responseCorrelator.onAdviceResponse(adviceField37);
+                    } else if (adviceQueue != null) {
+                        adviceQueue.acknowledge(adviceField37);
+                    }
+                    System.out.println("📨 Stand-in advice acknowledged for field37: " + adviceField37);
+                    return;
+                }
+                
                 // writeAndFlush will go through StringEncoder and LengthFieldPrepender
                 ctx.writeAndFlush(responseMessage).addListener(f -> {
                     if (f.isSuccess()) {
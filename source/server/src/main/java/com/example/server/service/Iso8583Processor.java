@@ -1,21 +1,135 @@
 package com.example.server.service;
 
+import com.example.common.kafka.Iso8583Fields;
 import com.example.common.model.Iso8583Message;
 import com.example.common.model.ValidationResult;
 import com.example.common.parser.Iso8583Parser;
+import com.example.server.cluster.ResponseCorrelator;
+import com.example.server.journal.TransactionJournal;
 import com.example.server.metrics.TransactionMetrics;
+import com.example.server.server.Iso8583Server;
+import com.example.server.stip.AdviceQueue;
+import com.example.server.stip.StandInLimits;
+import com.example.server.stip.StandInMonitor;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class Iso8583Processor {
+
+    private static final DateTimeFormatter TRANSMISSION_TIME = DateTimeFormatter.ofPattern("MMddHHmmss");
+    private static final DateTimeFormatter LOCAL_TIME = DateTimeFormatter.ofPattern("HHmmss");
+    private static final DateTimeFormatter LOCAL_DATE = DateTimeFormatter.ofPattern("MMdd");
+    // Fields of the 0200 carried into its 0220 advice
+    private static final int[] ADVICE_FIELDS = {2, 3, 4, 11, 18, 22, 25, 37, 41, 42, 49};
     
     private final TransactionMetrics transactionMetrics;
+    private final ResponseCorrelator responseCorrelator;
+    private final TransactionJournal journal;
+    private final StandInMonitor standInMonitor;
+    private final StandInLimits standInLimits;
+    private final AdviceQueue adviceQueue;
+    private final long standInAfterMillis;
+    private final ScheduledThreadPoolExecutor deadlines;
     
-    public Iso8583Processor(TransactionMetrics transactionMetrics) {
+    public Iso8583Processor(TransactionMetrics transactionMetrics, ResponseCorrelator responseCorrelator,
+                            TransactionJournal journal, StandInMonitor standInMonitor, StandInLimits standInLimits,
+                            AdviceQueue adviceQueue, @Value("${iso8583.stip.stand-in-after-ms:2000}") long standInAfterMillis) {
         this.transactionMetrics = transactionMetrics;
+        this.responseCorrelator = responseCorrelator;
+        this.journal = journal;
+        this.standInMonitor = standInMonitor;
+        this.standInLimits = standInLimits;
+        this.adviceQueue = adviceQueue;
+        this.standInAfterMillis = standInAfterMillis;
+        this.deadlines = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "stip-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deadlines.shutdownNow();
+    }
+
+    /**
+     * Send a 0200 to authorize through the socket clients and return a future completed with its 0210,
+     * or with null on timeout. With stand-in enabled the 0210 may be decided here instead (see
+     * {@link #standIn}): straight away while {@link StandInMonitor} finds authorize lagging, or once
+     * authorize has not answered within {@code stand-in-after-ms}, so no caller waits longer than that.
+     * The stand-in decision is final: authorize's late 0210 is dropped, and the 0220 advice makes
+     * authorize post the stand-in outcome over its own, releasing a hold it placed for a stand-in decline.
+     */
+    public CompletableFuture<Iso8583Message> authorize(Iso8583Message request, String message) {
+        String rrn = request.getField(37);
+        if (!standInMonitor.isEnabled() || rrn == null) {
+            return Iso8583Server.broadcastAndAwait(request, message);
+        }
+        long start = System.nanoTime();
+        if (standInMonitor.shouldStandIn(start)) {
+            CompletableFuture<Iso8583Message> response = responseCorrelator.awaitResponse(rrn);
+            standIn(request);
+            return response;
+        }
+
+        Deadline deadline = new Deadline(request);
+        CompletableFuture<Iso8583Message> response = Iso8583Server.broadcastAndAwait(request, message);
+        deadline.arm(deadlines.schedule(deadline, standInAfterMillis, TimeUnit.MILLISECONDS));
+        response.whenComplete((authorization, error) -> {
+            Iso8583Message stoodIn = deadline.close();
+            standInMonitor.recordLatency(System.nanoTime() - start);
+            if (stoodIn == null) {
+                if (authorization != null) standInLimits.observe(request.getField(2), authorization, System.currentTimeMillis());
+            } else if (authorization == null || !stoodIn.toString().equals(authorization.toString())) {
+                // Authorize's own 0210 got there first: the caller never saw the stand-in answer
+                adviceQueue.acknowledge(rrn);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Decide a 0200 locally from {@link StandInLimits} and complete its transaction with the resulting
+     * 0210. The decision is queued as a 0220 advice for authorize to post; an approval that cannot be
+     * queued is turned into a 91 decline.
+     */
+    public Iso8583Message standIn(Iso8583Message request) {
+        Iso8583Message response = decideLocally(request);
+        complete(response);
+        return response;
+    }
+
+    private Iso8583Message decideLocally(Iso8583Message request) {
+        long now = System.currentTimeMillis();
+        String pan = request.getField(2);
+        long amount = Iso8583Fields.amount(request.getField(4));
+        String responseCode = standInLimits.decide(pan, amount, now);
+        Iso8583Message response = standInResponse(request, responseCode);
+        if (!adviceQueue.offer(advice(request, response)) && StandInLimits.APPROVED.equals(responseCode)) {
+            standInLimits.settle(pan, amount);
+            response = standInResponse(request, StandInLimits.ISSUER_UNAVAILABLE);
+            System.err.println("⚠️ Stand-in advice queue full, declining field37 " + request.getField(37));
+        }
+        transactionMetrics.incrementStoodIn();
+        System.out.println("🛟 Stood in for field37 " + request.getField(37) + ": " + response.getField(39));
+        return response;
+    }
+
+    private void complete(Iso8583Message response) {
+        String responseMessage = response.toString();
+        journal.append(TransactionJournal.RecordType.RESPONDED, responseMessage);
+        responseCorrelator.onResponse(response, responseMessage);
     }
     
     public Iso8583Message processMessage(Iso8583Message request) {
@@ -57,6 +171,9 @@ public class Iso8583Processor {
             System.out.println("Authorize Successfully");
             // Don't return null, return the original message so timer can check it
             return request;
+        } else if ("0230".equals(requestMti)) {
+            // Acknowledges a stand-in advice; the server handler settles it
+            return request;
         }
         else {
             response.setMti("0210");
@@ -66,6 +183,76 @@ public class Iso8583Processor {
         }
         return response;
     }
+    private static Iso8583Message standInResponse(Iso8583Message request, String responseCode) {
+        Iso8583Message response = new Iso8583Message();
+        response.setMti("0210");
+        copyField(request, response, 2);
+        copyField(request, response, 3);
+        copyField(request, response, 4);
+        copyField(request, response, 7);
+        copyField(request, response, 11);
+        copyField(request, response, 37);
+        if (StandInLimits.APPROVED.equals(responseCode)) {
+            response.addField(38, generateApprovalCode());
+        }
+        response.addField(39, responseCode);
+        return response;
+    }
+
+    private static Iso8583Message advice(Iso8583Message request, Iso8583Message response) {
+        LocalDateTime now = LocalDateTime.now();
+        Iso8583Message advice = new Iso8583Message();
+        advice.setMti("0220");
+        for (int field : ADVICE_FIELDS) {
+            copyField(request, advice, field);
+        }
+        advice.addField(7, now.format(TRANSMISSION_TIME));
+        advice.addField(12, now.format(LOCAL_TIME));
+        advice.addField(13, now.format(LOCAL_DATE));
+        copyField(response, advice, 38);
+        copyField(response, advice, 39);
+        return advice;
+    }
+
+    /**
+     * Stands in for one broadcast 0200 if authorize has not answered by the time it runs. Whichever of
+     * the deadline and the 0210 comes second sees the first one's outcome.
+     */
+    private final class Deadline implements Runnable {
+        private final Iso8583Message request;
+        private ScheduledFuture<?> timer;
+        private Iso8583Message stoodIn;
+        private boolean closed;
+
+        Deadline(Iso8583Message request) {
+            this.request = request;
+        }
+
+        synchronized void arm(ScheduledFuture<?> timer) {
+            if (closed) {
+                timer.cancel(false);
+            } else {
+                this.timer = timer;
+            }
+        }
+
+        @Override
+        public synchronized void run() {
+            if (!closed) {
+                // Recorded before completing: the 0210 callback runs on this thread and must see it
+                stoodIn = decideLocally(request);
+                complete(stoodIn);
+            }
+        }
+
+        // Called once the transaction completes; the stand-in answer, if there was one
+        synchronized Iso8583Message close() {
+            closed = true;
+            if (timer != null) timer.cancel(false);
+            return stoodIn;
+        }
+    }
+
     private static void copyField(Iso8583Message source, Iso8583Message target, int fieldNumber) {
         String value = source.getField(fieldNumber);
         if (value != null) {
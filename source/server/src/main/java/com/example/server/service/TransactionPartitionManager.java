@@ -0,0 +1,126 @@
+package com.example.server.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Keeps one daily partition of the transactions table per day: creates {@code premake-days} ahead
+ * and drops partitions older than {@code retention-days}, together with their transactions' events
+ * (transaction_events has no foreign key to cascade through). Runs at startup and from a daily cron.
+ */
+@Component
+@ConditionalOnProperty(name = "iso8583.database.write.enabled", havingValue = "true")
+public class TransactionPartitionManager {
+
+    private static final String PREFIX = "transactions_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int premakeDays;
+    private final int retentionDays;
+
+    public TransactionPartitionManager(JdbcTemplate jdbcTemplate,
+                                       @Value("${iso8583.partitions.premake-days:7}") int premakeDays,
+                                       @Value("${iso8583.partitions.retention-days:90}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.premakeDays = premakeDays;
+        this.retentionDays = retentionDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${iso8583.partitions.cron:0 5 0 * * *}")
+    public void maintain() {
+        LocalDate today = LocalDate.now();
+        try {
+            createPartitions(today);
+            dropExpiredPartitions(today);
+        } catch (Exception e) {
+            System.err.println("❌ Partition maintenance failed: " + e.getMessage());
+        }
+    }
+
+    private void createPartitions(LocalDate today) {
+        for (int day = 0; day <= premakeDays; day++) {
+            LocalDate date = today.plusDays(day);
+            try {
+                jdbcTemplate.execute(createPartitionSql(date));
+            } catch (Exception e) {
+                // Usually rows for that day already sit in the default partition
+                System.err.println("⚠️ Could not create partition " + partitionName(date) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void dropExpiredPartitions(LocalDate today) {
+        LocalDate oldestKept = today.minusDays(retentionDays);
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                + "WHERE p.relname = 'transactions'", String.class);
+        for (String partition : partitions) {
+            LocalDate date = partitionDate(partition);
+            if (date != null && date.isBefore(oldestKept)) {
+                int events = dropPartition(partition);
+                System.out.println("🗑️ Dropped expired partition " + partition + " and " + events + " of its events");
+            }
+        }
+    }
+
+    // Events first, in the same transaction as the DROP, so a failed drop keeps both
+    private int dropPartition(String partition) {
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                int events = statement.executeUpdate(deleteEventsSql(partition));
+                statement.execute("DROP TABLE IF EXISTS " + partition);
+                connection.commit();
+                return events;
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    static String deleteEventsSql(String partition) {
+        return "DELETE FROM transaction_events e USING " + partition + " t WHERE e.transaction_id = t.id";
+    }
+
+    static String createPartitionSql(LocalDate date) {
+        return "CREATE TABLE IF NOT EXISTS " + partitionName(date) + " PARTITION OF transactions "
+                + "FOR VALUES FROM ('" + date + "') TO ('" + date.plusDays(1) + "')";
+    }
+
+    static String partitionName(LocalDate date) {
+        return PREFIX + SUFFIX.format(date);
+    }
+
+    /**
+     * Date of a daily partition, or null for anything else (the default partition).
+     */
+    static LocalDate partitionDate(String partition) {
+        if (!partition.startsWith(PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(PREFIX.length()), SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
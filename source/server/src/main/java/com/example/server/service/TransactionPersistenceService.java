@@ -0,0 +1,93 @@
+package com.example.server.service;
+
+import com.example.common.model.Iso8583Message;
+import com.example.server.repository.TransactionBatchWriter;
+import com.example.server.repository.TransactionRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind stage for transaction persistence and event logging, so the gRPC reply
+ * never waits on the database. Writer threads drain the bounded queue into batches of up to
+ * {@code batch-size} records, waiting at most {@code linger-ms} for a batch to fill.
+ */
+@Service
+public class TransactionPersistenceService {
+
+    @Autowired(required = false)
+    private TransactionBatchWriter batchWriter;
+
+    private final boolean databaseWriteEnabled;
+    private final int batchSize;
+    private final WriteBehindQueue<TransactionRecord> queue;
+    private volatile Consumer<List<TransactionRecord>> persistedListener = batch -> { };
+
+    public TransactionPersistenceService(MeterRegistry meterRegistry,
+                                         @Value("${iso8583.database.write.enabled:true}") boolean databaseWriteEnabled,
+                                         @Value("${iso8583.persistence.threads:2}") int threads,
+                                         @Value("${iso8583.persistence.queue-capacity:10000}") int queueCapacity,
+                                         @Value("${iso8583.persistence.batch-size:500}") int batchSize,
+                                         @Value("${iso8583.persistence.linger-ms:20}") long lingerMs) {
+        this.databaseWriteEnabled = databaseWriteEnabled;
+        this.batchSize = batchSize;
+        this.queue = new WriteBehindQueue<>("persistence", meterRegistry, "iso8583.persistence",
+                threads, queueCapacity, batchSize, lingerMs, batch -> {
+                    batchWriter.write(batch);
+                    persistedListener.accept(batch);
+                });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!databaseWriteEnabled || batchWriter == null || queue.isRunning()) {
+            return;
+        }
+        queue.start();
+        System.out.println("💾 Write-behind persistence started, batch " + batchSize);
+    }
+
+    /**
+     * Queue the RECEIVED/BROADCAST records for an accepted transaction. Never blocks the caller;
+     * when the queue is full the records are dropped and counted.
+     */
+    public void recordAccepted(Iso8583Message parsedMsg, String message) {
+        recordAccepted(parsedMsg, message, LocalDateTime.now());
+    }
+
+    public void recordAccepted(Iso8583Message parsedMsg, String message, LocalDateTime receivedAt) {
+        if (!queue.isRunning()) {
+            return;
+        }
+        if (!queue.offer(TransactionRecord.from(parsedMsg, message, receivedAt))) {
+            System.err.println("⚠️ Persistence queue full, dropping field37: " + parsedMsg.getField(37));
+        }
+    }
+
+    /**
+     * Called from a writer thread after each committed batch.
+     */
+    public void setPersistedListener(Consumer<List<TransactionRecord>> persistedListener) {
+        this.persistedListener = persistedListener;
+    }
+
+    public boolean isRunning() {
+        return queue.isRunning();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        queue.shutdown();
+    }
+}
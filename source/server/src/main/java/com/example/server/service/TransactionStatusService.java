@@ -0,0 +1,105 @@
+package com.example.server.service;
+
+import com.example.common.model.Iso8583Message;
+import com.example.server.repository.TransactionStatusUpdate;
+import com.example.server.repository.TransactionStatusWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves transactions rows out of RECEIVED once their outcome is known (APPROVED, DECLINED or TIMEOUT).
+ * Updates are coalesced per RRN and applied in batches; an update that arrives before its row has been
+ * inserted by the write-behind stage is retried a few times.
+ */
+@Service
+public class TransactionStatusService {
+
+    public static final String APPROVED = "APPROVED";
+    public static final String DECLINED = "DECLINED";
+    public static final String TIMEOUT = "TIMEOUT";
+
+    @Autowired(required = false)
+    private TransactionStatusWriter statusWriter;
+
+    private final boolean databaseWriteEnabled;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    private final WriteBehindQueue<TransactionStatusUpdate> queue;
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "status-retry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public TransactionStatusService(MeterRegistry meterRegistry,
+                                    @Value("${iso8583.database.write.enabled:true}") boolean databaseWriteEnabled,
+                                    @Value("${iso8583.status.queue-capacity:10000}") int queueCapacity,
+                                    @Value("${iso8583.status.batch-size:500}") int batchSize,
+                                    @Value("${iso8583.status.linger-ms:50}") long lingerMs,
+                                    @Value("${iso8583.status.max-attempts:5}") int maxAttempts,
+                                    @Value("${iso8583.status.retry-delay-ms:1000}") long retryDelayMs) {
+        this.databaseWriteEnabled = databaseWriteEnabled;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMs = retryDelayMs;
+        this.queue = new WriteBehindQueue<>("status", meterRegistry, "iso8583.status",
+                1, queueCapacity, batchSize, lingerMs, this::writeBatch);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (databaseWriteEnabled && statusWriter != null) {
+            queue.start();
+        }
+    }
+
+    public void onResponse(String rrn, Iso8583Message response) {
+        String responseCode = response.getField(39);
+        record(new TransactionStatusUpdate(rrn, response.getField(11),
+                "00".equals(responseCode) ? APPROVED : DECLINED, responseCode, LocalDateTime.now()));
+    }
+
+    public void onTimeout(String rrn) {
+        record(new TransactionStatusUpdate(rrn, null, TIMEOUT, null, LocalDateTime.now()));
+    }
+
+    private void record(TransactionStatusUpdate update) {
+        if (queue.isRunning() && !queue.offer(update)) {
+            System.err.println("⚠️ Status queue full, dropping update for field37: " + update.getRrn());
+        }
+    }
+
+    private void writeBatch(List<TransactionStatusUpdate> batch) throws Exception {
+        // Last outcome per RRN wins within a batch
+        Map<String, TransactionStatusUpdate> coalesced = new LinkedHashMap<>();
+        for (TransactionStatusUpdate update : batch) {
+            coalesced.put(update.getRrn(), update);
+        }
+        List<TransactionStatusUpdate> unmatched = statusWriter.write(new ArrayList<>(coalesced.values()));
+        for (TransactionStatusUpdate update : unmatched) {
+            if (update.nextAttempt() < maxAttempts) {
+                retryScheduler.schedule(() -> queue.offer(update), retryDelayMs, TimeUnit.MILLISECONDS);
+            } else {
+                System.err.println("⚠️ No RECEIVED row for field37 " + update.getRrn() + ", dropping " + update.getStatus());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        retryScheduler.shutdownNow();
+        queue.shutdown();
+    }
+}
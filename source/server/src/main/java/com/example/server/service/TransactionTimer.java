@@ -1,42 +1,130 @@
 package com.example.server.service;
 
+import com.example.common.model.Iso8583Message;
 import com.example.server.metrics.TransactionMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 public class TransactionTimer {
     
     private final TransactionMetrics transactionMetrics;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
-    private final ConcurrentHashMap<String, String> pendingTransactions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Pending> pendingTransactions = new ConcurrentHashMap<>();
+    private final int timeoutSeconds;
+    private TransactionStatusService statusService;
     
-    @Value("${iso8583.transaction.timeout:7}")
-    private int timeoutSeconds;
-    
-    public TransactionTimer(TransactionMetrics transactionMetrics) {
+    public TransactionTimer(TransactionMetrics transactionMetrics,
+                            @Value("${iso8583.transaction.timeout:7}") int timeoutSeconds) {
         this.transactionMetrics = transactionMetrics;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+    
+    @Autowired(required = false)
+    public void setStatusService(TransactionStatusService statusService) {
+        this.statusService = statusService;
     }
     
     public void startTimer(String field37) {
-        pendingTransactions.put(field37, field37);
-        scheduler.schedule(() -> {
-            if (pendingTransactions.remove(field37) != null) {
+        startTimer(field37, null);
+    }
+    
+    /**
+     * Start the timer and call {@code onComplete} exactly once: with the 0210 when it arrives,
+     * or with null when the timeout expires. The callback runs on the thread completing the transaction.
+     */
+    public void startTimer(String field37, Consumer<Iso8583Message> onComplete) {
+        startTimer(field37, onComplete, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+    }
+
+    /**
+     * Re-arm a timer recovered from the journal with whatever was left of its timeout.
+     * While a timer for {@code field37} is already running, {@code onComplete} joins it instead
+     * of replacing it, so both callers are completed by the same 0210 or timeout.
+     */
+    public void startTimer(String field37, Consumer<Iso8583Message> onComplete, long timeoutMillis) {
+        Pending pending = new Pending();
+        Pending current = pendingTransactions.compute(field37, (key, existing) -> {
+            Pending target = existing != null ? existing : pending;
+            target.add(onComplete);
+            return target;
+        });
+        if (current != pending) {
+            System.out.println("🔁 Timer already running for field37 " + field37 + ", sharing its 0210");
+            return;
+        }
+        pending.timeout = scheduler.schedule(() -> {
+            if (pendingTransactions.remove(field37, pending)) {
                 System.out.println("⏰ Transaction timeout for field37: " + field37);
                 transactionMetrics.incrementFailed();
+                if (statusService != null) statusService.onTimeout(field37);
+                pending.complete(null);
             }
-        }, timeoutSeconds, TimeUnit.SECONDS);
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
     }
     
     public void checkResponse(String field37) {
-        if (pendingTransactions.remove(field37) != null) {
-            System.out.println("✅ Transaction successful for field37: " + field37);
-            transactionMetrics.incrementSuccessful();
+        checkResponse(field37, null);
+    }
+    
+    public boolean checkResponse(String field37, Iso8583Message response) {
+        Pending pending = pendingTransactions.remove(field37);
+        if (pending == null) {
+            if (response != null) {
+                // Stood in or timed out already: the caller has its answer and a 0220 advice tells authorize
+                System.out.println("🗑️ Late 0210 for field37 " + field37 + " dropped, the transaction already completed");
+            }
+            return false;
+        }
+        System.out.println("✅ Transaction successful for field37: " + field37);
+        transactionMetrics.incrementSuccessful();
+        if (statusService != null && response != null) statusService.onResponse(field37, response);
+        if (pending.timeout != null) {
+            pending.timeout.cancel(false);
+        }
+        pending.complete(response);
+        return true;
+    }
+
+    public int getPendingCount() {
+        return pendingTransactions.size();
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    private static class Pending {
+        // Added only while mapped, completed only once removed: the map orders the two
+        private final List<Consumer<Iso8583Message>> callbacks = new ArrayList<>(1);
+        private volatile ScheduledFuture<?> timeout;
+
+        synchronized void add(Consumer<Iso8583Message> onComplete) {
+            if (onComplete != null) callbacks.add(onComplete);
+        }
+
+        void complete(Iso8583Message response) {
+            List<Consumer<Iso8583Message>> toComplete;
+            synchronized (this) {
+                toComplete = List.copyOf(callbacks);
+            }
+            for (Consumer<Iso8583Message> onComplete : toComplete) {
+                try {
+                    onComplete.accept(response);
+                } catch (Exception e) {
+                    System.err.println("❌ Transaction completion callback failed: " + e.getMessage());
+                }
+            }
         }
     }
-}
\ No newline at end of file
+}
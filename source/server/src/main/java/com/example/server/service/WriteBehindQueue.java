@@ -0,0 +1,151 @@
+package com.example.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded queue drained by writer threads into batches of up to {@code batchSize} items,
+ * waiting at most {@code lingerMs} for a batch to fill. Producers never block: when the queue
+ * is full the item is dropped and counted. Meters are registered under {@code metricPrefix}.
+ */
+public class WriteBehindQueue<T> {
+
+    @FunctionalInterface
+    public interface BatchWriter<T> {
+        void write(List<T> batch) throws Exception;
+    }
+
+    private final String name;
+    private final int threads;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<T> queue;
+    private final BatchWriter<T> writer;
+    private final List<Thread> writers = new ArrayList<>();
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+    private volatile boolean running;
+
+    public WriteBehindQueue(String name, MeterRegistry meterRegistry, String metricPrefix,
+                            int threads, int capacity, int batchSize, long lingerMs, BatchWriter<T> writer) {
+        this.name = name;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = writer;
+
+        Gauge.builder(metricPrefix + ".queue.depth", queue, BlockingQueue::size)
+                .description("Items waiting in the " + name + " queue")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder(metricPrefix + ".rejected")
+                .description("Items dropped because the " + name + " queue was full")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder(metricPrefix + ".failed")
+                .description("Items lost because their " + name + " batch failed")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder(metricPrefix + ".flush")
+                .description("Time to write one " + name + " batch")
+                .register(meterRegistry);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= threads; i++) {
+            Thread thread = new Thread(this::drainLoop, name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            writers.add(thread);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Queue an item without blocking; false (and counted) when the queue is full.
+     */
+    public boolean offer(T item) {
+        if (queue.offer(item)) {
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public synchronized void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread thread : writers) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        writers.clear();
+    }
+
+    private void drainLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        // Keep draining after shutdown starts so queued items are flushed
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fill(List<T> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<T> batch) {
+        long start = System.nanoTime();
+        try {
+            writer.write(batch);
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            System.err.println("❌ Failed to write " + name + " batch of " + batch.size() + ": " + e.getMessage());
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
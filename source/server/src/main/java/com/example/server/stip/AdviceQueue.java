@@ -0,0 +1,164 @@
+package com.example.server.stip;
+
+import com.example.common.kafka.Iso8583Fields;
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import com.example.server.cluster.ResponseCorrelator;
+import com.example.server.journal.TransactionJournal;
+import com.example.server.server.Iso8583Server;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store-and-forward of the 0220 advices for transactions decided in stand-in, keyed by field 37.
+ *
+ * Advices are sent to authorize through the socket clients once stand-in has ended, and resent every
+ * {@code retry-interval-ms} until a 0230 acknowledges them. The 0230 may reach any replica; the
+ * ResponseCorrelator relays it here through the RRN's owner. Each advice is journaled when queued and
+ * again when acknowledged, so unacknowledged ones survive a restart (see JournalReplayer). At most
+ * {@code capacity} advices are held; past that, stand-in declines instead of approving.
+ */
+@Component
+public class AdviceQueue {
+
+    private final TransactionJournal journal;
+    private final StandInLimits limits;
+    private final StandInMonitor monitor;
+    private final ResponseCorrelator responseCorrelator;
+    private final int capacity;
+    private final long retryIntervalMillis;
+    private final int sendBatch;
+    private final Map<String, Advice> advices = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService sender;
+
+    public AdviceQueue(TransactionJournal journal, StandInLimits limits, StandInMonitor monitor,
+                       ResponseCorrelator responseCorrelator, MeterRegistry meterRegistry,
+                       @Value("${iso8583.stip.advice.capacity:100000}") int capacity,
+                       @Value("${iso8583.stip.advice.retry-interval-ms:5000}") long retryIntervalMillis,
+                       @Value("${iso8583.stip.advice.send-batch:500}") int sendBatch) {
+        this.journal = journal;
+        this.limits = limits;
+        this.monitor = monitor;
+        this.responseCorrelator = responseCorrelator;
+        this.capacity = capacity;
+        this.retryIntervalMillis = retryIntervalMillis;
+        this.sendBatch = sendBatch;
+        Gauge.builder("iso8583.stip.advices.pending", advices, Map::size)
+                .description("Stand-in advices not yet acknowledged by authorize")
+                .register(meterRegistry);
+        responseCorrelator.setAdviceListener(this::acknowledge);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!monitor.isEnabled()) {
+            return;
+        }
+        sender = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stip-advice-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender.scheduleWithFixedDelay(() -> {
+            try {
+                sendDue(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                System.err.println("❌ Advice send failed: " + e.getMessage());
+            }
+        }, retryIntervalMillis, Math.max(100, retryIntervalMillis / 10), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sender != null) sender.shutdownNow();
+    }
+
+    /**
+     * Queue the advice for a stand-in decision; false when the queue is full and nothing was queued.
+     */
+    public boolean offer(Iso8583Message advice) {
+        String rrn = advice.getField(37);
+        if (rrn == null || advices.size() >= capacity) {
+            return false;
+        }
+        String message = advice.toString();
+        journal.append(TransactionJournal.RecordType.ADVICE, message);
+        advices.put(rrn, new Advice(advice, message));
+        return true;
+    }
+
+    /**
+     * Drop the advice for {@code rrn}: authorize acknowledged it with a 0230, or the stand-in answer it
+     * describes lost the race to authorize's own 0210. Either way its approval no longer counts against
+     * the card's stand-in limit.
+     */
+    public void acknowledge(String rrn) {
+        Advice advice = rrn == null ? null : advices.remove(rrn);
+        if (advice == null) {
+            return;
+        }
+        journal.append(TransactionJournal.RecordType.ADVISED, rrn);
+        if (StandInLimits.APPROVED.equals(advice.message.getField(39))) {
+            limits.settle(advice.message.getField(2), Iso8583Fields.amount(advice.message.getField(4)));
+        }
+    }
+
+    /**
+     * Put back an advice recovered from the journal; the caller re-journals it.
+     */
+    public void restore(String message) {
+        Iso8583Message advice = Iso8583Parser.parseMessage(message);
+        String rrn = advice.getField(37);
+        if (rrn != null) advices.put(rrn, new Advice(advice, message));
+    }
+
+    /**
+     * Send advices not sent within the last retry interval, up to one batch; nothing while stand-in is
+     * active, since authorize is the reason for it. Recovery is checked here too, so advices drain even
+     * when no 0200 arrives to end stand-in. Returns how many were sent.
+     */
+    public int sendDue(long nowMillis) {
+        if (monitor.refreshActive()) {
+            return 0;
+        }
+        int sent = 0;
+        for (Advice advice : advices.values()) {
+            if (sent == sendBatch) break;
+            if (advice.lastSentMillis != 0 && nowMillis - advice.lastSentMillis < retryIntervalMillis) continue;
+            advice.lastSentMillis = nowMillis;
+            responseCorrelator.adviceSent(advice.message.getField(37));
+            Iso8583Server.broadcastToClients(advice.message, advice.raw);
+            sent++;
+        }
+        if (sent > 0) {
+            System.out.println("📨 Sent " + sent + " stand-in advices, " + advices.size() + " awaiting 0230");
+        }
+        return sent;
+    }
+
+    public int getPendingCount() {
+        return advices.size();
+    }
+
+    private static final class Advice {
+        private final Iso8583Message message;
+        private final String raw;
+        private volatile long lastSentMillis;
+
+        Advice(Iso8583Message message, String raw) {
+            this.message = message;
+            this.raw = raw;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.server.stip;
+
+import com.example.common.kafka.Iso8583Fields;
+import com.example.common.model.Iso8583Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Per-card limits for stand-in processing, learned from the 0210s authorize sends while it is healthy.
+ *
+ * Cards live in a fixed table of primitive arrays keyed by the PAN digits as a long, probed in groups of
+ * {@value #GROUP} slots; a full group evicts the card touched longest ago, so the table never grows or
+ * allocates on the authorization path. Each group is guarded by one of {@code lock-stripes} monitors.
+ *
+ * A card's stand-in limit is the lower of its last known available balance (field 54) and
+ * {@code card-limit}, or {@code unknown-card-limit} for a card authorize has not answered for yet, less
+ * what was already approved in stand-in and not yet acknowledged by authorize. Amounts up to
+ * {@code floor-limit} are approved without a limit check; cards authorize declined as lost, stolen or
+ * restricted are declined.
+ */
+@Component
+public class StandInLimits {
+
+    public static final String APPROVED = "00";
+    public static final String DO_NOT_HONOR = "05";
+    public static final String INVALID_AMOUNT = "13";
+    public static final String INVALID_CARD = "14";
+    public static final String ISSUER_UNAVAILABLE = "91";
+
+    private static final Set<String> HARD_DECLINES = Set.of("04", "07", "14", "41", "43", "54", "57", "62");
+    private static final int GROUP = 16;
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    private final long[] keys;
+    private final long[] available;
+    private final long[] spent;
+    private final long[] touched;
+    private final boolean[] blocked;
+    private final int groupMask;
+    private final Object[] stripes;
+
+    private final long floorLimit;
+    private final long cardLimit;
+    private final long unknownCardLimit;
+
+    public StandInLimits(@Value("${iso8583.stip.expected-cards:100000}") int expectedCards,
+                         @Value("${iso8583.stip.lock-stripes:1024}") int lockStripes,
+                         @Value("${iso8583.stip.floor-limit:5000}") long floorLimit,
+                         @Value("${iso8583.stip.card-limit:50000}") long cardLimit,
+                         @Value("${iso8583.stip.unknown-card-limit:10000}") long unknownCardLimit) {
+        // Half full at the expected card count, in a power of two of groups
+        int wanted = (int) Math.max(1, Math.min(1 << 24, (2L * expectedCards + GROUP - 1) / GROUP));
+        int groups = wanted == 1 ? 1 : Integer.highestOneBit(wanted - 1) << 1;
+        int slots = groups * GROUP;
+        this.keys = new long[slots];
+        this.available = new long[slots];
+        this.spent = new long[slots];
+        this.touched = new long[slots];
+        this.blocked = new boolean[slots];
+        this.groupMask = groups - 1;
+        this.stripes = new Object[Math.min(groups, Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+        this.floorLimit = floorLimit;
+        this.cardLimit = cardLimit;
+        this.unknownCardLimit = unknownCardLimit;
+    }
+
+    /**
+     * The response code for a 0200 decided locally. An approval is added to the card's stand-in spend
+     * until {@link #settle} is called for it.
+     */
+    public String decide(String pan, long amount, long nowMillis) {
+        if (amount <= 0) {
+            return INVALID_AMOUNT;
+        }
+        long key = Iso8583Fields.panKey(pan);
+        if (key == 0) {
+            return INVALID_CARD;
+        }
+        int group = group(key);
+        synchronized (stripe(group)) {
+            int slot = slot(group, key, nowMillis);
+            if (blocked[slot]) {
+                return DO_NOT_HONOR;
+            }
+            if (amount > floorLimit) {
+                long limit = available[slot] == UNKNOWN ? unknownCardLimit : Math.min(available[slot], cardLimit);
+                if (amount > limit - spent[slot]) {
+                    return ISSUER_UNAVAILABLE;
+                }
+            }
+            spent[slot] += amount;
+            return APPROVED;
+        }
+    }
+
+    /**
+     * Learn from a 0210 authorize sent for {@code pan}: the available balance of an approval or an
+     * insufficient-funds decline, or a hard decline that blocks the card.
+     */
+    public void observe(String pan, Iso8583Message response, long nowMillis) {
+        String code = response.getField(39);
+        long key = Iso8583Fields.panKey(pan);
+        if (code == null || key == 0) {
+            return;
+        }
+        long balance = availableBalance(response.getField(54));
+        boolean hardDecline = HARD_DECLINES.contains(code);
+        if (balance == UNKNOWN && !hardDecline && !APPROVED.equals(code)) {
+            return;
+        }
+        int group = group(key);
+        synchronized (stripe(group)) {
+            int slot = slot(group, key, nowMillis);
+            if (hardDecline) {
+                blocked[slot] = true;
+            } else {
+                blocked[slot] = false;
+                if (balance != UNKNOWN) available[slot] = balance;
+            }
+        }
+    }
+
+    /**
+     * Take a stand-in approval off the card's spend once authorize has posted it (or it was never used).
+     */
+    public void settle(String pan, long amount) {
+        long key = Iso8583Fields.panKey(pan);
+        if (key == 0 || amount <= 0) {
+            return;
+        }
+        int group = group(key);
+        synchronized (stripe(group)) {
+            int base = group * GROUP;
+            for (int slot = base; slot < base + GROUP; slot++) {
+                if (keys[slot] == key) {
+                    spent[slot] = Math.max(0, spent[slot] - amount);
+                    return;
+                }
+            }
+        }
+    }
+
+    // Caller holds the group's stripe lock
+    private int slot(int group, long key, long nowMillis) {
+        int base = group * GROUP;
+        int oldest = base;
+        for (int slot = base; slot < base + GROUP; slot++) {
+            if (keys[slot] == key) {
+                touched[slot] = nowMillis;
+                return slot;
+            }
+            if (keys[slot] == 0) {
+                oldest = slot;
+                break;
+            }
+            if (touched[slot] < touched[oldest]) oldest = slot;
+        }
+        keys[oldest] = key;
+        available[oldest] = UNKNOWN;
+        spent[oldest] = 0;
+        blocked[oldest] = false;
+        touched[oldest] = nowMillis;
+        return oldest;
+    }
+
+    private int group(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & groupMask;
+    }
+
+    private Object stripe(int group) {
+        return stripes[group & (stripes.length - 1)];
+    }
+
+    /**
+     * The available balance (amount type 02) from field 54, signed, or {@link #UNKNOWN} when absent.
+     */
+    static long availableBalance(String field54) {
+        if (field54 == null) {
+            return UNKNOWN;
+        }
+        for (int offset = 0; offset + 20 <= field54.length(); offset += 20) {
+            if (!field54.startsWith("02", offset + 2)) {
+                continue;
+            }
+            long amount = Iso8583Fields.amount(field54.substring(offset + 8, offset + 20));
+            if (amount < 0) return UNKNOWN;
+            return field54.charAt(offset + 7) == 'D' ? -amount : amount;
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.server.stip;
+
+import com.example.server.service.TransactionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when the server stands in for authorize. Stand-in starts once the moving average of
+ * authorization latency passes {@code max-latency-ms} or more than {@code max-backlog} 0200s are
+ * awaiting a 0210, and ends once both are back under half their thresholds. While standing in, one 0200
+ * per {@code probe-interval-ms} is still sent to authorize, so its latency keeps being measured and
+ * recovery is noticed.
+ */
+@Component
+public class StandInMonitor {
+
+    // Weight of the newest sample in the latency average, as 1 / LATENCY_WEIGHT
+    private static final int LATENCY_WEIGHT = 5;
+
+    private final TransactionTimer transactionTimer;
+    private final boolean enabled;
+    private final long maxLatencyNanos;
+    private final int maxBacklog;
+    private final long probeIntervalNanos;
+
+    private final AtomicLong averageLatencyNanos = new AtomicLong();
+    private final AtomicLong nextProbeNanos = new AtomicLong();
+    private volatile boolean active;
+
+    public StandInMonitor(TransactionTimer transactionTimer, MeterRegistry meterRegistry,
+                          @Value("${iso8583.stip.enabled:false}") boolean enabled,
+                          @Value("${iso8583.stip.max-latency-ms:1000}") long maxLatencyMs,
+                          @Value("${iso8583.stip.max-backlog:5000}") int maxBacklog,
+                          @Value("${iso8583.stip.probe-interval-ms:500}") long probeIntervalMs) {
+        this.transactionTimer = transactionTimer;
+        this.enabled = enabled;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMs);
+        this.maxBacklog = maxBacklog;
+        this.probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(probeIntervalMs);
+        Gauge.builder("iso8583.stip.active", this, monitor -> monitor.active ? 1 : 0)
+                .description("1 while the server stands in for authorize")
+                .register(meterRegistry);
+        Gauge.builder("iso8583.stip.authorization.latency", this, monitor -> monitor.averageLatencyNanos.get() / 1e6)
+                .description("Moving average of authorize latency in milliseconds, as seen by stand-in")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * True when this 0200 should be decided locally instead of being sent to authorize.
+     */
+    public boolean shouldStandIn(long nowNanos) {
+        if (!enabled) {
+            return false;
+        }
+        long latency = averageLatencyNanos.get();
+        int backlog = transactionTimer.getPendingCount();
+        if (!active) {
+            if (latency <= maxLatencyNanos && backlog <= maxBacklog) {
+                return false;
+            }
+            active = true;
+            nextProbeNanos.set(nowNanos + probeIntervalNanos);
+            System.out.println("🛟 Standing in for authorize: latency " + TimeUnit.NANOSECONDS.toMillis(latency)
+                    + " ms, backlog " + backlog);
+        } else if (recovered(latency, backlog)) {
+            return false;
+        }
+        long probe = nextProbeNanos.get();
+        return nowNanos - probe < 0 || !nextProbeNanos.compareAndSet(probe, nowNanos + probeIntervalNanos);
+    }
+
+    /**
+     * Re-evaluate recovery without a 0200 to decide, and return whether stand-in is still active.
+     */
+    public boolean refreshActive() {
+        return active && !recovered(averageLatencyNanos.get(), transactionTimer.getPendingCount());
+    }
+
+    /**
+     * Add one 0200-to-0210 time to the moving average; a stand-in answer counts as the time it took.
+     */
+    public void recordLatency(long nanos) {
+        long average;
+        do {
+            average = averageLatencyNanos.get();
+        } while (!averageLatencyNanos.compareAndSet(average, average + (nanos - average) / LATENCY_WEIGHT));
+    }
+
+    private synchronized boolean recovered(long latency, int backlog) {
+        if (!active || latency >= maxLatencyNanos / 2 || backlog >= maxBacklog / 2) {
+            return !active;
+        }
+        active = false;
+        System.out.println("✅ Authorize recovered: latency " + TimeUnit.NANOSECONDS.toMillis(latency)
+                + " ms, backlog " + backlog + ", stand-in ended");
+        return true;
+    }
+}
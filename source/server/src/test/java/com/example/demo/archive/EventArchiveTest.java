@@ -0,0 +1,123 @@
+package com.example.server.archive;
+
+import com.example.server.entity.TransactionEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should stream back every archived event unchanged")
+    void shouldRoundTripEvents() throws Exception {
+        List<TransactionEvent> events = events(500);
+        Path segment = write(events, MessageDictionary.train(messages(events), 16384));
+
+        List<TransactionEvent> read = new ArrayList<>();
+        try (EventSegmentReader reader = new EventSegmentReader(segment)) {
+            reader.forEachRemaining(read::add);
+        }
+        assertEquals(events.size(), read.size());
+        for (int i = 0; i < events.size(); i++) {
+            TransactionEvent expected = events.get(i);
+            TransactionEvent actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getTransactionId(), actual.getTransactionId());
+            assertEquals(expected.getEventType(), actual.getEventType());
+            assertEquals(expected.getIsoMessage(), actual.getIsoMessage());
+            assertEquals(expected.getEventTime(), actual.getEventTime());
+        }
+    }
+
+    @Test
+    @DisplayName("Should compress well below per-message Deflate thanks to the dictionary")
+    void shouldCompressWithDictionary() throws Exception {
+        List<TransactionEvent> events = events(2000);
+        byte[] dictionary = MessageDictionary.train(messages(events.subList(0, 400)), 16384);
+        Path segment = write(events, dictionary);
+
+        long raw = 0;
+        long plainDeflate = 0;
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        byte[] buffer = new byte[1024];
+        for (TransactionEvent event : events) {
+            byte[] bytes = event.getIsoMessage().getBytes(StandardCharsets.UTF_8);
+            raw += bytes.length;
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+            while (!deflater.finished()) plainDeflate += deflater.deflate(buffer);
+        }
+        deflater.end();
+        long archived = Files.size(segment) - dictionary.length;
+
+        System.out.println("Raw " + raw + " bytes, per-message Deflate " + plainDeflate
+                + " bytes, archive " + archived + " bytes (+" + dictionary.length + " dictionary)");
+        assertTrue(archived < plainDeflate / 2, "Dictionary should at least halve per-message Deflate");
+        assertTrue(archived < raw / 4, "Archive should be under a quarter of the raw messages");
+    }
+
+    @Test
+    @DisplayName("Should fail loudly on a truncated segment")
+    void shouldRejectTruncatedSegment() throws Exception {
+        List<TransactionEvent> events = events(10);
+        Path segment = write(events, MessageDictionary.train(messages(events), 4096));
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        try (EventSegmentReader reader = new EventSegmentReader(segment)) {
+            assertThrows(UncheckedIOException.class, () -> reader.forEachRemaining(event -> { }));
+        }
+    }
+
+    private Path write(List<TransactionEvent> events, byte[] dictionary) throws IOException {
+        Path segment = directory.resolve("events.arc");
+        try (EventSegmentWriter writer = new EventSegmentWriter(directory.resolve("events.arc.tmp"), dictionary)) {
+            for (TransactionEvent event : events) writer.append(event);
+            writer.commit(segment);
+        }
+        assertFalse(Files.exists(directory.resolve("events.arc.tmp")));
+        return segment;
+    }
+
+    // RECEIVED and BROADCAST carry the same 0200, as written by TransactionBatchWriter
+    private static List<TransactionEvent> events(int transactions) {
+        List<TransactionEvent> events = new ArrayList<>();
+        LocalDateTime time = LocalDateTime.of(2025, 3, 1, 9, 0, 0, 123456000);
+        for (int i = 0; i < transactions; i++) {
+            String message = String.format("0200|2=4000%012d|3=000000|4=%012d|7=0301%06d|11=%06d|37=%012d"
+                    + "|41=TERM%04d|42=MERCHANT%07d|49=840", i * 7919L % 1_000_000_000_000L, 1000 + i * 37 % 90000,
+                    90000 + i, i % 1_000_000, 500000 + i, i % 20, i % 50);
+            for (String type : new String[]{"RECEIVED", "BROADCAST"}) {
+                TransactionEvent event = new TransactionEvent((long) i + 1, type, message);
+                event.setId((long) events.size() + 1);
+                event.setEventTime(time.plusNanos(i * 1_000_000L));
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private static List<String> messages(List<TransactionEvent> events) {
+        List<String> messages = new ArrayList<>();
+        events.forEach(event -> messages.add(event.getIsoMessage()));
+        return messages;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.server.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterCorrelationTest {
+
+    private static final int NODES = 3;
+    private final List<NodeProcess> processes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        processes.forEach(NodeProcess::destroy);
+    }
+
+    @Test
+    @DisplayName("Should split RRNs into one hash range per node")
+    void shouldSplitRrnsIntoHashRanges() {
+        List<InetSocketAddress> nodes = List.of(
+                InetSocketAddress.createUnresolved("127.0.0.1", 1),
+                InetSocketAddress.createUnresolved("127.0.0.1", 2),
+                InetSocketAddress.createUnresolved("127.0.0.1", 3));
+        RrnOwnership first = new RrnOwnership(nodes, 0);
+        RrnOwnership second = new RrnOwnership(nodes, 1);
+
+        int[] owned = new int[NODES];
+        for (int i = 0; i < 30000; i++) {
+            String rrn = String.format("%012d", i * 7919L);
+            int owner = first.ownerOf(rrn);
+            assertEquals(owner, second.ownerOf(rrn), "Every node must agree on the owner");
+            owned[owner]++;
+        }
+        for (int count : owned) {
+            assertTrue(count > 9000 && count < 11000, "Ranges should be balanced, got " + count);
+        }
+    }
+
+    @Test
+    @DisplayName("Should complete 0210s that arrive on a different server process than the 0200")
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void shouldCorrelateAcrossServerProcesses() throws Exception {
+        startNodes(30);
+
+        int transactions = 60;
+        for (int i = 0; i < transactions; i++) {
+            processes.get(i % NODES).send("start " + String.format("%012d", 100000 + i));
+        }
+        // The 0210 only comes back after client -> Kafka -> authorize, long after the 0200 timer exists
+        assertEquals(transactions, awaitTotals(0, 0, transactions)[2], "Every timer should be pending on its owner");
+
+        for (int i = 0; i < transactions; i++) {
+            processes.get((i + 1) % NODES).send("respond " + String.format("%012d", 100000 + i));
+        }
+
+        long[] totals = awaitTotals(transactions, 0, 0);
+        assertEquals(transactions, totals[0], "Every cross-node response should count as successful");
+        assertEquals(0, totals[1], "No transaction should time out");
+        assertEquals(0, totals[2], "No timer should be left pending");
+    }
+
+    @Test
+    @DisplayName("Should relay the 0210 back to the process waiting for the authorization result")
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void shouldRelayAuthorizationResultToOrigin() throws Exception {
+        startNodes(30);
+        RrnOwnership ownership = new RrnOwnership(List.of(
+                InetSocketAddress.createUnresolved("127.0.0.1", 1),
+                InetSocketAddress.createUnresolved("127.0.0.1", 2),
+                InetSocketAddress.createUnresolved("127.0.0.1", 3)), 0);
+
+        // The call waits on node 0, the timer lives on node 1, the 0210 arrives on node 2
+        List<String> rrns = new ArrayList<>();
+        for (long i = 700000; rrns.size() < 5; i++) {
+            String rrn = String.format("%012d", i);
+            if (ownership.ownerOf(rrn) == 1) rrns.add(rrn);
+        }
+        rrns.forEach(rrn -> processes.get(0).send("authorize " + rrn));
+        assertEquals(rrns.size(), awaitTotals(0, 0, rrns.size())[2], "Timers should be pending on the owner");
+
+        rrns.forEach(rrn -> processes.get(2).send("respond " + rrn));
+        for (int i = 0; i < rrns.size(); i++) {
+            String[] result = processes.get(0).awaitLine("AUTHORIZED").split(" ");
+            assertTrue(rrns.contains(result[1]), "Unexpected RRN " + result[1]);
+            assertEquals("00", result[2], "Origin should receive the relayed response code");
+        }
+    }
+
+    @Test
+    @DisplayName("Should route a 0230 through the RRN's owner to the process holding the advice")
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void shouldRouteAdviceAcknowledgementToOrigin() throws Exception {
+        startNodes(30);
+        RrnOwnership ownership = new RrnOwnership(List.of(
+                InetSocketAddress.createUnresolved("127.0.0.1", 1),
+                InetSocketAddress.createUnresolved("127.0.0.1", 2),
+                InetSocketAddress.createUnresolved("127.0.0.1", 3)), 0);
+        String rrn = null;
+        for (long i = 800000; rrn == null; i++) {
+            String candidate = String.format("%012d", i);
+            if (ownership.ownerOf(candidate) == 1) rrn = candidate;
+        }
+
+        // Node 0 holds the advice, node 1 owns the RRN, the 0230 arrives on node 2
+        processes.get(0).send("advise " + rrn);
+        String origin = "null";
+        for (int attempt = 0; attempt < 100 && !origin.equals("0"); attempt++) {
+            processes.get(1).send("origin " + rrn);
+            origin = processes.get(1).awaitLine("ORIGIN").split(" ")[2];
+            if (!origin.equals("0")) Thread.sleep(50);
+        }
+        assertEquals("0", origin, "The owner should learn where the advice is held");
+
+        processes.get(2).send("acknowledge " + rrn);
+        assertEquals("ADVISED " + rrn, processes.get(0).awaitLine("ADVISED"));
+    }
+
+    @Test
+    @DisplayName("Should time out forwarded timers on the owning process")
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void shouldTimeOutForwardedTimers() throws Exception {
+        startNodes(1);
+
+        for (int i = 0; i < 6; i++) {
+            processes.get(i % NODES).send("start " + String.format("%012d", 500000 + i));
+        }
+
+        long[] totals = awaitTotals(0, 6, 0);
+        assertEquals(6, totals[1], "Unanswered transactions should be counted as failed once");
+    }
+
+    private void startNodes(int timeoutSeconds) throws Exception {
+        StringBuilder ports = new StringBuilder();
+        for (int i = 0; i < NODES; i++) {
+            try (ServerSocket probe = new ServerSocket(0)) {
+                if (i > 0) ports.append(',');
+                ports.append(probe.getLocalPort());
+            }
+        }
+        for (int i = 0; i < NODES; i++) {
+            processes.add(new NodeProcess(i, ports.toString(), timeoutSeconds));
+        }
+        for (NodeProcess process : processes) {
+            process.awaitLine("READY");
+        }
+    }
+
+    private long[] awaitTotals(long expectedSuccess, long expectedFailed, long expectedPending) throws Exception {
+        long[] totals = new long[3];
+        for (int attempt = 0; attempt < 100; attempt++) {
+            totals = new long[3];
+            for (NodeProcess process : processes) {
+                process.send("stats");
+                String[] stats = process.awaitLine("STATS").split(" ");
+                for (int i = 0; i < 3; i++) totals[i] += Long.parseLong(stats[i + 1]);
+            }
+            if (totals[0] == expectedSuccess && totals[1] == expectedFailed && totals[2] == expectedPending) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        return totals;
+    }
+
+    private static class NodeProcess {
+        private final Process process;
+        private final BufferedReader output;
+        private final PrintWriter input;
+
+        NodeProcess(int index, String ports, int timeoutSeconds) throws IOException {
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    ClusterTestNode.class.getName(), String.valueOf(index), ports, String.valueOf(timeoutSeconds))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            input = new PrintWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8), true);
+        }
+
+        void send(String command) {
+            input.println(command);
+        }
+
+        // Child processes also log, so skip lines until the expected reply shows up
+        String awaitLine(String prefix) throws IOException {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.startsWith(prefix)) return line;
+            }
+            throw new EOFException("Node exited before printing " + prefix);
+        }
+
+        void destroy() {
+            send("exit");
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) process.destroyForcibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.server.cluster;
+
+import com.example.common.parser.Iso8583Parser;
+import com.example.server.metrics.TransactionMetrics;
+import com.example.server.service.TransactionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One server replica's correlation stack running in its own JVM, driven over stdin by
+ * {@link ClusterCorrelationTest}. Usage: ClusterTestNode &lt;index&gt; &lt;port,port,...&gt; &lt;timeoutSeconds&gt;
+ */
+public class ClusterTestNode {
+
+    public static void main(String[] args) throws Exception {
+        int index = Integer.parseInt(args[0]);
+        List<InetSocketAddress> nodes = new ArrayList<>();
+        for (String port : args[1].split(",")) {
+            nodes.add(InetSocketAddress.createUnresolved("127.0.0.1", Integer.parseInt(port)));
+        }
+        int timeoutSeconds = Integer.parseInt(args[2]);
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        TransactionTimer timer = new TransactionTimer(new TransactionMetrics(registry), timeoutSeconds);
+        ResponseCorrelator correlator = new ResponseCorrelator(timer, new RrnOwnership(nodes, index));
+        correlator.setAdviceListener(rrn -> System.out.println("ADVISED " + rrn));
+        correlator.start();
+        System.out.println("READY");
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] cmd = line.split(" ");
+            switch (cmd[0]) {
+                case "start" -> correlator.startTimer(cmd[1]);
+                case "authorize" -> correlator.awaitResponse(cmd[1]).thenAccept(response -> System.out.println(
+                        "AUTHORIZED " + cmd[1] + " " + (response == null ? "TIMEOUT" : response.getField(39))));
+                case "respond" -> {
+                    String response = "0210|37=" + cmd[1] + "|39=00";
+                    correlator.onResponse(Iso8583Parser.parseMessage(response), response);
+                }
+                case "advise" -> correlator.adviceSent(cmd[1]);
+                case "acknowledge" -> correlator.onAdviceResponse(cmd[1]);
+                case "origin" -> System.out.println("ORIGIN " + cmd[1] + " " + correlator.adviceOriginOf(cmd[1]));
+                case "stats" -> System.out.println("STATS "
+                        + (long) registry.counter("iso8583.transactions.successful").count() + " "
+                        + (long) registry.counter("iso8583.transactions.failed").count() + " "
+                        + timer.getPendingCount());
+                case "exit" -> {
+                    correlator.stop();
+                    System.exit(0);
+                }
+                default -> System.out.println("UNKNOWN " + line);
+            }
+        }
+        correlator.stop();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.server.grpc;
+
+import com.example.simulator.grpc.Iso8583Proto;
+import com.example.simulator.grpc.Iso8583ServiceGrpc;
+import com.example.common.dedup.DuplicateFilter;
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import com.example.server.cluster.ResponseCorrelator;
+import com.example.server.cluster.RrnOwnership;
+import com.example.server.journal.TransactionJournal;
+import com.example.server.metrics.TransactionMetrics;
+import com.example.server.server.Iso8583Server;
+import com.example.server.service.Iso8583Processor;
+import com.example.server.service.TransactionPersistenceService;
+import com.example.server.service.TransactionTimer;
+import com.example.server.stip.AdviceQueue;
+import com.example.server.stip.StandInLimits;
+import com.example.server.stip.StandInMonitor;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class Iso8583ServiceImplTest {
+
+    private Server server;
+    private ManagedChannel channel;
+    private ResponseCorrelator correlator;
+    private TransactionTimer timer;
+    private DuplicateFilter<Iso8583Message> duplicateFilter;
+    private Iso8583ServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new Iso8583ServiceImpl();
+        ReflectionTestUtils.setField(service, "streamPrefetch", 8);
+        ReflectionTestUtils.setField(service, "persistenceService",
+                new TransactionPersistenceService(new SimpleMeterRegistry(), false, 1, 16, 8, 5));
+        TransactionJournal journal = new TransactionJournal(false, "journal", 1, 0, 5, 1);
+        ReflectionTestUtils.setField(service, "journal", journal);
+        duplicateFilter = new DuplicateFilter<>(10_000, 0.001, 600_000, 1024);
+        ReflectionTestUtils.setField(service, "duplicateFilter", duplicateFilter);
+
+        timer = new TransactionTimer(new TransactionMetrics(new SimpleMeterRegistry()), 1);
+        correlator = new ResponseCorrelator(timer, new RrnOwnership(List.of(), 0));
+        new Iso8583Server().setResponseCorrelator(correlator);
+
+        // Stand-in disabled: every 0200 waits for its 0210 or the timeout
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StandInMonitor monitor = new StandInMonitor(timer, registry, false, 1000, 5000, 500);
+        StandInLimits limits = new StandInLimits(1024, 16, 5000, 50000, 10000);
+        ReflectionTestUtils.setField(service, "processor", new Iso8583Processor(new TransactionMetrics(registry), correlator,
+                journal, monitor, limits, new AdviceQueue(journal, limits, monitor, correlator, registry, 100, 5000, 10), 2000));
+
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+        new Iso8583Server().setResponseCorrelator(null);
+    }
+
+    @Test
+    @DisplayName("Should accept and reject transactions individually within a batch")
+    void shouldProcessBatch() {
+        Iso8583Proto.TransactionBatchResponse response = Iso8583ServiceGrpc.newBlockingStub(channel)
+                .sendTransactionBatch(Iso8583Proto.TransactionBatchRequest.newBuilder()
+                        .addTransactions(request(1, financialRequest("000001")))
+                        .addTransactions(request(2, "0200|2=4000123456789012"))
+                        .addTransactions(request(3, financialRequest("000003")))
+                        .build());
+
+        assertEquals(2, response.getAccepted());
+        assertEquals(1, response.getRejected());
+        assertEquals(3, response.getResultsCount());
+        assertFalse(response.getResults(1).getSuccess(), "Message missing required fields should be rejected");
+    }
+
+    @Test
+    @DisplayName("Should accept a typed IsoMessage and encode it in field order")
+    void shouldAcceptTypedIsoMessage() {
+        Iso8583Proto.IsoMessage iso = Iso8583Proto.IsoMessage.newBuilder()
+                .setMti(200)
+                .putFields(37, ByteString.copyFromUtf8("000000000042"))
+                .putFields(2, ByteString.copyFromUtf8("4000123456789012"))
+                .putFields(11, ByteString.copyFromUtf8("000042"))
+                .putFields(3, ByteString.copyFromUtf8("000000"))
+                .putFields(4, ByteString.copyFromUtf8("000000001000"))
+                .putFields(7, ByteString.copyFromUtf8("1019120000"))
+                .build();
+
+        assertEquals("0200|2=4000123456789012|3=000000|4=000000001000|7=1019120000|11=000042|37=000000000042",
+                IsoMessageMapper.toWire(iso));
+        assertEquals("0200", IsoMessageMapper.toModel(iso).getMti());
+
+        Iso8583Proto.TransactionResponse response = Iso8583ServiceGrpc.newBlockingStub(channel)
+                .sendTransaction(Iso8583Proto.TransactionRequest.newBuilder().setIso(iso).setClientId("test").build());
+        assertTrue(response.getSuccess(), response.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should acknowledge every streamed transaction in order while honouring isReady")
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void shouldAcknowledgeStreamedTransactions() throws Exception {
+        int total = 200;
+        List<Long> acked = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger next = new AtomicInteger(0);
+
+        Iso8583ServiceGrpc.newStub(channel).streamTransactions(
+                new ClientResponseObserver<Iso8583Proto.TransactionRequest, Iso8583Proto.TransactionAck>() {
+                    private ClientCallStreamObserver<Iso8583Proto.TransactionRequest> requestStream;
+
+                    @Override
+                    public void beforeStart(ClientCallStreamObserver<Iso8583Proto.TransactionRequest> requestStream) {
+                        this.requestStream = requestStream;
+                        requestStream.setOnReadyHandler(() -> {
+                            while (requestStream.isReady() && next.get() < total) {
+                                int seq = next.incrementAndGet();
+                                requestStream.onNext(request(seq, financialRequest(String.format("%06d", seq))));
+                            }
+                            if (next.get() == total && next.compareAndSet(total, total + 1)) {
+                                requestStream.onCompleted();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onNext(Iso8583Proto.TransactionAck ack) {
+                        assertTrue(ack.getSuccess(), ack.getMessage());
+                        acked.add(ack.getSequence());
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        done.countDown();
+                    }
+                });
+
+        assertTrue(done.await(15, TimeUnit.SECONDS), "Stream should complete");
+        assertEquals(total, acked.size());
+        for (int i = 0; i < total; i++) {
+            assertEquals(i + 1, acked.get(i), "Acks should follow request order");
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep stream demand at the prefetch across ready transitions")
+    void shouldNotLeakStreamDemand() {
+        DemandCountingObserver acks = new DemandCountingObserver();
+        StreamObserver<Iso8583Proto.TransactionRequest> requests = service.streamTransactions(acks);
+
+        acks.onReady.run();
+        assertEquals(8, acks.requested);
+        int received = 0;
+        for (int round = 0; round < 20; round++) {
+            // The ack side blocks after each message, then drains: one not-ready -> ready transition per message
+            acks.ready = false;
+            requests.onNext(request(++received, financialRequest(String.format("%06d", received))));
+            acks.ready = true;
+            acks.onReady.run();
+            acks.onReady.run();
+            assertEquals(8, acks.requested - received, "Outstanding demand should never pass the prefetch");
+        }
+        assertEquals(20, acks.acked);
+    }
+
+    @Test
+    @DisplayName("Should complete an authorization call with the correlated 0210")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldReturnAuthorizationResultFromResponse() throws Exception {
+        CompletableFuture<Iso8583Proto.AuthorizationResult> result = authorize(financialRequest("000101"));
+        assertFalse(result.isDone(), "Call should stay open until the 0210 arrives");
+        assertEquals(1, timer.getPendingCount());
+
+        String reply = "0210|37=000000100101|38=A1B2C3|39=00";
+        correlator.onResponse(Iso8583Parser.parseMessage(reply), reply);
+
+        Iso8583Proto.AuthorizationResult authorization = result.get(5, TimeUnit.SECONDS);
+        assertTrue(authorization.getSuccess(), authorization.getMessage());
+        assertFalse(authorization.getTimedOut());
+        assertEquals("000000100101", authorization.getRrn());
+        assertEquals("00", authorization.getResponseCode());
+        assertEquals("A1B2C3", authorization.getApprovalCode());
+        assertTrue(authorization.getLatencyMicros() > 0, "Latency should be measured");
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("Should report a timeout when no 0210 arrives before the deadline")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldReportAuthorizationTimeout() throws Exception {
+        Iso8583Proto.AuthorizationResult authorization = authorize(financialRequest("000102")).get(5, TimeUnit.SECONDS);
+
+        assertFalse(authorization.getSuccess());
+        assertTrue(authorization.getTimedOut(), "Missing 0210 should be reported as a timeout");
+        assertTrue(authorization.getLatencyMicros() >= 1_000_000, "Timeout should follow the timer deadline");
+    }
+
+    @Test
+    @DisplayName("Should reject authorization of an invalid message immediately")
+    void shouldRejectInvalidAuthorization() throws Exception {
+        Iso8583Proto.AuthorizationResult authorization = authorize("0200|2=4000123456789012").get(5, TimeUnit.SECONDS);
+
+        assertFalse(authorization.getSuccess());
+        assertFalse(authorization.getTimedOut());
+        assertTrue(authorization.getMessage().startsWith("Error:"), authorization.getMessage());
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("Should answer with an error and release the claim when authorize throws")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldReleaseClaimWhenAuthorizeFails() throws Exception {
+        Object processor = ReflectionTestUtils.getField(service, "processor");
+        Iso8583Processor failing = mock(Iso8583Processor.class);
+        when(failing.authorize(any(), anyString())).thenThrow(new IllegalStateException("Advice queue full"));
+        ReflectionTestUtils.setField(service, "processor", failing);
+
+        Iso8583Proto.AuthorizationResult authorization = authorize(financialRequest("000103")).get(5, TimeUnit.SECONDS);
+        assertFalse(authorization.getSuccess());
+        assertEquals("Error: Advice queue full", authorization.getMessage());
+
+        // The retry is sent as an original, not parked on the failed claim
+        ReflectionTestUtils.setField(service, "processor", processor);
+        CompletableFuture<Iso8583Proto.AuthorizationResult> retry = authorize(financialRequest("000103"));
+        assertEquals(1, timer.getPendingCount());
+        assertEquals(0, duplicateFilter.getDuplicateCount());
+        assertFalse(retry.isDone());
+    }
+
+    @Test
+    @DisplayName("Should acknowledge a retried 0200 without sending it to clients again")
+    void shouldNotResendDuplicateTransaction() {
+        String message = financialRequest("000201");
+        Iso8583ServiceGrpc.Iso8583ServiceBlockingStub stub = Iso8583ServiceGrpc.newBlockingStub(channel);
+
+        assertTrue(stub.sendTransaction(request(1, message)).getSuccess());
+        Iso8583Proto.TransactionResponse retry = stub.sendTransaction(request(2, message));
+
+        assertTrue(retry.getSuccess(), retry.getMessage());
+        assertTrue(retry.getMessage().startsWith("Duplicate"), retry.getMessage());
+        assertEquals(1, timer.getPendingCount(), "Only the original should be broadcast and timed");
+        assertEquals(1, duplicateFilter.getDuplicateCount());
+    }
+
+    @Test
+    @DisplayName("Should answer a duplicate authorization with the original's 0210")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldAnswerDuplicateAuthorizationFromOriginal() throws Exception {
+        CompletableFuture<Iso8583Proto.AuthorizationResult> original = authorize(financialRequest("000202"));
+        CompletableFuture<Iso8583Proto.AuthorizationResult> retry = authorize(financialRequest("000202"));
+        assertEquals(1, timer.getPendingCount(), "The retry should wait on the original, not start a timer");
+
+        String reply = "0210|37=000000100202|38=D4E5F6|39=00";
+        correlator.onResponse(Iso8583Parser.parseMessage(reply), reply);
+
+        assertEquals("D4E5F6", original.get(5, TimeUnit.SECONDS).getApprovalCode());
+        assertEquals("D4E5F6", retry.get(5, TimeUnit.SECONDS).getApprovalCode());
+        // Answered from the cache once the original is done
+        assertEquals("00", authorize(financialRequest("000202")).get(5, TimeUnit.SECONDS).getResponseCode());
+        assertEquals(2, duplicateFilter.getDuplicateCount());
+    }
+
+    private CompletableFuture<Iso8583Proto.AuthorizationResult> authorize(String message) {
+        CompletableFuture<Iso8583Proto.AuthorizationResult> result = new CompletableFuture<>();
+        Iso8583ServiceGrpc.newStub(channel).authorizeTransaction(request(1, message),
+                new StreamObserver<>() {
+                    @Override
+                    public void onNext(Iso8583Proto.AuthorizationResult value) {
+                        result.complete(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        result.completeExceptionally(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+        return result;
+    }
+
+    private static Iso8583Proto.TransactionRequest request(long sequence, String message) {
+        return Iso8583Proto.TransactionRequest.newBuilder()
+                .setMessage(message)
+                .setClientId("test")
+                .setSequence(sequence)
+                .build();
+    }
+
+    private static String financialRequest(String stan) {
+        return "0200|2=4000123456789012|3=000000|4=000000001000|7="
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMddHHmmss"))
+                + "|11=" + stan + "|37=0000001" + stan.substring(1);
+    }
+
+    // Records what the service asks of its call, with isReady driven by the test
+    private static class DemandCountingObserver extends ServerCallStreamObserver<Iso8583Proto.TransactionAck> {
+        private boolean ready = true;
+        private int requested;
+        private int acked;
+        private Runnable onReady = () -> { };
+
+        @Override public boolean isReady() { return ready; }
+        @Override public void setOnReadyHandler(Runnable onReadyHandler) { onReady = onReadyHandler; }
+        @Override public void request(int count) { requested += count; }
+        @Override public void disableAutoInboundFlowControl() { }
+        @Override public void disableAutoRequest() { }
+        @Override public boolean isCancelled() { return false; }
+        @Override public void setOnCancelHandler(Runnable onCancelHandler) { }
+        @Override public void setCompression(String compression) { }
+        @Override public void setMessageCompression(boolean enable) { }
+        @Override public void onNext(Iso8583Proto.TransactionAck ack) { acked++; }
+        @Override public void onError(Throwable t) { }
+        @Override public void onCompleted() { }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.server.journal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hot-path cost of journaling one accepted transaction (RECEIVED + BROADCAST, then awaitDurable)
+ * from several gRPC-like threads, with and without fsync groups. Run with -Dbenchmark.journal=true;
+ * -Dbenchmark.journal.dir puts the segments on the disk under test instead of the temp directory.
+ */
+@EnabledIfSystemProperty(named = "benchmark.journal", matches = "true")
+class TransactionJournalBenchmarkTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 25_000;
+    private static final String MESSAGE = "0200|2=4000123456789012|3=000000|4=000000001000|7=1019120000|11=000001"
+            + "|12=120000|13=1019|18=5999|22=012|25=00|37=000000000001|41=SIM001  |42=SIMULATOR000001|49=840";
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    @DisplayName("Benchmark: journaled transactions per second")
+    void measureThroughput() throws Exception {
+        Path directory = Path.of(System.getProperty("benchmark.journal.dir", tempDirectory.toString()));
+        for (int group : new int[] {0, 32, 256}) {
+            TransactionJournal journal = new TransactionJournal(true,
+                    directory.resolve("group-" + group).toString(), 64, group, 2, 4);
+            journal.open();
+
+            List<Thread> threads = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        journal.append(TransactionJournal.RecordType.RECEIVED, MESSAGE);
+                        journal.awaitDurable(journal.append(TransactionJournal.RecordType.BROADCAST, "000000000001"));
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) thread.join();
+            double tps = THREADS * PER_THREAD / ((System.nanoTime() - start) / 1e9);
+            journal.close();
+
+            System.out.printf("📊 Journal fsync group %d: %.0f transactions/s (%d threads)%n", group, tps, THREADS);
+            if (group == 0) {
+                assertTrue(tps > 10_000, "Journal without fsync waits must sustain 10k TPS, got " + tps);
+            }
+        }
+    }
+}
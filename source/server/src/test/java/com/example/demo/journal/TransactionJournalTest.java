@@ -0,0 +1,252 @@
+package com.example.server.journal;
+
+import com.example.server.cluster.ResponseCorrelator;
+import com.example.server.cluster.RrnOwnership;
+import com.example.server.metrics.TransactionMetrics;
+import com.example.server.repository.TransactionBatchWriter;
+import com.example.server.repository.TransactionRecord;
+import com.example.server.service.TransactionPersistenceService;
+import com.example.server.service.TransactionTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should read back appended records from the previous run's segment")
+    void shouldRecoverAppendedRecords() throws Exception {
+        TransactionJournal journal = journal(1, 0);
+        journal.open();
+        journal.append(TransactionJournal.RecordType.RECEIVED, request("000000000001"));
+        journal.append(TransactionJournal.RecordType.BROADCAST, "000000000001");
+        journal.append(TransactionJournal.RecordType.RESPONDED, "0210|37=000000000001|39=00");
+        journal.close();
+
+        TransactionJournal reopened = journal(1, 0);
+        reopened.open();
+        List<Path> segments = reopened.getRecoveredSegments();
+        assertEquals(1, segments.size());
+        List<TransactionJournal.Entry> entries = TransactionJournal.read(segments.get(0));
+        assertEquals(3, entries.size());
+        assertEquals(TransactionJournal.RecordType.RECEIVED, entries.get(0).getType());
+        assertEquals(request("000000000001"), entries.get(0).getPayload());
+        assertEquals("000000000001", entries.get(1).getPayload());
+        assertEquals(TransactionJournal.RecordType.RESPONDED, entries.get(2).getType());
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Should stop at a torn record instead of replaying garbage")
+    void shouldStopAtTornRecord() throws Exception {
+        TransactionJournal journal = journal(1, 0);
+        journal.open();
+        journal.append(TransactionJournal.RecordType.RECEIVED, request("000000000001"));
+        journal.append(TransactionJournal.RecordType.RECEIVED, request("000000000002"));
+        journal.close();
+
+        Path segment = segments().get(0);
+        int firstRecord = 4 + 4 + 1 + 8 + request("000000000001").length();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(firstRecord + 20); // inside the second record's payload
+            file.write('X');
+        }
+
+        List<TransactionJournal.Entry> entries = TransactionJournal.read(segment);
+        assertEquals(1, entries.size(), "Only the intact record should be recovered");
+    }
+
+    @Test
+    @DisplayName("Should roll segments and keep only the retained ones")
+    void shouldRollSegments() throws Exception {
+        TransactionJournal journal = new TransactionJournal(true, directory.toString(), 1, 0, 5, 2);
+        journal.open();
+        String payload = "x".repeat(100_000);
+        for (int i = 0; i < 40; i++) {
+            journal.append(TransactionJournal.RecordType.RECEIVED, payload);
+        }
+        journal.close();
+
+        assertEquals(2, segments().size(), "Older segments beyond the retention should be deleted");
+    }
+
+    @Test
+    @DisplayName("Should keep segments with unpersisted transactions or unacknowledged advices and refuse new ones when full")
+    void shouldRetainUnsettledSegments() throws Exception {
+        TransactionJournal journal = new TransactionJournal(true, directory.toString(), 1, 0, 5, 2);
+        journal.open();
+        // Database down: the oldest segment holds a broadcast 0200 never persisted, and an advice
+        journal.append(TransactionJournal.RecordType.RECEIVED, request("000000000001"));
+        journal.append(TransactionJournal.RecordType.BROADCAST, "000000000001");
+        journal.append(TransactionJournal.RecordType.ADVICE, "0220|2=4000123456789012|37=000000000002|39=00");
+        String payload = "x".repeat(100_000);
+        for (int i = 0; i < 30; i++) {
+            journal.append(TransactionJournal.RecordType.RESPONDED, payload);
+        }
+
+        assertTrue(journal.isFull());
+        assertEquals(3, segments().size(), "The pinned segment is kept past the retention");
+        assertTrue(Files.exists(segments().get(0)));
+        assertThrows(IllegalStateException.class,
+                () -> journal.append(TransactionJournal.RecordType.RECEIVED, request("000000000003")));
+
+        // Persisted and acknowledged: the oldest segment goes on the next roll
+        journal.append(TransactionJournal.RecordType.PERSISTED, "000000000001");
+        assertTrue(journal.isFull(), "Still pinned by the advice");
+        journal.append(TransactionJournal.RecordType.ADVISED, "000000000002");
+        for (int i = 0; i < 10; i++) {
+            journal.append(TransactionJournal.RecordType.RESPONDED, payload);
+        }
+        assertFalse(journal.isFull());
+        journal.append(TransactionJournal.RecordType.RECEIVED, request("000000000003"));
+        journal.close();
+        assertEquals(2, segments().size());
+    }
+
+    @Test
+    @DisplayName("Should settle answered transactions without a PERSISTED record while persistence is off")
+    void shouldSettleWhenPersistenceIsOff() throws Exception {
+        TransactionJournal journal = new TransactionJournal(true, directory.toString(), 1, 0, 5, 2);
+        journal.setSettlement(() -> false, 60_000);
+        journal.open();
+        journal.append(TransactionJournal.RecordType.RECEIVED, request("000000000001"));
+        journal.append(TransactionJournal.RecordType.BROADCAST, "000000000001");
+        journal.append(TransactionJournal.RecordType.RECEIVED, request("000000000002"));
+        journal.append(TransactionJournal.RecordType.BROADCAST, "000000000002");
+        journal.append(TransactionJournal.RecordType.RESPONDED, "0210|37=000000000001|39=00");
+        String payload = "x".repeat(100_000);
+        for (int i = 0; i < 30; i++) {
+            journal.append(TransactionJournal.RecordType.RESPONDED, payload);
+        }
+        assertTrue(journal.isFull(), "000000000002 is still waiting for its 0210 within the timeout");
+
+        journal.append(TransactionJournal.RecordType.RESPONDED, "0210|37=000000000002|39=00");
+        for (int i = 0; i < 10; i++) {
+            journal.append(TransactionJournal.RecordType.RESPONDED, payload);
+        }
+        assertFalse(journal.isFull());
+        journal.close();
+        assertEquals(2, segments().size());
+    }
+
+    @Test
+    @DisplayName("Should release awaitDurable once a group has been forced")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldAwaitGroupFsync() throws Exception {
+        TransactionJournal journal = journal(1, 4);
+        journal.open();
+        long last = 0;
+        for (int i = 0; i < 10; i++) {
+            last = journal.append(TransactionJournal.RecordType.BROADCAST, String.valueOf(i));
+        }
+        journal.awaitDurable(last);
+        journal.close();
+        assertEquals(10, last);
+    }
+
+    @Test
+    @DisplayName("Should complete whenDurable from the flusher in sequence order")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldCompleteWhenDurable() throws Exception {
+        TransactionJournal journal = journal(1, 1000);
+        journal.open();
+        List<Long> completed = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            long sequence = journal.append(TransactionJournal.RecordType.BROADCAST, String.valueOf(i));
+            durable.add(journal.whenDurable(sequence).thenRun(() -> completed.add(sequence)));
+        }
+        CompletableFuture.allOf(durable.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), completed);
+        assertTrue(journal.whenDurable(10).isDone(), "An already durable sequence should complete at once");
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("Should restore pending timers and backfill unpersisted transactions on replay")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldReplayOpenTransactions() throws Exception {
+        TransactionJournal previous = journal(1, 0);
+        previous.open();
+        // Pending: broadcast, not answered, not persisted
+        previous.append(TransactionJournal.RecordType.RECEIVED, request("000000000001"));
+        previous.append(TransactionJournal.RecordType.BROADCAST, "000000000001");
+        // Answered and persisted: nothing to do
+        previous.append(TransactionJournal.RecordType.RECEIVED, request("000000000002"));
+        previous.append(TransactionJournal.RecordType.BROADCAST, "000000000002");
+        previous.append(TransactionJournal.RecordType.RESPONDED, "0210|37=000000000002|39=00");
+        previous.append(TransactionJournal.RecordType.PERSISTED, "000000000002");
+        // Answered but never persisted: backfill only
+        previous.append(TransactionJournal.RecordType.RECEIVED, request("000000000003"));
+        previous.append(TransactionJournal.RecordType.BROADCAST, "000000000003");
+        previous.append(TransactionJournal.RecordType.RESPONDED, "0210|37=000000000003|39=05");
+        // Never broadcast, so never acknowledged: dropped
+        previous.append(TransactionJournal.RecordType.RECEIVED, request("000000000004"));
+        previous.close();
+
+        TransactionTimer timer = new TransactionTimer(new TransactionMetrics(new SimpleMeterRegistry()), 30);
+        ResponseCorrelator correlator = new ResponseCorrelator(timer, new RrnOwnership(List.of(), 0));
+        List<TransactionRecord> persisted = new CopyOnWriteArrayList<>();
+        TransactionPersistenceService persistence =
+                new TransactionPersistenceService(new SimpleMeterRegistry(), true, 1, 100, 10, 5);
+        ReflectionTestUtils.setField(persistence, "batchWriter",
+                new TransactionBatchWriter(null, TransactionBatchWriter.Durability.SYNC,
+                        TransactionBatchWriter.EventIngest.INSERT, 1000) {
+                    @Override
+                    public void write(List<TransactionRecord> batch) {
+                        persisted.addAll(batch);
+                    }
+                });
+        persistence.start();
+
+        TransactionJournal journal = journal(1, 0);
+        journal.open();
+        new JournalReplayer(journal, correlator, persistence, timer).replay();
+
+        assertEquals(1, timer.getPendingCount(), "Only the unanswered transaction should get its timer back");
+        while (persisted.size() < 2) Thread.sleep(10);
+        assertEquals(List.of("000000000001", "000000000003"),
+                persisted.stream().map(TransactionRecord::getRrn).sorted().toList());
+        assertEquals(1, segments().size(), "Recovered segments should be deleted after replay");
+
+        // The open transactions were carried into the new segment, and so was the persistence marker
+        while (TransactionJournal.read(segments().get(0)).stream()
+                .noneMatch(e -> e.getType() == TransactionJournal.RecordType.PERSISTED)) Thread.sleep(10);
+        persistence.shutdown();
+        journal.close();
+        assertTrue(TransactionJournal.read(segments().get(0)).stream()
+                .anyMatch(e -> e.getType() == TransactionJournal.RecordType.RECEIVED));
+    }
+
+    private TransactionJournal journal(int segmentSizeMb, int fsyncGroupSize) {
+        return new TransactionJournal(true, directory.toString(), segmentSizeMb, fsyncGroupSize, 5, 16);
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static String request(String rrn) {
+        return "0200|2=4000123456789012|3=000000|4=000000001000|7=1019120000|11=" + rrn.substring(6) + "|37=" + rrn;
+    }
+}
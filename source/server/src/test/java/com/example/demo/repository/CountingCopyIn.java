@@ -0,0 +1,64 @@
+package com.example.server.repository;
+
+import org.postgresql.copy.CopyIn;
+import org.postgresql.util.ByteStreamWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+
+/**
+ * Stands in for the server side of a binary COPY: takes the PGCOPY stream, walks its tuples and
+ * reports the row count PostgreSQL would, so the encoder can be tested and timed without a database.
+ */
+class CountingCopyIn implements CopyIn {
+
+    private final ByteArrayOutputStream stream = new ByteArrayOutputStream(64 * 1024);
+    private boolean active = true;
+    private long rows;
+    private long bytes;
+
+    @Override
+    public void writeToCopy(byte[] buf, int off, int siz) {
+        stream.write(buf, off, siz);
+    }
+
+    @Override
+    public void writeToCopy(ByteStreamWriter from) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void flushCopy() {
+    }
+
+    @Override
+    public long endCopy() throws SQLException {
+        active = false;
+        ByteBuffer in = ByteBuffer.wrap(stream.toByteArray());
+        bytes += in.remaining();
+        stream.reset();
+        in.position(11 + 4 + 4); // signature, flags, header extension length
+        long copied = 0;
+        for (short columns = in.getShort(); columns != -1; columns = in.getShort()) {
+            if (columns != 5) throw new SQLException("Row with " + columns + " columns");
+            for (int i = 0; i < columns; i++) {
+                int length = in.getInt();
+                if (length > 0) in.position(in.position() + length);
+            }
+            copied++;
+        }
+        if (in.hasRemaining()) throw new SQLException(in.remaining() + " bytes after the trailer");
+        rows += copied;
+        return copied;
+    }
+
+    @Override public int getFieldCount() { return 5; }
+    @Override public int getFormat() { return 1; }
+    @Override public int getFieldFormat(int field) { return 1; }
+    @Override public boolean isActive() { return active; }
+    @Override public void cancelCopy() { active = false; }
+    @Override public long getHandledRowCount() { return rows; }
+
+    long getBytes() { return bytes; }
+}
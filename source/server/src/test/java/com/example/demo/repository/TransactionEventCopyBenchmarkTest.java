@@ -0,0 +1,122 @@
+package com.example.server.repository;
+
+import com.example.server.entity.TransactionEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rows per second for the event log: one autocommitted INSERT per row (what saveTransactionEvent did)
+ * against binary COPY in write-behind sized chunks. The comparison needs a reachable PostgreSQL, so it
+ * only runs with -Dbenchmark.postgres.url=jdbc:postgresql://localhost:5432/acquirer_db
+ * [-Dbenchmark.postgres.user/password]. The client side alone, encoding into a {@link CountingCopyIn},
+ * runs with: mvn test -pl server -am -Dtest=TransactionEventCopyBenchmarkTest -Dbenchmark.copy=true
+ */
+class TransactionEventCopyBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 20000);
+    private static final int CHUNK = 500;
+    private static final String MESSAGE = "0200|2=4000123456789012|3=000000|4=000000001000|7=1019120000|11=000001"
+            + "|12=120000|13=1019|18=5999|22=012|25=00|37=000000000001|41=SIM001  |42=SIMULATOR000001|49=840";
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.copy", matches = "true")
+    @DisplayName("Benchmark: binary COPY encoding into a counting CopyIn, no database")
+    void measureCopyEncoding() throws Exception {
+        List<List<TransactionEvent>> chunks = new ArrayList<>();
+        for (int i = 0; i < ROWS; i += CHUNK) {
+            List<TransactionEvent> chunk = new ArrayList<>(CHUNK);
+            for (int j = i; j < Math.min(ROWS, i + CHUNK); j++) {
+                TransactionEvent event = new TransactionEvent((long) j, "RECEIVED", MESSAGE);
+                event.setId((long) j + 1);
+                chunk.add(event);
+            }
+            chunks.add(chunk);
+        }
+        for (int warmup = 0; warmup < 5; warmup++) {
+            for (List<TransactionEvent> chunk : chunks) {
+                TransactionEventCopy.copyIn(new CountingCopyIn(), chunk);
+            }
+        }
+
+        long copied = 0;
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (List<TransactionEvent> chunk : chunks) {
+            CountingCopyIn copy = new CountingCopyIn();
+            copied += TransactionEventCopy.copyIn(copy, chunk);
+            bytes += copy.getBytes();
+        }
+        double rate = ROWS / ((System.nanoTime() - start) / 1e9);
+
+        System.out.printf("📊 transaction_events: binary COPY encoding %.0f rows/s, %.1f bytes/row, %d-row chunks%n",
+                rate, (double) bytes / ROWS, CHUNK);
+        assertEquals(ROWS, copied);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.postgres.url", matches = ".+")
+    @DisplayName("Benchmark: binary COPY vs per-row INSERT for transaction_events")
+    void compareCopyWithRowInserts() throws Exception {
+        try (Connection connection = DriverManager.getConnection(System.getProperty("benchmark.postgres.url"),
+                System.getProperty("benchmark.postgres.user", "acquirer_user"),
+                System.getProperty("benchmark.postgres.password", "acq123"))) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMP TABLE bench_events (LIKE transaction_events INCLUDING DEFAULTS)");
+            }
+
+            long start = System.nanoTime();
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO bench_events (transaction_id, event_type, iso_message, event_time) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < ROWS; i++) {
+                    ps.setLong(1, i);
+                    ps.setString(2, "RECEIVED");
+                    ps.setString(3, MESSAGE);
+                    ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+                    ps.executeUpdate();
+                }
+            }
+            double insertRate = ROWS / ((System.nanoTime() - start) / 1e9);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("TRUNCATE bench_events");
+            }
+            connection.setAutoCommit(false);
+            start = System.nanoTime();
+            long copied = 0;
+            List<TransactionEvent> chunk = new ArrayList<>(CHUNK);
+            for (int i = 0; i < ROWS; i++) {
+                TransactionEvent event = new TransactionEvent((long) i, "RECEIVED", MESSAGE);
+                event.setId((long) i + 1);
+                chunk.add(event);
+                if (chunk.size() == CHUNK || i == ROWS - 1) {
+                    copied += TransactionEventCopy.copyIn(connection, "bench_events", chunk);
+                    connection.commit();
+                    chunk.clear();
+                }
+            }
+            double copyRate = ROWS / ((System.nanoTime() - start) / 1e9);
+
+            System.out.printf("📊 transaction_events: INSERT per row %.0f rows/s, binary COPY %.0f rows/s (%.1fx)%n",
+                    insertRate, copyRate, copyRate / insertRate);
+            assertEquals(ROWS, copied);
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT count(*) FROM bench_events")) {
+                rs.next();
+                assertEquals(ROWS, rs.getLong(1));
+            }
+        }
+    }
+}
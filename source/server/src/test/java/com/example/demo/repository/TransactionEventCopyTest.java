@@ -0,0 +1,78 @@
+package com.example.server.repository;
+
+import com.example.server.entity.TransactionEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionEventCopyTest {
+
+    @Test
+    @DisplayName("Should encode an event as a PGCOPY binary tuple")
+    void shouldEncodeBinaryTuple() throws Exception {
+        TransactionEvent event = new TransactionEvent(7L, "RECEIVED", "0200|37=000000000001");
+        event.setId(42L);
+        event.setEventTime(LocalDateTime.of(2000, 1, 1, 0, 0, 1, 2_000));
+
+        ByteBuffer buffer = TransactionEventCopy.encode(null, ByteBuffer.allocate(256), event);
+        buffer.flip();
+
+        assertEquals(5, buffer.getShort(), "Column count");
+        assertEquals(8, buffer.getInt());
+        assertEquals(42L, buffer.getLong(), "id");
+        assertEquals(8, buffer.getInt());
+        assertEquals(7L, buffer.getLong(), "transaction_id");
+        assertEquals("RECEIVED", text(buffer));
+        assertEquals("0200|37=000000000001", text(buffer));
+        assertEquals(8, buffer.getInt());
+        assertEquals(1_000_002L, buffer.getLong(), "Timestamp should count microseconds from 2000-01-01");
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    @DisplayName("Should encode nulls with length -1 and grow the buffer for oversized rows")
+    void shouldEncodeNullsAndOversizedRows() throws Exception {
+        TransactionEvent event = new TransactionEvent(null, "BROADCAST", "x".repeat(1000));
+        event.setEventTime(null);
+
+        ByteBuffer buffer = TransactionEventCopy.encode(null, ByteBuffer.allocate(16), event);
+        buffer.flip();
+
+        assertEquals(5, buffer.getShort());
+        assertEquals(-1, buffer.getInt(), "Null id");
+        assertEquals(-1, buffer.getInt(), "Null transaction_id");
+        assertEquals("BROADCAST", text(buffer));
+        assertEquals(1000, text(buffer).length());
+        assertEquals(-1, buffer.getInt(), "Null event_time");
+    }
+
+    @Test
+    @DisplayName("Should stream header, every row and trailer through CopyIn across chunk flushes")
+    void shouldCopyAllRows() throws Exception {
+        List<TransactionEvent> events = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            TransactionEvent event = new TransactionEvent((long) i, "RECEIVED", "0200|37=" + String.format("%012d", i));
+            event.setId(i % 7 == 0 ? null : (long) i);
+            events.add(event);
+        }
+        CountingCopyIn copy = new CountingCopyIn();
+
+        assertEquals(2000, TransactionEventCopy.copyIn(copy, events));
+        assertFalse(copy.isActive());
+        assertTrue(copy.getBytes() > 64 * 1024, "Should have spanned more than one chunk");
+        assertEquals(0, TransactionEventCopy.copyIn(new CountingCopyIn(), List.of()), "Header and trailer only");
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] value = new byte[buffer.getInt()];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
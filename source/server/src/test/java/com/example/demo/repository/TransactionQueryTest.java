@@ -0,0 +1,73 @@
+package com.example.server.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionQueryTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2025, 1, 2, 0, 0);
+
+    @Test
+    @DisplayName("Should only filter on the time range when no other criteria are given")
+    void shouldQueryTimeRangeOnly() throws Exception {
+        TransactionQuery query = new TransactionQuery(FROM, TO, null, null, null, null, null, 100);
+
+        assertEquals("SELECT id, transaction_time, update_time, status, response_code, amount, stan, rrn, mti, "
+                + "target_number, source_number, pan_hash FROM transactions "
+                + "WHERE transaction_time >= ? AND transaction_time < ? "
+                + "ORDER BY transaction_time, id LIMIT ?", query.toSql());
+        assertEquals(List.of(Timestamp.valueOf(FROM), Timestamp.valueOf(TO), 100), bound(query));
+    }
+
+    @Test
+    @DisplayName("Should continue after the cursor row with a row-value comparison")
+    void shouldApplyKeysetCursor() throws Exception {
+        String cursor = TransactionQuery.cursor(LocalDateTime.of(2025, 1, 1, 10, 30, 15, 123000000), 42001);
+        TransactionQuery query = new TransactionQuery(FROM, TO, "123456", "000000000001", "ab12", "9704000000000018",
+                cursor, 50);
+
+        String sql = query.toSql();
+        assertTrue(sql.contains(" AND stan = ? AND rrn = ? AND pan_hash = ? AND target_number = ?"
+                + " AND (transaction_time, id) > (?, ?) ORDER BY"), sql);
+        assertEquals(List.of(Timestamp.valueOf(FROM), Timestamp.valueOf(TO), "123456", "000000000001", "ab12",
+                "9704000000000018", Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 10, 30, 15, 123000000)),
+                42001L, 50), bound(query));
+    }
+
+    @Test
+    @DisplayName("Should reject malformed cursors")
+    void shouldRejectMalformedCursor() {
+        for (String cursor : new String[]{"42", "2025-01-01T10:00,abc", "yesterday,1"}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new TransactionQuery(FROM, TO, null, null, null, null, cursor, 10), cursor);
+        }
+    }
+
+    private static List<Object> bound(TransactionQuery query) throws Exception {
+        List<Object> values = new ArrayList<>();
+        PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("setObject")) {
+                        assertEquals(values.size() + 1, args[0], "Parameters should be bound in order");
+                        values.add(args[1]);
+                    }
+                    return null;
+                });
+        query.bind(ps);
+        return values;
+    }
+
+    private static ClassLoader getClassLoader() {
+        return TransactionQueryTest.class.getClassLoader();
+    }
+}
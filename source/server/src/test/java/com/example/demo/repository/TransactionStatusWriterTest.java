@@ -0,0 +1,53 @@
+package com.example.server.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TransactionStatusWriterTest {
+
+    @Test
+    @DisplayName("Should split a batch into statements under the 65535 bind parameter limit")
+    void shouldChunkUnderParameterLimit() throws Exception {
+        Connection connection = mock(Connection.class);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        List<String> statements = new ArrayList<>();
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            PreparedStatement ps = mock(PreparedStatement.class);
+            when(ps.executeQuery()).thenReturn(mock(ResultSet.class));
+            return ps;
+        });
+
+        int rows = TransactionStatusWriter.MAX_ROWS_PER_STATEMENT * 2 + 1;
+        List<TransactionStatusUpdate> updates = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < rows; i++) {
+            updates.add(new TransactionStatusUpdate(String.format("%012d", i), null, "APPROVED", "00", now));
+        }
+
+        List<TransactionStatusUpdate> unmatched = new TransactionStatusWriter(dataSource).write(updates);
+
+        assertEquals(3, statements.size());
+        for (String sql : statements) {
+            int parameters = sql.length() - sql.replace("?", "").length();
+            assertTrue(parameters <= 65_535, parameters + " parameters");
+        }
+        assertEquals(TransactionStatusWriter.updateSql(1).replace("?", "").length(),
+                statements.get(2).replace("?", "").length(), "The remainder should go in a one-row statement");
+        assertEquals(rows, unmatched.size(), "Nothing matched, so every update is returned for a retry");
+        verify(connection).close();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.server.server;
+
+import com.example.common.model.NetworkManagement;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Iso8583ServerTest {
+
+    private final EmbeddedChannel main = new ClientChannel(40001);
+    private final EmbeddedChannel responseLink = new ClientChannel(40002);
+
+    @AfterEach
+    void tearDown() {
+        main.finishAndReleaseAll();
+        responseLink.finishAndReleaseAll();
+    }
+
+    @Test
+    @DisplayName("Should leave signed-on response links out of broadcasts and not answer the sign-on")
+    void shouldNotBroadcastToResponseLinks() {
+        assertEquals(2, Iso8583Server.getBroadcastClientCount());
+
+        responseLink.writeInbound(NetworkManagement.responseLinkSignOn().toString());
+        assertNull(responseLink.readOutbound(), "A sign-on gets no reply");
+        assertEquals(1, Iso8583Server.getBroadcastClientCount());
+
+        Iso8583Server.broadcastToClients("0200|2=4000123456789012|11=000001|37=000000000001");
+        assertEquals("0200|2=4000123456789012|11=000001|37=000000000001", main.readOutbound());
+        assertNull(responseLink.readOutbound(), "Response links get no 0200s");
+
+        responseLink.close();
+        main.close();
+        assertEquals(0, Iso8583Server.getBroadcastClientCount());
+    }
+
+    // Embedded channels all share one remote address, and the server keys its clients by address
+    private static final class ClientChannel extends EmbeddedChannel {
+        private final InetSocketAddress remote;
+
+        ClientChannel(int port) {
+            super(false, false);
+            remote = new InetSocketAddress("127.0.0.1", port);
+            pipeline().addLast(new Iso8583Server.Iso8583ServerHandler());
+            try {
+                register();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        protected SocketAddress remoteAddress0() {
+            return remote;
+        }
+    }
+}
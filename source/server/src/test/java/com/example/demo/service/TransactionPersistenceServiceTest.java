@@ -0,0 +1,114 @@
+package com.example.server.service;
+
+import com.example.common.parser.Iso8583Parser;
+import com.example.server.repository.TransactionBatchWriter;
+import com.example.server.repository.TransactionRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionPersistenceServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<List<TransactionRecord>> batches = new CopyOnWriteArrayList<>();
+    private TransactionPersistenceService service;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (service != null) service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should group queued transactions into batches no larger than batch-size")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldWriteInBatches() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        service = start(1, 100, 25, 1000, release);
+
+        for (int i = 0; i < 100; i++) {
+            service.recordAccepted(Iso8583Parser.parseMessage(financialRequest(i)), financialRequest(i));
+        }
+        release.countDown();
+
+        awaitRecords(100);
+        assertTrue(batches.stream().allMatch(b -> b.size() <= 25), "Batches must respect batch-size");
+        assertTrue(batches.size() <= 5, "Backlog should be written in full batches, got " + batches.size());
+        assertEquals(0, service.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("Should flush a partial batch once the linger time expires")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldFlushPartialBatchAfterLinger() throws Exception {
+        service = start(1, 100, 50, 20, null);
+
+        service.recordAccepted(Iso8583Parser.parseMessage(financialRequest(1)), financialRequest(1));
+        service.recordAccepted(Iso8583Parser.parseMessage(financialRequest(2)), financialRequest(2));
+
+        awaitRecords(2);
+        TransactionRecord first = batches.get(0).get(0);
+        assertEquals("4000123456789012", first.getSourceNumber());
+        assertEquals(new BigDecimal("10"), first.getAmount(), "Amount should be converted from cents");
+        assertEquals("0200", first.getMti());
+    }
+
+    @Test
+    @DisplayName("Should drop and count transactions when the queue is full")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldRejectWhenQueueFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        service = start(1, 4, 1, 0, release);
+
+        for (int i = 0; i < 20; i++) {
+            service.recordAccepted(Iso8583Parser.parseMessage(financialRequest(i)), financialRequest(i));
+        }
+
+        assertTrue(registry.counter("iso8583.persistence.rejected").count() > 0, "Overflow should be counted");
+        release.countDown();
+    }
+
+    private TransactionPersistenceService start(int threads, int capacity, int batchSize, long lingerMs,
+                                                CountDownLatch release) {
+        TransactionPersistenceService persistence =
+                new TransactionPersistenceService(registry, true, threads, capacity, batchSize, lingerMs);
+        ReflectionTestUtils.setField(persistence, "batchWriter",
+                new TransactionBatchWriter(null, TransactionBatchWriter.Durability.SYNC,
+                        TransactionBatchWriter.EventIngest.INSERT, 1000) {
+                    @Override
+                    public void write(List<TransactionRecord> batch) {
+                        try {
+                            if (release != null) release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        batches.add(new ArrayList<>(batch));
+                    }
+                });
+        persistence.start();
+        return persistence;
+    }
+
+    private void awaitRecords(int expected) throws InterruptedException {
+        while (batches.stream().mapToInt(List::size).sum() < expected) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, batches.stream().mapToInt(List::size).sum());
+    }
+
+    private static String financialRequest(int i) {
+        return "0200|2=4000123456789012|3=000000|4=000000001000|7=1019120000|11="
+                + String.format("%06d", i) + "|37=" + String.format("%012d", i) + "|42=MERCHANT000001";
+    }
+}
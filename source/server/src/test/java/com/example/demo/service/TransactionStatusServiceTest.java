@@ -0,0 +1,113 @@
+package com.example.server.service;
+
+import com.example.common.parser.Iso8583Parser;
+import com.example.server.metrics.TransactionMetrics;
+import com.example.server.repository.TransactionStatusUpdate;
+import com.example.server.repository.TransactionStatusWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStatusServiceTest {
+
+    private final List<List<TransactionStatusUpdate>> batches = new CopyOnWriteArrayList<>();
+    private final Map<String, String> rows = new ConcurrentHashMap<>();
+    private final Set<String> insertedRows = ConcurrentHashMap.newKeySet();
+    private TransactionStatusService service;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (service != null) service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should record APPROVED, DECLINED and TIMEOUT outcomes from the transaction timer")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldRecordOutcomesFromTimer() throws Exception {
+        service = start(5);
+        insertedRows.addAll(Set.of("000000000001", "000000000002", "000000000003"));
+        TransactionTimer timer = new TransactionTimer(new TransactionMetrics(new SimpleMeterRegistry()), 1);
+        timer.setStatusService(service);
+
+        timer.startTimer("000000000001");
+        timer.startTimer("000000000002");
+        timer.startTimer("000000000003");
+        timer.checkResponse("000000000001", Iso8583Parser.parseMessage("0210|11=000001|37=000000000001|38=ABC123|39=00"));
+        timer.checkResponse("000000000002", Iso8583Parser.parseMessage("0210|11=000002|37=000000000002|39=51"));
+
+        awaitRows(3);
+        assertEquals("APPROVED/00", rows.get("000000000001"));
+        assertEquals("DECLINED/51", rows.get("000000000002"));
+        assertEquals("TIMEOUT/null", rows.get("000000000003"));
+    }
+
+    @Test
+    @DisplayName("Should coalesce updates for the same RRN into one row of a batch")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldCoalesceUpdates() throws Exception {
+        service = start(5);
+        insertedRows.add("000000000010");
+        for (int i = 0; i < 50; i++) {
+            insertedRows.add(String.format("%012d", 100 + i));
+            service.onResponse(String.format("%012d", 100 + i),
+                    Iso8583Parser.parseMessage("0210|37=" + String.format("%012d", 100 + i) + "|39=00"));
+        }
+        service.onTimeout("000000000010");
+        service.onResponse("000000000010", Iso8583Parser.parseMessage("0210|37=000000000010|39=00"));
+
+        awaitRows(51);
+        assertEquals("APPROVED/00", rows.get("000000000010"), "Last outcome should win");
+        assertTrue(batches.size() < 51, "Updates should be applied in batches, got " + batches.size());
+        assertTrue(batches.stream().allMatch(b -> b.stream().map(TransactionStatusUpdate::getRrn).distinct().count() == b.size()),
+                "A batch must not update the same RRN twice");
+    }
+
+    @Test
+    @DisplayName("Should retry an update that arrives before its row is inserted")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldRetryUntilRowExists() throws Exception {
+        service = start(5);
+        service.onResponse("000000000020", Iso8583Parser.parseMessage("0210|37=000000000020|39=00"));
+
+        while (batches.isEmpty()) Thread.sleep(10);
+        assertNull(rows.get("000000000020"));
+        insertedRows.add("000000000020"); // the write-behind insert lands
+
+        awaitRows(1);
+        assertEquals("APPROVED/00", rows.get("000000000020"));
+    }
+
+    private TransactionStatusService start(int maxAttempts) {
+        TransactionStatusService status =
+                new TransactionStatusService(new SimpleMeterRegistry(), true, 1000, 100, 20, maxAttempts, 50);
+        ReflectionTestUtils.setField(status, "statusWriter", new TransactionStatusWriter(null) {
+            @Override
+            public List<TransactionStatusUpdate> write(List<TransactionStatusUpdate> updates) {
+                batches.add(List.copyOf(updates));
+                return updates.stream().filter(u -> {
+                    if (!insertedRows.contains(u.getRrn())) return true;
+                    rows.put(u.getRrn(), u.getStatus() + "/" + u.getResponseCode());
+                    return false;
+                }).toList();
+            }
+        });
+        status.start();
+        return status;
+    }
+
+    private void awaitRows(int expected) throws InterruptedException {
+        while (rows.size() < expected) Thread.sleep(10);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.server.service;
+
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import com.example.server.metrics.TransactionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionTimerTest {
+
+    private final TransactionTimer timer = new TransactionTimer(new TransactionMetrics(new SimpleMeterRegistry()), 1);
+
+    @Test
+    @DisplayName("Should complete both callers when a timer is started twice for one field 37")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldShareRunningTimer() throws Exception {
+        CompletableFuture<Iso8583Message> first = new CompletableFuture<>();
+        CompletableFuture<Iso8583Message> second = new CompletableFuture<>();
+        timer.startTimer("000000000001", first::complete);
+        timer.startTimer("000000000001", second::complete);
+        assertEquals(1, timer.getPendingCount());
+
+        assertTrue(timer.checkResponse("000000000001", Iso8583Parser.parseMessage("0210|37=000000000001|39=00")));
+        assertEquals("00", first.get(5, TimeUnit.SECONDS).getField(39));
+        assertEquals("00", second.get(5, TimeUnit.SECONDS).getField(39));
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("Should time out every caller sharing a timer")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void shouldTimeOutSharedTimer() throws Exception {
+        CompletableFuture<Iso8583Message> first = new CompletableFuture<>();
+        CompletableFuture<Iso8583Message> second = new CompletableFuture<>();
+        timer.startTimer("000000000002", first::complete, 100);
+        timer.startTimer("000000000002", second::complete, 100);
+
+        assertNull(first.get(5, TimeUnit.SECONDS));
+        assertNull(second.get(5, TimeUnit.SECONDS));
+        assertEquals(0, timer.getPendingCount());
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.server.stip;
+
+import com.example.common.model.Iso8583Message;
+import com.example.common.parser.Iso8583Parser;
+import com.example.server.cluster.ResponseCorrelator;
+import com.example.server.cluster.RrnOwnership;
+import com.example.server.journal.JournalReplayer;
+import com.example.server.journal.TransactionJournal;
+import com.example.server.metrics.TransactionMetrics;
+import com.example.server.server.Iso8583Server;
+import com.example.server.service.Iso8583Processor;
+import com.example.server.service.TransactionPersistenceService;
+import com.example.server.service.TransactionTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StandInTest {
+
+    private static final String PAN = "4000123456789012";
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TransactionTimer timer = new TransactionTimer(new TransactionMetrics(registry), 7);
+    private final ResponseCorrelator correlator = new ResponseCorrelator(timer, new RrnOwnership(List.of(), 0));
+    private final TransactionJournal journal = new TransactionJournal(false, "journal", 1, 0, 5, 1);
+    private Iso8583Processor processor;
+
+    @AfterEach
+    void tearDown() {
+        if (processor != null) processor.shutdown();
+        new Iso8583Server().setResponseCorrelator(null);
+        new Iso8583Server().setAdviceQueue(null);
+    }
+
+    @Test
+    @DisplayName("Should approve under the floor limit and hold each card to its learned balance above it")
+    void shouldApplyCardLimits() {
+        StandInLimits limits = new StandInLimits(1024, 16, 5_000, 50_000, 10_000);
+        long now = System.currentTimeMillis();
+
+        assertEquals(StandInLimits.APPROVED, limits.decide(PAN, 4_000, now), "Under the floor limit");
+        assertEquals(StandInLimits.ISSUER_UNAVAILABLE, limits.decide(PAN, 8_000, now),
+                "An unknown card gets unknown-card-limit, less what stand-in already approved");
+        assertEquals(StandInLimits.INVALID_AMOUNT, limits.decide(PAN, 0, now));
+        assertEquals(StandInLimits.INVALID_CARD, limits.decide("4000ABC", 1_000, now));
+
+        // Authorize's 0210 carries the available balance in field 54
+        limits.observe(PAN, Iso8583Parser.parseMessage("0210|2=" + PAN + "|37=000000000001|39=00|54=0002704C000000030000"), now);
+        assertEquals(StandInLimits.APPROVED, limits.decide(PAN, 20_000, now));
+        assertEquals(StandInLimits.ISSUER_UNAVAILABLE, limits.decide(PAN, 7_000, now), "30000 - 4000 - 20000 left");
+        limits.settle(PAN, 20_000);
+        assertEquals(StandInLimits.APPROVED, limits.decide(PAN, 7_000, now), "An acknowledged approval frees the limit");
+
+        limits.observe(PAN, Iso8583Parser.parseMessage("0210|2=" + PAN + "|37=000000000002|39=43"), now);
+        assertEquals(StandInLimits.DO_NOT_HONOR, limits.decide(PAN, 100, now), "A stolen card stays declined");
+        assertEquals(-1_500, StandInLimits.availableBalance("0001704C0000000099990002704D000000001500"));
+    }
+
+    @Test
+    @DisplayName("Should evict the card touched longest ago once its slot group is full")
+    void shouldEvictOldestCard() {
+        StandInLimits limits = new StandInLimits(1, 1, 0, 50_000, 10_000);
+        for (int card = 0; card < 16; card++) {
+            limits.observe(String.format("4000%012d", card),
+                    Iso8583Parser.parseMessage("0210|39=00|54=0002704C000000030000"), card);
+        }
+        limits.decide(String.format("4000%012d", 99), 1, 100);
+        // Card 1 kept its learned balance; card 0 was evicted and is back to the unknown-card limit
+        assertEquals(StandInLimits.APPROVED, limits.decide(String.format("4000%012d", 1), 20_000, 101));
+        assertEquals(StandInLimits.ISSUER_UNAVAILABLE, limits.decide(String.format("4000%012d", 0), 20_000, 102));
+    }
+
+    @Test
+    @DisplayName("Should start standing in on backlog, let probes through, and stop once authorize recovers")
+    void shouldTrackAuthorizeHealth() {
+        StandInMonitor monitor = new StandInMonitor(timer, registry, true, 100, 2, 50);
+        long now = System.nanoTime();
+        assertFalse(monitor.shouldStandIn(now));
+
+        for (int i = 0; i < 3; i++) timer.startTimer(String.format("%012d", i));
+        assertTrue(monitor.shouldStandIn(now));
+        assertTrue(monitor.isActive());
+        long probe = now + TimeUnit.MILLISECONDS.toNanos(50);
+        assertFalse(monitor.shouldStandIn(probe), "One 0200 per probe interval goes to authorize");
+        assertTrue(monitor.shouldStandIn(probe));
+
+        // Backlog drained but latency high: still standing in
+        for (int i = 0; i < 3; i++) timer.checkResponse(String.format("%012d", i));
+        for (int i = 0; i < 20; i++) monitor.recordLatency(TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(monitor.shouldStandIn(probe));
+        for (int i = 0; i < 40; i++) monitor.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        assertFalse(monitor.shouldStandIn(probe));
+        assertFalse(monitor.isActive());
+        assertEquals(0.0, registry.get("iso8583.stip.active").gauge().value());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Should stand in once authorize misses the deadline, then forward the advice until acknowledged")
+    void shouldStandInAfterDeadline() throws Exception {
+        StandInMonitor monitor = new StandInMonitor(timer, registry, true, 60_000, 1_000, 500);
+        StandInLimits limits = new StandInLimits(1024, 16, 5_000, 50_000, 10_000);
+        AdviceQueue advices = new AdviceQueue(journal, limits, monitor, correlator, registry, 100, 60_000, 10);
+        processor = processor(monitor, limits, advices, 100);
+
+        long start = System.nanoTime();
+        Iso8583Message response = processor.authorize(request("000000000001", 8_000), request("000000000001", 8_000).toString())
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals("00", response.getField(39));
+        assertNotNull(response.getField(38));
+        assertEquals(1, advices.getPendingCount());
+        assertEquals(1.0, registry.get("iso8583.transactions.stood_in").counter().count());
+        // Authorize's own decline turns up late: dropped, the stand-in approval and its advice stand
+        assertFalse(timer.checkResponse("000000000001", Iso8583Parser.parseMessage("0210|37=000000000001|39=51")));
+        assertEquals(1, advices.getPendingCount());
+
+        // No socket clients here, so sending is a no-op; each advice goes once per retry interval
+        long now = System.currentTimeMillis();
+        assertEquals(1, advices.sendDue(now));
+        assertEquals(0, advices.sendDue(now + 1_000));
+        assertEquals(StandInLimits.ISSUER_UNAVAILABLE, limits.decide(PAN, 6_000, now), "8000 of 10000 spent in stand-in");
+        advices.acknowledge("000000000001");
+        assertEquals(0, advices.getPendingCount());
+        assertEquals(StandInLimits.APPROVED, limits.decide(PAN, 9_000, now), "Posted by authorize, no longer counted");
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Should answer at once while standing in, and learn limits from authorize's own 0210s otherwise")
+    void shouldStandInImmediatelyWhileActive() throws Exception {
+        StandInMonitor monitor = new StandInMonitor(timer, registry, true, 100, 1_000, 60_000);
+        StandInLimits limits = new StandInLimits(1024, 16, 5_000, 50_000, 10_000);
+        AdviceQueue advices = new AdviceQueue(journal, limits, monitor, correlator, registry, 1, 60_000, 10);
+        processor = processor(monitor, limits, advices, 5_000);
+
+        // Authorize answers in time: no stand-in, and its balance is learned
+        CompletableFuture<Iso8583Message> answered = processor.authorize(request("000000000001", 1_000),
+                request("000000000001", 1_000).toString());
+        correlator.onResponse(Iso8583Parser.parseMessage("0210|2=" + PAN + "|37=000000000001|39=00|54=0002704C000000040000"), "");
+        assertEquals("00", answered.get(5, TimeUnit.SECONDS).getField(39));
+        assertEquals(0, advices.getPendingCount());
+
+        for (int i = 0; i < 10; i++) monitor.recordLatency(TimeUnit.SECONDS.toNanos(1));
+        CompletableFuture<Iso8583Message> stoodIn = processor.authorize(request("000000000002", 30_000),
+                request("000000000002", 30_000).toString());
+        assertTrue(stoodIn.isDone(), "Decided without waiting on authorize");
+        assertEquals("00", stoodIn.get().getField(39), "Within the learned 40000");
+        assertEquals(1, advices.getPendingCount());
+        assertEquals(0, advices.sendDue(System.currentTimeMillis()), "Advices wait until authorize recovers");
+
+        // The advice queue is full: an approval nobody could tell authorize about becomes a decline
+        CompletableFuture<Iso8583Message> full = processor.authorize(request("000000000003", 1_000),
+                request("000000000003", 1_000).toString());
+        assertEquals(StandInLimits.ISSUER_UNAVAILABLE, full.get().getField(39));
+        assertNull(full.get().getField(38));
+
+        // Authorize is healthy again but no 0200 comes to notice: the sender does
+        for (int i = 0; i < 30; i++) monitor.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(1, advices.sendDue(System.currentTimeMillis()), "Recovery is noticed by the advice sender");
+        assertFalse(monitor.isActive());
+        // A 0230 on a standalone replica is acknowledged here
+        correlator.onAdviceResponse("000000000002");
+        assertEquals(0, advices.getPendingCount());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Should queue unacknowledged advices again after a restart")
+    void shouldReplayAdvices() throws Exception {
+        TransactionJournal previous = new TransactionJournal(true, directory.toString(), 1, 0, 5, 16);
+        previous.open();
+        previous.append(TransactionJournal.RecordType.ADVICE, "0220|2=" + PAN + "|4=000000001000|37=000000000001|39=00");
+        previous.append(TransactionJournal.RecordType.ADVICE, "0220|2=" + PAN + "|4=000000002000|37=000000000002|39=00");
+        previous.append(TransactionJournal.RecordType.ADVISED, "000000000001");
+        previous.close();
+
+        TransactionJournal current = new TransactionJournal(true, directory.toString(), 1, 0, 5, 16);
+        current.open();
+        StandInMonitor monitor = new StandInMonitor(timer, registry, true, 1_000, 1_000, 500);
+        StandInLimits limits = new StandInLimits(1024, 16, 5_000, 50_000, 10_000);
+        AdviceQueue advices = new AdviceQueue(current, limits, monitor, correlator, registry, 100, 60_000, 10);
+        JournalReplayer replayer = new JournalReplayer(current, correlator,
+                new TransactionPersistenceService(registry, false, 1, 16, 8, 5), timer);
+        replayer.setAdviceQueue(advices);
+        replayer.replay();
+
+        assertEquals(1, advices.getPendingCount());
+        // Carried into the new segment so a second restart still finds it
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.toList();
+        }
+        assertEquals(1, segments.size());
+        assertEquals(List.of("0220|2=" + PAN + "|4=000000002000|37=000000000002|39=00"),
+                TransactionJournal.read(segments.get(0)).stream()
+                        .filter(e -> e.getType() == TransactionJournal.RecordType.ADVICE)
+                        .map(TransactionJournal.Entry::getPayload).toList());
+        current.close();
+    }
+
+    private Iso8583Processor processor(StandInMonitor monitor, StandInLimits limits, AdviceQueue advices, long standInAfterMs) {
+        new Iso8583Server().setResponseCorrelator(correlator);
+        new Iso8583Server().setAdviceQueue(advices);
+        return new Iso8583Processor(new TransactionMetrics(registry), correlator, journal, monitor, limits, advices, standInAfterMs);
+    }
+
+    private static Iso8583Message request(String rrn, long amount) {
+        return Iso8583Parser.parseMessage("0200|2=" + PAN + "|3=000000|4=" + String.format("%012d", amount)
+                + "|7=1019120000|11=" + rrn.substring(6) + "|37=" + rrn + "|41=TERM0001|49=704");
+    }
+}
@@ -9,6 +9,8 @@ public class SimulatorConfig {
     
     private boolean enabled = true;
     private Mode mode = Mode.SCHEDULED;
+    private Transport transport = Transport.UNARY;
+    private int batchSize = 50;
     private Scheduled scheduled = new Scheduled();
     private LoadTest loadTest = new LoadTest();
     private Spike spike = new Spike();
@@ -20,6 +22,13 @@ public class SimulatorConfig {
         MANUAL        // Manual only
     }
     
+    public enum Transport {
+        UNARY,        // One blocking RPC per transaction
+        BATCH,        // One SendTransactionBatch RPC per tick
+        STREAM,       // Shared bidirectional stream with flow control
+        AUTHORIZE     // Async AuthorizeTransaction call completed by the 0210
+    }
+    
     public static class Scheduled {
         private long intervalMs = 15000;
         private int maxRetries = 3;
@@ -69,6 +78,10 @@ public class SimulatorConfig {
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
     public Mode getMode() { return mode; }
     public void setMode(Mode mode) { this.mode = mode; }
+    public Transport getTransport() { return transport; }
+    public void setTransport(Transport transport) { this.transport = transport; }
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
     public Scheduled getScheduled() { return scheduled; }
     public void setScheduled(Scheduled scheduled) { this.scheduled = scheduled; }
     public LoadTest getLoadTest() { return loadTest; }
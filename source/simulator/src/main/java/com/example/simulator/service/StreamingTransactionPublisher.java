@@ -0,0 +1,95 @@
+package com.example.simulator.service;
+
+import com.example.simulator.grpc.Iso8583Proto;
+import com.example.simulator.grpc.Iso8583ServiceGrpc;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Feeds transactions into one long-lived StreamTransactions call.
+ * Requests are only written while the stream reports isReady(), the rest wait in a local queue.
+ */
+@Component
+public class StreamingTransactionPublisher {
+
+    @GrpcClient("iso8583-server")
+    private Iso8583ServiceGrpc.Iso8583ServiceStub iso8583AsyncStub;
+
+    private final Queue<Iso8583Proto.TransactionRequest> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong(0);
+    private final Object writeLock = new Object();
+    private volatile ClientCallStreamObserver<Iso8583Proto.TransactionRequest> requestStream;
+    private volatile Consumer<Iso8583Proto.TransactionAck> ackListener = ack -> {};
+
+    public void setAckListener(Consumer<Iso8583Proto.TransactionAck> ackListener) {
+        this.ackListener = ackListener;
+    }
+
+    public void submit(Iso8583Proto.IsoMessage message, String clientId) {
+        pending.offer(Iso8583Proto.TransactionRequest.newBuilder()
+                .setIso(message)
+                .setClientId(clientId)
+                .setSequence(sequence.incrementAndGet())
+                .build());
+        if (requestStream == null) {
+            openStream();
+        }
+        drain();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void openStream() {
+        synchronized (writeLock) {
+            if (requestStream != null) return;
+            System.out.println("🌊 Opening transaction stream");
+            iso8583AsyncStub.streamTransactions(new AckObserver());
+        }
+    }
+
+    private void drain() {
+        synchronized (writeLock) {
+            ClientCallStreamObserver<Iso8583Proto.TransactionRequest> stream = requestStream;
+            if (stream == null) return;
+            Iso8583Proto.TransactionRequest request;
+            while (stream.isReady() && (request = pending.poll()) != null) {
+                stream.onNext(request);
+            }
+        }
+    }
+
+    private class AckObserver implements ClientResponseObserver<Iso8583Proto.TransactionRequest, Iso8583Proto.TransactionAck> {
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<Iso8583Proto.TransactionRequest> stream) {
+            requestStream = stream;
+            stream.setOnReadyHandler(StreamingTransactionPublisher.this::drain);
+        }
+
+        @Override
+        public void onNext(Iso8583Proto.TransactionAck ack) {
+            ackListener.accept(ack);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            System.err.println("❌ Transaction stream failed: " + t.getMessage());
+            requestStream = null;
+        }
+
+        @Override
+        public void onCompleted() {
+            System.out.println("📭 Transaction stream closed by server");
+            requestStream = null;
+        }
+    }
+}
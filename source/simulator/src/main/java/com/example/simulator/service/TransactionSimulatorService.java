@@ -1,10 +1,11 @@
 package com.example.simulator.service;
 
-import com.example.common.model.Iso8583Message;
 import com.example.simulator.config.SimulatorConfig;
 import com.example.simulator.grpc.Iso8583Proto;
 import com.example.simulator.grpc.Iso8583ServiceGrpc;
+import com.google.protobuf.ByteString;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -14,7 +15,6 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Random;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -26,14 +26,33 @@ public class TransactionSimulatorService {
     @GrpcClient("iso8583-server")
     private Iso8583ServiceGrpc.Iso8583ServiceBlockingStub iso8583ServiceStub;
 
+    @GrpcClient("iso8583-server")
+    private Iso8583ServiceGrpc.Iso8583ServiceStub iso8583AsyncStub;
+
     @Autowired
     private SimulatorConfig config;
 
+    @Autowired
+    private StreamingTransactionPublisher streamingPublisher;
+
+    private static final ByteString PROCESSING_CODE = ByteString.copyFromUtf8("000000");
+    private static final ByteString MERCHANT_CATEGORY = ByteString.copyFromUtf8("5999");
+    private static final ByteString POS_ENTRY_MODE = ByteString.copyFromUtf8("012");
+    private static final ByteString POS_CONDITION = ByteString.copyFromUtf8("00");
+    private static final ByteString TERMINAL_ID = ByteString.copyFromUtf8("SIM001  ");
+    private static final ByteString MERCHANT_ID = ByteString.copyFromUtf8("SIMULATOR000001");
+    private static final ByteString CURRENCY = ByteString.copyFromUtf8("840");
+
     private final Random random = new Random();
     private final AtomicInteger stanCounter = new AtomicInteger(1);
     private final AtomicLong totalTransactions = new AtomicLong(0);
     private final AtomicLong successfulTransactions = new AtomicLong(0);
     private final AtomicLong failedTransactions = new AtomicLong(0);
+    private final AtomicLong approvedTransactions = new AtomicLong(0);
+    private final AtomicLong timedOutTransactions = new AtomicLong(0);
+    private final AtomicLong authorizationResults = new AtomicLong(0);
+    private final AtomicLong totalLatencyMicros = new AtomicLong(0);
+    private final AtomicLong maxLatencyMicros = new AtomicLong(0);
     private final ExecutorService executorService = Executors.newCachedThreadPool();
     private volatile boolean spikeActive = false;
     private ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
@@ -45,7 +64,15 @@ public class TransactionSimulatorService {
             return;
         }
         
-        System.out.println("🚀 Starting simulator in " + config.getMode() + " mode");
+        System.out.println("🚀 Starting simulator in " + config.getMode() + " mode over " + config.getTransport());
+        streamingPublisher.setAckListener(ack -> {
+            if (ack.getSuccess()) {
+                successfulTransactions.incrementAndGet();
+            } else {
+                failedTransactions.incrementAndGet();
+                System.err.println("❌ Transaction " + ack.getSequence() + " failed: " + ack.getMessage());
+            }
+        });
         
         switch (config.getMode()) {
             case LOAD_TEST -> startLoadTest();
@@ -78,9 +105,7 @@ public class TransactionSimulatorService {
                 return;
             }
             
-            for (int i = 0; i < loadConfig.getThreadsPerSecond(); i++) {
-                executorService.submit(this::sendTransaction);
-            }
+            dispatch(loadConfig.getThreadsPerSecond());
         }, 0, 1, TimeUnit.SECONDS);
     }
     
@@ -92,9 +117,7 @@ public class TransactionSimulatorService {
         // Normal load
         scheduler.scheduleAtFixedRate(() -> {
             if (!spikeActive) {
-                for (int i = 0; i < spikeConfig.getNormalTps(); i++) {
-                    executorService.submit(this::sendTransaction);
-                }
+                dispatch(spikeConfig.getNormalTps());
             }
         }, 0, 1, TimeUnit.SECONDS);
         
@@ -104,9 +127,7 @@ public class TransactionSimulatorService {
             spikeActive = true;
             
             ScheduledFuture<?> spikeTask = scheduler.scheduleAtFixedRate(() -> {
-                for (int i = 0; i < spikeConfig.getSpikeTps(); i++) {
-                    executorService.submit(this::sendTransaction);
-                }
+                dispatch(spikeConfig.getSpikeTps());
             }, 0, 1, TimeUnit.SECONDS);
             
             scheduler.schedule(() -> {
@@ -118,16 +139,106 @@ public class TransactionSimulatorService {
         }, spikeConfig.getIntervalBetweenSpikesSeconds(), spikeConfig.getIntervalBetweenSpikesSeconds(), TimeUnit.SECONDS);
     }
     
+    /**
+     * Send one tick worth of transactions over the configured transport
+     */
+    private void dispatch(int count) {
+        switch (config.getTransport()) {
+            case STREAM -> {
+                totalTransactions.addAndGet(count);
+                for (int i = 0; i < count; i++) {
+                    streamingPublisher.submit(createRandomTransaction(), "simulator-stream");
+                }
+            }
+            case AUTHORIZE -> {
+                for (int i = 0; i < count; i++) {
+                    authorizeTransaction();
+                }
+            }
+            case BATCH -> {
+                for (int offset = 0; offset < count; offset += config.getBatchSize()) {
+                    int size = Math.min(config.getBatchSize(), count - offset);
+                    executorService.submit(() -> sendBatch(size));
+                }
+            }
+            default -> {
+                for (int i = 0; i < count; i++) {
+                    executorService.submit(this::sendTransaction);
+                }
+            }
+        }
+    }
+
+    private void sendBatch(int size) {
+        totalTransactions.addAndGet(size);
+        Iso8583Proto.TransactionBatchRequest.Builder batch = Iso8583Proto.TransactionBatchRequest.newBuilder();
+        String clientId = "simulator-batch-" + System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            batch.addTransactions(Iso8583Proto.TransactionRequest.newBuilder()
+                    .setIso(createRandomTransaction())
+                    .setClientId(clientId)
+                    .build());
+        }
+
+        try {
+            Iso8583Proto.TransactionBatchResponse response = iso8583ServiceStub
+                    .withDeadlineAfter(5, TimeUnit.SECONDS)
+                    .sendTransactionBatch(batch.build());
+            successfulTransactions.addAndGet(response.getAccepted());
+            failedTransactions.addAndGet(response.getRejected());
+        } catch (StatusRuntimeException e) {
+            failedTransactions.addAndGet(size);
+            System.err.println("❌ Batch of " + size + " failed: " + e.getStatus());
+        }
+    }
+    
+    /**
+     * Fire an authorization without waiting: the callback records the end-to-end latency
+     * and the issuer response code once the server sees the 0210 (or gives up)
+     */
+    private void authorizeTransaction() {
+        totalTransactions.incrementAndGet();
+        long startNanos = System.nanoTime();
+        Iso8583Proto.TransactionRequest request = Iso8583Proto.TransactionRequest.newBuilder()
+                .setIso(createRandomTransaction())
+                .setClientId("simulator-authorize")
+                .build();
+
+        iso8583AsyncStub.withDeadlineAfter(15, TimeUnit.SECONDS).authorizeTransaction(request, new StreamObserver<>() {
+            @Override
+            public void onNext(Iso8583Proto.AuthorizationResult result) {
+                long latencyMicros = (System.nanoTime() - startNanos) / 1000;
+                authorizationResults.incrementAndGet();
+                totalLatencyMicros.addAndGet(latencyMicros);
+                maxLatencyMicros.accumulateAndGet(latencyMicros, Math::max);
+                if (result.getSuccess()) {
+                    successfulTransactions.incrementAndGet();
+                    if ("00".equals(result.getResponseCode())) approvedTransactions.incrementAndGet();
+                } else {
+                    failedTransactions.incrementAndGet();
+                    if (result.getTimedOut()) timedOutTransactions.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                failedTransactions.incrementAndGet();
+                System.err.println("❌ Authorization failed: " + t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+    }
+    
     public void sendTransaction() {
         totalTransactions.incrementAndGet();
         
         for (int attempt = 1; attempt <= config.getScheduled().getMaxRetries(); attempt++) {
             try {
-                Iso8583Message transaction = createRandomTransaction();
-                String message = transaction.toString();
-                
                 Iso8583Proto.TransactionRequest request = Iso8583Proto.TransactionRequest.newBuilder()
-                        .setMessage(message)
+                        .setIso(createRandomTransaction())
                         .setClientId("simulator-" + System.currentTimeMillis())
                         .build();
                 
@@ -168,34 +279,63 @@ public class TransactionSimulatorService {
             long failed = failedTransactions.get();
             double successRate = total > 0 ? (success * 100.0 / total) : 0;
             
-            System.out.println(String.format("📊 Stats - Total: %d, Success: %d (%.1f%%), Failed: %d", 
-                total, success, successRate, failed));
+            System.out.println(String.format("📊 Stats - Total: %d, Success: %d (%.1f%%), Failed: %d, Queued: %d", 
+                total, success, successRate, failed, streamingPublisher.getPendingCount()));
+            long results = authorizationResults.get();
+            if (results > 0) {
+                System.out.println(String.format("📊 Authorizations - Approved: %d, Timed out: %d, Avg latency: %.1f ms, Max: %.1f ms",
+                    approvedTransactions.get(), timedOutTransactions.get(),
+                    totalLatencyMicros.get() / 1000.0 / results,
+                    maxLatencyMicros.get() / 1000.0));
+            }
         }
     }
 
-    private Iso8583Message createRandomTransaction() {
-        Iso8583Message msg = new Iso8583Message();
-        msg.setMti("0200");
-        
-        msg.addField(2, generatePan());
-        msg.addField(3, "000000");
-        msg.addField(4, String.format("%012d", random.nextInt(100000) + 1000));
-        msg.addField(7, LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMddHHmmss")));
-        msg.addField(11, String.format("%06d", stanCounter.getAndIncrement()));
-        msg.addField(12, LocalDateTime.now().format(DateTimeFormatter.ofPattern("HHmmss")));
-        msg.addField(13, LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMdd")));
-        msg.addField(18, "5999");
-        msg.addField(22, "012");
-        msg.addField(25, "00");
-        msg.addField(37, String.format("%012d", random.nextInt(999999999)));
-        msg.addField(41, "SIM001  ");
-        msg.addField(42, "SIMULATOR000001");
-        msg.addField(49, "840");
-        
-        return msg;
+    private Iso8583Proto.IsoMessage createRandomTransaction() {
+        LocalDateTime now = LocalDateTime.now();
+        long time = now.getHour() * 10000L + now.getMinute() * 100L + now.getSecond();
+        long date = now.getMonthValue() * 100L + now.getDayOfMonth();
+
+        return Iso8583Proto.IsoMessage.newBuilder()
+                .setMti(200)
+                .putFields(2, generatePan())
+                .putFields(3, PROCESSING_CODE)
+                .putFields(4, numeric(random.nextInt(100000) + 1000, 12))
+                .putFields(7, numeric(date * 1000000L + time, 10))
+                .putFields(11, numeric(Math.floorMod(stanCounter.getAndIncrement(), 1000000), 6))
+                .putFields(12, numeric(time, 6))
+                .putFields(13, numeric(date, 4))
+                .putFields(18, MERCHANT_CATEGORY)
+                .putFields(22, POS_ENTRY_MODE)
+                .putFields(25, POS_CONDITION)
+                .putFields(37, numeric(random.nextInt(999999999), 12))
+                .putFields(41, TERMINAL_ID)
+                .putFields(42, MERCHANT_ID)
+                .putFields(49, CURRENCY)
+                .build();
+    }
+
+    private ByteString generatePan() {
+        byte[] pan = new byte[16];
+        pan[0] = '4';
+        pan[1] = pan[2] = pan[3] = '0';
+        writeDigits(random.nextInt(1000000000), pan, 4, 12);
+        return ByteString.copyFrom(pan);
     }
 
-    private String generatePan() {
-        return "4000" + String.format("%012d", random.nextInt(1000000000));
+    /**
+     * Zero-padded ASCII digits, written right to left
+     */
+    private static ByteString numeric(long value, int width) {
+        byte[] digits = new byte[width];
+        writeDigits(value, digits, 0, width);
+        return ByteString.copyFrom(digits);
+    }
+
+    private static void writeDigits(long value, byte[] target, int offset, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            target[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
     }
 }
\ No newline at end of file